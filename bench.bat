@@ -0,0 +1,33 @@
+@echo off
+REM ============================================
+REM    ЗАПУСК БЕНЧМАРКОВ (Windows)
+REM ============================================
+REM Использование: bench.bat <класс бенчмарка> [аргументы]
+REM Пример: bench.bat TripFileBenchmark 1000000
+
+if "%~1"=="" (
+    echo Использование: bench.bat ^<класс бенчмарка^> [аргументы]
+    exit /b 1
+)
+
+if not exist "bin" mkdir bin
+if not exist "bench-bin" mkdir bench-bin
+
+dir /s /b src\*.java > sources.txt
+javac -encoding UTF-8 -d bin -cp "src" @sources.txt
+if %errorlevel% neq 0 (
+    del sources.txt
+    echo COMPILATION ERROR!
+    exit /b 1
+)
+del sources.txt
+
+javac -encoding UTF-8 -d bench-bin -cp "bin" bench/*.java
+if %errorlevel% neq 0 (
+    echo COMPILATION ERROR!
+    exit /b 1
+)
+
+set BENCHMARK=%1
+shift
+java %JAVA_OPTS% -cp "bin;bench-bin" bench.%BENCHMARK% %1 %2 %3 %4 %5 %6 %7 %8 %9
@@ -0,0 +1,25 @@
+#!/bin/bash
+
+# ===========================================
+#    ЗАПУСК БЕНЧМАРКОВ (Linux/macOS)
+# ===========================================
+# Использование: ./bench.sh <класс бенчмарка> [аргументы]
+# Пример: ./bench.sh TripFileBenchmark 1000000
+# Параметры JVM: JAVA_OPTS="-Xmx4g" ./bench.sh DispatchStrategyBenchmark -p fleetSize=1000000
+
+if [ -z "$1" ]; then
+    echo "Использование: ./bench.sh <класс бенчмарка> [аргументы]"
+    echo "Доступные бенчмарки:"
+    ls bench/*Benchmark.java | xargs -n1 basename | sed 's/\.java$//'
+    exit 1
+fi
+
+BENCHMARK=$1
+shift
+
+# Компилируем основной код и бенчмарки
+mkdir -p bin bench-bin
+javac -encoding UTF-8 -d bin -cp "src" $(find src -name "*.java") || exit 1
+javac -encoding UTF-8 -d bench-bin -cp "bin" bench/*.java || exit 1
+
+java $JAVA_OPTS -cp "bin:bench-bin" bench.$BENCHMARK "$@"
@@ -0,0 +1,118 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+// Параметры запуска бенчмарка из командной строки (по образцу JMH):
+//   -wi N        количество прогревочных итераций
+//   -i N         количество измерительных итераций
+//   -r MS        длительность итерации, мс
+//   -t 1,4,16    количества потоков (для многопоточных бенчмарков)
+//   -p имя=a,b   значения параметра, заменяют значения по умолчанию
+//   -o файл.csv  дописать результаты в CSV
+public class BenchmarkOptions {
+
+    private int warmupIterations = 3;
+    private int measurementIterations = 5;
+    private long iterationMillis = 1000;
+    private List<Integer> threads;
+    private final Map<String, List<String>> params = new LinkedHashMap<>();
+    private String outputFile;
+
+    public static BenchmarkOptions parse(String[] args) {
+        BenchmarkOptions options = new BenchmarkOptions();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Не задано значение для " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "-wi":
+                    options.warmupIterations = Integer.parseInt(value);
+                    break;
+                case "-i":
+                    options.measurementIterations = Integer.parseInt(value);
+                    break;
+                case "-r":
+                    options.iterationMillis = Long.parseLong(value);
+                    break;
+                case "-t":
+                    options.threads = new ArrayList<>();
+                    for (String count : value.split(",")) {
+                        options.threads.add(Integer.parseInt(count.trim()));
+                    }
+                    break;
+                case "-p":
+                    int eq = value.indexOf('=');
+                    if (eq <= 0) {
+                        throw new IllegalArgumentException("Ожидалось -p имя=значения: " + value);
+                    }
+                    options.params.put(value.substring(0, eq), Arrays.asList(value.substring(eq + 1).split(",")));
+                    break;
+                case "-o":
+                    options.outputFile = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Неизвестный параметр: " + arg);
+            }
+        }
+        return options;
+    }
+
+    // Значения параметра: из командной строки или значения по умолчанию
+    public List<String> values(String name, String... defaults) {
+        List<String> values = params.get(name);
+        return values != null ? values : Arrays.asList(defaults);
+    }
+
+    // Декартово произведение значений параметров в порядке объявления
+    public List<Map<String, String>> grid(Map<String, List<String>> declared) {
+        List<Map<String, String>> combinations = new ArrayList<>();
+        combinations.add(new LinkedHashMap<>());
+        for (Map.Entry<String, List<String>> entry : declared.entrySet()) {
+            List<Map<String, String>> next = new ArrayList<>();
+            for (Map<String, String> prefix : combinations) {
+                for (String value : entry.getValue()) {
+                    Map<String, String> combination = new LinkedHashMap<>(prefix);
+                    combination.put(entry.getKey(), value);
+                    next.add(combination);
+                }
+            }
+            combinations = next;
+        }
+        return combinations;
+    }
+
+    // =========== Геттеры ============
+
+    public int getWarmupIterations() {
+        return warmupIterations;
+    }
+
+    public int getMeasurementIterations() {
+        return measurementIterations;
+    }
+
+    public long getIterationMillis() {
+        return iterationMillis;
+    }
+
+    public List<Integer> getThreads() {
+        return threads != null ? threads : Collections.singletonList(1);
+    }
+
+    // Количества потоков: из командной строки (-t) или значения по умолчанию
+    public List<Integer> threads(Integer... defaults) {
+        return threads != null ? threads : Arrays.asList(defaults);
+    }
+
+    public String getOutputFile() {
+        return outputFile;
+    }
+}
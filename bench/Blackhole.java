@@ -0,0 +1,39 @@
+package bench;
+
+
+// Потребитель результатов бенчмарка: не дает JIT выбросить вычисления как мертвый код.
+// Аналог org.openjdk.jmh.infra.Blackhole в упрощенном виде.
+public final class Blackhole {
+
+    private int intSink;
+    private long longSink;
+    private double doubleSink;
+    private Object objectSink;
+
+    // Недостижимое на практике условие, которое JIT не может доказать ложным
+    private volatile boolean never = false;
+
+    public void consume(Object value) {
+        objectSink = value;
+    }
+
+    public void consume(int value) {
+        intSink ^= value;
+    }
+
+    public void consume(long value) {
+        longSink ^= value;
+    }
+
+    public void consume(double value) {
+        doubleSink += value;
+    }
+
+    // Вызывается после измерения, чтобы значения "утекли" наружу
+    void release() {
+        if (never) {
+            System.out.println(intSink + " " + longSink + " " + doubleSink + " " + objectSink);
+        }
+        objectSink = null;
+    }
+}
@@ -0,0 +1,91 @@
+package bench;
+
+import models.Point;
+import models.RideRequest;
+import models.TaxiType;
+import services.Dispatcher;
+import services.NearestTaxiStrategy;
+import services.TaxiWorker;
+import stats.StatisticsCollector;
+import stats.TaxiStats;
+import stats.TaxiTypeStats;
+import util.ConsoleLog;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+
+
+// Масштабируемость пути завершения поездки под конкуренцией потоков такси:
+//   completion    - Dispatcher.onRideCompleted -> StatisticsCollector.recordCompletedRide,
+//                   у каждого потока свое такси, как в симуляции
+//   taxiStats     - TaxiStats.addRide на одном общем объекте
+//   taxiTypeStats - TaxiTypeStats.addRide на одном общем объекте (все такси одного типа)
+//
+// console=on - журнал включен, вывод идет в PrintStream без терминала: измеряется
+// форматирование и блокировка PrintStream, но не скорость консоли.
+// Запуск: ./bench.sh CompletionPathBenchmark -t 1,4,16,64 -p console=off
+public class CompletionPathBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+
+        Map<String, List<String>> declared = new LinkedHashMap<>();
+        declared.put("path", options.values("path", "completion", "taxiStats", "taxiTypeStats"));
+        declared.put("console", options.values("console", "off", "on"));
+
+        Harness harness = new Harness(options);
+        PrintStream discard = new PrintStream(OutputStream.nullOutputStream());
+        for (Map<String, String> params : options.grid(declared)) {
+            for (int threads : options.threads(1, 2, 4, 8, 16, 32, 64)) {
+                boolean console = "on".equals(params.get("console"));
+                ConsoleLog.setEnabled(false);
+                Harness.OperationFactory factory = createFactory(params.get("path"), threads);
+
+                // Включаем журнал только на время измерения, вывод уходит в никуда
+                System.setOut(discard);
+                ConsoleLog.setEnabled(console);
+                try {
+                    harness.measure("completion." + params.get("path"), params, threads, factory);
+                } finally {
+                    ConsoleLog.setEnabled(true);
+                    Harness.restoreConsole();
+                }
+            }
+        }
+    }
+
+    private static Harness.OperationFactory createFactory(String path, int threads) {
+        switch (path) {
+            case "completion": {
+                StatisticsCollector collector = new StatisticsCollector();
+                List<TaxiWorker> taxis = new ArrayList<>();
+                TaxiType[] types = TaxiType.values();
+                for (int i = 0; i < threads; i++) {
+                    taxis.add(new TaxiWorker(i + 1, types[i % types.length], new Point(i, i), 10.0));
+                }
+                Dispatcher dispatcher = new Dispatcher(new LinkedBlockingQueue<>(), taxis,
+                                                       new NearestTaxiStrategy(), collector);
+                return index -> {
+                    TaxiWorker taxi = taxis.get(index);
+                    RideRequest ride = new RideRequest(index + 1, new Point(0, 0), new Point(3, 4), taxi.getType());
+                    return blackhole -> dispatcher.onRideCompleted(taxi, ride, 5.0, 100.0, 1500L);
+                };
+            }
+            case "taxiStats": {
+                TaxiStats stats = new TaxiStats();
+                return index -> blackhole -> stats.addRide(5.0, 100.0, 3000L, 1500L);
+            }
+            case "taxiTypeStats": {
+                TaxiTypeStats stats = new TaxiTypeStats();
+                return index -> blackhole -> stats.addRide(5.0, 100.0, 3000L, 1500L);
+            }
+            default:
+                throw new IllegalArgumentException("Неизвестный путь: " + path);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package bench;
+
+import infra.HotspotDemandModel;
+import infra.SimulationConfig;
+import infra.UniformDemandModel;
+import models.RequestIdSequence;
+import util.AliasTable;
+
+import java.io.BufferedWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+
+// Стоимость выборки заказа неоднородного спроса в зависимости от числа горячих точек.
+// Первая часть - выбор компоненты смеси: таблица псевдонимов против линейного поиска
+// по накопленным весам (перед замером проверяется, что частоты таблицы совпадают с весами).
+// Вторая - полный createRequest: равномерный спрос и профиль с горячими точками,
+// и расчет множителя интенсивности для прореживания.
+// Запуск: ./bench.sh DemandBenchmark -p spots=4,64,1024
+public class DemandBenchmark {
+
+    private static final double CITY_SIZE = 100.0;
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+
+        Map<String, List<String>> declared = new LinkedHashMap<>();
+        declared.put("spots", options.values("spots", "4", "64", "1024"));
+
+        Harness harness = new Harness(options);
+        SimulationConfig config = new SimulationConfig.Builder()
+            .cityBounds(0, CITY_SIZE, 0, CITY_SIZE)
+            .build();
+
+        SplittableRandom uniformRandom = new SplittableRandom(7);
+        UniformDemandModel uniform = new UniformDemandModel(config, new RequestIdSequence());
+        Map<String, String> uniformParams = new LinkedHashMap<>();
+        uniformParams.put("spots", "0");
+        harness.measure("UniformDemandModel.createRequest", uniformParams,
+                        blackhole -> blackhole.consume(uniform.createRequest(uniformRandom)));
+
+        for (Map<String, String> params : options.grid(declared)) {
+            int spots = Integer.parseInt(params.get("spots"));
+            SplittableRandom random = new SplittableRandom(11);
+            double[] weights = new double[spots];
+            for (int i = 0; i < spots; i++) {
+                // Веса с сильным перекосом, как у реальных районов
+                weights[i] = 1.0 / (i + 1);
+            }
+
+            AliasTable alias = new AliasTable(weights);
+            verify(alias, weights);
+            double[] cumulative = new double[spots];
+            double total = 0;
+            for (int i = 0; i < spots; i++) {
+                total += weights[i];
+                cumulative[i] = total;
+            }
+            double sum = total;
+
+            harness.measure("AliasTable.sample", params, blackhole -> blackhole.consume(alias.sample(random)));
+            harness.measure("linear.sample", params, blackhole -> {
+                double u = random.nextDouble() * sum;
+                int i = 0;
+                while (i < cumulative.length - 1 && cumulative[i] <= u) {
+                    i++;
+                }
+                blackhole.consume(i);
+            });
+
+            Path profile = writeProfile(spots, random);
+            HotspotDemandModel model = HotspotDemandModel.load(profile, config, new RequestIdSequence());
+            Files.delete(profile);
+            harness.measure("HotspotDemandModel.createRequest", params,
+                            blackhole -> blackhole.consume(model.createRequest(random)));
+            long[] elapsed = new long[1];
+            harness.measure("HotspotDemandModel.rateFactor", params, blackhole -> {
+                elapsed[0] += 1_000_003L;
+                blackhole.consume(model.rateFactor(elapsed[0]));
+            });
+        }
+    }
+
+    // Частоты выборки должны совпадать с нормированными весами
+    private static void verify(AliasTable alias, double[] weights) {
+        int samples = 1_000_000;
+        long[] counts = new long[weights.length];
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < samples; i++) {
+            counts[alias.sample(random)]++;
+        }
+        double total = 0;
+        for (double weight : weights) {
+            total += weight;
+        }
+        double maxError = 0;
+        for (int i = 0; i < weights.length; i++) {
+            maxError = Math.max(maxError, Math.abs((double) counts[i] / samples - weights[i] / total));
+        }
+        if (maxError > 0.005) {
+            throw new IllegalStateException("Частоты таблицы псевдонимов расходятся с весами на " + maxError);
+        }
+        System.out.printf(Locale.US, "  %d весов: наибольшее отклонение частоты %.5f%n", weights.length, maxError);
+    }
+
+    // Профиль: горячие точки со случайными центрами и смесью типов, фон и кривая часа пик
+    private static Path writeProfile(int spots, SplittableRandom random) throws Exception {
+        Path profile = Files.createTempFile("demand", ".profile");
+        try (BufferedWriter writer = Files.newBufferedWriter(profile, StandardCharsets.UTF_8)) {
+            writer.write("period 60\nrate 0 0.2\nrate 15 1.0\nrate 20 2.5\nrate 30 1.0\nrate 50 0.3\n");
+            writer.write("uniform 1 1\n");
+            for (int i = 0; i < spots; i++) {
+                writer.write(String.format(Locale.US, "spot %.2f %.2f %.2f %.4f %.4f economy=0.6,comfort=0.3,business=0.1%n",
+                                           random.nextDouble() * CITY_SIZE, random.nextDouble() * CITY_SIZE,
+                                           1 + random.nextDouble() * 5, 1.0 / (i + 1), random.nextDouble()));
+            }
+        }
+        return profile;
+    }
+}
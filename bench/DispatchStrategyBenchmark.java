@@ -0,0 +1,166 @@
+package bench;
+
+import infra.StrategyType;
+import models.Point;
+import models.RideRequest;
+import models.TaxiType;
+import services.DispatchStrategy;
+import services.EtaTaxiStrategy;
+import services.LeastLoadedTaxiStrategy;
+import services.NearestTaxiStrategy;
+import services.RideScheduler;
+import services.RideTimer;
+import services.TaxiWorker;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+
+// Стоимость одного вызова DispatchStrategy.selectTaxi в зависимости от размера парка,
+// доли свободных такси, смеси типов и размера города. Занятые такси (1 - idleRatio) везут
+// настоящий заказ: половина едет к клиенту, половина уже с пассажиром, и eta считает
+// для них остаток этапа и дорогу от точки высадки.
+// Запуск: ./bench.sh DispatchStrategyBenchmark -p fleetSize=1000,100000 -p strategy=nearest
+public class DispatchStrategyBenchmark {
+
+    private static final int REQUEST_POOL_SIZE = 1024;
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+
+        Map<String, List<String>> declared = new LinkedHashMap<>();
+        declared.put("strategy", options.values("strategy", "nearest", "leastloaded", "eta"));
+        declared.put("fleetSize", options.values("fleetSize", "10", "1000", "100000", "1000000"));
+        declared.put("idleRatio", options.values("idleRatio", "0.1", "0.5", "1.0"));
+        declared.put("typeMix", options.values("typeMix", "uniform", "economy"));
+        declared.put("citySize", options.values("citySize", "100", "10000"));
+
+        Harness harness = new Harness(options);
+        for (Map<String, String> params : options.grid(declared)) {
+            Harness.silenceConsole();
+            Fixture fixture = new Fixture(params);
+            Harness.restoreConsole();
+
+            int[] cursor = new int[1];
+            harness.measure("DispatchStrategy.selectTaxi", params, blackhole -> {
+                RideRequest request = fixture.requests[cursor[0]++ & (REQUEST_POOL_SIZE - 1)];
+                blackhole.consume(fixture.strategy.selectTaxi(fixture.taxis, request));
+            });
+        }
+    }
+
+    static DispatchStrategy createStrategy(String code, double citySize) {
+        StrategyType type = StrategyType.fromCode(code);
+        switch (type) {
+            case LEAST_LOADED:
+                return new LeastLoadedTaxiStrategy();
+            case ETA:
+                return new EtaTaxiStrategy(0, citySize, 0, citySize, 1);
+            case NEAREST:
+            default:
+                return new NearestTaxiStrategy();
+        }
+    }
+
+
+    // Планировщик, который ничего не запускает: этапы поездок занятых такси и их концы
+    // не меняются во время замера. runLast() вручную выполняет последний запланированный переход
+    static class FrozenScheduler implements RideScheduler {
+        private Runnable last;
+
+        @Override
+        public RideTimer schedule(long delayMillis, Runnable action) {
+            last = action;
+            return () -> false;
+        }
+
+        void runLast() {
+            Runnable action = last;
+            last = null;
+            action.run();
+        }
+
+        @Override
+        public void shutdown() {
+        }
+    }
+
+
+    // Парк и набор заказов для одной комбинации параметров
+    static class Fixture {
+        final DispatchStrategy strategy;
+        final List<TaxiWorker> taxis;
+        final RideRequest[] requests = new RideRequest[REQUEST_POOL_SIZE];
+
+        Fixture(Map<String, String> params) {
+            SplittableRandom random = new SplittableRandom(42);
+            int fleetSize = Integer.parseInt(params.get("fleetSize"));
+            double idleRatio = Double.parseDouble(params.get("idleRatio"));
+            double citySize = Double.parseDouble(params.get("citySize"));
+            double[] typeWeights = typeWeights(params.get("typeMix"));
+
+            this.strategy = createStrategy(params.get("strategy"), citySize);
+            this.taxis = new ArrayList<>(fleetSize);
+            FrozenScheduler scheduler = new FrozenScheduler();
+            List<TaxiWorker> busyTaxis = new ArrayList<>();
+            List<RideRequest> busyRides = new ArrayList<>();
+            for (int i = 0; i < fleetSize; i++) {
+                TaxiWorker taxi = new TaxiWorker(i + 1, pickType(random, typeWeights),
+                    randomPoint(random, citySize), 10.0);
+                taxi.attachScheduler(scheduler);
+                if (random.nextDouble() >= idleRatio) {
+                    RideRequest ride = new RideRequest(REQUEST_POOL_SIZE + i + 1, randomPoint(random, citySize),
+                                                       randomPoint(random, citySize), taxi.getType());
+                    // Назначение ставит такси в TO_PICKUP; переход к клиенту - в WITH_PASSENGER
+                    taxi.assignRequest(ride);
+                    if (random.nextBoolean()) {
+                        scheduler.runLast();
+                    }
+                    busyTaxis.add(taxi);
+                    busyRides.add(ride);
+                }
+                taxis.add(taxi);
+            }
+            for (int i = 0; i < requests.length; i++) {
+                requests[i] = new RideRequest(i + 1, randomPoint(random, citySize), randomPoint(random, citySize),
+                                              pickType(random, typeWeights));
+            }
+            // Индекс стратегии строится при первом выборе; затем занятые такси переносятся
+            // в точку высадки, как после назначения в симуляции
+            strategy.selectTaxi(taxis, requests[0]);
+            for (int i = 0; i < busyTaxis.size(); i++) {
+                strategy.onRideAssigned(busyTaxis.get(i), busyRides.get(i));
+            }
+        }
+
+        private static double[] typeWeights(String mix) {
+            switch (mix) {
+                case "economy":
+                    return new double[] {0.7, 0.2, 0.1};
+                case "uniform":
+                    return new double[] {1.0 / 3, 1.0 / 3, 1.0 / 3};
+                default:
+                    throw new IllegalArgumentException("Неизвестная смесь типов: " + mix);
+            }
+        }
+
+        private static TaxiType pickType(SplittableRandom random, double[] weights) {
+            double value = random.nextDouble();
+            TaxiType[] types = TaxiType.values();
+            for (int i = 0; i < types.length - 1; i++) {
+                value -= weights[i];
+                if (value < 0) {
+                    return types[i];
+                }
+            }
+            return types[types.length - 1];
+        }
+
+        private static Point randomPoint(SplittableRandom random, double citySize) {
+            return new Point(random.nextDouble() * citySize, random.nextDouble() * citySize);
+        }
+    }
+}
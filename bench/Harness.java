@@ -0,0 +1,230 @@
+package bench;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+// Минимальный каркас микробенчмарков без внешних зависимостей.
+// Повторяет основные режимы JMH: прогрев, измерительные итерации фиксированной
+// длительности, пропускная способность (ops/s), среднее время (ns/op)
+// и аллокации на операцию (B/op) по счетчику аллокаций потока.
+public class Harness {
+
+    // Операция бенчмарка. Результат отдается в Blackhole
+    public interface Operation {
+        void invoke(Blackhole blackhole) throws Exception;
+    }
+
+    // Создает операцию для конкретного потока (номер потока от 0)
+    public interface OperationFactory {
+        Operation create(int threadIndex) throws Exception;
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static final PrintStream CONSOLE = System.out;
+
+    private final BenchmarkOptions options;
+
+    public Harness(BenchmarkOptions options) {
+        this.options = options;
+        if (THREADS.isThreadAllocatedMemorySupported()) {
+            THREADS.setThreadAllocatedMemoryEnabled(true);
+        }
+        printHeader();
+    }
+
+    public Result measure(String benchmark, Map<String, String> params, Operation operation) throws Exception {
+        return measure(benchmark, params, 1, index -> operation);
+    }
+
+    // Запускает операцию одновременно в threads потоках и суммирует результаты
+    public Result measure(String benchmark, Map<String, String> params, int threads,
+                          OperationFactory factory) throws Exception {
+        Operation[] operations = new Operation[threads];
+        for (int i = 0; i < threads; i++) {
+            operations[i] = factory.create(i);
+        }
+
+        for (int i = 0; i < options.getWarmupIterations(); i++) {
+            runIteration(operations);
+        }
+
+        double[] throughput = new double[options.getMeasurementIterations()];
+        long totalOps = 0;
+        long totalNanos = 0;
+        long totalAllocated = 0;
+        for (int i = 0; i < throughput.length; i++) {
+            IterationResult iteration = runIteration(operations);
+            throughput[i] = iteration.operations * 1e9 / iteration.nanos;
+            totalOps += iteration.operations;
+            totalNanos += iteration.nanos;
+            totalAllocated += iteration.allocatedBytes;
+        }
+
+        Result result = new Result(benchmark, params, threads, throughput,
+            totalNanos * (double) threads / Math.max(1, totalOps),
+            (double) totalAllocated / Math.max(1, totalOps));
+        report(result);
+        return result;
+    }
+
+    private IterationResult runIteration(Operation[] operations) throws Exception {
+        int threads = operations.length;
+        AtomicBoolean stop = new AtomicBoolean(false);
+        CyclicBarrier start = new CyclicBarrier(threads + 1);
+        long[] counts = new long[threads];
+        long[] allocated = new long[threads];
+        Exception[] failures = new Exception[threads];
+        List<Thread> workers = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            final int index = t;
+            Thread worker = new Thread(() -> {
+                Blackhole blackhole = new Blackhole();
+                Operation operation = operations[index];
+                long threadId = Thread.currentThread().getId();
+                try {
+                    start.await();
+                    long allocatedBefore = THREADS.getThreadAllocatedBytes(threadId);
+                    long count = 0;
+                    while (!stop.get()) {
+                        operation.invoke(blackhole);
+                        count++;
+                    }
+                    allocated[index] = THREADS.getThreadAllocatedBytes(threadId) - allocatedBefore;
+                    counts[index] = count;
+                } catch (Exception e) {
+                    failures[index] = e;
+                } finally {
+                    blackhole.release();
+                }
+            }, "bench-" + index);
+            workers.add(worker);
+            worker.start();
+        }
+
+        start.await();
+        long startNanos = System.nanoTime();
+        Thread.sleep(options.getIterationMillis());
+        stop.set(true);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long nanos = System.nanoTime() - startNanos;
+
+        for (Exception failure : failures) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        IterationResult result = new IterationResult();
+        result.nanos = nanos;
+        for (int t = 0; t < threads; t++) {
+            result.operations += counts[t];
+            result.allocatedBytes += allocated[t];
+        }
+        return result;
+    }
+
+    private void printHeader() {
+        CONSOLE.printf("Прогрев: %d x %d мс, измерение: %d x %d мс%n",
+                       options.getWarmupIterations(), options.getIterationMillis(),
+                       options.getMeasurementIterations(), options.getIterationMillis());
+        CONSOLE.printf("%-40s %4s %16s %10s %16s %10s  %s%n",
+                       "Бенчмарк", "Пот", "ops/s", "± ошибка", "ns/op", "B/op", "Параметры");
+    }
+
+    private void report(Result result) throws IOException {
+        CONSOLE.printf(Locale.US, "%-40s %4d %,16.0f %9.1f%% %,16.1f %,10.1f  %s%n",
+                       result.benchmark, result.threads,
+                       result.getThroughput(), result.getRelativeError() * 100,
+                       result.averageNanos, result.allocatedBytesPerOp, result.params);
+
+        if (options.getOutputFile() != null) {
+            try (PrintWriter writer = new PrintWriter(new FileWriter(options.getOutputFile(), true))) {
+                writer.printf(Locale.US, "%s,\"%s\",%d,%.1f,%.4f,%.2f,%.2f%n",
+                              result.benchmark, result.params, result.threads,
+                              result.getThroughput(), result.getRelativeError(),
+                              result.averageNanos, result.allocatedBytesPerOp);
+            }
+        }
+    }
+
+    // Отключает вывод в консоль (логирование симуляции) на время подготовки и измерений
+    public static void silenceConsole() {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    public static void restoreConsole() {
+        System.setOut(CONSOLE);
+    }
+
+
+    private static class IterationResult {
+        long operations;
+        long nanos;
+        long allocatedBytes;
+    }
+
+
+    public static class Result {
+        private final String benchmark;
+        private final Map<String, String> params;
+        private final int threads;
+        private final double[] throughput;
+        private final double averageNanos;
+        private final double allocatedBytesPerOp;
+
+        Result(String benchmark, Map<String, String> params, int threads, double[] throughput,
+               double averageNanos, double allocatedBytesPerOp) {
+            this.benchmark = benchmark;
+            this.params = params;
+            this.threads = threads;
+            this.throughput = throughput;
+            this.averageNanos = averageNanos;
+            this.allocatedBytesPerOp = allocatedBytesPerOp;
+        }
+
+        public double getThroughput() {
+            double sum = 0;
+            for (double value : throughput) {
+                sum += value;
+            }
+            return sum / throughput.length;
+        }
+
+        // Относительное стандартное отклонение пропускной способности по итерациям
+        public double getRelativeError() {
+            double mean = getThroughput();
+            if (throughput.length < 2 || mean == 0) {
+                return 0;
+            }
+            double squares = 0;
+            for (double value : throughput) {
+                squares += (value - mean) * (value - mean);
+            }
+            return Math.sqrt(squares / (throughput.length - 1)) / mean;
+        }
+
+        public double getAverageNanos() {
+            return averageNanos;
+        }
+
+        public double getAllocatedBytesPerOp() {
+            return allocatedBytesPerOp;
+        }
+    }
+}
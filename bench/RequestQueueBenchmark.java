@@ -0,0 +1,118 @@
+package bench;
+
+import models.Point;
+import models.RideRequest;
+import models.TaxiType;
+import util.MpscRingBuffer;
+import util.WaitStrategy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+
+// Передача заказов от генераторов к диспетчеру: потоки бенчмарка - производители (put),
+// отдельный поток - потребитель, который, как Dispatcher, ждет take() и добирает
+// ожидающие заказы через drainTo пачками до batch.
+//   queue - linked (LinkedBlockingQueue, как в симуляции по умолчанию), array (ArrayBlockingQueue),
+//           ring-spin / ring-yield / ring-park (MpscRingBuffer с соответствующей WaitStrategy)
+//   batch - размер пачки потребителя (1 - только take)
+// ops/s - заказов в секунду через очередь, B/op - выделение памяти производителем на заказ.
+// Запуск: ./bench.sh RequestQueueBenchmark -t 1,2,4 -p queue=linked,ring-park
+public class RequestQueueBenchmark {
+
+    private static final int CAPACITY = 1 << 16;
+    private static final int REQUEST_POOL_SIZE = 1024;
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+
+        Map<String, List<String>> declared = new LinkedHashMap<>();
+        declared.put("queue", options.values("queue", "linked", "array", "ring-spin", "ring-yield", "ring-park"));
+        declared.put("batch", options.values("batch", "1", "64"));
+
+        // Заказы создаются заранее, чтобы в B/op попадала только сама очередь
+        RideRequest[] requests = new RideRequest[REQUEST_POOL_SIZE];
+        TaxiType[] types = TaxiType.values();
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = new RideRequest(i + 1, new Point(i, i), new Point(i + 1, i + 1), types[i % types.length]);
+        }
+
+        Harness harness = new Harness(options);
+        for (Map<String, String> params : options.grid(declared)) {
+            for (int threads : options.threads(1, 2, 4)) {
+                BlockingQueue<RideRequest> queue = createQueue(params.get("queue"));
+                Consumer consumer = new Consumer(queue, Integer.parseInt(params.get("batch")));
+                consumer.start();
+                try {
+                    harness.measure("queue.put", params, threads, index -> {
+                        int[] next = {index};
+                        return blackhole -> queue.put(requests[next[0]++ & (REQUEST_POOL_SIZE - 1)]);
+                    });
+                } finally {
+                    consumer.interrupt();
+                    consumer.join();
+                }
+            }
+        }
+    }
+
+    static BlockingQueue<RideRequest> createQueue(String code) {
+        switch (code) {
+            case "linked":
+                return new LinkedBlockingQueue<>(CAPACITY);
+            case "array":
+                return new ArrayBlockingQueue<>(CAPACITY);
+            default:
+                if (code.startsWith("ring-")) {
+                    return new MpscRingBuffer<>(CAPACITY, WaitStrategy.fromCode(code.substring("ring-".length())));
+                }
+                throw new IllegalArgumentException("Неизвестная очередь: " + code);
+        }
+    }
+
+
+    // Потребитель в стиле Dispatcher.run: take() и добор пачки через drainTo
+    static class Consumer extends Thread {
+        private final BlockingQueue<RideRequest> queue;
+        private final int batchSize;
+        volatile long consumed;
+
+        Consumer(BlockingQueue<RideRequest> queue, int batchSize) {
+            super("bench-consumer");
+            this.queue = queue;
+            this.batchSize = batchSize;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<RideRequest> batch = new ArrayList<>(batchSize);
+            long count = 0;
+            long checksum = 0;
+            try {
+                while (true) {
+                    batch.clear();
+                    batch.add(queue.take());
+                    if (batchSize > 1) {
+                        queue.drainTo(batch, batchSize - 1);
+                    }
+                    for (RideRequest request : batch) {
+                        checksum += request.getId();
+                    }
+                    count += batch.size();
+                    consumed = count;
+                }
+            } catch (InterruptedException e) {
+                // Конец измерения
+            }
+            if (checksum == 42) {
+                System.out.print("");
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package bench;
+
+import history.CompletedRide;
+import history.RideHistory;
+import models.TaxiType;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+
+// Запросы к истории поездок (RideHistory): сутки поездок TAXIS такси, разделы по часу.
+//   rides  - поездок в истории
+//   window - окно запроса: 1h (индекс min/max отсекает почти все сегменты) или 24h (читается все)
+// history.taxi - поездки случайного такси за окно, history.revenue - выручка по типам по часам
+// за окно. Для сравнения heap.scan.taxi - тот же запрос перебором массива объектов в куче,
+// как хранилась бы история без колонок и индекса.
+// После строки запроса - сколько сегментов прочитано и пропущено.
+// Запуск: ./bench.sh RideHistoryBenchmark -p rides=1000000 -p window=1h,24h
+public class RideHistoryBenchmark {
+
+    private static final int TAXIS = 1000;
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+    private static final long START_MILLIS = 1_700_000_000_000L / DAY_MILLIS * DAY_MILLIS;
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+
+        Map<String, List<String>> declared = new LinkedHashMap<>();
+        declared.put("rides", options.values("rides", "1000000"));
+        declared.put("window", options.values("window", "1h", "24h"));
+
+        Harness harness = new Harness(options);
+        String loadedRides = null;
+        RideHistory history = null;
+        CompletedRide[] heap = null;
+        for (Map<String, String> params : options.grid(declared)) {
+            if (!params.get("rides").equals(loadedRides)) {
+                loadedRides = params.get("rides");
+                heap = generate(Integer.parseInt(loadedRides));
+                history = load(heap);
+            }
+            long windowMillis = parseWindow(params.get("window"));
+            long windows = DAY_MILLIS / windowMillis;
+            RideHistory store = history;
+            CompletedRide[] rides = heap;
+            SplittableRandom random = new SplittableRandom(17);
+
+            RideHistory.QueryResult[] last = new RideHistory.QueryResult[1];
+            harness.measure("history.taxi", params, blackhole -> {
+                long from = START_MILLIS + random.nextLong(windows) * windowMillis;
+                last[0] = store.taxiHistory(random.nextInt(TAXIS), from, from + windowMillis);
+                blackhole.consume(last[0]);
+            });
+            printSegments(last[0]);
+
+            harness.measure("heap.scan.taxi", params, blackhole -> {
+                long from = START_MILLIS + random.nextLong(windows) * windowMillis;
+                long to = from + windowMillis;
+                long taxiId = random.nextInt(TAXIS);
+                int found = 0;
+                for (CompletedRide ride : rides) {
+                    if (ride.getTaxiId() == taxiId && ride.getCompletedAtMillis() >= from
+                        && ride.getCompletedAtMillis() < to) {
+                        found++;
+                    }
+                }
+                blackhole.consume(found);
+            });
+
+            harness.measure("history.revenue", params, blackhole -> {
+                long from = START_MILLIS + random.nextLong(windows) * windowMillis;
+                last[0] = store.revenue(from, from + windowMillis, HOUR_MILLIS, null);
+                blackhole.consume(last[0]);
+            });
+            printSegments(last[0]);
+        }
+    }
+
+    // Поездки по возрастанию времени завершения, равномерно по суткам
+    private static CompletedRide[] generate(int count) {
+        SplittableRandom random = new SplittableRandom(42);
+        TaxiType[] types = TaxiType.values();
+        CompletedRide[] rides = new CompletedRide[count];
+        for (int i = 0; i < count; i++) {
+            long time = START_MILLIS + i * DAY_MILLIS / count;
+            int taxiId = random.nextInt(TAXIS);
+            double distance = 1 + random.nextDouble() * 30;
+            rides[i] = new CompletedRide(time, taxiId, types[taxiId % types.length], i + 1,
+                                         distance, 50 + distance * 20, random.nextInt(60_000), (long) (distance * 1000));
+        }
+        return rides;
+    }
+
+    private static RideHistory load(CompletedRide[] rides) throws InterruptedException {
+        RideHistory history = new RideHistory(HOUR_MILLIS);
+        history.start();
+        for (CompletedRide ride : rides) {
+            // Буфер полон - ждем поток записи, а не теряем поездку
+            while (!history.record(ride)) {
+                Thread.yield();
+            }
+        }
+        while (history.getRows() < rides.length) {
+            Thread.sleep(1);
+        }
+        // Закрывает последний сегмент: все сегменты с индексом
+        history.stop();
+        System.out.printf(Locale.US, "История: %,d поездок, сегментов: %d, вне кучи: %,d КБ%n",
+                          history.getRows(), history.getSegments(), history.getOffHeapBytes() / 1024);
+        return history;
+    }
+
+    private static long parseWindow(String window) {
+        if (!window.endsWith("h")) {
+            throw new IllegalArgumentException("Окно задается в часах, например 1h: " + window);
+        }
+        long hours = Long.parseLong(window.substring(0, window.length() - 1));
+        if (hours <= 0 || 24 % hours != 0) {
+            throw new IllegalArgumentException("Окно должно делить сутки: " + window);
+        }
+        return hours * HOUR_MILLIS;
+    }
+
+    private static void printSegments(RideHistory.QueryResult result) {
+        System.out.printf(Locale.US, "    сегментов прочитано: %d, пропущено: %d, строк прочитано: %,d%n",
+                          result.getSegmentsScanned(), result.getSegmentsSkipped(), result.getRowsRead());
+    }
+}
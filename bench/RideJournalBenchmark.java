@@ -0,0 +1,62 @@
+package bench;
+
+import journal.DurabilityMode;
+import journal.RideJournal;
+import models.Point;
+import models.RideRequest;
+import models.TaxiType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+
+// Цена надежности журнала заказов: потоки бенчмарка - производители, каждая операция -
+// запись о приеме заказа (RideJournal.accepted), как ее делает JournaledQueue.
+//   mode - sync (force() на запись), group (групповая фиксация), async (force() в фоне,
+//          без ожидания), write (без force())
+// ops/s - принятых заказов в секунду, ns/op - среднее время приема в пересчете на поток.
+// После каждой строки - сколько записей пришлось на один force().
+// Журнал пишется во временный файл рядом с системным tmp; на tmpfs force() ничего не стоит.
+// Запуск: ./bench.sh RideJournalBenchmark -t 1,4,16 -p mode=sync,group
+public class RideJournalBenchmark {
+
+    private static final int REQUEST_POOL_SIZE = 1024;
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+
+        Map<String, List<String>> declared = new LinkedHashMap<>();
+        declared.put("mode", options.values("mode", "sync", "group", "async", "write"));
+
+        RideRequest[] requests = new RideRequest[REQUEST_POOL_SIZE];
+        TaxiType[] types = TaxiType.values();
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = new RideRequest(i + 1, new Point(i, i), new Point(i + 1, i + 1), types[i % types.length]);
+        }
+
+        Harness harness = new Harness(options);
+        for (Map<String, String> params : options.grid(declared)) {
+            for (int threads : options.threads(1, 4, 16)) {
+                Path file = Files.createTempFile("ride-journal", ".wal");
+                RideJournal journal = RideJournal.open(file, DurabilityMode.fromCode(params.get("mode")), null);
+                try {
+                    harness.measure("journal.accepted", params, threads, index -> {
+                        int[] next = {index};
+                        return blackhole -> journal.accepted(requests[next[0]++ & (REQUEST_POOL_SIZE - 1)]);
+                    });
+                } finally {
+                    journal.close();
+                    System.out.printf(Locale.US, "    force(): %,d, записей на force(): %.1f, файл: %,d КБ%n",
+                                      journal.getForces(),
+                                      journal.getForces() > 0 ? (double) journal.getRecords() / journal.getForces() : 0.0,
+                                      Files.size(file) / 1024);
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+}
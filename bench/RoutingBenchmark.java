@@ -0,0 +1,110 @@
+package bench;
+
+import models.Point;
+import routing.LandmarkRouter;
+import routing.RoadGraph;
+import routing.RoadGraphGenerator;
+import routing.RoadTravelModel;
+import routing.Route;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+
+// Стоимость запроса кратчайшего пути по дорожному графу (решетка RoadGraphGenerator)
+// в зависимости от размера графа и числа ориентиров (0 - A* с оценкой по прямой).
+// Перед замером проверяется, что с ориентирами пути не длиннее, чем без них,
+// и печатается, сколько узлов в среднем обрабатывает один запрос.
+// Последняя часть - полный запрос RoadTravelModel без кэша и с кэшем маршрутов разного размера.
+// Запуск: ./bench.sh RoutingBenchmark -p gridSize=100,300 -p landmarks=0,8 -p cache=0,2048 -t 1,4
+public class RoutingBenchmark {
+
+    private static final int PAIR_POOL_SIZE = 1024;
+    private static final int POINT_POOL_SIZE = 8192;
+    private static final double CITY_SIZE = 100.0;
+
+    public static void main(String[] args) throws Exception {
+        BenchmarkOptions options = BenchmarkOptions.parse(args);
+
+        Map<String, List<String>> declared = new LinkedHashMap<>();
+        declared.put("gridSize", options.values("gridSize", "100", "300"));
+        declared.put("landmarks", options.values("landmarks", "0", "4", "16"));
+
+        Harness harness = new Harness(options);
+        Map<Integer, RoadGraph> graphs = new LinkedHashMap<>();
+        for (Map<String, String> params : options.grid(declared)) {
+            int gridSize = Integer.parseInt(params.get("gridSize"));
+            RoadGraph graph = graphs.computeIfAbsent(gridSize, size -> RoadGraphGenerator.grid(size, CITY_SIZE, 42));
+
+            long start = System.nanoTime();
+            LandmarkRouter router = new LandmarkRouter(graph, Integer.parseInt(params.get("landmarks")));
+            long preprocessMillis = (System.nanoTime() - start) / 1_000_000;
+
+            SplittableRandom random = new SplittableRandom(7);
+            int[] sources = new int[PAIR_POOL_SIZE];
+            int[] targets = new int[PAIR_POOL_SIZE];
+            for (int i = 0; i < PAIR_POOL_SIZE; i++) {
+                sources[i] = random.nextInt(graph.getNodeCount());
+                targets[i] = random.nextInt(graph.getNodeCount());
+            }
+            verify(graph, router, sources, targets);
+
+            long settled = 0;
+            for (int i = 0; i < PAIR_POOL_SIZE; i++) {
+                settled += router.route(sources[i], targets[i]).getSettledNodes();
+            }
+            System.out.printf(Locale.US, "  %s: предобработка %d мс, узлов на запрос: %.0f из %d%n",
+                              params, preprocessMillis, (double) settled / PAIR_POOL_SIZE, graph.getNodeCount());
+
+            int[] cursor = new int[1];
+            harness.measure("LandmarkRouter.route", params, blackhole -> {
+                int i = cursor[0]++ & (PAIR_POOL_SIZE - 1);
+                blackhole.consume(router.route(sources[i], targets[i]));
+            });
+        }
+
+        // Полный запрос модели движения: привязка точек к узлам, кэш маршрутов и поиск.
+        // Пар точек больше, чем помещается в малый кэш, - видно и вытеснение
+        RoadGraph graph = graphs.values().iterator().next();
+        SplittableRandom random = new SplittableRandom(11);
+        Point[] points = new Point[POINT_POOL_SIZE + 1];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Point(random.nextDouble() * CITY_SIZE, random.nextDouble() * CITY_SIZE);
+        }
+        for (String cache : options.values("cache", "0", "2048", "65536")) {
+            RoadTravelModel model = new RoadTravelModel(graph, 8, Integer.parseInt(cache));
+            for (int threads : options.threads(1)) {
+                Map<String, String> params = new LinkedHashMap<>();
+                params.put("cache", cache);
+                params.put("gridSize", Integer.toString((int) Math.round(Math.sqrt(graph.getNodeCount()))));
+                harness.measure("RoadTravelModel.travelMillis", params, threads, index -> {
+                    SplittableRandom threadRandom = new SplittableRandom(index);
+                    return blackhole -> {
+                        int i = threadRandom.nextInt(POINT_POOL_SIZE);
+                        blackhole.consume(model.travelMillis(points[i], points[i + 1], 10.0));
+                    };
+                });
+            }
+            if (model.getCache() != null) {
+                System.out.println("  " + model.getCache());
+            }
+        }
+    }
+
+    // Ориентиры меняют только порядок обхода: стоимость пути должна совпасть с A* без них
+    private static void verify(RoadGraph graph, LandmarkRouter router, int[] sources, int[] targets) {
+        LandmarkRouter reference = new LandmarkRouter(graph, 0);
+        for (int i = 0; i < 64; i++) {
+            Route expected = reference.route(sources[i], targets[i]);
+            Route actual = router.route(sources[i], targets[i]);
+            if (Math.abs(expected.getCost() - actual.getCost()) > 1e-6 * Math.max(1, expected.getCost())) {
+                throw new IllegalStateException(String.format(Locale.US,
+                    "Путь %d -> %d: ожидалась стоимость %.6f, получено %.6f",
+                    sources[i], targets[i], expected.getCost(), actual.getCost()));
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package bench;
+
+import infra.ExecutorRideScheduler;
+import infra.TimingWheelRideScheduler;
+import services.RideScheduler;
+import services.RideTimer;
+import stats.LatencyHistogram;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+
+// Планировщики поездок под большим числом одновременно ожидающих таймеров:
+//   wheel - TimingWheelRideScheduler (колесо таймеров, тик 1 мс)
+//   jdk   - ExecutorRideScheduler (ScheduledThreadPoolExecutor, куча по сроку)
+// Фазы: постановка N таймеров со сроками 10-70 с (до срабатывания не доживают),
+// отмена всех N, затем срабатывание таймеров, разбросанных по двум секундам,
+// с опозданием относительно срока p50/p99/max.
+// Запуск: ./bench.sh TimerBenchmark [количество таймеров]
+public class TimerBenchmark {
+
+    private static final int ROUNDS = 3;
+    private static final long MIN_DELAY_MILLIS = 10_000;
+    private static final int DELAY_SPREAD_MILLIS = 60_000;
+    private static final int EXPIRY_SPREAD_MILLIS = 2_000;
+    private static final int EXPIRY_TIMERS = 200_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        int timers = args.length >= 1 ? Integer.parseInt(args[0]) : 1_000_000;
+        int threads = 2;
+
+        System.out.printf("Таймеров: %d, потоков исполнителя: %d%n", timers, threads);
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.printf("--- Проход %d ---%n", round + 1);
+            run("wheel", new TimingWheelRideScheduler(threads, 1), timers);
+            run("jdk", new ExecutorRideScheduler(threads), timers);
+        }
+    }
+
+    private static void run(String name, RideScheduler scheduler, int timers) throws InterruptedException {
+        try {
+            SplittableRandom random = new SplittableRandom(42);
+            Runnable noop = () -> { };
+            RideTimer[] scheduled = new RideTimer[timers];
+
+            long start = System.nanoTime();
+            for (int i = 0; i < timers; i++) {
+                scheduled[i] = scheduler.schedule(MIN_DELAY_MILLIS + random.nextInt(DELAY_SPREAD_MILLIS), noop);
+            }
+            report(name + " schedule", timers, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            int cancelled = 0;
+            for (RideTimer timer : scheduled) {
+                if (timer.cancel()) {
+                    cancelled++;
+                }
+            }
+            report(name + " cancel", timers, System.nanoTime() - start);
+            if (cancelled != timers) {
+                System.out.printf("  отменено только %d из %d%n", cancelled, timers);
+            }
+
+            measureExpiry(name, scheduler, Math.min(timers, EXPIRY_TIMERS));
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private static void measureExpiry(String name, RideScheduler scheduler, int timers) throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(7);
+        LatencyHistogram lateness = new LatencyHistogram();
+        CountDownLatch fired = new CountDownLatch(timers);
+
+        for (int i = 0; i < timers; i++) {
+            long delayMillis = random.nextInt(EXPIRY_SPREAD_MILLIS);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            scheduler.schedule(delayMillis, () -> {
+                long lateMicros = (System.nanoTime() - deadline) / 1000;
+                lateness.record(lateMicros);
+                fired.countDown();
+            });
+        }
+        if (!fired.await(EXPIRY_SPREAD_MILLIS + 30_000, TimeUnit.MILLISECONDS)) {
+            System.out.printf("  %s: сработали не все таймеры, осталось %d%n", name, fired.getCount());
+        }
+        System.out.printf(Locale.US, "%-20s %,10d таймеров  опоздание p50/p99/max: %d/%d/%d мкс%n",
+                          name + " expiry", lateness.getCount(), lateness.getPercentile(50),
+                          lateness.getPercentile(99), lateness.getMax());
+    }
+
+    private static void report(String name, int operations, long nanos) {
+        System.out.printf(Locale.US, "%-20s %8.3f с  %8.1f нс/оп  %,15.0f оп/с%n",
+                          name, nanos / 1e9, (double) nanos / operations, operations / (nanos / 1e9));
+    }
+}
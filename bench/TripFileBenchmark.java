@@ -0,0 +1,114 @@
+package bench;
+
+import trace.BinaryTripReader;
+import trace.CsvTripReader;
+import trace.TripFile;
+import trace.TripFileConverter;
+import trace.TripReader;
+import trace.TripRecord;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+
+// Замер скорости конвертации CSV -> .trips и чтения трасс (записей в секунду).
+// Запуск: ./bench.sh TripFileBenchmark [количество записей]
+public class TripFileBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        long records = args.length >= 1 ? Long.parseLong(args[0]) : 5_000_000L;
+        int cores = Runtime.getRuntime().availableProcessors();
+
+        Path dir = Files.createTempDirectory("trip-bench");
+        Path csv = dir.resolve("trace.csv");
+        Path binary = dir.resolve("trace.trips");
+        try {
+            System.out.printf("Генерация CSV-трассы: %d записей...%n", records);
+            writeCsv(csv, records);
+            System.out.printf(Locale.US, "Размер CSV: %.1f МБ%n", Files.size(csv) / 1e6);
+
+            for (int threads : new int[] {1, cores}) {
+                long start = System.nanoTime();
+                new TripFileConverter(threads).convert(csv, binary);
+                report("Конвертер, потоков: " + threads, records, System.nanoTime() - start);
+            }
+            System.out.printf(Locale.US, "Размер .trips: %.1f МБ%n", Files.size(binary) / 1e6);
+
+            for (int round = 0; round < 3; round++) {
+                long start = System.nanoTime();
+                long checksum = readAll(new CsvTripReader(csv));
+                report("CsvTripReader (последовательно)", records, System.nanoTime() - start, checksum);
+
+                start = System.nanoTime();
+                checksum = readAll(new BinaryTripReader(binary));
+                report("BinaryTripReader (последовательно)", records, System.nanoTime() - start, checksum);
+
+                start = System.nanoTime();
+                checksum = readRideRequests(binary);
+                report("TripFile.toRideRequest (последовательно)", records, System.nanoTime() - start, checksum);
+            }
+        } finally {
+            Files.deleteIfExists(csv);
+            Files.deleteIfExists(binary);
+            Files.deleteIfExists(dir);
+        }
+    }
+
+    private static void writeCsv(Path csv, long records) throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        String[] types = {"ECONOMY", "COMFORT", "BUSINESS"};
+        try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.US_ASCII)) {
+            writer.write("timestamp_ms,pickup_x,pickup_y,dropoff_x,dropoff_y,type\n");
+            long timestamp = 1_700_000_000_000L;
+            StringBuilder line = new StringBuilder(64);
+            for (long i = 0; i < records; i++) {
+                timestamp += random.nextInt(50);
+                line.setLength(0);
+                line.append(timestamp).append(',')
+                    .append(random.nextInt(100_000) / 1000.0).append(',')
+                    .append(random.nextInt(100_000) / 1000.0).append(',')
+                    .append(random.nextInt(100_000) / 1000.0).append(',')
+                    .append(random.nextInt(100_000) / 1000.0).append(',')
+                    .append(types[random.nextInt(types.length)]).append('\n');
+                writer.append(line);
+            }
+        }
+    }
+
+    private static long readAll(TripReader reader) throws IOException {
+        long checksum = 0;
+        try (TripReader r = reader) {
+            TripRecord record = new TripRecord();
+            while (r.next(record)) {
+                checksum += record.getTimestampMillis() + (long) record.getPickupX();
+            }
+        }
+        return checksum;
+    }
+
+    private static long readRideRequests(Path binary) throws IOException {
+        long checksum = 0;
+        try (TripFile file = new TripFile(binary)) {
+            for (long i = 0; i < file.getRecordCount(); i++) {
+                checksum += (long) file.toRideRequest(i).getPickupLocation().getX();
+            }
+        }
+        return checksum;
+    }
+
+    private static void report(String name, long records, long nanos) {
+        report(name, records, nanos, 0);
+    }
+
+    private static void report(String name, long records, long nanos, long checksum) {
+        double seconds = nanos / 1e9;
+        System.out.printf(Locale.US, "%-45s %8.3f с  %,15.0f записей/с%s%n",
+                          name, seconds, records / seconds,
+                          checksum != 0 ? "  (контрольная сумма " + checksum + ")" : "");
+    }
+}
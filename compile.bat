@@ -8,7 +8,7 @@ if not exist "bin" mkdir bin
 
 REM Компилируем все java файлы в папке bin
 echo Compilation of Java files...
-javac -d bin -cp "src" src/*.java src/infra/*.java src/models/*.java src/services/*.java src/stats/*.java src/util/*.java
+javac -d bin -cp "src" src/*.java src/history/*.java src/infra/*.java src/journal/*.java src/models/*.java src/net/*.java src/routing/*.java src/services/*.java src/stats/*.java src/trace/*.java src/util/*.java
 
 if %errorlevel% neq 0 (
     echo COMPILATION ERROR!
@@ -20,10 +20,15 @@ echo "Compilation of Java files..."
 javac -d bin \
     -cp "src" \
     src/*.java \
+    src/history/*.java \
     src/infra/*.java \
+    src/journal/*.java \
     src/models/*.java \
+    src/net/*.java \
+    src/routing/*.java \
     src/services/*.java \
     src/stats/*.java \
+    src/trace/*.java \
     src/util/*.java
 
 # Проверяем успешность компиляции
@@ -1,6 +1,10 @@
+import infra.BatchOptions;
+import infra.BatchRunner;
 import infra.SimulationConfig;
 import infra.SimulationRunner;
 import infra.StrategyType;
+import infra.SweepOptions;
+import infra.SweepRunner;
 
 import java.util.Scanner;
 
@@ -12,6 +16,18 @@ public class Main {
         System.out.println("    СИСТЕМА УПРАВЛЕНИЯ БЕСПИЛОТНЫМИ ТАКСИ");
         System.out.println("=".repeat(60));
         
+        // Перебор конфигураций: много симуляций параллельно, итоговая таблица
+        if (SweepOptions.isSweepMode(args)) {
+            runSweep(args);
+            return;
+        }
+        
+        // Пакетный режим: без консольного ввода и подтверждения
+        if (BatchOptions.isBatchMode(args)) {
+            runBatch(args);
+            return;
+        }
+        
         // Создаем единый Scanner для всего ввода
         Scanner scanner = new Scanner(System.in);
         
@@ -46,7 +62,54 @@ public class Main {
     }
     
 
+    private static void runSweep(String[] args) {
+        try {
+            SweepOptions options = SweepOptions.parse(args);
+            new SweepRunner(options).run();
+        } catch (IllegalArgumentException e) {
+            System.err.println("\nОшибка в параметрах перебора: " + e.getMessage());
+            System.err.println("Пример: --sweep --taxis=50,100,200 --rate=500..2000:500 --strategy=nearest,leastloaded --duration=20 --runs=2");
+            System.exit(2);
+        } catch (Exception e) {
+            System.err.println("\nОшибка при выполнении перебора: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+    
+    private static void runBatch(String[] args) {
+        try {
+            BatchOptions options = BatchOptions.parse(args);
+            new BatchRunner(options).run();
+        } catch (IllegalArgumentException e) {
+            System.err.println("\nОшибка в параметрах пакетного режима: " + e.getMessage());
+            System.err.println("Пример: --batch --taxis=200 --duration=60 --interval=10 --runs=3 --output=results.json");
+            System.exit(2);
+        } catch (Exception e) {
+            System.err.println("\nОшибка при выполнении пакетного прогона: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+    
+
     private static SimulationConfig readConfiguration(String[] args, Scanner scanner) {
+        // Необязательный --seed=N можно указать в любом месте командной строки
+        Long seed = null;
+        java.util.List<String> positional = new java.util.ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--seed=")) {
+                try {
+                    seed = Long.parseLong(arg.substring("--seed=".length()));
+                } catch (NumberFormatException e) {
+                    System.err.println("Неверный seed: " + arg + ". Будет использован случайный.");
+                }
+            } else {
+                positional.add(arg);
+            }
+        }
+        args = positional.toArray(new String[0]);
+        
         // Если есть аргументы командной строки, используем их
         if (args.length >= 4) {
             try {
@@ -54,32 +117,40 @@ public class Main {
                 int durationSeconds = Integer.parseInt(args[1]);
                 long requestIntervalMillis = Long.parseLong(args[2]);
                 String strategyCode = args[3];
+                String traceFile = args.length >= 5 ? args[4] : null;
+                double traceSpeedUp = args.length >= 6 ? Double.parseDouble(args[5]) : 1.0;
                 
                 System.out.println("\nИспользуются параметры командной строки:");
                 System.out.printf("- Количество такси: %d%n", numberOfTaxis);
                 System.out.printf("- Длительность: %d секунд%n", durationSeconds);
                 System.out.printf("- Интервал запросов: %d мс%n", requestIntervalMillis);
                 System.out.printf("- Стратегия: %s%n", strategyCode);
+                if (traceFile != null) {
+                    System.out.printf("- Трасса: %s (ускорение x%.1f)%n", traceFile, traceSpeedUp);
+                }
                 
                 return new SimulationConfig(
                     numberOfTaxis,
                     durationSeconds,
                     requestIntervalMillis,
-                    strategyCode
+                    strategyCode,
+                    traceFile,
+                    traceSpeedUp,
+                    seed != null ? seed : SimulationConfig.randomSeed()
                 );
                 
             } catch (NumberFormatException e) {
                 System.err.println("\nОшибка в формате аргументов. Переход к интерактивному вводу.");
-                System.err.println("Формат: <кол-во такси> <длительность(с)> <интервал(мс)> <стратегия>");
+                System.err.println("Формат: <кол-во такси> <длительность(с)> <интервал(мс)> <стратегия> [трасса] [ускорение] [--seed=N]");
                 System.err.println("Пример: 5 30 2000 nearest");
             }
         }
         
-        return readInteractiveConfiguration(scanner);
+        return readInteractiveConfiguration(scanner, seed);
     }
     
  
-    private static SimulationConfig readInteractiveConfiguration(Scanner scanner) {
+    private static SimulationConfig readInteractiveConfiguration(Scanner scanner, Long seed) {
         System.out.println("\nНАСТРОЙКА СИМУЛЯЦИИ");
         System.out.println("Введите параметры (или нажмите Enter для значений по умолчанию):");
         
@@ -94,13 +165,22 @@ public class Main {
             2000L, 500L, 10000L);
         
         StrategyType strategyType = readStrategyInput(scanner,
-            "Стратегия распределения (nearest/leastloaded) [nearest]: ");
+            "Стратегия распределения (nearest/leastloaded/eta) [nearest]: ");
+        
+        if (seed == null) {
+            seed = readLongInput(scanner,
+                "Seed генератора случайных чисел [случайный]: ",
+                SimulationConfig.randomSeed(), Long.MIN_VALUE, Long.MAX_VALUE);
+        }
         
         return new SimulationConfig(
             numberOfTaxis,
             durationSeconds,
             requestIntervalMillis,
-            strategyType
+            strategyType,
+            0.0, 100.0, 0.0, 100.0, 10.0,
+            null, 1.0,
+            seed
         );
     }
     
@@ -177,8 +257,13 @@ public class Main {
         System.out.println("-".repeat(60));
         System.out.printf("Количество такси: %d%n", config.getNumberOfTaxis());
         System.out.printf("Длительность: %d секунд%n", config.getSimulationDurationSeconds());
-        System.out.printf("Интервал запросов: %d мс%n", config.getMeanRequestIntervalMillis());
+        if (config.isTraceReplay()) {
+            System.out.printf("Трасса: %s (ускорение x%.1f)%n", config.getTraceFile(), config.getTraceSpeedUp());
+        } else {
+            System.out.printf("Интервал запросов: %d мс%n", config.getMeanRequestIntervalMillis());
+        }
         System.out.printf("Стратегия: %s%n", config.getStrategyType());
+        System.out.printf("Seed: %d%n", config.getSeed());
         System.out.printf("Город: (%.1f, %.1f) - (%.1f, %.1f)%n",
             config.getCityMinX(), config.getCityMinY(),
             config.getCityMaxX(), config.getCityMaxY());
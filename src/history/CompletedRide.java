@@ -0,0 +1,74 @@
+package history;
+
+import models.TaxiType;
+
+
+// Одна завершенная поездка: строка истории поездок (RideHistory).
+// Неизменяемая: из таких объектов состоят очередь в поток записи и ответы на запросы,
+// а сами строки хранятся по колонкам вне кучи (RideSegment).
+public final class CompletedRide {
+
+    private final long completedAtMillis;
+    private final long taxiId;
+    private final TaxiType taxiType;
+    private final long requestId;
+    private final double distance;
+    private final double fare;
+    private final int waitMillis;
+    private final int rideMillis;
+
+    public CompletedRide(long completedAtMillis, long taxiId, TaxiType taxiType, long requestId,
+                         double distance, double fare, long waitMillis, long rideMillis) {
+        this.completedAtMillis = completedAtMillis;
+        this.taxiId = taxiId;
+        this.taxiType = taxiType;
+        this.requestId = requestId;
+        this.distance = distance;
+        this.fare = fare;
+        this.waitMillis = clamp(waitMillis);
+        this.rideMillis = clamp(rideMillis);
+    }
+
+    // Колонки длительностей - int: больше 24 дней не бывает, отрицательных тоже
+    private static int clamp(long millis) {
+        return (int) Math.max(0, Math.min(Integer.MAX_VALUE, millis));
+    }
+
+    public long getCompletedAtMillis() {
+        return completedAtMillis;
+    }
+
+    public long getTaxiId() {
+        return taxiId;
+    }
+
+    public TaxiType getTaxiType() {
+        return taxiType;
+    }
+
+    public long getRequestId() {
+        return requestId;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    public double getFare() {
+        return fare;
+    }
+
+    public int getWaitMillis() {
+        return waitMillis;
+    }
+
+    public int getRideMillis() {
+        return rideMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Поездка #%d: такси %d (%s), завершена %d, расстояние %.2f, стоимость %.2f",
+            requestId, taxiId, taxiType, completedAtMillis, distance, fare);
+    }
+}
@@ -0,0 +1,386 @@
+package history;
+
+import models.RideRequest;
+import models.TaxiType;
+import services.DispatcherCallback;
+import services.TaxiWorker;
+import util.MpscRingBuffer;
+import util.WaitStrategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+// История завершенных поездок: хранилище только для дописывания с запросами по интервалу
+// времени - поездки одного такси и выручка по типам такси и интервалам.
+//
+// Завершения приходят от диспетчера (DispatcherCallback) в потоках такси; поток такси только
+// кладет строку в кольцевой буфер (MpscRingBuffer.offer) и не ждет ни блокировок, ни записи.
+// Если поток записи не успевает и буфер полон, строка отбрасывается и учитывается в getDropped().
+// Поток записи "ride-history" раскладывает строки по колонкам активного сегмента (RideSegment).
+// Время делится на разделы по partitionMillis; сегмент закрывается, когда приходит поездка
+// следующего раздела или в нем кончилось место. Поздняя поездка прошлого раздела дописывается
+// в текущий сегмент - индекс min/max это учитывает.
+//
+// Читатели не берут блокировок: состояние (закрытые сегменты и активный) - неизменяемый
+// снимок в volatile-поле, который поток записи заменяет целиком при закрытии сегмента.
+// Каждая строка при этом лежит либо в активном сегменте снимка, либо в закрытом, но не в обоих.
+public class RideHistory implements DispatcherCallback {
+
+    private static final int FEED_CAPACITY = 1 << 16;
+    private static final int DRAIN_BATCH = 1024;
+    private static final int MAX_BUCKETS = 100_000;
+    private static final TaxiType[] TYPES = TaxiType.values();
+
+    private final long partitionMillis;
+    private final MpscRingBuffer<CompletedRide> feed = new MpscRingBuffer<>(FEED_CAPACITY, WaitStrategy.PARK);
+    private final Thread writer;
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean running = true;
+    private volatile State state = new State(new RideSegment[0], null);
+    // Пишет только поток записи
+    private volatile long rows = 0;
+    private volatile long minTime = Long.MAX_VALUE;
+    private volatile long maxTime = Long.MIN_VALUE;
+
+    public RideHistory(long partitionMillis) {
+        if (partitionMillis <= 0) {
+            throw new IllegalArgumentException("Длина раздела истории должна быть положительной: " + partitionMillis);
+        }
+        this.partitionMillis = partitionMillis;
+        this.writer = new Thread(this::writeLoop, "ride-history");
+        this.writer.setDaemon(true);
+    }
+
+    public void start() {
+        writer.start();
+    }
+
+    // Дописывает все, что уже в буфере, закрывает активный сегмент и останавливает поток записи;
+    // запросы работают и после
+    public void stop() {
+        running = false;
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // ================= Поступление поездок =================
+
+    @Override
+    public void onRideCompleted(TaxiWorker taxi, RideRequest ride,
+                                double distance, double fare, long waitTimeMillis) {
+        long now = System.currentTimeMillis();
+        long rideMillis = ride.getPickedUpAtMillis() > 0 ? now - ride.getPickedUpAtMillis() : 0;
+        record(new CompletedRide(now, taxi.getId(), taxi.getType(), ride.getId(),
+                                 distance, fare, waitTimeMillis, rideMillis));
+    }
+
+    // Не блокирует: false, если буфер полон и поездка отброшена
+    public boolean record(CompletedRide ride) {
+        if (running && feed.offer(ride)) {
+            return true;
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    private void writeLoop() {
+        List<CompletedRide> batch = new ArrayList<>(DRAIN_BATCH);
+        RideSegment active = null;
+        while (running || !feed.isEmpty()) {
+            try {
+                CompletedRide first = feed.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                // Остановка - только через stop(): дописать накопленное
+                continue;
+            }
+            feed.drainTo(batch, DRAIN_BATCH - 1);
+            for (CompletedRide ride : batch) {
+                active = append(active, ride);
+            }
+            rows += batch.size();
+            batch.clear();
+        }
+        // После остановки история не меняется: закрываем и последний сегмент
+        if (active != null) {
+            RideSegment[] sealed = Arrays.copyOf(state.sealed, state.sealed.length + 1);
+            sealed[sealed.length - 1] = active.seal();
+            state = new State(sealed, null);
+        }
+    }
+
+    private RideSegment append(RideSegment active, CompletedRide ride) {
+        long partition = Math.floorDiv(ride.getCompletedAtMillis(), partitionMillis);
+        if (active == null) {
+            active = new RideSegment(partition);
+            state = new State(state.sealed, active);
+        } else if (active.isFull() || partition > active.getPartition()) {
+            RideSegment[] sealed = Arrays.copyOf(state.sealed, state.sealed.length + 1);
+            sealed[sealed.length - 1] = active.seal();
+            active = new RideSegment(Math.max(partition, active.getPartition()));
+            state = new State(sealed, active);
+        }
+        active.append(ride);
+        minTime = Math.min(minTime, ride.getCompletedAtMillis());
+        maxTime = Math.max(maxTime, ride.getCompletedAtMillis());
+        return active;
+    }
+
+    // ================= Запросы =================
+
+    // Поездки такси за [fromMillis, toMillis) по времени завершения
+    public TaxiHistory taxiHistory(long taxiId, long fromMillis, long toMillis) {
+        State snapshot = state;
+        List<CompletedRide> rides = new ArrayList<>();
+        int scanned = 0;
+        int skipped = 0;
+        long rowsRead = 0;
+        for (RideSegment segment : snapshot.sealed) {
+            if (!segment.overlaps(fromMillis, toMillis) || !segment.mayContainTaxi(taxiId)) {
+                skipped++;
+                continue;
+            }
+            scanned++;
+            rowsRead += segment.collectTaxi(taxiId, fromMillis, toMillis, rides);
+        }
+        // Индекс активного сегмента еще меняется - он читается целиком
+        if (snapshot.active != null) {
+            scanned++;
+            rowsRead += snapshot.active.collectTaxi(taxiId, fromMillis, toMillis, rides);
+        }
+        rides.sort(Comparator.comparingLong(CompletedRide::getCompletedAtMillis));
+        return new TaxiHistory(taxiId, rides, scanned, skipped, rowsRead);
+    }
+
+    // Выручка и число поездок по типам такси в интервалах по bucketMillis, начиная с fromMillis;
+    // type == null - все типы
+    public RevenueReport revenue(long fromMillis, long toMillis, long bucketMillis, TaxiType type) {
+        if (bucketMillis <= 0) {
+            throw new IllegalArgumentException("Интервал отчета должен быть положительным: " + bucketMillis);
+        }
+        if (toMillis < fromMillis) {
+            throw new IllegalArgumentException("Конец периода раньше начала: " + fromMillis + " - " + toMillis);
+        }
+        long buckets = (toMillis - fromMillis + bucketMillis - 1) / bucketMillis;
+        if (buckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Слишком много интервалов в отчете: " + buckets +
+                                               " (не больше " + MAX_BUCKETS + ")");
+        }
+        double[][] revenue = new double[TYPES.length][(int) buckets];
+        long[][] rides = new long[TYPES.length][(int) buckets];
+
+        State snapshot = state;
+        int scanned = 0;
+        int skipped = 0;
+        long rowsRead = 0;
+        for (RideSegment segment : snapshot.sealed) {
+            if (!segment.overlaps(fromMillis, toMillis) || (type != null && !segment.mayContainType(type))) {
+                skipped++;
+                continue;
+            }
+            scanned++;
+            rowsRead += segment.aggregate(fromMillis, toMillis, bucketMillis, type, revenue, rides);
+        }
+        if (snapshot.active != null) {
+            scanned++;
+            rowsRead += snapshot.active.aggregate(fromMillis, toMillis, bucketMillis, type, revenue, rides);
+        }
+        return new RevenueReport(fromMillis, bucketMillis, revenue, rides, scanned, skipped, rowsRead);
+    }
+
+    // ================= Состояние =================
+
+    public long getPartitionMillis() {
+        return partitionMillis;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    // Время первой и последней поездки в истории; пустая история - Long.MAX_VALUE и Long.MIN_VALUE
+    public long getMinTime() {
+        return minTime;
+    }
+
+    public long getMaxTime() {
+        return maxTime;
+    }
+
+    // Сегменты вместе с активным
+    public int getSegments() {
+        State snapshot = state;
+        return snapshot.sealed.length + (snapshot.active != null ? 1 : 0);
+    }
+
+    public long getOffHeapBytes() {
+        State snapshot = state;
+        long bytes = snapshot.active != null ? snapshot.active.getOffHeapBytes() : 0;
+        for (RideSegment segment : snapshot.sealed) {
+            bytes += segment.getOffHeapBytes();
+        }
+        return bytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("поездок: %d, сегментов: %d, вне кучи: %d КБ, отброшено: %d",
+                             getRows(), getSegments(), getOffHeapBytes() / 1024, getDropped());
+    }
+
+    private static final class State {
+        final RideSegment[] sealed;
+        final RideSegment active;
+
+        State(RideSegment[] sealed, RideSegment active) {
+            this.sealed = sealed;
+            this.active = active;
+        }
+    }
+
+    // ================= Результаты запросов =================
+
+    // Сколько сегментов прочитано и сколько пропущено по индексу - видно, работает ли отсечение
+    public abstract static class QueryResult {
+        private final int segmentsScanned;
+        private final int segmentsSkipped;
+        private final long rowsRead;
+
+        QueryResult(int segmentsScanned, int segmentsSkipped, long rowsRead) {
+            this.segmentsScanned = segmentsScanned;
+            this.segmentsSkipped = segmentsSkipped;
+            this.rowsRead = rowsRead;
+        }
+
+        public int getSegmentsScanned() {
+            return segmentsScanned;
+        }
+
+        public int getSegmentsSkipped() {
+            return segmentsSkipped;
+        }
+
+        public long getRowsRead() {
+            return rowsRead;
+        }
+    }
+
+    public static final class TaxiHistory extends QueryResult {
+        private final long taxiId;
+        private final List<CompletedRide> rides;
+
+        TaxiHistory(long taxiId, List<CompletedRide> rides, int segmentsScanned, int segmentsSkipped, long rowsRead) {
+            super(segmentsScanned, segmentsSkipped, rowsRead);
+            this.taxiId = taxiId;
+            this.rides = Collections.unmodifiableList(rides);
+        }
+
+        public long getTaxiId() {
+            return taxiId;
+        }
+
+        // По времени завершения
+        public List<CompletedRide> getRides() {
+            return rides;
+        }
+
+        public double getTotalDistance() {
+            double total = 0;
+            for (CompletedRide ride : rides) {
+                total += ride.getDistance();
+            }
+            return total;
+        }
+
+        public double getTotalFare() {
+            double total = 0;
+            for (CompletedRide ride : rides) {
+                total += ride.getFare();
+            }
+            return total;
+        }
+    }
+
+    public static final class RevenueReport extends QueryResult {
+        private final long fromMillis;
+        private final long bucketMillis;
+        private final double[][] revenue;
+        private final long[][] rides;
+
+        RevenueReport(long fromMillis, long bucketMillis, double[][] revenue, long[][] rides,
+                      int segmentsScanned, int segmentsSkipped, long rowsRead) {
+            super(segmentsScanned, segmentsSkipped, rowsRead);
+            this.fromMillis = fromMillis;
+            this.bucketMillis = bucketMillis;
+            this.revenue = revenue;
+            this.rides = rides;
+        }
+
+        public long getFromMillis() {
+            return fromMillis;
+        }
+
+        public long getBucketMillis() {
+            return bucketMillis;
+        }
+
+        public int getBuckets() {
+            return revenue[0].length;
+        }
+
+        public long getBucketStart(int bucket) {
+            return fromMillis + bucket * bucketMillis;
+        }
+
+        public double getRevenue(TaxiType type, int bucket) {
+            return revenue[type.ordinal()][bucket];
+        }
+
+        public long getRides(TaxiType type, int bucket) {
+            return rides[type.ordinal()][bucket];
+        }
+
+        public double getTotalRevenue() {
+            double total = 0;
+            for (double[] byBucket : revenue) {
+                for (double value : byBucket) {
+                    total += value;
+                }
+            }
+            return total;
+        }
+
+        public long getTotalRides() {
+            long total = 0;
+            for (long[] byBucket : rides) {
+                for (long value : byBucket) {
+                    total += value;
+                }
+            }
+            return total;
+        }
+    }
+}
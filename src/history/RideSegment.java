@@ -0,0 +1,220 @@
+package history;
+
+import models.TaxiType;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+
+// Сегмент истории поездок: строки одного временного раздела, разложенные по колонкам
+// в памяти вне кучи (ByteBuffer.allocateDirect) - сборщик мусора их не обходит и не копирует.
+//
+// Активный сегмент дописывает только поток записи RideHistory; готовые строки публикуются
+// volatile-счетчиком size, и читатели видят ровно столько строк, сколько прочитали в size.
+// Закрытие (sealed) переписывает строки в новый сегмент точного размера, отсортированный
+// по (такси, время): запросы по такси ищут свой участок двоичным поиском. У закрытого
+// сегмента есть индекс min/max по времени и по такси и маска типов - по ним запрос
+// пропускает сегмент целиком, не читая колонок.
+final class RideSegment {
+
+    static final int CAPACITY = 1 << 16;
+    // Байт на строку: время, такси, заказ, расстояние, стоимость (по 8), ожидание, поездка (по 4), тип (1)
+    static final int ROW_BYTES = 8 * 5 + 4 * 2 + 1;
+
+    private static final TaxiType[] TYPES = TaxiType.values();
+
+    private final long partition;
+    private final int capacity;
+    private final boolean sortedByTaxi;
+
+    private final ByteBuffer times;
+    private final ByteBuffer taxiIds;
+    private final ByteBuffer requestIds;
+    private final ByteBuffer distances;
+    private final ByteBuffer fares;
+    private final ByteBuffer waits;
+    private final ByteBuffer rideTimes;
+    private final ByteBuffer types;
+
+    // Пишет только поток записи; после закрытия не меняются
+    private long minTime = Long.MAX_VALUE;
+    private long maxTime = Long.MIN_VALUE;
+    private long minTaxiId = Long.MAX_VALUE;
+    private long maxTaxiId = Long.MIN_VALUE;
+    private int typeMask = 0;
+
+    private volatile int size = 0;
+
+    RideSegment(long partition) {
+        this(partition, CAPACITY, false);
+    }
+
+    private RideSegment(long partition, int capacity, boolean sortedByTaxi) {
+        this.partition = partition;
+        this.capacity = capacity;
+        this.sortedByTaxi = sortedByTaxi;
+        this.times = ByteBuffer.allocateDirect(capacity * 8);
+        this.taxiIds = ByteBuffer.allocateDirect(capacity * 8);
+        this.requestIds = ByteBuffer.allocateDirect(capacity * 8);
+        this.distances = ByteBuffer.allocateDirect(capacity * 8);
+        this.fares = ByteBuffer.allocateDirect(capacity * 8);
+        this.waits = ByteBuffer.allocateDirect(capacity * 4);
+        this.rideTimes = ByteBuffer.allocateDirect(capacity * 4);
+        this.types = ByteBuffer.allocateDirect(capacity);
+    }
+
+    // ================= Запись (только поток записи) =================
+
+    boolean isFull() {
+        return size == capacity;
+    }
+
+    void append(CompletedRide ride) {
+        int row = size;
+        put(row, ride.getCompletedAtMillis(), ride.getTaxiId(), ride.getRequestId(),
+            ride.getDistance(), ride.getFare(), ride.getWaitMillis(), ride.getRideMillis(),
+            (byte) ride.getTaxiType().ordinal());
+        // Запись size публикует строку целиком
+        size = row + 1;
+    }
+
+    private void put(int row, long time, long taxiId, long requestId, double distance, double fare,
+                     int wait, int rideTime, byte type) {
+        times.putLong(row * 8, time);
+        taxiIds.putLong(row * 8, taxiId);
+        requestIds.putLong(row * 8, requestId);
+        distances.putDouble(row * 8, distance);
+        fares.putDouble(row * 8, fare);
+        waits.putInt(row * 4, wait);
+        rideTimes.putInt(row * 4, rideTime);
+        types.put(row, type);
+        minTime = Math.min(minTime, time);
+        maxTime = Math.max(maxTime, time);
+        minTaxiId = Math.min(minTaxiId, taxiId);
+        maxTaxiId = Math.max(maxTaxiId, taxiId);
+        typeMask |= 1 << type;
+    }
+
+    // Закрытая копия: точного размера, строки по (такси, время). Порядок строк активного
+    // сегмента - порядок завершения, поэтому внутри одного такси время уже по возрастанию
+    RideSegment seal() {
+        int rows = size;
+        // Ключ сортировки - номер строки в младших 16 битах: сортировка примитивов, без объектов
+        long[] keys = new long[rows];
+        for (int row = 0; row < rows; row++) {
+            keys[row] = (taxiIds.getLong(row * 8) << 16) | row;
+        }
+        Arrays.sort(keys);
+        RideSegment sealed = new RideSegment(partition, Math.max(rows, 1), true);
+        for (int i = 0; i < rows; i++) {
+            int row = (int) (keys[i] & (CAPACITY - 1));
+            sealed.put(i, times.getLong(row * 8), taxiIds.getLong(row * 8), requestIds.getLong(row * 8),
+                       distances.getDouble(row * 8), fares.getDouble(row * 8), waits.getInt(row * 4),
+                       rideTimes.getInt(row * 4), types.get(row));
+        }
+        sealed.size = rows;
+        return sealed;
+    }
+
+    // ================= Индекс (только закрытые сегменты) =================
+
+    // [fromMillis, toMillis) пересекается с временем строк сегмента
+    boolean overlaps(long fromMillis, long toMillis) {
+        return size > 0 && minTime < toMillis && maxTime >= fromMillis;
+    }
+
+    boolean mayContainTaxi(long taxiId) {
+        return taxiId >= minTaxiId && taxiId <= maxTaxiId;
+    }
+
+    boolean mayContainType(TaxiType type) {
+        return (typeMask & (1 << type.ordinal())) != 0;
+    }
+
+    // ================= Чтение =================
+
+    // Поездки такси за [fromMillis, toMillis); возвращает число просмотренных строк
+    int collectTaxi(long taxiId, long fromMillis, long toMillis, List<CompletedRide> out) {
+        int rows = size;
+        int row = 0;
+        if (sortedByTaxi) {
+            row = lowerBound(taxiId, rows);
+        }
+        int start = row;
+        for (; row < rows; row++) {
+            long rowTaxiId = taxiIds.getLong(row * 8);
+            if (rowTaxiId != taxiId) {
+                if (sortedByTaxi) {
+                    break;
+                }
+                continue;
+            }
+            long time = times.getLong(row * 8);
+            if (time >= fromMillis && time < toMillis) {
+                out.add(read(row));
+            }
+        }
+        return row - start;
+    }
+
+    private int lowerBound(long taxiId, int rows) {
+        int low = 0;
+        int high = rows;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (taxiIds.getLong(middle * 8) < taxiId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Выручка и число поездок по типам и интервалам [fromMillis + i * bucketMillis, ...);
+    // type == null - все типы. Читает только колонки времени, типа и стоимости
+    int aggregate(long fromMillis, long toMillis, long bucketMillis, TaxiType type,
+                  double[][] revenue, long[][] rides) {
+        int rows = size;
+        boolean wholeSegment = sortedByTaxi && minTime >= fromMillis && maxTime < toMillis;
+        // Сегмент целиком в одном интервале - колонку времени можно не читать
+        int segmentBucket = wholeSegment && (minTime - fromMillis) / bucketMillis == (maxTime - fromMillis) / bucketMillis
+            ? (int) ((minTime - fromMillis) / bucketMillis) : -1;
+        for (int row = 0; row < rows; row++) {
+            int rowType = types.get(row);
+            if (type != null && rowType != type.ordinal()) {
+                continue;
+            }
+            int bucket = segmentBucket;
+            if (bucket < 0) {
+                long time = times.getLong(row * 8);
+                if (!wholeSegment && (time < fromMillis || time >= toMillis)) {
+                    continue;
+                }
+                bucket = (int) ((time - fromMillis) / bucketMillis);
+            }
+            revenue[rowType][bucket] += fares.getDouble(row * 8);
+            rides[rowType][bucket]++;
+        }
+        return rows;
+    }
+
+    private CompletedRide read(int row) {
+        return new CompletedRide(times.getLong(row * 8), taxiIds.getLong(row * 8), TYPES[types.get(row)],
+                                 requestIds.getLong(row * 8), distances.getDouble(row * 8),
+                                 fares.getDouble(row * 8), waits.getInt(row * 4), rideTimes.getInt(row * 4));
+    }
+
+    long getPartition() {
+        return partition;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long getOffHeapBytes() {
+        return (long) capacity * ROW_BYTES;
+    }
+}
@@ -0,0 +1,269 @@
+package infra;
+
+import models.RideRequest;
+import models.TaxiType;
+import stats.StatisticsCollector;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+
+// Ограниченная входная очередь диспетчера с контролем допуска.
+//
+// При перегрузке заказ не копится в памяти, а обрабатывается политикой OverloadPolicy:
+// производитель ждет (BLOCK), новый или самый старый заказ отбрасывается, заказы
+// выбранных типов такси отклоняются при заполнении очереди наполовину, либо заказ
+// отклоняется, если прогноз ожидания в очереди больше допустимого.
+// Каждый отказ и заполненность очереди в момент поступления заказа пишутся в статистику.
+//
+// Рассчитана на одного потребителя (диспетчера): по интервалам между его выборками
+// оценивается время обслуживания одного заказа для прогноза ожидания.
+// Poison pill принимается всегда, независимо от политики.
+public class AdmissionQueue extends AbstractQueue<RideRequest> implements BlockingQueue<RideRequest> {
+    
+    // Доля заполнения, начиная с которой REJECT_BY_TYPE отклоняет выбранные типы
+    private static final double SHED_OCCUPANCY = 0.5;
+    
+    // Вес нового замера в скользящей оценке времени обслуживания
+    private static final double SERVICE_TIME_ALPHA = 0.05;
+    
+    private final ArrayBlockingQueue<RideRequest> queue;
+    private final int capacity;
+    private final OverloadPolicy policy;
+    private final Set<TaxiType> shedTypes;
+    private final int shedThreshold;
+    private final long maxPredictedWaitNanos;
+    private final StatisticsCollector statistics;
+    // Кому сообщать о заказах, отброшенных без отказа вызывающему (null - некому); задается до запуска
+    private Consumer<RideRequest> dropListener;
+    
+    // Оценка времени обслуживания одного заказа, нс (0 - еще нет замеров)
+    private volatile double serviceNanos = 0.0;
+    // Пишет только поток-потребитель: момент последней выборки и сколько заказов
+    // с тех пор забрано (диспетчер добирает пачку через drainTo)
+    private long lastTakeNanos = 0;
+    private int lastTakeCount = 1;
+    
+    public AdmissionQueue(int capacity, OverloadPolicy policy, Set<TaxiType> shedTypes,
+                          long maxPredictedWaitMillis, StatisticsCollector statistics) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Емкость очереди должна быть положительной");
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.policy = policy;
+        this.shedTypes = shedTypes.isEmpty() ? EnumSet.noneOf(TaxiType.class) : EnumSet.copyOf(shedTypes);
+        this.shedThreshold = Math.max(1, (int) (capacity * SHED_OCCUPANCY));
+        this.maxPredictedWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxPredictedWaitMillis);
+        this.statistics = statistics;
+    }
+    
+    // Вытесненные DROP_OLDEST и отклоненные в put(): вызывающий о них не узнает
+    public void setDropListener(Consumer<RideRequest> dropListener) {
+        this.dropListener = dropListener;
+    }
+    
+    // ================= Постановка в очередь =================
+    
+    @Override
+    public boolean offer(RideRequest request) {
+        if (request.isPoisonPill()) {
+            return queue.offer(request);
+        }
+        recordOccupancy();
+        
+        if (rejectedByPolicy(request)) {
+            reject(request);
+            return false;
+        }
+        if (queue.offer(request)) {
+            return true;
+        }
+        
+        if (policy == OverloadPolicy.DROP_OLDEST) {
+            RideRequest oldest;
+            while ((oldest = queue.poll()) != null) {
+                if (oldest.isPoisonPill()) {
+                    // Сигнал остановки не вытесняем
+                    queue.offer(oldest);
+                    break;
+                }
+                reject(oldest);
+                dropped(oldest);
+                if (queue.offer(request)) {
+                    return true;
+                }
+            }
+        }
+        reject(request);
+        return false;
+    }
+    
+    @Override
+    public void put(RideRequest request) throws InterruptedException {
+        if (request.isPoisonPill()) {
+            queue.put(request);
+            return;
+        }
+        if (policy == OverloadPolicy.BLOCK) {
+            recordOccupancy();
+            queue.put(request);
+            return;
+        }
+        // Остальные политики производителя не блокируют: отказ уже учтен в статистике
+        if (!offer(request)) {
+            dropped(request);
+        }
+    }
+    
+    @Override
+    public boolean offer(RideRequest request, long timeout, TimeUnit unit) throws InterruptedException {
+        if (request.isPoisonPill()) {
+            return queue.offer(request, timeout, unit);
+        }
+        if (policy == OverloadPolicy.BLOCK) {
+            recordOccupancy();
+            if (queue.offer(request, timeout, unit)) {
+                return true;
+            }
+            reject(request);
+            return false;
+        }
+        return offer(request);
+    }
+    
+    private boolean rejectedByPolicy(RideRequest request) {
+        switch (policy) {
+            case REJECT_BY_TYPE:
+                return shedTypes.contains(request.getRequestedType()) && queue.size() >= shedThreshold;
+            case REJECT_BY_WAIT:
+                return getPredictedWaitNanos() > maxPredictedWaitNanos;
+            default:
+                return false;
+        }
+    }
+    
+    private void reject(RideRequest request) {
+        if (statistics != null) {
+            statistics.recordRejectedRequest(request.getRequestedType());
+        }
+    }
+    
+    private void dropped(RideRequest request) {
+        if (dropListener != null) {
+            dropListener.accept(request);
+        }
+    }
+    
+    private void recordOccupancy() {
+        if (statistics != null) {
+            statistics.recordQueueOccupancy(queue.size());
+        }
+    }
+    
+    // ================= Выборка =================
+    
+    @Override
+    public RideRequest take() throws InterruptedException {
+        RideRequest request = queue.poll();
+        if (request != null) {
+            onTaken(true);
+            return request;
+        }
+        request = queue.take();
+        onTaken(false);
+        return request;
+    }
+    
+    @Override
+    public RideRequest poll(long timeout, TimeUnit unit) throws InterruptedException {
+        RideRequest request = queue.poll();
+        if (request != null) {
+            onTaken(true);
+            return request;
+        }
+        request = queue.poll(timeout, unit);
+        if (request != null) {
+            onTaken(false);
+        }
+        return request;
+    }
+    
+    @Override
+    public RideRequest poll() {
+        RideRequest request = queue.poll();
+        if (request != null) {
+            onTaken(true);
+        }
+        return request;
+    }
+    
+    // Интервал между выборками, деленный на число забранных за это время заказов, считается
+    // временем обслуживания, только если заказ уже ждал в очереди: иначе в интервал
+    // попал бы простой диспетчера
+    private void onTaken(boolean backlogged) {
+        long now = System.nanoTime();
+        if (backlogged && lastTakeNanos != 0) {
+            double sample = (double) (now - lastTakeNanos) / lastTakeCount;
+            double current = serviceNanos;
+            serviceNanos = current == 0.0 ? sample : current + SERVICE_TIME_ALPHA * (sample - current);
+        }
+        lastTakeNanos = now;
+        lastTakeCount = 1;
+    }
+    
+    // Прогноз ожидания нового заказа: длина очереди * время обслуживания одного заказа
+    public long getPredictedWaitNanos() {
+        return (long) (queue.size() * serviceNanos);
+    }
+    
+    // ================= Остальное из BlockingQueue =================
+    
+    @Override
+    public RideRequest peek() {
+        return queue.peek();
+    }
+    
+    @Override
+    public int size() {
+        return queue.size();
+    }
+    
+    @Override
+    public int remainingCapacity() {
+        return queue.remainingCapacity();
+    }
+    
+    @Override
+    public int drainTo(Collection<? super RideRequest> collection) {
+        return drainTo(collection, Integer.MAX_VALUE);
+    }
+    
+    // Добор пачки относится к предыдущей выборке: ее интервал поделится на всю пачку
+    @Override
+    public int drainTo(Collection<? super RideRequest> collection, int maxElements) {
+        int drained = queue.drainTo(collection, maxElements);
+        lastTakeCount += drained;
+        return drained;
+    }
+    
+    @Override
+    public Iterator<RideRequest> iterator() {
+        return queue.iterator();
+    }
+    
+    public int getCapacity() {
+        return capacity;
+    }
+    
+    public OverloadPolicy getPolicy() {
+        return policy;
+    }
+}
@@ -0,0 +1,350 @@
+package infra;
+
+import journal.DurabilityMode;
+import models.TaxiType;
+import util.WaitStrategy;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+
+// Параметры пакетного (неинтерактивного) режима.
+// Источники: файл свойств (--config=файл) и флаги --ключ=значение, флаги важнее файла.
+// Ключи одинаковы в файле и во флагах:
+//   taxis, duration, interval, strategy, seed, trace, speedup, speed,
+//   city=minX,maxX,minY,maxY - параметры симуляции (без верхних ограничений)
+//   rate, producers               - открытая пуассоновская нагрузка (заказов/с) и число потоков
+//   queue, policy                 - емкость входной очереди (0 - без ограничения) и политика перегрузки:
+//                                   block, drop-newest, drop-oldest, reject-type, reject-wait
+//   shed-types=ECONOMY,COMFORT    - типы, отклоняемые reject-type
+//   max-wait                      - допустимый прогноз ожидания в очереди для reject-wait (мс)
+//   ring, wait                    - кольцевой буфер вместо очереди (размер - степень двойки)
+//                                   и ожидание в нем: spin, yield, park
+//   taxi-mode, scheduler-threads  - threads (поток на такси) или events (общий планировщик)
+//                                   и число потоков планировщика (по умолчанию - число ядер)
+//   timer, tick                   - таймеры времени в пути: wheel (колесо с тиком tick мс) или jdk
+//   chain                         - сколько заказов ставить в очередь такси с пассажиром (0 - только свободным)
+//   road-graph, landmarks         - файл дорожного графа (движение по дорогам вместо прямой)
+//                                   и число ориентиров A* (по умолчанию 8, 0 - без ориентиров)
+//   route-cache                   - сколько маршрутов графа кэшировать (по умолчанию 100000, 0 - без кэша)
+//   rebalance, rebalance-share    - перегон свободных такси к спросу раз в rebalance мс (0 - выключен)
+//                                   и доля свободных такси, перегоняемых за раз (по умолчанию 0.2)
+//   pool, pool-detour             - совместные поездки: пассажиров на такси (по умолчанию 1 - выключены,
+//                                   только с taxi-mode=events) и допустимый крюк (по умолчанию 0.5)
+//   demand                        - файл профиля спроса: горячие точки и кривая интенсивности
+//   ingest                        - порт приема заказов по TCP (заказы шлет net.IngestLoadClient, 0 - выключен)
+//   http, http-snapshot           - порт HTTP API (0 - выключен) и период обновления снимка парка
+//                                   для чтения через API и потока позиций (по умолчанию 100 мс)
+//   stream                        - порт потока позиций парка: снимок, затем дельты (0 - выключен)
+//   wal, wal-mode                 - журнал заказов (файл; при запуске незавершенные заказы из него
+//                                   восстанавливаются) и его надежность: sync, group (по умолчанию),
+//                                   async, write; только с одним прогоном (warmup-runs=0, runs=1),
+//                                   в переборе недоступен
+//   history                       - история завершенных поездок: длина временного раздела, мс
+//                                   (0 - выключена); запросы - через HTTP API
+//   shutdown, drain-timeout       - завершение: abort (прервать поездки в работе) или drain
+//                                   (дождаться их, не дольше drain-timeout мс)
+//   warmup-runs, warmup-duration - прогревочные прогоны и их длительность (с)
+//   runs                          - количество измерительных прогонов
+//   output                        - файл JSON с результатами
+//   verbose=true                  - журнал симуляции в консоль
+public class BatchOptions {
+    
+    private final SimulationConfig config;
+    private final int warmupRuns;
+    private final int warmupDurationSeconds;
+    private final int measurementRuns;
+    private final String outputFile;
+    private final boolean verbose;
+    
+    private BatchOptions(SimulationConfig config, int warmupRuns, int warmupDurationSeconds,
+                         int measurementRuns, String outputFile, boolean verbose) {
+        this.config = config;
+        this.warmupRuns = warmupRuns;
+        this.warmupDurationSeconds = warmupDurationSeconds;
+        this.measurementRuns = measurementRuns;
+        this.outputFile = outputFile;
+        this.verbose = verbose;
+    }
+    
+    public static boolean isBatchMode(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--batch") || arg.startsWith("--config=")) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public static BatchOptions parse(String[] args) throws IOException {
+        return fromValues(collectValues(args));
+    }
+    
+    // Значения параметров из файла свойств и флагов командной строки (общие для пакетного режима и перебора)
+    static Map<String, String> collectValues(String[] args) throws IOException {
+        Map<String, String> values = new LinkedHashMap<>();
+        
+        // Сначала файл свойств, затем флаги поверх него
+        for (String arg : args) {
+            if (arg.startsWith("--config=")) {
+                values.putAll(readProperties(arg.substring("--config=".length())));
+            }
+        }
+        for (String arg : args) {
+            if (arg.equals("--batch") || arg.equals("--sweep") || arg.startsWith("--config=")) {
+                continue;
+            }
+            if (!arg.startsWith("--") || arg.indexOf('=') < 0) {
+                throw new IllegalArgumentException("Ожидался флаг вида --ключ=значение: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return values;
+    }
+    
+    private static Map<String, String> readProperties(String file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(Paths.get(file), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        Map<String, String> values = new LinkedHashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            values.put(key, properties.getProperty(key).trim());
+        }
+        return values;
+    }
+    
+    static BatchOptions fromValues(Map<String, String> values) {
+        SimulationConfig.Builder builder = SimulationConfig.builder();
+        int warmupRuns = 1;
+        int warmupDuration = 0;
+        int runs = 3;
+        String output = "results.json";
+        boolean verbose = false;
+        
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            String key = entry.getKey();
+            String value = entry.getValue();
+            try {
+                switch (key) {
+                    case "taxis":
+                        builder.numberOfTaxis(Integer.parseInt(value));
+                        break;
+                    case "duration":
+                        builder.simulationDurationSeconds(Integer.parseInt(value));
+                        break;
+                    case "interval":
+                        builder.meanRequestIntervalMillis(Long.parseLong(value));
+                        break;
+                    case "strategy":
+                        builder.strategyType(StrategyType.fromCode(value));
+                        break;
+                    case "seed":
+                        builder.seed(Long.parseLong(value));
+                        break;
+                    case "trace":
+                        builder.trace(value, values.containsKey("speedup")
+                            ? Double.parseDouble(values.get("speedup")) : 1.0);
+                        break;
+                    case "speedup":
+                        // Учитывается вместе с trace
+                        break;
+                    case "rate":
+                        builder.openLoad(Double.parseDouble(value), values.containsKey("producers")
+                            ? Integer.parseInt(values.get("producers")) : 1);
+                        break;
+                    case "producers":
+                        // Учитывается вместе с rate
+                        break;
+                    case "queue":
+                        builder.admission(Integer.parseInt(value), OverloadPolicy.fromCode(values.get("policy")));
+                        break;
+                    case "policy":
+                        // Учитывается вместе с queue
+                        break;
+                    case "shed-types":
+                        builder.shedTypes(parseTaxiTypes(value));
+                        break;
+                    case "ring":
+                        builder.ringBuffer(Integer.parseInt(value), WaitStrategy.fromCode(values.get("wait")));
+                        break;
+                    case "wait":
+                        // Учитывается вместе с ring
+                        break;
+                    case "taxi-mode":
+                        builder.taxiMode(TaxiMode.fromCode(value), values.containsKey("scheduler-threads")
+                            ? Integer.parseInt(values.get("scheduler-threads"))
+                            : Runtime.getRuntime().availableProcessors());
+                        break;
+                    case "scheduler-threads":
+                        // Учитывается вместе с taxi-mode
+                        break;
+                    case "timer":
+                        builder.timer(TimerType.fromCode(value), values.containsKey("tick")
+                            ? Long.parseLong(values.get("tick")) : 1L);
+                        break;
+                    case "tick":
+                        // Учитывается вместе с timer
+                        break;
+                    case "chain":
+                        builder.chainDepth(Integer.parseInt(value));
+                        break;
+                    case "road-graph":
+                        builder.roadGraph(value, values.containsKey("landmarks")
+                            ? Integer.parseInt(values.get("landmarks")) : 8);
+                        break;
+                    case "landmarks":
+                        // Учитывается вместе с road-graph
+                        break;
+                    case "route-cache":
+                        builder.routeCacheSize(Integer.parseInt(value));
+                        break;
+                    case "rebalance":
+                        builder.rebalance(Long.parseLong(value), values.containsKey("rebalance-share")
+                            ? Double.parseDouble(values.get("rebalance-share")) : 0.2);
+                        break;
+                    case "rebalance-share":
+                        // Учитывается вместе с rebalance
+                        break;
+                    case "pool":
+                        builder.pooling(Integer.parseInt(value), values.containsKey("pool-detour")
+                            ? Double.parseDouble(values.get("pool-detour")) : 0.5);
+                        break;
+                    case "pool-detour":
+                        // Учитывается вместе с pool
+                        break;
+                    case "demand":
+                        builder.demandProfile(value);
+                        break;
+                    case "ingest":
+                        builder.ingest(Integer.parseInt(value));
+                        break;
+                    case "http":
+                        builder.http(Integer.parseInt(value), values.containsKey("http-snapshot")
+                            ? Long.parseLong(values.get("http-snapshot")) : 100L);
+                        break;
+                    case "http-snapshot":
+                        // Учитывается вместе с http
+                        break;
+                    case "stream":
+                        builder.stream(Integer.parseInt(value));
+                        break;
+                    case "wal":
+                        builder.journal(value, DurabilityMode.fromCode(values.get("wal-mode")));
+                        break;
+                    case "wal-mode":
+                        // Учитывается вместе с wal
+                        break;
+                    case "history":
+                        builder.history(Long.parseLong(value));
+                        break;
+                    case "shutdown":
+                        builder.shutdown(ShutdownPolicy.fromCode(value), values.containsKey("drain-timeout")
+                            ? Long.parseLong(values.get("drain-timeout")) : 10_000L);
+                        break;
+                    case "drain-timeout":
+                        // Учитывается вместе с shutdown
+                        break;
+                    case "max-wait":
+                        builder.maxPredictedWaitMillis(Long.parseLong(value));
+                        break;
+                    case "speed":
+                        builder.taxiSpeed(Double.parseDouble(value));
+                        break;
+                    case "city":
+                        String[] bounds = value.split(",");
+                        if (bounds.length != 4) {
+                            throw new IllegalArgumentException("city=minX,maxX,minY,maxY");
+                        }
+                        builder.cityBounds(Double.parseDouble(bounds[0].trim()), Double.parseDouble(bounds[1].trim()),
+                                           Double.parseDouble(bounds[2].trim()), Double.parseDouble(bounds[3].trim()));
+                        break;
+                    case "warmup-runs":
+                        warmupRuns = Integer.parseInt(value);
+                        break;
+                    case "warmup-duration":
+                        warmupDuration = Integer.parseInt(value);
+                        break;
+                    case "runs":
+                        runs = Integer.parseInt(value);
+                        break;
+                    case "output":
+                        output = value;
+                        break;
+                    case "verbose":
+                        verbose = Boolean.parseBoolean(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Неизвестный параметр: " + key);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Неверное значение " + key + "=" + value, e);
+            }
+        }
+        
+        if (warmupRuns < 0 || runs < 1) {
+            throw new IllegalArgumentException("Нужен хотя бы один измерительный прогон");
+        }
+        // Каждый прогон восстанавливал бы незавершенные заказы предыдущего из того же журнала
+        if (values.containsKey("wal") && warmupRuns + runs > 1) {
+            throw new IllegalArgumentException("С журналом заказов (wal) нужен ровно один прогон: " +
+                                               "warmup-runs=0, runs=1");
+        }
+        return new BatchOptions(builder.build(), warmupRuns, warmupDuration, runs, output, verbose);
+    }
+    
+    private static Set<TaxiType> parseTaxiTypes(String value) {
+        Set<TaxiType> types = EnumSet.noneOf(TaxiType.class);
+        for (String name : value.split(",")) {
+            if (name.isBlank()) {
+                continue;
+            }
+            try {
+                types.add(TaxiType.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Неизвестный тип такси: " + name.trim(), e);
+            }
+        }
+        return types;
+    }
+    
+    // Конфигурация прогревочного прогона: та же, но со своей длительностью
+    public SimulationConfig getWarmupConfig() {
+        if (warmupDurationSeconds <= 0) {
+            return config;
+        }
+        return config.toBuilder().simulationDurationSeconds(warmupDurationSeconds).build();
+    }
+    
+    // =========== Геттеры ============
+    
+    public SimulationConfig getConfig() {
+        return config;
+    }
+    
+    public int getWarmupRuns() {
+        return warmupRuns;
+    }
+    
+    public int getMeasurementRuns() {
+        return measurementRuns;
+    }
+    
+    public String getOutputFile() {
+        return outputFile;
+    }
+    
+    public boolean isVerbose() {
+        return verbose;
+    }
+}
@@ -0,0 +1,259 @@
+package infra;
+
+import models.TaxiType;
+import stats.JvmStats;
+import stats.LatencyHistogram;
+import util.ConsoleLog;
+import util.JsonWriter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+
+// Пакетный режим: прогревочные и измерительные прогоны без ввода с консоли,
+// результаты в JSON для сравнения запусков и нагрузочных тестов.
+public class BatchRunner {
+    
+    private final BatchOptions options;
+    
+    public BatchRunner(BatchOptions options) {
+        this.options = options;
+    }
+    
+    public List<SimulationResult> run() throws IOException {
+        boolean logWasEnabled = ConsoleLog.isEnabled();
+        ConsoleLog.setEnabled(options.isVerbose());
+        
+        List<SimulationResult> results = new ArrayList<>();
+        try {
+            System.out.println("Пакетный режим: " + options.getConfig());
+            
+            for (int i = 1; i <= options.getWarmupRuns(); i++) {
+                SimulationResult warmup = new SimulationRunner(options.getWarmupConfig()).runSimulation();
+                System.out.printf("Прогрев %d/%d: %s%n", i, options.getWarmupRuns(), warmup);
+            }
+            
+            for (int i = 1; i <= options.getMeasurementRuns(); i++) {
+                SimulationResult result = new SimulationRunner(options.getConfig()).runSimulation();
+                results.add(result);
+                System.out.printf("Прогон %d/%d: %s%n", i, options.getMeasurementRuns(), result);
+            }
+        } finally {
+            ConsoleLog.setEnabled(logWasEnabled);
+        }
+        
+        writeJson(results);
+        System.out.println("Результаты записаны в " + options.getOutputFile());
+        return results;
+    }
+    
+    private void writeJson(List<SimulationResult> results) throws IOException {
+        JsonWriter json = new JsonWriter(new StringBuilder(), true);
+        json.beginObject();
+        
+        json.name("config");
+        writeConfig(json, options.getConfig());
+        json.name("warmupRuns").value(options.getWarmupRuns());
+        
+        json.name("runs").beginArray();
+        for (SimulationResult result : results) {
+            writeResult(json, result);
+        }
+        json.endArray();
+        
+        json.name("summary");
+        writeSummary(json, results);
+        
+        json.endObject();
+        Files.write(Paths.get(options.getOutputFile()),
+                    (json + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+    
+    static void writeConfig(JsonWriter json, SimulationConfig config) {
+        json.beginObject()
+            .name("numberOfTaxis").value(config.getNumberOfTaxis())
+            .name("durationSeconds").value(config.getSimulationDurationSeconds())
+            .name("meanRequestIntervalMillis").value(config.getMeanRequestIntervalMillis())
+            .name("strategy").value(config.getStrategyName())
+            .name("cityMinX").value(config.getCityMinX())
+            .name("cityMaxX").value(config.getCityMaxX())
+            .name("cityMinY").value(config.getCityMinY())
+            .name("cityMaxY").value(config.getCityMaxY())
+            .name("taxiSpeed").value(config.getTaxiSpeed())
+            .name("traceFile").value(config.getTraceFile())
+            .name("traceSpeedUp").value(config.getTraceSpeedUp())
+            .name("seed").value(config.getSeed())
+            .name("targetRequestRate").value(config.getTargetRequestRate())
+            .name("producerThreads").value(config.getProducerThreads())
+            .name("queueCapacity").value(config.getQueueCapacity())
+            .name("overloadPolicy").value(config.getOverloadPolicy().getCode())
+            .name("shedTypes").beginArray();
+        for (TaxiType type : config.getShedTypes()) {
+            json.value(type.name());
+        }
+        json.endArray()
+            .name("maxPredictedWaitMillis").value(config.getMaxPredictedWaitMillis())
+            .name("ringBufferSize").value(config.getRingBufferSize())
+            .name("waitStrategy").value(config.getWaitStrategy().getCode())
+            .name("taxiMode").value(config.getTaxiMode().getCode())
+            .name("schedulerThreads").value(config.getSchedulerThreads())
+            .name("timer").value(config.getTimerType().getCode())
+            .name("timerTickMillis").value(config.getTimerTickMillis())
+            .name("shutdown").value(config.getShutdownPolicy().getCode())
+            .name("drainTimeoutMillis").value(config.getDrainTimeoutMillis())
+            .name("chainDepth").value(config.getChainDepth())
+            .name("roadGraphFile").value(config.getRoadGraphFile())
+            .name("landmarks").value(config.getLandmarks())
+            .name("routeCacheSize").value(config.getRouteCacheSize())
+            .name("rebalanceIntervalMillis").value(config.getRebalanceIntervalMillis())
+            .name("rebalanceShare").value(config.getRebalanceShare())
+            .name("poolCapacity").value(config.getPoolCapacity())
+            .name("poolMaxDetour").value(config.getPoolMaxDetour())
+            .name("demandProfileFile").value(config.getDemandProfileFile())
+            .name("ingestPort").value(config.getIngestPort())
+            .name("httpPort").value(config.getHttpPort())
+            .name("httpSnapshotMillis").value(config.getHttpSnapshotMillis())
+            .name("streamPort").value(config.getStreamPort())
+            .name("journalFile").value(config.getJournalFile())
+            .name("durability").value(config.getDurabilityMode().getCode())
+            .name("historyPartitionMillis").value(config.getHistoryPartitionMillis())
+            .endObject();
+    }
+    
+    static void writeResult(JsonWriter json, SimulationResult result) {
+        json.beginObject()
+            .name("durationSeconds").value(result.getDurationSeconds())
+            .name("generatedRequests").value(result.getGeneratedRequests())
+            .name("assignedRides").value(result.getAssignedRides())
+            .name("completedRides").value(result.getCompletedRides())
+            .name("rejectedRequests").value(result.getRejectedRequests())
+            .name("assignmentFailures").value(result.getFailedAssignments())
+            .name("throughputRidesPerSecond").value(result.getThroughput())
+            .name("requestsPerSecond").value(result.getRequestRate());
+        
+        json.name("waitTimeMillis");
+        writeHistogram(json, result.getWaitTimeHistogram());
+        json.name("pickupWaitMillis");
+        writeHistogram(json, result.getPickupWaitHistogram());
+        json.name("dispatchLatencyMicros");
+        writeHistogram(json, result.getDispatchLatencyHistogram());
+        json.name("queueOccupancy");
+        writeHistogram(json, result.getQueueOccupancyHistogram());
+        
+        json.name("routeCache").beginObject()
+            .name("hits").value(result.getRouteCacheHits())
+            .name("misses").value(result.getRouteCacheMisses())
+            .name("evictions").value(result.getRouteCacheEvictions())
+            .name("hitRate").value(round(result.getRouteCacheHitRate()))
+            .endObject();
+        json.name("fleet").beginObject()
+            .name("utilisation").value(round(result.getFleetUtilisation()))
+            .name("detourOverhead").value(round(result.getDetourOverhead()))
+            .name("ridesPerTaxiHour").value(round(result.getRidesPerTaxiHour()))
+            .endObject();
+        json.name("rebalance").beginObject()
+            .name("moves").value(result.getRebalanceMoves())
+            .name("distance").value(round(result.getRebalanceDistance()))
+            .endObject();
+        json.name("journal").beginObject()
+            .name("records").value(result.getJournalRecords())
+            .name("forces").value(result.getJournalForces())
+            .name("recordsPerForce").value(round(result.getJournalRecordsPerForce()))
+            .name("bytes").value(result.getJournalBytes())
+            .name("recoveredRequests").value(result.getRecoveredRequests())
+            .name("commitMicros");
+        writeHistogram(json, result.getJournalCommitHistogram());
+        json.endObject();
+        json.name("history").beginObject()
+            .name("rides").value(result.getHistoryRides())
+            .name("segments").value(result.getHistorySegments())
+            .name("offHeapBytes").value(result.getHistoryOffHeapBytes())
+            .name("dropped").value(result.getHistoryDropped())
+            .endObject();
+        
+        JvmStats jvm = result.getJvmStats();
+        json.name("jvm").beginObject()
+            .name("gcCount").value(jvm.getGcCount())
+            .name("gcTimeMillis").value(jvm.getGcTimeMillis())
+            .name("allocatedBytes").value(jvm.getAllocatedBytes())
+            .name("peakHeapBytes").value(jvm.getPeakHeapBytes())
+            .endObject();
+        
+        json.endObject();
+    }
+    
+    static void writeHistogram(JsonWriter json, LatencyHistogram histogram) {
+        json.beginObject()
+            .name("count").value(histogram.getCount())
+            .name("mean").value(round(histogram.getMean()))
+            .name("p50").value(histogram.getPercentile(50))
+            .name("p90").value(histogram.getPercentile(90))
+            .name("p99").value(histogram.getPercentile(99))
+            .name("p999").value(histogram.getPercentile(99.9))
+            .name("max").value(histogram.getMax())
+            .endObject();
+    }
+    
+    private static void writeSummary(JsonWriter json, List<SimulationResult> results) {
+        double[] throughput = new double[results.size()];
+        double[] p99 = new double[results.size()];
+        long failures = 0;
+        for (int i = 0; i < results.size(); i++) {
+            throughput[i] = results.get(i).getThroughput();
+            p99[i] = results.get(i).getWaitTimeHistogram().getPercentile(99);
+            failures += results.get(i).getFailedAssignments();
+        }
+        json.beginObject()
+            .name("throughputMean").value(round(mean(throughput)))
+            .name("throughputStdDev").value(round(stdDev(throughput)))
+            .name("throughputMin").value(round(min(throughput)))
+            .name("throughputMax").value(round(max(throughput)))
+            .name("waitP99MeanMillis").value(round(mean(p99)))
+            .name("assignmentFailuresTotal").value(failures)
+            .endObject();
+    }
+    
+    static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return values.length > 0 ? sum / values.length : 0.0;
+    }
+    
+    static double stdDev(double[] values) {
+        if (values.length < 2) {
+            return 0.0;
+        }
+        double mean = mean(values);
+        double squares = 0;
+        for (double value : values) {
+            squares += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(squares / (values.length - 1));
+    }
+    
+    private static double min(double[] values) {
+        double result = Double.MAX_VALUE;
+        for (double value : values) {
+            result = Math.min(result, value);
+        }
+        return values.length > 0 ? result : 0.0;
+    }
+    
+    private static double max(double[] values) {
+        double result = -Double.MAX_VALUE;
+        for (double value : values) {
+            result = Math.max(result, value);
+        }
+        return values.length > 0 ? result : 0.0;
+    }
+    
+    private static double round(double value) {
+        return Math.round(value * 1000.0) / 1000.0;
+    }
+}
@@ -0,0 +1,25 @@
+package infra;
+
+import models.RideRequest;
+
+import java.util.SplittableRandom;
+
+
+// Пространственная модель спроса: откуда и куда едут клиенты и какой тип такси заказывают.
+// Случайность берется только из переданного random, поэтому модель можно
+// использовать из нескольких потоков-производителей, у каждого свой поток чисел.
+public interface DemandModel {
+    
+    RideRequest createRequest(SplittableRandom random);
+    
+    // Множитель базовой интенсивности заказов через elapsedNanos от начала генерации.
+    // Генераторы ведут поток с интенсивностью peakRateFactor() и прореживают его
+    default double rateFactor(long elapsedNanos) {
+        return 1.0;
+    }
+    
+    // Наибольший множитель интенсивности
+    default double peakRateFactor() {
+        return 1.0;
+    }
+}
@@ -0,0 +1,37 @@
+package infra;
+
+import services.RideScheduler;
+import services.RideTimer;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+// Планировщик поездок на ScheduledThreadPoolExecutor: небольшой общий пул потоков
+// выполняет переходы состояний всех такси событийного режима
+public class ExecutorRideScheduler implements RideScheduler {
+    
+    private final ScheduledThreadPoolExecutor executor;
+    
+    public ExecutorRideScheduler(int threads) {
+        this.executor = new ScheduledThreadPoolExecutor(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ride-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Отмененные поездки сразу убираются из очереди, а не висят до срока
+        executor.setRemoveOnCancelPolicy(true);
+    }
+    
+    @Override
+    public RideTimer schedule(long delayMillis, Runnable action) {
+        ScheduledFuture<?> future = executor.schedule(action, delayMillis, TimeUnit.MILLISECONDS);
+        return () -> future.cancel(false);
+    }
+    
+    @Override
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,292 @@
+package infra;
+
+import models.*;
+import util.AliasTable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+
+// Неоднородный спрос: горячие точки и суточный профиль интенсивности.
+//
+// Посадки и высадки - смесь гауссовых горячих точек и равномерного фона, у каждой компоненты
+// свои веса посадок и высадок (утром из спальных районов в центр: у района вес посадок,
+// у центра - высадок) и своя смесь типов такси. Компонента и тип выбираются по таблицам
+// псевдонимов (AliasTable) за O(1) при любом числе точек, точка - нормальное распределение
+// вокруг центра; выпавшие за город точки перевыбираются.
+//
+// Интенсивность задает кусочно-линейная кривая множителей (час пик, ночной спад),
+// повторяющаяся с периодом period. Генераторы ведут поток с пиковой интенсивностью
+// и прореживают его (thinning): кандидат в момент t остается с вероятностью
+// rateFactor(t) / peakRateFactor(), так что поток остается пуассоновским с переменной
+// интенсивностью, а планирование не усложняется.
+//
+// Формат файла профиля (строки, # - комментарий):
+//   period <секунды>                       - длина «суток» профиля (по умолчанию 60 с)
+//   rate <секунда> <множитель>              - точка кривой интенсивности
+//   spot <x> <y> <сигма> <вес посадок> <вес высадок> [economy=0.6,comfort=0.3,business=0.1]
+//   uniform <вес посадок> <вес высадок> [смесь типов]
+// Без смеси типы равновероятны, без строк rate интенсивность постоянна.
+public class HotspotDemandModel implements DemandModel {
+
+    private static final TaxiType[] TYPES = TaxiType.values();
+    // Сколько раз перевыбирать точку, выпавшую за город, прежде чем прижать ее к границе
+    private static final int MAX_RESAMPLES = 8;
+
+    private final double minX;
+    private final double maxX;
+    private final double minY;
+    private final double maxY;
+    private final RequestIdSequence ids;
+
+    private final Component[] components;
+    private final AliasTable pickups;
+    private final AliasTable dropoffs;
+
+    // Кривая интенсивности: моменты в нс от начала периода и множители
+    private final long periodNanos;
+    private final long[] rateTimes;
+    private final double[] rateFactors;
+    private final double peakRateFactor;
+
+    private HotspotDemandModel(SimulationConfig config, RequestIdSequence ids, List<Component> components,
+                               long periodNanos, List<double[]> ratePoints) {
+        if (components.isEmpty()) {
+            throw new IllegalArgumentException("В профиле нет ни одной горячей точки или фона");
+        }
+        this.minX = config.getCityMinX();
+        this.maxX = config.getCityMaxX();
+        this.minY = config.getCityMinY();
+        this.maxY = config.getCityMaxY();
+        this.ids = ids;
+        this.components = components.toArray(new Component[0]);
+
+        double[] pickupWeights = new double[components.size()];
+        double[] dropoffWeights = new double[components.size()];
+        for (int i = 0; i < components.size(); i++) {
+            pickupWeights[i] = components.get(i).pickupWeight;
+            dropoffWeights[i] = components.get(i).dropoffWeight;
+        }
+        this.pickups = new AliasTable(pickupWeights);
+        this.dropoffs = new AliasTable(dropoffWeights);
+
+        this.periodNanos = periodNanos;
+        ratePoints.sort((a, b) -> Double.compare(a[0], b[0]));
+        this.rateTimes = new long[ratePoints.size()];
+        this.rateFactors = new double[ratePoints.size()];
+        double peak = 0;
+        for (int i = 0; i < ratePoints.size(); i++) {
+            rateTimes[i] = (long) (ratePoints.get(i)[0] * 1e9);
+            rateFactors[i] = ratePoints.get(i)[1];
+            peak = Math.max(peak, rateFactors[i]);
+        }
+        if (rateTimes.length > 0 && peak <= 0) {
+            throw new IllegalArgumentException("Кривая интенсивности везде нулевая");
+        }
+        this.peakRateFactor = rateTimes.length > 0 ? peak : 1.0;
+    }
+
+    public static HotspotDemandModel load(Path path, SimulationConfig config, RequestIdSequence ids)
+            throws IOException {
+        List<Component> components = new ArrayList<>();
+        List<double[]> ratePoints = new ArrayList<>();
+        double periodSeconds = 60;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                try {
+                    switch (parts[0]) {
+                        case "period":
+                            requireFields(parts, 2);
+                            periodSeconds = Double.parseDouble(parts[1]);
+                            if (periodSeconds <= 0) {
+                                throw new IllegalArgumentException("период должен быть положительным");
+                            }
+                            break;
+                        case "rate":
+                            requireFields(parts, 3);
+                            double factor = Double.parseDouble(parts[2]);
+                            if (factor < 0) {
+                                throw new IllegalArgumentException("множитель интенсивности не может быть отрицательным");
+                            }
+                            ratePoints.add(new double[] {Double.parseDouble(parts[1]), factor});
+                            break;
+                        case "spot":
+                            requireFields(parts, 6);
+                            double sigma = Double.parseDouble(parts[3]);
+                            if (sigma <= 0) {
+                                throw new IllegalArgumentException("сигма должна быть положительной");
+                            }
+                            components.add(new Component(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]),
+                                                         sigma, Double.parseDouble(parts[4]),
+                                                         Double.parseDouble(parts[5]),
+                                                         parseTypeMix(parts.length > 6 ? parts[6] : null)));
+                            break;
+                        case "uniform":
+                            requireFields(parts, 3);
+                            components.add(new Component(0, 0, 0, Double.parseDouble(parts[1]),
+                                                         Double.parseDouble(parts[2]),
+                                                         parseTypeMix(parts.length > 3 ? parts[3] : null)));
+                            break;
+                        default:
+                            throw new IllegalArgumentException("неизвестная запись '" + parts[0] + "'");
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(path + ", строка " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        for (double[] point : ratePoints) {
+            if (point[0] < 0 || point[0] > periodSeconds) {
+                throw new IOException(path + ": момент кривой интенсивности " + point[0] + " вне периода");
+            }
+        }
+        try {
+            return new HotspotDemandModel(config, ids, components, (long) (periodSeconds * 1e9), ratePoints);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(path + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public RideRequest createRequest(SplittableRandom random) {
+        Component origin = components[pickups.sample(random)];
+        Point pickup = samplePoint(origin, random);
+        Point dropoff = samplePoint(components[dropoffs.sample(random)], random);
+        // Как и при равномерном спросе, посадка и высадка не совпадают
+        for (int attempt = 0; pickup.distanceTo(dropoff) < 1.0 && attempt < MAX_RESAMPLES; attempt++) {
+            dropoff = samplePoint(components[dropoffs.sample(random)], random);
+        }
+        TaxiType requestedType = TYPES[origin.types.sample(random)];
+        return new RideRequest(ids.nextId(), pickup, dropoff, requestedType);
+    }
+
+    @Override
+    public double rateFactor(long elapsedNanos) {
+        int n = rateTimes.length;
+        if (n == 0) {
+            return 1.0;
+        }
+        if (n == 1) {
+            return rateFactors[0];
+        }
+        long t = Math.floorMod(elapsedNanos, periodNanos);
+        int i = Arrays.binarySearch(rateTimes, t);
+        if (i >= 0) {
+            return rateFactors[i];
+        }
+        // Между точками - линейно, за последней точкой кривая возвращается к первой через конец периода
+        int next = -i - 1;
+        long fromTime;
+        long toTime;
+        double fromFactor;
+        double toFactor;
+        if (next == 0) {
+            fromTime = rateTimes[n - 1] - periodNanos;
+            fromFactor = rateFactors[n - 1];
+            toTime = rateTimes[0];
+            toFactor = rateFactors[0];
+        } else if (next == n) {
+            fromTime = rateTimes[n - 1];
+            fromFactor = rateFactors[n - 1];
+            toTime = rateTimes[0] + periodNanos;
+            toFactor = rateFactors[0];
+        } else {
+            fromTime = rateTimes[next - 1];
+            fromFactor = rateFactors[next - 1];
+            toTime = rateTimes[next];
+            toFactor = rateFactors[next];
+        }
+        if (toTime == fromTime) {
+            return toFactor;
+        }
+        return fromFactor + (toFactor - fromFactor) * (t - fromTime) / (toTime - fromTime);
+    }
+
+    @Override
+    public double peakRateFactor() {
+        return peakRateFactor;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "горячих точек и фона: %d, точек кривой интенсивности: %d, пик x%.2f",
+                             components.length, rateTimes.length, peakRateFactor);
+    }
+
+    private Point samplePoint(Component component, SplittableRandom random) {
+        if (component.sigma == 0) {
+            return new Point(minX + random.nextDouble() * (maxX - minX),
+                             minY + random.nextDouble() * (maxY - minY));
+        }
+        double px = 0;
+        double py = 0;
+        for (int attempt = 0; attempt < MAX_RESAMPLES; attempt++) {
+            px = component.x + component.sigma * random.nextGaussian();
+            py = component.y + component.sigma * random.nextGaussian();
+            if (px >= minX && px <= maxX && py >= minY && py <= maxY) {
+                return new Point(px, py);
+            }
+        }
+        return new Point(Math.min(maxX, Math.max(minX, px)), Math.min(maxY, Math.max(minY, py)));
+    }
+
+    // "economy=0.6,comfort=0.3,business=0.1"; null - типы равновероятны
+    private static AliasTable parseTypeMix(String mix) {
+        double[] weights = new double[TYPES.length];
+        if (mix == null) {
+            Arrays.fill(weights, 1.0);
+            return new AliasTable(weights);
+        }
+        for (String entry : mix.split(",")) {
+            String[] pair = entry.split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("смесь типов задается как тип=вес: '" + entry + "'");
+            }
+            TaxiType type = TaxiType.valueOf(pair[0].trim().toUpperCase(Locale.ROOT));
+            weights[type.ordinal()] = Double.parseDouble(pair[1]);
+        }
+        return new AliasTable(weights);
+    }
+
+    private static void requireFields(String[] parts, int count) {
+        if (parts.length < count) {
+            throw new IllegalArgumentException("ожидалось полей: " + count);
+        }
+    }
+
+
+    // Горячая точка (sigma > 0) или равномерный фон (sigma = 0)
+    private static final class Component {
+        final double x;
+        final double y;
+        final double sigma;
+        final double pickupWeight;
+        final double dropoffWeight;
+        final AliasTable types;
+
+        Component(double x, double y, double sigma, double pickupWeight, double dropoffWeight, AliasTable types) {
+            this.x = x;
+            this.y = y;
+            this.sigma = sigma;
+            this.pickupWeight = pickupWeight;
+            this.dropoffWeight = dropoffWeight;
+            this.types = types;
+        }
+    }
+}
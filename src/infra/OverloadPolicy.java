@@ -0,0 +1,46 @@
+package infra;
+
+// Что делать с заказом, когда очередь диспетчера не успевает разбираться
+public enum OverloadPolicy {
+    BLOCK("block", "Ждать места в очереди"),
+    DROP_NEWEST("drop-newest", "Отбрасывать новый заказ"),
+    DROP_OLDEST("drop-oldest", "Вытеснять самый старый заказ"),
+    REJECT_BY_TYPE("reject-type", "Отклонять заказы выбранных типов такси"),
+    REJECT_BY_WAIT("reject-wait", "Отклонять по прогнозу ожидания");
+    
+    private final String code;
+    private final String description;
+    
+    OverloadPolicy(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+    
+    public String getCode() {
+        return code;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public static OverloadPolicy fromCode(String code) {
+        if (code == null) {
+            return BLOCK;
+        }
+        
+        for (OverloadPolicy policy : values()) {
+            if (policy.code.equalsIgnoreCase(code.trim())) {
+                return policy;
+            }
+        }
+        
+        // Если код не распознан, возвращаем значение по умолчанию
+        return BLOCK;
+    }
+    
+    @Override
+    public String toString() {
+        return description + " (" + code + ")";
+    }
+}
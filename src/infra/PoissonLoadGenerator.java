@@ -0,0 +1,215 @@
+package infra;
+
+import journal.JournaledQueue;
+import models.*;
+import util.ConsoleLog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+
+// Генератор открытой нагрузки: пуассоновский поток заказов с заданной интенсивностью.
+// Если модель спроса задает кривую интенсивности (DemandModel.rateFactor), поток идет
+// с пиковой интенсивностью и прореживается: кандидат остается с вероятностью
+// rateFactor / peakRateFactor. Решение принимается до ожидания, поэтому отброшенные
+// кандидаты поток не будят.
+//
+// Нагрузка делится между несколькими потоками-производителями, каждый выдает
+// rate / producers заказов в секунду с экспоненциальными интервалами. Моменты
+// отправки планируются по System.nanoTime заранее и не сдвигаются, если поток
+// отстал (открытая модель), а заказ кладется в очередь без блокировки.
+// Плановый момент сохраняется в заказе, от него считается задержка с поправкой
+// на coordinated omission.
+//
+// С журналом заказов (JournaledQueue) производитель не ждет фиксации группы записей, иначе
+// каждый заказ ждал бы force() и нагрузка стала бы замкнутой: заказ ставится в очередь из
+// потока записи журнала (offerWhenDurable). В режиме SYNC фиксация идет в вызывающем потоке
+// по определению, и производитель ждет ее.
+public class PoissonLoadGenerator implements RequestSource {
+    
+    // Ближе этого порога к плановому моменту поток не засыпает, а крутится
+    private static final long SPIN_THRESHOLD_NANOS = 50_000L;
+    
+    // Пауза между проверками, дописал ли журнал прием последних заказов
+    private static final long COMMIT_POLL_NANOS = 100_000L;
+    
+    private final BlockingQueue<RideRequest> requestQueue;
+    private final DemandModel demandModel;
+    private final double requestsPerSecond;
+    private final SplittableRandom[] producerRandoms;
+    private final List<Thread> producers = new ArrayList<>();
+    private final AtomicLong generatedRequests = new AtomicLong();
+    private final AtomicLong rejectedRequests = new AtomicLong();
+    // Заказы, прием которых еще фиксирует журнал
+    private final AtomicLong pendingCommits = new AtomicLong();
+    private volatile boolean running = true;
+    
+    public PoissonLoadGenerator(BlockingQueue<RideRequest> requestQueue, DemandModel demandModel,
+                                double requestsPerSecond, int producerThreads, SplittableRandom random) {
+        if (requestsPerSecond <= 0) {
+            throw new IllegalArgumentException("Интенсивность нагрузки должна быть положительной");
+        }
+        if (producerThreads < 1) {
+            throw new IllegalArgumentException("Нужен хотя бы один поток-производитель");
+        }
+        this.requestQueue = requestQueue;
+        this.demandModel = demandModel;
+        this.requestsPerSecond = requestsPerSecond;
+        
+        // Потоки чисел выделяются заранее и по порядку, поэтому спрос каждого
+        // производителя воспроизводится при одинаковом seed
+        this.producerRandoms = new SplittableRandom[producerThreads];
+        for (int i = 0; i < producerThreads; i++) {
+            producerRandoms[i] = random.split();
+        }
+    }
+    
+    @Override
+    public void run() {
+        ConsoleLog.println("Генератор открытой нагрузки запущен: " + requestsPerSecond + 
+                          " заказов/с, производителей: " + producerRandoms.length);
+        
+        long startNanos = System.nanoTime();
+        double shardRate = requestsPerSecond / producerRandoms.length;
+        synchronized (producers) {
+            for (int i = 0; i < producerRandoms.length; i++) {
+                SplittableRandom random = producerRandoms[i];
+                Thread producer = new Thread(() -> produce(random, shardRate, startNanos),
+                                             "load-producer-" + i);
+                producer.setDaemon(true);
+                producers.add(producer);
+            }
+            if (running) {
+                producers.forEach(Thread::start);
+            }
+        }
+        
+        try {
+            for (Thread producer : producers) {
+                producer.join();
+            }
+        } catch (InterruptedException e) {
+            stop();
+        } finally {
+            // Poison pill - после заказов, которые журнал еще не поставил в очередь
+            awaitPendingCommits();
+            sendPoisonPill();
+            ConsoleLog.println("Генератор открытой нагрузки остановлен. Заказов: " + generatedRequests.get() +
+                              ", не принято очередью: " + rejectedRequests.get());
+        }
+    }
+    
+    private void produce(SplittableRandom random, double rate, long startNanos) {
+        double peakRateFactor = demandModel.peakRateFactor();
+        double meanIntervalNanos = 1e9 / (rate * peakRateFactor);
+        double intendedNanos = startNanos;
+        
+        while (running) {
+            // Экспоненциальный интервал: -ln(U) * среднее
+            intendedNanos += -Math.log(1.0 - random.nextDouble()) * meanIntervalNanos;
+            long intended = (long) intendedNanos;
+            
+            // Прореживание; при постоянной интенсивности случайное число не тратится
+            double rateFactor = demandModel.rateFactor(intended - startNanos);
+            if (rateFactor < peakRateFactor && random.nextDouble() * peakRateFactor >= rateFactor) {
+                continue;
+            }
+            
+            if (!waitUntil(intended)) {
+                break;
+            }
+            
+            RideRequest request = demandModel.createRequest(random);
+            request.setIntendedAtNanos(intended);
+            
+            // Учитываем всю поданную нагрузку, в том числе не принятую очередью
+            generatedRequests.incrementAndGet();
+            if (requestQueue instanceof JournaledQueue) {
+                pendingCommits.incrementAndGet();
+                ((JournaledQueue) requestQueue).offerWhenDurable(request, accepted -> {
+                    offered(request, accepted);
+                    pendingCommits.decrementAndGet();
+                });
+            } else {
+                offered(request, requestQueue.offer(request));
+            }
+        }
+    }
+    
+    private void offered(RideRequest request, boolean accepted) {
+        if (!accepted) {
+            rejectedRequests.incrementAndGet();
+        } else if (ConsoleLog.isEnabled()) {
+            ConsoleLog.println("Сгенерирован заказ #" + request.getId() + 
+                             " от " + request.getPickupLocation() + 
+                             " до " + request.getDropoffLocation() +
+                             " (тип: " + request.getRequestedType() + ")");
+        }
+    }
+    
+    // Журнал отвечает на каждый прием (при сбое или закрытии - отказом), поэтому ожидание конечно
+    private void awaitPendingCommits() {
+        while (pendingCommits.get() > 0 && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(COMMIT_POLL_NANOS);
+        }
+    }
+    
+    // Ждет планового момента: далеко до него - парковка, близко - активное ожидание.
+    // Если поток уже опаздывает, возвращается сразу, не сдвигая расписание.
+    private boolean waitUntil(long deadlineNanos) {
+        long remaining;
+        while ((remaining = deadlineNanos - System.nanoTime()) > 0) {
+            if (!running) {
+                return false;
+            }
+            if (remaining > SPIN_THRESHOLD_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_THRESHOLD_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+        return running;
+    }
+    
+    private void sendPoisonPill() {
+        // Снимаем флаг прерывания от остановки, иначе put() сразу выбросит исключение
+        boolean interrupted = Thread.interrupted();
+        try {
+            requestQueue.put(RequestGenerator.DISPATCHER_POISON_PILL);
+            ConsoleLog.println("Генератор открытой нагрузки отправил poison pill диспетчеру");
+        } catch (InterruptedException e) {
+            interrupted = true;
+        }
+        if (interrupted && running) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    @Override
+    public void stop() {
+        running = false;
+        synchronized (producers) {
+            for (Thread producer : producers) {
+                LockSupport.unpark(producer);
+            }
+        }
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+    
+    @Override
+    public long getGeneratedRequests() {
+        return generatedRequests.get();
+    }
+    
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
+    }
+}
@@ -1,79 +1,81 @@
 package infra;
 
 import models.*;
+import util.ConsoleLog;
 
 import java.util.concurrent.BlockingQueue;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 
-public class RequestGenerator implements Runnable {
+public class RequestGenerator implements RequestSource {
     private final BlockingQueue<RideRequest> requestQueue;
     private final SimulationConfig config;
-    private final Random random;
+    private final DemandModel demandModel;
+    private final SplittableRandom random;
     private volatile boolean running = true;
+    private volatile Thread workerThread;
+    private volatile long generatedRequests = 0;
     
     public static final RideRequest DISPATCHER_POISON_PILL = RideRequest.createPoisonPill();
     
-    public RequestGenerator(BlockingQueue<RideRequest> requestQueue, SimulationConfig config) {
+    // random - собственный поток случайных чисел генератора (SplittableRandom не потокобезопасен)
+    public RequestGenerator(BlockingQueue<RideRequest> requestQueue, SimulationConfig config, 
+                            RequestIdSequence ids, SplittableRandom random) {
+        this(requestQueue, config, new UniformDemandModel(config, ids), random);
+    }
+    
+    public RequestGenerator(BlockingQueue<RideRequest> requestQueue, SimulationConfig config,
+                            DemandModel demandModel, SplittableRandom random) {
         this.requestQueue = requestQueue;
         this.config = config;
-        this.random = new Random();
+        this.demandModel = demandModel;
+        this.random = random;
     }
     
     @Override
     public void run() {
-        System.out.println("Генератор запросов запущен. Интервал: " + 
+        workerThread = Thread.currentThread();
+        ConsoleLog.println("Генератор запросов запущен. Интервал: " + 
                           config.getMeanRequestIntervalMillis() + " мс");
         
+        long startNanos = System.nanoTime();
+        double peakRateFactor = demandModel.peakRateFactor();
         try {
             while (running) {
-                // Генерируем новый заказ
-                RideRequest request = generateRequest();
-                
-                // Помещаем в очередь
-                requestQueue.put(request);
-                System.out.println("Сгенерирован заказ #" + request.getId() + 
-                                 " от " + request.getPickupLocation() + 
-                                 " до " + request.getDropoffLocation() +
-                                 " (тип: " + request.getRequestedType() + ")");
+                // Кривая интенсивности модели спроса: кандидаты идут с пиковой частотой
+                // и прореживаются, при постоянной интенсивности проходят все
+                double rateFactor = demandModel.rateFactor(System.nanoTime() - startNanos);
+                if (rateFactor >= peakRateFactor || random.nextDouble() * peakRateFactor < rateFactor) {
+                    // Генерируем новый заказ
+                    RideRequest request = generateRequest();
+                    
+                    // Помещаем в очередь
+                    requestQueue.put(request);
+                    generatedRequests++;
+                    ConsoleLog.println("Сгенерирован заказ #" + request.getId() + 
+                                     " от " + request.getPickupLocation() + 
+                                     " до " + request.getDropoffLocation() +
+                                     " (тип: " + request.getRequestedType() + ")");
+                }
                 
                 // Ждем перед генерацией следующего заказа
-                long interval = getNextInterval();
+                long interval = (long) (getNextInterval() / peakRateFactor);
                 Thread.sleep(interval);
             }
         } catch (InterruptedException e) {
-            System.err.println("Генератор запросов был прерван");
-            Thread.currentThread().interrupt();
+            // Прерывание по stop() - штатная остановка
+            if (running) {
+                System.err.println("Генератор запросов был прерван");
+                Thread.currentThread().interrupt();
+            }
         } finally {
             sendPoisonPill();
-            System.out.println("Генератор запросов остановлен.");
+            ConsoleLog.println("Генератор запросов остановлен.");
         }
     }
     
     private RideRequest generateRequest() {
-        // Генерируем случайные точки в пределах города
-        Point pickup = generateRandomPoint();
-        Point dropoff = generateRandomPoint();
-        
-        // Убедимся, что точки не совпадают
-        while (pickup.distanceTo(dropoff) < 1.0) {
-            dropoff = generateRandomPoint();
-        }
-        
-        // Выбираем случайный тип такси
-        TaxiType[] allTypes = TaxiType.values();
-        TaxiType requestedType = allTypes[random.nextInt(allTypes.length)];
-        
-        // Создаем заказ 
-        return new RideRequest(pickup, dropoff, requestedType);
-    }
-    
-    private Point generateRandomPoint() {
-        double x = config.getCityMinX() + 
-                  random.nextDouble() * (config.getCityMaxX() - config.getCityMinX());
-        double y = config.getCityMinY() + 
-                  random.nextDouble() * (config.getCityMaxY() - config.getCityMinY());
-        return new Point(x, y);
+        return demandModel.createRequest(random);
     }
     
     private long getNextInterval() {
@@ -82,20 +84,46 @@ public class RequestGenerator implements Runnable {
     }
     
     private void sendPoisonPill() {
-        try {
-            requestQueue.put(DISPATCHER_POISON_PILL);
-            System.out.println("Генератор отправил poison pill диспетчеру");
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        // Снимаем флаг прерывания от stop(), иначе put() сразу выбросит исключение
+        if (!running) {
+            Thread.interrupted();
+        }
+        // Поток мог выйти из цикла сам, и прерывание от stop() приходит уже в put(): повторяем
+        // один раз, иначе poison pill потерян и остановка ждет таймаута. Повторное прерывание -
+        // принудительная остановка, тогда сдаемся
+        boolean retried = false;
+        while (true) {
+            try {
+                requestQueue.put(DISPATCHER_POISON_PILL);
+                ConsoleLog.println("Генератор отправил poison pill диспетчеру");
+                return;
+            } catch (InterruptedException e) {
+                if (running || retried) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                retried = true;
+            }
         }
     }
     
+    @Override
     public void stop() {
         this.running = false;
-        Thread.currentThread().interrupt();
+        // Будим поток генератора из паузы между заказами
+        Thread worker = workerThread;
+        if (worker != null) {
+            worker.interrupt();
+        }
     }
 
+    @Override
     public boolean isRunning() {
         return running;
     }
+    
+    @Override
+    public long getGeneratedRequests() {
+        return generatedRequests;
+    }
 }
@@ -0,0 +1,13 @@
+package infra;
+
+
+// Источник заказов, который кладет RideRequest в общую очередь диспетчера
+public interface RequestSource extends Runnable {
+
+    void stop();
+
+    boolean isRunning();
+    
+    // Сколько заказов источник отправил в очередь
+    long getGeneratedRequests();
+}
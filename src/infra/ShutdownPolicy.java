@@ -0,0 +1,43 @@
+package infra;
+
+// Что делать с поездками в работе, когда время симуляции истекло
+public enum ShutdownPolicy {
+    ABORT("abort", "Прервать поездки в работе"),
+    DRAIN("drain", "Дождаться завершения поездок");
+    
+    private final String code;
+    private final String description;
+    
+    ShutdownPolicy(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+    
+    public String getCode() {
+        return code;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public static ShutdownPolicy fromCode(String code) {
+        if (code == null) {
+            return ABORT;
+        }
+        
+        for (ShutdownPolicy policy : values()) {
+            if (policy.code.equalsIgnoreCase(code.trim())) {
+                return policy;
+            }
+        }
+        
+        // Если код не распознан, возвращаем значение по умолчанию
+        return ABORT;
+    }
+    
+    @Override
+    public String toString() {
+        return description + " (" + code + ")";
+    }
+}
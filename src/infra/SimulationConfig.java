@@ -1,5 +1,13 @@
 package infra;
 
+import journal.DurabilityMode;
+import models.TaxiType;
+import util.WaitStrategy;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
 public class SimulationConfig {
     private final int numberOfTaxis;
     private final int simulationDurationSeconds;
@@ -13,6 +21,154 @@ public class SimulationConfig {
     
     private final double taxiSpeed;
     
+    // Воспроизведение трассы вместо случайной генерации (null - генератор)
+    private final String traceFile;
+    private final double traceSpeedUp;
+    
+    // Зерно генераторов случайных чисел: одинаковое зерно дает одинаковый парк и спрос
+    private final long seed;
+    
+    // Открытая пуассоновская нагрузка: заказов в секунду (0 - обычный генератор)
+    // и число потоков-производителей, между которыми она делится
+    private final double targetRequestRate;
+    private final int producerThreads;
+    
+    // Входная очередь диспетчера: емкость (0 - без ограничения) и поведение при перегрузке.
+    // shedTypes - типы, отклоняемые политикой REJECT_BY_TYPE,
+    // maxPredictedWaitMillis - допустимый прогноз ожидания для REJECT_BY_WAIT
+    private final int queueCapacity;
+    private final OverloadPolicy overloadPolicy;
+    private final Set<TaxiType> shedTypes;
+    private final long maxPredictedWaitMillis;
+    
+    // Кольцевой буфер вместо очереди диспетчера: размер (степень двойки, 0 - не используется)
+    // и способ ожидания данных/места
+    private final int ringBufferSize;
+    private final WaitStrategy waitStrategy;
+    
+    // Исполнение такси: поток на такси или событийный режим на общем планировщике из schedulerThreads потоков
+    private final TaxiMode taxiMode;
+    private final int schedulerThreads;
+    
+    // Таймеры времени в пути: колесо таймеров с тиком timerTickMillis или JDK-планировщик
+    private final TimerType timerType;
+    private final long timerTickMillis;
+    
+    // Завершение: прервать поездки в работе или дождаться их (не дольше drainTimeoutMillis)
+    private final ShutdownPolicy shutdownPolicy;
+    private final long drainTimeoutMillis;
+    
+    // Цепочки поездок: сколько заказов можно поставить в очередь такси, везущему пассажира
+    // (0 - заказы получают только свободные такси)
+    private final int chainDepth;
+    
+    // Дорожный граф (файл RoadGraph, null - движение по прямой) и число ориентиров для A*
+    private final String roadGraphFile;
+    private final int landmarks;
+    // Сколько маршрутов между узлами графа держать в кэше (0 - без кэша)
+    private final int routeCacheSize;
+    
+    // Перегон свободных такси к спросу: период в мс (0 - выключен) и наибольшая доля
+    // свободных такси, перегоняемых за раз
+    private final long rebalanceIntervalMillis;
+    private final double rebalanceShare;
+    
+    // Совместные поездки: сколько пассажиров везет такси (1 - по одному заказу) и допустимый крюк -
+    // на какую долю время в машине может превысить поездку напрямую
+    private final int poolCapacity;
+    private final double poolMaxDetour;
+    
+    // Профиль неоднородного спроса (файл HotspotDemandModel, null - равномерный спрос)
+    private final String demandProfileFile;
+    
+    // Порт приема заказов по TCP на петлевом интерфейсе (IngestServer, 0 - выключен):
+    // заказы присылает внешний клиент вместо генератора
+    private final int ingestPort;
+    
+    // HTTP API на петлевом интерфейсе (HttpApiServer, 0 - выключен) и период обновления
+    // снимка парка, из которого API отвечает на чтение (он же - тик потока позиций)
+    private final int httpPort;
+    private final long httpSnapshotMillis;
+    
+    // Поток позиций парка по TCP (FleetStreamServer, 0 - выключен)
+    private final int streamPort;
+    
+    // Журнал заказов (RideJournal, null - выключен) и когда запись в нем считается сохраненной
+    private final String journalFile;
+    private final DurabilityMode durabilityMode;
+    
+    // История завершенных поездок (RideHistory): длина временного раздела, мс (0 - выключена)
+    private final long historyPartitionMillis;
+    
+    private SimulationConfig(Builder builder) {
+        this.numberOfTaxis = builder.numberOfTaxis;
+        this.simulationDurationSeconds = builder.simulationDurationSeconds;
+        this.meanRequestIntervalMillis = builder.meanRequestIntervalMillis;
+        this.strategyType = builder.strategyType;
+        this.cityMinX = builder.cityMinX;
+        this.cityMaxX = builder.cityMaxX;
+        this.cityMinY = builder.cityMinY;
+        this.cityMaxY = builder.cityMaxY;
+        this.taxiSpeed = builder.taxiSpeed;
+        this.traceFile = builder.traceFile;
+        this.traceSpeedUp = builder.traceSpeedUp;
+        this.seed = builder.seed;
+        this.targetRequestRate = builder.targetRequestRate;
+        this.producerThreads = builder.producerThreads;
+        this.queueCapacity = builder.queueCapacity;
+        this.overloadPolicy = builder.overloadPolicy;
+        this.shedTypes = Collections.unmodifiableSet(builder.shedTypes.isEmpty()
+            ? EnumSet.noneOf(TaxiType.class) : EnumSet.copyOf(builder.shedTypes));
+        this.maxPredictedWaitMillis = builder.maxPredictedWaitMillis;
+        this.ringBufferSize = builder.ringBufferSize;
+        this.waitStrategy = builder.waitStrategy;
+        this.taxiMode = builder.taxiMode;
+        this.schedulerThreads = builder.schedulerThreads;
+        this.timerType = builder.timerType;
+        this.timerTickMillis = builder.timerTickMillis;
+        this.shutdownPolicy = builder.shutdownPolicy;
+        this.drainTimeoutMillis = builder.drainTimeoutMillis;
+        this.chainDepth = builder.chainDepth;
+        this.roadGraphFile = builder.roadGraphFile;
+        this.landmarks = builder.landmarks;
+        this.routeCacheSize = builder.routeCacheSize;
+        this.rebalanceIntervalMillis = builder.rebalanceIntervalMillis;
+        this.rebalanceShare = builder.rebalanceShare;
+        this.poolCapacity = builder.poolCapacity;
+        this.poolMaxDetour = builder.poolMaxDetour;
+        this.demandProfileFile = builder.demandProfileFile;
+        this.ingestPort = builder.ingestPort;
+        this.httpPort = builder.httpPort;
+        this.httpSnapshotMillis = builder.httpSnapshotMillis;
+        this.streamPort = builder.streamPort;
+        this.journalFile = builder.journalFile;
+        this.durabilityMode = builder.durabilityMode;
+        this.historyPartitionMillis = builder.historyPartitionMillis;
+    }
+    
+    public SimulationConfig(int numberOfTaxis, 
+                          int simulationDurationSeconds, 
+                          long meanRequestIntervalMillis, 
+                          StrategyType strategyType, 
+                          double cityMinX, 
+                          double cityMaxX, 
+                          double cityMinY, 
+                          double cityMaxY,
+                          double taxiSpeed,
+                          String traceFile,
+                          double traceSpeedUp,
+                          long seed) {
+        this(builder()
+             .numberOfTaxis(numberOfTaxis)
+             .simulationDurationSeconds(simulationDurationSeconds)
+             .meanRequestIntervalMillis(meanRequestIntervalMillis)
+             .strategyType(strategyType)
+             .cityBounds(cityMinX, cityMaxX, cityMinY, cityMaxY)
+             .taxiSpeed(taxiSpeed)
+             .trace(traceFile, traceSpeedUp)
+             .seed(seed));
+    }
+    
     public SimulationConfig(int numberOfTaxis, 
                           int simulationDurationSeconds, 
                           long meanRequestIntervalMillis, 
@@ -22,15 +178,15 @@ public class SimulationConfig {
                           double cityMinY, 
                           double cityMaxY,
                           double taxiSpeed) {
-        this.numberOfTaxis = numberOfTaxis;
-        this.simulationDurationSeconds = simulationDurationSeconds;
-        this.meanRequestIntervalMillis = meanRequestIntervalMillis;
-        this.strategyType = strategyType;
-        this.cityMinX = cityMinX;
-        this.cityMaxX = cityMaxX;
-        this.cityMinY = cityMinY;
-        this.cityMaxY = cityMaxY;
-        this.taxiSpeed = taxiSpeed;
+        this(numberOfTaxis, 
+             simulationDurationSeconds, 
+             meanRequestIntervalMillis, 
+             strategyType, 
+             cityMinX, cityMaxX, cityMinY, cityMaxY, 
+             taxiSpeed,
+             null,
+             1.0,
+             randomSeed());
     }
     
     public SimulationConfig(int numberOfTaxis, 
@@ -77,6 +233,62 @@ public class SimulationConfig {
              0.0, 100.0, 0.0, 100.0, 10.0);
     }
     
+    public SimulationConfig(int numberOfTaxis, 
+                          int simulationDurationSeconds, 
+                          long meanRequestIntervalMillis, 
+                          String strategyName,
+                          String traceFile,
+                          double traceSpeedUp,
+                          long seed) {
+        this(numberOfTaxis, 
+             simulationDurationSeconds, 
+             meanRequestIntervalMillis, 
+             StrategyType.fromCode(strategyName),
+             0.0, 100.0, 0.0, 100.0, 10.0,
+             traceFile, traceSpeedUp, seed);
+    }
+    
+    public static Builder builder() {
+        return new Builder();
+    }
+    
+    // Копия конфигурации для изменения отдельных полей
+    public Builder toBuilder() {
+        return new Builder()
+            .numberOfTaxis(numberOfTaxis)
+            .simulationDurationSeconds(simulationDurationSeconds)
+            .meanRequestIntervalMillis(meanRequestIntervalMillis)
+            .strategyType(strategyType)
+            .cityBounds(cityMinX, cityMaxX, cityMinY, cityMaxY)
+            .taxiSpeed(taxiSpeed)
+            .trace(traceFile, traceSpeedUp)
+            .seed(seed)
+            .openLoad(targetRequestRate, producerThreads)
+            .admission(queueCapacity, overloadPolicy)
+            .shedTypes(shedTypes)
+            .maxPredictedWaitMillis(maxPredictedWaitMillis)
+            .ringBuffer(ringBufferSize, waitStrategy)
+            .taxiMode(taxiMode, schedulerThreads)
+            .timer(timerType, timerTickMillis)
+            .shutdown(shutdownPolicy, drainTimeoutMillis)
+            .chainDepth(chainDepth)
+            .roadGraph(roadGraphFile, landmarks)
+            .routeCacheSize(routeCacheSize)
+            .rebalance(rebalanceIntervalMillis, rebalanceShare)
+            .pooling(poolCapacity, poolMaxDetour)
+            .demandProfile(demandProfileFile)
+            .ingest(ingestPort)
+            .http(httpPort, httpSnapshotMillis)
+            .stream(streamPort)
+            .journal(journalFile, durabilityMode)
+            .history(historyPartitionMillis);
+    }
+    
+    // Случайное зерно для запусков без явно заданного seed (печатается в конфигурации)
+    public static long randomSeed() {
+        return System.nanoTime() ^ Double.doubleToLongBits(Math.random());
+    }
+    
     // =========== Геттеры для всех полей ================
     
     public int getNumberOfTaxis() {
@@ -119,6 +331,186 @@ public class SimulationConfig {
         return taxiSpeed;
     }
     
+    public String getTraceFile() {
+        return traceFile;
+    }
+    
+    public double getTraceSpeedUp() {
+        return traceSpeedUp;
+    }
+    
+    public long getSeed() {
+        return seed;
+    }
+    
+    public boolean isTraceReplay() {
+        return traceFile != null;
+    }
+    
+    public double getTargetRequestRate() {
+        return targetRequestRate;
+    }
+    
+    public int getProducerThreads() {
+        return producerThreads;
+    }
+    
+    public boolean isOpenLoad() {
+        return targetRequestRate > 0;
+    }
+    
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+    
+    public boolean isBoundedQueue() {
+        return queueCapacity > 0;
+    }
+    
+    public OverloadPolicy getOverloadPolicy() {
+        return overloadPolicy;
+    }
+    
+    public Set<TaxiType> getShedTypes() {
+        return shedTypes;
+    }
+    
+    public long getMaxPredictedWaitMillis() {
+        return maxPredictedWaitMillis;
+    }
+    
+    public int getRingBufferSize() {
+        return ringBufferSize;
+    }
+    
+    public boolean isRingBuffer() {
+        return ringBufferSize > 0;
+    }
+    
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+    
+    public TaxiMode getTaxiMode() {
+        return taxiMode;
+    }
+    
+    public boolean isEventDriven() {
+        return taxiMode == TaxiMode.EVENTS;
+    }
+    
+    public int getSchedulerThreads() {
+        return schedulerThreads;
+    }
+    
+    public TimerType getTimerType() {
+        return timerType;
+    }
+    
+    public long getTimerTickMillis() {
+        return timerTickMillis;
+    }
+    
+    public ShutdownPolicy getShutdownPolicy() {
+        return shutdownPolicy;
+    }
+    
+    public long getDrainTimeoutMillis() {
+        return drainTimeoutMillis;
+    }
+    
+    public int getChainDepth() {
+        return chainDepth;
+    }
+    
+    public String getRoadGraphFile() {
+        return roadGraphFile;
+    }
+    
+    public int getLandmarks() {
+        return landmarks;
+    }
+    
+    public int getRouteCacheSize() {
+        return routeCacheSize;
+    }
+    
+    public long getRebalanceIntervalMillis() {
+        return rebalanceIntervalMillis;
+    }
+    
+    public double getRebalanceShare() {
+        return rebalanceShare;
+    }
+    
+    public int getPoolCapacity() {
+        return poolCapacity;
+    }
+    
+    public double getPoolMaxDetour() {
+        return poolMaxDetour;
+    }
+    
+    public boolean isPooling() {
+        return poolCapacity > 1;
+    }
+    
+    public String getDemandProfileFile() {
+        return demandProfileFile;
+    }
+    
+    public int getIngestPort() {
+        return ingestPort;
+    }
+    
+    public boolean isIngest() {
+        return ingestPort > 0;
+    }
+    
+    public int getHttpPort() {
+        return httpPort;
+    }
+    
+    public long getHttpSnapshotMillis() {
+        return httpSnapshotMillis;
+    }
+    
+    public boolean isHttpApi() {
+        return httpPort > 0;
+    }
+    
+    public int getStreamPort() {
+        return streamPort;
+    }
+    
+    public boolean isFleetStream() {
+        return streamPort > 0;
+    }
+    
+    public String getJournalFile() {
+        return journalFile;
+    }
+    
+    public boolean isJournal() {
+        return journalFile != null;
+    }
+    
+    public DurabilityMode getDurabilityMode() {
+        return durabilityMode;
+    }
+    
+    public long getHistoryPartitionMillis() {
+        return historyPartitionMillis;
+    }
+    
+    public boolean isHistory() {
+        return historyPartitionMillis > 0;
+    }
+    
+    public boolean isRoadNetwork() {
+        return roadGraphFile != null;
+    }
+    
     @Override
     public String toString() {
         return "SimulationConfig{" +
@@ -131,6 +523,327 @@ public class SimulationConfig {
                ", cityMinY=" + cityMinY +
                ", cityMaxY=" + cityMaxY +
                ", taxiSpeed=" + taxiSpeed +
+               ", seed=" + seed +
+               (traceFile != null ? ", traceFile=" + traceFile + ", traceSpeedUp=" + traceSpeedUp : "") +
+               (targetRequestRate > 0 ? ", targetRequestRate=" + targetRequestRate + ", producerThreads=" + producerThreads : "") +
+               (queueCapacity > 0 ? ", queueCapacity=" + queueCapacity + ", overloadPolicy=" + overloadPolicy.getCode() : "") +
+               (ringBufferSize > 0 ? ", ringBufferSize=" + ringBufferSize + ", waitStrategy=" + waitStrategy : "") +
+               (taxiMode == TaxiMode.EVENTS ? ", taxiMode=" + taxiMode.getCode() + ", schedulerThreads=" + schedulerThreads : "") +
+               ", timer=" + timerType.getCode() + (timerType == TimerType.WHEEL ? ", timerTickMillis=" + timerTickMillis : "") +
+               ", shutdown=" + shutdownPolicy.getCode() +
+               (shutdownPolicy == ShutdownPolicy.DRAIN ? ", drainTimeoutMillis=" + drainTimeoutMillis : "") +
+               (chainDepth > 0 ? ", chainDepth=" + chainDepth : "") +
+               (roadGraphFile != null ? ", roadGraphFile=" + roadGraphFile + ", landmarks=" + landmarks +
+                                         ", routeCacheSize=" + routeCacheSize : "") +
+               (rebalanceIntervalMillis > 0 ? ", rebalanceIntervalMillis=" + rebalanceIntervalMillis +
+                                              ", rebalanceShare=" + rebalanceShare : "") +
+               (poolCapacity > 1 ? ", poolCapacity=" + poolCapacity + ", poolMaxDetour=" + poolMaxDetour : "") +
+               (demandProfileFile != null ? ", demandProfileFile=" + demandProfileFile : "") +
+               (ingestPort > 0 ? ", ingestPort=" + ingestPort : "") +
+               (httpPort > 0 ? ", httpPort=" + httpPort + ", httpSnapshotMillis=" + httpSnapshotMillis : "") +
+               (streamPort > 0 ? ", streamPort=" + streamPort + (httpPort > 0 ? "" : ", httpSnapshotMillis=" + httpSnapshotMillis) : "") +
+               (journalFile != null ? ", journalFile=" + journalFile + ", durability=" + durabilityMode.getCode() : "") +
+               (historyPartitionMillis > 0 ? ", historyPartitionMillis=" + historyPartitionMillis : "") +
                '}';
     }
-}
\ No newline at end of file
+    
+    
+    // Построитель конфигурации: значения по умолчанию совпадают с интерактивным режимом
+    public static class Builder {
+        private int numberOfTaxis = 5;
+        private int simulationDurationSeconds = 30;
+        private long meanRequestIntervalMillis = 2000L;
+        private StrategyType strategyType = StrategyType.NEAREST;
+        private double cityMinX = 0.0;
+        private double cityMaxX = 100.0;
+        private double cityMinY = 0.0;
+        private double cityMaxY = 100.0;
+        private double taxiSpeed = 10.0;
+        private String traceFile = null;
+        private double traceSpeedUp = 1.0;
+        private long seed = randomSeed();
+        private double targetRequestRate = 0.0;
+        private int producerThreads = 1;
+        private int queueCapacity = 0;
+        private OverloadPolicy overloadPolicy = OverloadPolicy.BLOCK;
+        private Set<TaxiType> shedTypes = EnumSet.of(TaxiType.ECONOMY);
+        private long maxPredictedWaitMillis = 1000L;
+        private int ringBufferSize = 0;
+        private WaitStrategy waitStrategy = WaitStrategy.PARK;
+        private TaxiMode taxiMode = TaxiMode.THREADS;
+        private int schedulerThreads = Runtime.getRuntime().availableProcessors();
+        private TimerType timerType = TimerType.WHEEL;
+        private long timerTickMillis = 1L;
+        private ShutdownPolicy shutdownPolicy = ShutdownPolicy.ABORT;
+        private long drainTimeoutMillis = 10_000L;
+        private int chainDepth = 0;
+        private String roadGraphFile = null;
+        private int landmarks = 8;
+        private int routeCacheSize = 100_000;
+        private long rebalanceIntervalMillis = 0L;
+        private double rebalanceShare = 0.2;
+        private int poolCapacity = 1;
+        private double poolMaxDetour = 0.5;
+        private String demandProfileFile = null;
+        private int ingestPort = 0;
+        private int httpPort = 0;
+        private long httpSnapshotMillis = 100L;
+        private int streamPort = 0;
+        private String journalFile = null;
+        private DurabilityMode durabilityMode = DurabilityMode.GROUP;
+        private long historyPartitionMillis = 0L;
+        
+        public Builder numberOfTaxis(int numberOfTaxis) {
+            this.numberOfTaxis = numberOfTaxis;
+            return this;
+        }
+        
+        public Builder simulationDurationSeconds(int simulationDurationSeconds) {
+            this.simulationDurationSeconds = simulationDurationSeconds;
+            return this;
+        }
+        
+        public Builder meanRequestIntervalMillis(long meanRequestIntervalMillis) {
+            this.meanRequestIntervalMillis = meanRequestIntervalMillis;
+            return this;
+        }
+        
+        public Builder strategyType(StrategyType strategyType) {
+            this.strategyType = strategyType;
+            return this;
+        }
+        
+        public Builder cityBounds(double minX, double maxX, double minY, double maxY) {
+            this.cityMinX = minX;
+            this.cityMaxX = maxX;
+            this.cityMinY = minY;
+            this.cityMaxY = maxY;
+            return this;
+        }
+        
+        public Builder taxiSpeed(double taxiSpeed) {
+            this.taxiSpeed = taxiSpeed;
+            return this;
+        }
+        
+        public Builder trace(String traceFile, double traceSpeedUp) {
+            this.traceFile = traceFile;
+            this.traceSpeedUp = traceSpeedUp;
+            return this;
+        }
+        
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+        
+        public Builder openLoad(double targetRequestRate, int producerThreads) {
+            this.targetRequestRate = targetRequestRate;
+            this.producerThreads = producerThreads;
+            return this;
+        }
+        
+        public Builder admission(int queueCapacity, OverloadPolicy overloadPolicy) {
+            this.queueCapacity = queueCapacity;
+            this.overloadPolicy = overloadPolicy;
+            return this;
+        }
+        
+        public Builder shedTypes(Set<TaxiType> shedTypes) {
+            this.shedTypes = shedTypes;
+            return this;
+        }
+        
+        public Builder maxPredictedWaitMillis(long maxPredictedWaitMillis) {
+            this.maxPredictedWaitMillis = maxPredictedWaitMillis;
+            return this;
+        }
+        
+        public Builder ringBuffer(int ringBufferSize, WaitStrategy waitStrategy) {
+            this.ringBufferSize = ringBufferSize;
+            this.waitStrategy = waitStrategy;
+            return this;
+        }
+        
+        public Builder taxiMode(TaxiMode taxiMode, int schedulerThreads) {
+            this.taxiMode = taxiMode;
+            this.schedulerThreads = schedulerThreads;
+            return this;
+        }
+        
+        public Builder timer(TimerType timerType, long timerTickMillis) {
+            this.timerType = timerType;
+            this.timerTickMillis = timerTickMillis;
+            return this;
+        }
+        
+        public Builder chainDepth(int chainDepth) {
+            this.chainDepth = chainDepth;
+            return this;
+        }
+        
+        public Builder roadGraph(String roadGraphFile, int landmarks) {
+            this.roadGraphFile = roadGraphFile;
+            this.landmarks = landmarks;
+            return this;
+        }
+        
+        public Builder routeCacheSize(int routeCacheSize) {
+            this.routeCacheSize = routeCacheSize;
+            return this;
+        }
+        
+        public Builder rebalance(long rebalanceIntervalMillis, double rebalanceShare) {
+            this.rebalanceIntervalMillis = rebalanceIntervalMillis;
+            this.rebalanceShare = rebalanceShare;
+            return this;
+        }
+        
+        public Builder pooling(int poolCapacity, double poolMaxDetour) {
+            this.poolCapacity = poolCapacity;
+            this.poolMaxDetour = poolMaxDetour;
+            return this;
+        }
+        
+        public Builder demandProfile(String demandProfileFile) {
+            this.demandProfileFile = demandProfileFile;
+            return this;
+        }
+        
+        public Builder ingest(int ingestPort) {
+            this.ingestPort = ingestPort;
+            return this;
+        }
+        
+        public Builder http(int httpPort, long httpSnapshotMillis) {
+            this.httpPort = httpPort;
+            this.httpSnapshotMillis = httpSnapshotMillis;
+            return this;
+        }
+        
+        public Builder stream(int streamPort) {
+            this.streamPort = streamPort;
+            return this;
+        }
+        
+        public Builder journal(String journalFile, DurabilityMode durabilityMode) {
+            this.journalFile = journalFile;
+            this.durabilityMode = durabilityMode;
+            return this;
+        }
+        
+        public Builder history(long historyPartitionMillis) {
+            this.historyPartitionMillis = historyPartitionMillis;
+            return this;
+        }
+        
+        public Builder shutdown(ShutdownPolicy shutdownPolicy, long drainTimeoutMillis) {
+            this.shutdownPolicy = shutdownPolicy;
+            this.drainTimeoutMillis = drainTimeoutMillis;
+            return this;
+        }
+        
+        public SimulationConfig build() {
+            if (numberOfTaxis < 1) {
+                throw new IllegalArgumentException("Количество такси должно быть положительным");
+            }
+            if (simulationDurationSeconds < 1) {
+                throw new IllegalArgumentException("Длительность симуляции должна быть положительной");
+            }
+            if (meanRequestIntervalMillis < 0) {
+                throw new IllegalArgumentException("Интервал между заказами не может быть отрицательным");
+            }
+            if (taxiSpeed <= 0) {
+                throw new IllegalArgumentException("Скорость такси должна быть положительной");
+            }
+            if (targetRequestRate < 0) {
+                throw new IllegalArgumentException("Интенсивность нагрузки не может быть отрицательной");
+            }
+            if (producerThreads < 1) {
+                throw new IllegalArgumentException("Нужен хотя бы один поток-производитель");
+            }
+            if (queueCapacity < 0) {
+                throw new IllegalArgumentException("Емкость очереди не может быть отрицательной");
+            }
+            if (queueCapacity == 0 && overloadPolicy != OverloadPolicy.BLOCK) {
+                throw new IllegalArgumentException("Политика перегрузки требует ограниченной очереди (queue > 0)");
+            }
+            if (ringBufferSize < 0 || (ringBufferSize > 0 && Integer.bitCount(ringBufferSize) != 1)) {
+                throw new IllegalArgumentException("Размер кольцевого буфера должен быть степенью двойки");
+            }
+            if (ringBufferSize > 0 && queueCapacity > 0) {
+                throw new IllegalArgumentException("Кольцевой буфер и ограниченная очередь взаимоисключающие");
+            }
+            if (schedulerThreads < 1) {
+                throw new IllegalArgumentException("Нужен хотя бы один поток планировщика");
+            }
+            if (timerTickMillis < 1) {
+                throw new IllegalArgumentException("Тик колеса таймеров должен быть не меньше 1 мс");
+            }
+            if (chainDepth < 0) {
+                throw new IllegalArgumentException("Глубина цепочки поездок не может быть отрицательной");
+            }
+            if (landmarks < 0) {
+                throw new IllegalArgumentException("Количество ориентиров не может быть отрицательным");
+            }
+            if (routeCacheSize < 0) {
+                throw new IllegalArgumentException("Размер кэша маршрутов не может быть отрицательным");
+            }
+            if (rebalanceIntervalMillis < 0) {
+                throw new IllegalArgumentException("Период перебалансировки не может быть отрицательным");
+            }
+            if (rebalanceShare <= 0 || rebalanceShare > 1) {
+                throw new IllegalArgumentException("Доля перегоняемых такси должна быть в (0, 1]");
+            }
+            if (poolCapacity < 1) {
+                throw new IllegalArgumentException("Вместимость такси должна быть положительной");
+            }
+            if (poolMaxDetour < 0) {
+                throw new IllegalArgumentException("Допустимый крюк не может быть отрицательным");
+            }
+            if (poolCapacity > 1 && taxiMode != TaxiMode.EVENTS) {
+                throw new IllegalArgumentException("Совместные поездки работают только в событийном режиме (taxi-mode=events)");
+            }
+            if (poolCapacity > 1 && chainDepth > 0) {
+                throw new IllegalArgumentException("Совместные поездки и цепочки поездок взаимоисключающие");
+            }
+            if (ingestPort < 0 || ingestPort > 65535) {
+                throw new IllegalArgumentException("Порт приема заказов должен быть в [0, 65535]");
+            }
+            if (ingestPort > 0 && traceFile != null) {
+                throw new IllegalArgumentException("Прием заказов по TCP и воспроизведение трассы взаимоисключающие");
+            }
+            if (httpPort < 0 || httpPort > 65535) {
+                throw new IllegalArgumentException("Порт HTTP API должен быть в [0, 65535]");
+            }
+            if (durabilityMode == null) {
+                throw new IllegalArgumentException("Не задана надежность журнала заказов");
+            }
+            // В режиме sync force() каждого приема выполнял бы единственный поток ввода-вывода
+            if (ingestPort > 0 && journalFile != null && durabilityMode == DurabilityMode.SYNC) {
+                throw new IllegalArgumentException("Прием заказов по TCP несовместим с журналом в режиме sync " +
+                                                   "(используйте group)");
+            }
+            if (streamPort < 0 || streamPort > 65535) {
+                throw new IllegalArgumentException("Порт потока позиций парка должен быть в [0, 65535]");
+            }
+            if ((httpPort > 0 && (httpPort == ingestPort || httpPort == streamPort))
+                || (streamPort > 0 && streamPort == ingestPort)) {
+                throw new IllegalArgumentException("Прием заказов, HTTP API и поток позиций не могут слушать один порт");
+            }
+            if (historyPartitionMillis < 0) {
+                throw new IllegalArgumentException("Длина раздела истории поездок не может быть отрицательной");
+            }
+            if (httpSnapshotMillis <= 0) {
+                throw new IllegalArgumentException("Период обновления снимка парка должен быть положительным");
+            }
+            if (drainTimeoutMillis < 0) {
+                throw new IllegalArgumentException("Время ожидания поездок при остановке не может быть отрицательным");
+            }
+            if (maxPredictedWaitMillis < 0) {
+                throw new IllegalArgumentException("Допустимое ожидание не может быть отрицательным");
+            }
+            return new SimulationConfig(this);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package infra;
+
+import stats.JvmStats;
+import stats.LatencyHistogram;
+import stats.StatisticsCollector;
+
+
+// Итоги одного прогона симуляции для пакетного режима и сравнения конфигураций
+public class SimulationResult {
+    
+    private final SimulationConfig config;
+    private final double durationSeconds;
+    private final long generatedRequests;
+    private final int assignedRides;
+    private final int failedAssignments;
+    private final StatisticsCollector statistics;
+    private final JvmStats jvmStats;
+    
+    public SimulationResult(SimulationConfig config, double durationSeconds, long generatedRequests,
+                            int assignedRides, int failedAssignments,
+                            StatisticsCollector statistics, JvmStats jvmStats) {
+        this.config = config;
+        this.durationSeconds = durationSeconds;
+        this.generatedRequests = generatedRequests;
+        this.assignedRides = assignedRides;
+        this.failedAssignments = failedAssignments;
+        this.statistics = statistics;
+        this.jvmStats = jvmStats;
+    }
+    
+    // Завершенных поездок в секунду
+    public double getThroughput() {
+        return durationSeconds > 0 ? statistics.getTotalCompletedRides() / durationSeconds : 0.0;
+    }
+    
+    public double getRequestRate() {
+        return durationSeconds > 0 ? generatedRequests / durationSeconds : 0.0;
+    }
+    
+    // =========== Геттеры ============
+    
+    public SimulationConfig getConfig() {
+        return config;
+    }
+    
+    public double getDurationSeconds() {
+        return durationSeconds;
+    }
+    
+    public long getGeneratedRequests() {
+        return generatedRequests;
+    }
+    
+    public int getAssignedRides() {
+        return assignedRides;
+    }
+    
+    public int getFailedAssignments() {
+        return failedAssignments;
+    }
+    
+    public int getCompletedRides() {
+        return statistics.getTotalCompletedRides();
+    }
+    
+    public LatencyHistogram getWaitTimeHistogram() {
+        return statistics.getWaitTimeHistogram();
+    }
+    
+    // Время от поступления заказа до посадки клиента, мс
+    public LatencyHistogram getPickupWaitHistogram() {
+        return statistics.getPickupWaitHistogram();
+    }
+    
+    // Время от планового поступления заказа до выбора такси, мкс
+    public LatencyHistogram getDispatchLatencyHistogram() {
+        return statistics.getDispatchLatencyHistogram();
+    }
+    
+    // Кэш маршрутов дорожного графа (все нули без графа или без кэша)
+    public long getRouteCacheHits() {
+        return statistics.getRouteCacheHits();
+    }
+    
+    public long getRouteCacheMisses() {
+        return statistics.getRouteCacheMisses();
+    }
+    
+    public long getRouteCacheEvictions() {
+        return statistics.getRouteCacheEvictions();
+    }
+    
+    public double getRouteCacheHitRate() {
+        return statistics.getRouteCacheHitRate();
+    }
+    
+    public double getFleetUtilisation() {
+        return statistics.getFleetUtilisation();
+    }
+    
+    public double getDetourOverhead() {
+        return statistics.getDetourOverhead();
+    }
+    
+    public double getRidesPerTaxiHour() {
+        return statistics.getRidesPerTaxiHour();
+    }
+    
+    public long getRebalanceMoves() {
+        return statistics.getRebalanceMoves();
+    }
+    
+    public double getRebalanceDistance() {
+        return statistics.getRebalanceDistance();
+    }
+    
+    // Журнал заказов (все нули без --wal)
+    public LatencyHistogram getJournalCommitHistogram() {
+        return statistics.getJournalCommitHistogram();
+    }
+    
+    public long getJournalRecords() {
+        return statistics.getJournalRecords();
+    }
+    
+    public long getJournalForces() {
+        return statistics.getJournalForces();
+    }
+    
+    public long getJournalBytes() {
+        return statistics.getJournalBytes();
+    }
+    
+    public double getJournalRecordsPerForce() {
+        return statistics.getJournalRecordsPerForce();
+    }
+    
+    public long getRecoveredRequests() {
+        return statistics.getRecoveredRequests();
+    }
+    
+    public long getHistoryRides() {
+        return statistics.getHistoryRides();
+    }
+    
+    public long getHistorySegments() {
+        return statistics.getHistorySegments();
+    }
+    
+    public long getHistoryOffHeapBytes() {
+        return statistics.getHistoryOffHeapBytes();
+    }
+    
+    public long getHistoryDropped() {
+        return statistics.getHistoryDropped();
+    }
+    
+    // Заказы, не принятые входной очередью (или вытесненные из нее)
+    public long getRejectedRequests() {
+        return statistics.getRejectedRequests();
+    }
+    
+    public LatencyHistogram getQueueOccupancyHistogram() {
+        return statistics.getQueueOccupancyHistogram();
+    }
+    
+    public StatisticsCollector getStatistics() {
+        return statistics;
+    }
+    
+    public JvmStats getJvmStats() {
+        return jvmStats;
+    }
+    
+    @Override
+    public String toString() {
+        LatencyHistogram waits = getWaitTimeHistogram();
+        return String.format("поездок: %d (%.2f/с), заказов: %d, отклонено: %d, не назначено: %d, " +
+                             "ожидание p50/p99: %d/%d мс, %s",
+            getCompletedRides(), getThroughput(), generatedRequests, getRejectedRequests(), failedAssignments,
+            waits.getPercentile(50), waits.getPercentile(99), jvmStats);
+    }
+}
@@ -2,61 +2,220 @@ package infra;
 
 import services.*;
 import models.*;
+import history.RideHistory;
+import journal.JournalRecovery;
+import journal.JournaledQueue;
+import journal.RideJournal;
+import net.FleetSnapshotCache;
+import net.FleetStreamServer;
+import net.HttpApiServer;
+import net.IngestServer;
+import routing.RoadTravelModel;
+import routing.RouteCache;
+import routing.TravelModel;
 import stats.*;
+import util.ConsoleLog;
+import util.MpscRingBuffer;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.SplittableRandom;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class SimulationRunner {
     
+    // Сколько ждать остановки одного компонента, прежде чем прервать его поток
+    private static final long STOP_TIMEOUT_MILLIS = 5000L;
+    
     private final SimulationConfig config;
     private final StatisticsCollector statisticsCollector;
+    
+    // Нумерация заказов своя у каждой симуляции (прогоны могут идти параллельно)
+    private final RequestIdSequence requestIds = new RequestIdSequence();
+    
+    // Независимые потоки случайных чисел компонентов, выделенные из одного зерна.
+    // Порядок split() фиксирован, поэтому парк и спрос не зависят друг от друга
+    // и воспроизводятся при одинаковом seed.
+    private final SplittableRandom fleetRandom;
+    private final SplittableRandom demandRandom;
 
     public SimulationRunner(SimulationConfig config) {
         this.config = config;
         this.statisticsCollector = new StatisticsCollector();
+        
+        SplittableRandom rootRandom = new SplittableRandom(config.getSeed());
+        this.fleetRandom = rootRandom.split();
+        this.demandRandom = rootRandom.split();
     }
     
-    public void runSimulation() {
-        System.out.println("=== ЗАПУСК СИМУЛЯЦИИ ===");
-        System.out.println("Конфигурация: " + config);
+    public SimulationResult runSimulation() {
+        ConsoleLog.println("=== ЗАПУСК СИМУЛЯЦИИ ===");
+        ConsoleLog.println("Конфигурация: " + config);
         
         ExecutorService executor = null;
+        RideScheduler rideScheduler = null;
+        RequestSource startedGenerator = null;
+        Dispatcher startedDispatcher = null;
+        List<TaxiWorker> startedTaxis = List.of();
+        TravelModel startedTravelModel = null;
+        FleetRebalancer startedRebalancer = null;
+        HttpApiServer startedApi = null;
+        FleetSnapshotCache startedFleet = null;
+        FleetStreamServer startedStream = null;
+        RideJournal startedJournal = null;
+        RideHistory startedHistory = null;
+        boolean stopped = false;
+        JvmStats.resetPeakHeap();
+        JvmStats jvmStatsBefore = JvmStats.capture();
+        JvmStats jvmStats = null;
+        long startNanos = System.nanoTime();
+        long stopNanos = 0;
         
         try {
             // 1. Создаем все компоненты
-            BlockingQueue<RideRequest> requestQueue = new LinkedBlockingQueue<>();
-            List<TaxiWorker> taxis = createTaxis();
-            DispatchStrategy strategy = createStrategy(config.getStrategyType());
+            BlockingQueue<RideRequest> requestQueue = createRequestQueue();
+            // Журнал заказов: сначала восстанавливаем незавершенные заказы прошлого запуска,
+            // затем все новые заказы попадают в очередь только через журнал
+            JournaledQueue journaledQueue = null;
+            JournalRecovery recovery = null;
+            if (config.isJournal()) {
+                Path journalPath = Paths.get(config.getJournalFile());
+                try {
+                    recovery = JournalRecovery.recover(journalPath);
+                    startedJournal = RideJournal.open(journalPath, config.getDurabilityMode(), statisticsCollector);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Не удалось открыть журнал заказов " + journalPath, e);
+                }
+                requestIds.skipPast(recovery.getLastRequestId());
+                if (requestQueue instanceof AdmissionQueue) {
+                    ((AdmissionQueue) requestQueue).setDropListener(startedJournal::rejected);
+                }
+                journaledQueue = new JournaledQueue(requestQueue, startedJournal);
+                requestQueue = journaledQueue;
+            }
+            TravelModel travelModel = createTravelModel();
+            startedTravelModel = travelModel;
+            List<TaxiWorker> taxis = createTaxis(travelModel);
+            DispatchStrategy strategy = createStrategy(config.getStrategyType(), travelModel);
+            if (config.getChainDepth() > 0) {
+                strategy = new RideChainingStrategy(strategy);
+            } else if (config.isPooling()) {
+                strategy = new PoolingStrategy(strategy, config.getPoolMaxDetour());
+                for (TaxiWorker taxi : taxis) {
+                    taxi.enablePooling(config.getPoolCapacity(), config.getPoolMaxDetour());
+                }
+            }
             Dispatcher dispatcher = new Dispatcher(requestQueue, taxis, strategy, statisticsCollector);
-            RequestGenerator generator = new RequestGenerator(requestQueue, config);
+            if (startedJournal != null) {
+                dispatcher.addAssignmentListener(startedJournal);
+                dispatcher.addCompletionListener(startedJournal);
+            }
+            // История поездок: завершения уходят в нее без ожидания, пишет свой поток
+            RideHistory history = null;
+            if (config.isHistory()) {
+                history = new RideHistory(config.getHistoryPartitionMillis());
+                dispatcher.addCompletionListener(history);
+                history.start();
+                startedHistory = history;
+            }
+            if (config.getRebalanceIntervalMillis() > 0) {
+                startedRebalancer = createRebalancer(taxis);
+                dispatcher.setRebalancer(startedRebalancer);
+            }
+            RequestSource generator;
+            if (config.isIngest()) {
+                IngestServer server = new IngestServer(requestQueue, config.getIngestPort(), requestIds);
+                dispatcher.addAssignmentListener(server);
+                generator = server;
+            } else {
+                generator = createRequestSource(requestQueue);
+            }
+            // Один снимок парка на HTTP API и поток позиций: к такси обращается один поток обновления
+            FleetSnapshotCache fleet = null;
+            if (config.isHttpApi() || config.isFleetStream()) {
+                fleet = new FleetSnapshotCache(taxis, config.getHttpSnapshotMillis());
+            }
+            HttpApiServer api = null;
+            if (config.isHttpApi()) {
+                api = new HttpApiServer(config.getHttpPort(), requestQueue, requestIds, fleet,
+                                        dispatcher, statisticsCollector);
+                api.setHistory(history);
+                dispatcher.addAssignmentListener(api);
+            }
+            FleetStreamServer stream = null;
+            if (config.isFleetStream()) {
+                stream = new FleetStreamServer(config.getStreamPort(), fleet);
+            }
+            RideTracker rideTracker = new RideTracker();
+            startedDispatcher = dispatcher;
+            startedGenerator = generator;
+            startedTaxis = taxis;
             
-            // Устанавливаем обратные вызовы для такси
+            // Устанавливаем обратные вызовы и учет поездок для такси
             for (TaxiWorker taxi : taxis) {
                 taxi.setDispatcherCallback(dispatcher);
+                taxi.setRideTracker(rideTracker);
             }
             
-            System.out.println("\nИнициализация завершена:");
-            System.out.println("- Такси: " + taxis.size() + " единиц");
-            System.out.println("- Стратегия: " + strategy.getName());
-            System.out.println("- Длительность: " + config.getSimulationDurationSeconds() + " сек");
-            System.out.println("- Интервал запросов: " + config.getMeanRequestIntervalMillis() + " мс");
-            System.out.println();
+            // Время в пути всегда отсчитывает общий планировщик; в событийном режиме
+            // такси работают на нем целиком, без своих потоков
+            rideScheduler = createRideScheduler();
+            for (TaxiWorker taxi : taxis) {
+                if (config.isEventDriven()) {
+                    taxi.attachScheduler(rideScheduler);
+                } else {
+                    taxi.setRideScheduler(rideScheduler);
+                }
+            }
+            
+            ConsoleLog.println("\nИнициализация завершена:");
+            ConsoleLog.println("- Такси: " + taxis.size() + " единиц (" + config.getTaxiMode().getDescription() + ")");
+            ConsoleLog.println("- Стратегия: " + strategy.getName());
+            ConsoleLog.println("- Движение: " + travelModel.getName());
+            ConsoleLog.println("- Длительность: " + config.getSimulationDurationSeconds() + " сек");
+            ConsoleLog.println("- Завершение: " + config.getShutdownPolicy().getDescription());
+            ConsoleLog.println("- Seed: " + config.getSeed());
+            if (config.isTraceReplay()) {
+                ConsoleLog.println("- Трасса: " + config.getTraceFile() + " (ускорение x" + config.getTraceSpeedUp() + ")");
+            } else if (config.isIngest()) {
+                ConsoleLog.println("- Заказы по TCP: порт " + config.getIngestPort());
+            } else {
+                ConsoleLog.println("- Интервал запросов: " + config.getMeanRequestIntervalMillis() + " мс");
+            }
+            if (config.isBoundedQueue()) {
+                ConsoleLog.println("- Очередь заказов: " + config.getQueueCapacity() + ", при перегрузке: " +
+                                   config.getOverloadPolicy().getDescription());
+            }
+            if (config.isJournal()) {
+                ConsoleLog.println("- Журнал заказов: " + config.getJournalFile() + " (" +
+                                   config.getDurabilityMode().getDescription() + ")");
+            }
+            if (config.isHistory()) {
+                ConsoleLog.println("- История поездок: разделы по " + config.getHistoryPartitionMillis() + " мс");
+            }
+            ConsoleLog.println();
             
             // 2. СОЗДАЕМ БАРЬЕР ДЛЯ СТАРТА
             java.util.concurrent.CountDownLatch startSignal = new java.util.concurrent.CountDownLatch(1);
             
             // 3. Запускаем потоки
-            executor = Executors.newFixedThreadPool(taxis.size() + 2);
+            executor = Executors.newFixedThreadPool(config.isEventDriven() ? 2 : taxis.size() + 2);
             
-            // Запускаем такси
-            for (TaxiWorker taxi : taxis) {
-                executor.submit(() -> {
+            // Запускаем такси (в событийном режиме потоки им не нужны)
+            List<Future<?>> taxiTasks = new ArrayList<>();
+            for (TaxiWorker taxi : config.isEventDriven() ? List.<TaxiWorker>of() : taxis) {
+                taxiTasks.add(executor.submit(() -> {
                     try {
                         // Ждем команды старта
                         startSignal.await();
@@ -64,11 +223,11 @@ public class SimulationRunner {
                     } catch (InterruptedException e) {
                         Thread.currentThread().interrupt();
                     }
-                });
+                }));
             }
             
             // Запускаем диспетчера
-            executor.submit(() -> {
+            Future<?> dispatcherTask = executor.submit(() -> {
                 try {
                     startSignal.await();
                     dispatcher.run();
@@ -77,10 +236,16 @@ public class SimulationRunner {
                 }
             });
             
-            // Запускаем генератор
-            executor.submit(() -> {
+            // Запускаем генератор; незавершенные заказы прошлого запуска он ставит в очередь
+            // раньше новых, когда диспетчер уже разбирает очередь
+            JournaledQueue recoveredQueue = journaledQueue;
+            JournalRecovery recovered = recovery;
+            Future<?> generatorTask = executor.submit(() -> {
                 try {
                     startSignal.await();
+                    if (recovered != null && !recovered.getOutstanding().isEmpty()) {
+                        requeueRecovered(recovered, recoveredQueue);
+                    }
                     generator.run();
                 } catch (InterruptedException e) {
                     Thread.currentThread().interrupt();
@@ -88,9 +253,31 @@ public class SimulationRunner {
             });
             
             // 4. Даем команду "СТАРТ!" - ВСЕ потоки запускаются ОДНОВРЕМЕННО
-            System.out.println("Все потоки запущены. Симуляция работает " + 
+            ConsoleLog.println("Все потоки запущены. Симуляция работает " + 
                             config.getSimulationDurationSeconds() + " секунд...\n");
+            startNanos = System.nanoTime();
             startSignal.countDown();
+            if (fleet != null) {
+                startedFleet = fleet;
+                fleet.start();
+            }
+            if (stream != null) {
+                startedStream = stream;
+                try {
+                    stream.start();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Не удалось запустить поток позиций парка на порту " +
+                                                   config.getStreamPort(), e);
+                }
+            }
+            if (api != null) {
+                startedApi = api;
+                try {
+                    api.start();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Не удалось запустить HTTP API на порту " + config.getHttpPort(), e);
+                }
+            }
             
             // 5. Ждем указанное время с проверкой прерывания
             long startTime = System.currentTimeMillis();
@@ -104,51 +291,61 @@ public class SimulationRunner {
             }
             
             if (Thread.currentThread().isInterrupted()) {
-                System.out.println("\nСимуляция прервана пользователем.");
+                ConsoleLog.println("\nСимуляция прервана пользователем.");
                 throw new InterruptedException("Прервано пользователем");
             }
             
-            System.out.println("\nВремя симуляции истекло. Начинаем остановку...");
+            stopNanos = System.nanoTime();
+            ConsoleLog.println("\nВремя симуляции истекло. Начинаем остановку...");
             
-            // 6. ПРАВИЛЬНАЯ ПОСЛЕДОВАТЕЛЬНОСТЬ ОСТАНОВКИ
-            System.out.println("1. Останавливаем генератор запросов...");
+            // 6. Остановка по сигналам завершения компонентов, без фиксированных пауз
+            long shutdownStartNanos = System.nanoTime();
+            
+            if (api != null) {
+                // Заказы API, пришедшие после poison pill генератора, диспетчер бы уже не увидел
+                ConsoleLog.println("0. Останавливаем HTTP API...");
+                api.stop();
+            }
+            if (stream != null) {
+                ConsoleLog.println("0. Останавливаем поток позиций парка...");
+                stream.stop();
+            }
+            if (fleet != null) {
+                fleet.stop();
+            }
+            ConsoleLog.println("1. Останавливаем генератор запросов...");
+            // Генератор завершается отправкой poison pill диспетчеру вслед за своими заказами
             generator.stop();
+            awaitStopped(generatorTask, "генератор");
             
-            // Даем время генератору отправить poison pill
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+            if (config.getShutdownPolicy() == ShutdownPolicy.DRAIN) {
+                ConsoleLog.println("2. Диспетчер назначает оставшиеся заказы до poison pill...");
+            } else {
+                ConsoleLog.println("2. Останавливаем диспетчер, оставшиеся заказы снимаются...");
+                dispatcher.stop();
             }
+            awaitStopped(dispatcherTask, "диспетчер");
             
-            System.out.println("2. Даем диспетчеру время обработать оставшиеся заказы...");
-            // Ждем пока очередь диспетчера опустеет 
-            int maxWaitCycles = 50;
-            for (int i = 0; i < maxWaitCycles && !requestQueue.isEmpty(); i++) {
-                try {
-                    Thread.sleep(100);
-                    if (Thread.currentThread().isInterrupted()) break;
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
+            if (config.getShutdownPolicy() == ShutdownPolicy.DRAIN) {
+                ConsoleLog.println("3. Ждем завершения поездок в работе: " + rideTracker.getInFlightRides() + "...");
+                if (!rideTracker.awaitIdle(config.getDrainTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                    ConsoleLog.println("   Не успели за " + config.getDrainTimeoutMillis() + " мс, прерываем " +
+                                       rideTracker.getInFlightRides() + " поездок");
                 }
             }
             
-            System.out.println("3. Останавливаем диспетчер...");
-            dispatcher.stop();
-            
-            System.out.println("4. Останавливаем такси...");
+            ConsoleLog.println("4. Останавливаем такси...");
             for (TaxiWorker taxi : taxis) {
                 taxi.stop();
             }
-            
-            System.out.println("5. Ждем завершения текущих поездок (2 секунды)...");
-            // Даем такси время завершить текущие поездки
-            try {
-                Thread.sleep(2000);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+            for (Future<?> taxiTask : taxiTasks) {
+                awaitStopped(taxiTask, "поток такси");
             }
+            stopped = true;
+            
+            ConsoleLog.printf("Остановка заняла %d мс, прервано поездок: %d%n",
+                              TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - shutdownStartNanos),
+                              rideTracker.getAbortedRides());
             
         } catch (InterruptedException e) {
             if (!"Прервано пользователем".equals(e.getMessage())) {
@@ -156,39 +353,219 @@ public class SimulationRunner {
             }
             Thread.currentThread().interrupt();
         } finally {
-            // 7. Останавливаем executor
+            // При прерывании компоненты останавливаются без ожидания
+            if (!stopped) {
+                if (startedApi != null) {
+                    startedApi.stop();
+                }
+                if (startedStream != null) {
+                    startedStream.stop();
+                }
+                if (startedFleet != null) {
+                    startedFleet.stop();
+                }
+                abortComponents(startedGenerator, startedDispatcher, startedTaxis);
+            }
+            
+            // 7. Снимаем счетчики JVM, пока потоки симуляции живы, и останавливаем executor
+            jvmStats = JvmStats.capture().since(jvmStatsBefore);
             if (executor != null) {
                 shutdownExecutor(executor);
             }
+            if (rideScheduler != null) {
+                rideScheduler.shutdown();
+            }
+            // Журнал - последним: в него еще пишут завершения поездок
+            if (startedJournal != null) {
+                try {
+                    startedJournal.close();
+                } catch (IOException e) {
+                    System.err.println("Не удалось закрыть журнал заказов: " + e.getMessage());
+                }
+                statisticsCollector.recordJournal(startedJournal.getRecords(), startedJournal.getForces(),
+                                                  startedJournal.getBytesWritten());
+            }
+            if (startedHistory != null) {
+                startedHistory.stop();
+                statisticsCollector.recordHistory(startedHistory.getRows(), startedHistory.getSegments(),
+                                                  startedHistory.getOffHeapBytes(), startedHistory.getDropped());
+            }
+            
+            recordRouteCache(startedTravelModel);
+            recordFleetTime(startedTaxis, (stopNanos != 0 ? stopNanos : System.nanoTime()) - startNanos);
+            if (startedRebalancer != null) {
+                statisticsCollector.recordRebalance(startedRebalancer.getMoves(),
+                                                    startedRebalancer.getRepositionDistance());
+            }
             
             // 8. Выводим статистику
-            System.out.println("\n=== СИМУЛЯЦИЯ ЗАВЕРШЕНА ===");
-            statisticsCollector.printSummary();
+            ConsoleLog.println("\n=== СИМУЛЯЦИЯ ЗАВЕРШЕНА ===");
+            if (ConsoleLog.isEnabled()) {
+                statisticsCollector.printSummary();
+            }
+        }
+        
+        // Пропускная способность считается по времени приема заказов
+        if (stopNanos == 0) {
+            stopNanos = System.nanoTime();
+        }
+        return new SimulationResult(
+            config,
+            (stopNanos - startNanos) / 1e9,
+            startedGenerator != null ? startedGenerator.getGeneratedRequests() : 0,
+            startedDispatcher != null ? startedDispatcher.getTotalAssignedRides() : 0,
+            startedDispatcher != null ? startedDispatcher.getFailedAssignments() : 0,
+            statisticsCollector,
+            jvmStats);
+    }
+    
+    // Заказы из журнала уже приняты: ждем места в очереди, а не отклоняем их из-за того, что
+    // очередь меньше накопленного остатка. Отказ - только если его дала бы политика перегрузки
+    private void requeueRecovered(JournalRecovery recovery, JournaledQueue queue) throws InterruptedException {
+        int requeued = 0;
+        for (RideRequest request : recovery.getOutstanding()) {
+            queue.putRecovered(request);
+            requeued++;
+        }
+        statisticsCollector.recordRecoveredRequests(requeued);
+        ConsoleLog.println("Восстановлено из журнала: " + recovery + ", передано в очередь: " + requeued + "\n");
+    }
+
+    // Ждет завершения задачи компонента; зависший компонент прерывается
+    private void awaitStopped(Future<?> task, String name) throws InterruptedException {
+        try {
+            task.get(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            System.err.println("Компонент \"" + name + "\" не остановился за " + STOP_TIMEOUT_MILLIS +
+                               " мс, прерываем поток");
+            task.cancel(true);
+        } catch (ExecutionException e) {
+            System.err.println("Компонент \"" + name + "\" завершился с ошибкой: " + e.getCause());
+        }
+    }
+    
+    private void abortComponents(RequestSource generator, Dispatcher dispatcher, List<TaxiWorker> taxis) {
+        if (generator != null) {
+            generator.stop();
+        }
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+        for (TaxiWorker taxi : taxis) {
+            taxi.stop();
         }
     }
     
     private void shutdownExecutor(ExecutorService executor) {
-        System.out.println("Завершение работы всех потоков...");
+        ConsoleLog.println("Завершение работы всех потоков...");
         
+        // После штатной остановки задачи уже завершены, ожидание - страховка
+        executor.shutdown();
         try {
-            executor.shutdown();
-            
-            if (!executor.awaitTermination(25, TimeUnit.SECONDS)) {
-                System.out.println("Некоторые потоки не завершились, применяем принудительную остановку...");
+            if (!executor.awaitTermination(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                ConsoleLog.println("Некоторые потоки не завершились, применяем принудительную остановку...");
                 executor.shutdownNow();
-                
-                executor.awaitTermination(5, TimeUnit.SECONDS);
             }
         } catch (InterruptedException e) {
-            System.out.println("Процесс остановки был ускорен...");
+            ConsoleLog.println("Процесс остановки был ускорен...");
             executor.shutdownNow();
             Thread.currentThread().interrupt();
         }
         
-        System.out.println("Все потоки остановлены.");
+        ConsoleLog.println("Все потоки остановлены.");
+    }
+
+    private RideScheduler createRideScheduler() {
+        if (config.getTimerType() == TimerType.JDK) {
+            return new ExecutorRideScheduler(config.getSchedulerThreads());
+        }
+        return new TimingWheelRideScheduler(config.getSchedulerThreads(), config.getTimerTickMillis());
+    }
+
+    private BlockingQueue<RideRequest> createRequestQueue() {
+        if (config.isRingBuffer()) {
+            return new MpscRingBuffer<>(config.getRingBufferSize(), config.getWaitStrategy());
+        }
+        if (!config.isBoundedQueue()) {
+            return new LinkedBlockingQueue<>();
+        }
+        return new AdmissionQueue(config.getQueueCapacity(), config.getOverloadPolicy(), config.getShedTypes(),
+                                  config.getMaxPredictedWaitMillis(), statisticsCollector);
+    }
+
+    private RequestSource createRequestSource(BlockingQueue<RideRequest> requestQueue) {
+        if (config.isTraceReplay()) {
+            return new TraceReplaySource(requestQueue, Paths.get(config.getTraceFile()), config.getTraceSpeedUp(),
+                                         requestIds);
+        }
+        DemandModel demandModel = createDemandModel();
+        if (config.isOpenLoad()) {
+            return new PoissonLoadGenerator(requestQueue, demandModel,
+                                            config.getTargetRequestRate(), config.getProducerThreads(),
+                                            demandRandom.split());
+        }
+        return new RequestGenerator(requestQueue, config, demandModel, demandRandom.split());
+    }
+
+    private DemandModel createDemandModel() {
+        if (config.getDemandProfileFile() == null) {
+            return new UniformDemandModel(config, requestIds);
+        }
+        try {
+            HotspotDemandModel model = HotspotDemandModel.load(Paths.get(config.getDemandProfileFile()), config,
+                                                               requestIds);
+            ConsoleLog.println("Профиль спроса загружен: " + model);
+            return model;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось загрузить профиль спроса " + config.getDemandProfileFile(), e);
+        }
+    }
+
+    private TravelModel createTravelModel() {
+        if (!config.isRoadNetwork()) {
+            return TravelModel.euclidean();
+        }
+        long start = System.nanoTime();
+        try {
+            RoadTravelModel model = RoadTravelModel.load(Paths.get(config.getRoadGraphFile()), config.getLandmarks(),
+                                                          config.getRouteCacheSize());
+            ConsoleLog.printf("Дорожный граф загружен за %d мс: %s%n",
+                              TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), model.getGraph());
+            return model;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось загрузить дорожный граф " + config.getRoadGraphFile(), e);
+        }
+    }
+
+    // Сетка карты спроса: около четырех такси на ячейку, но не мельче 16x16;
+    // окно спроса - шесть периодов перегона
+    private FleetRebalancer createRebalancer(List<TaxiWorker> taxis) {
+        int dimension = (int) Math.max(2, Math.min(16, Math.round(Math.sqrt(taxis.size() / 4.0))));
+        long interval = config.getRebalanceIntervalMillis();
+        DemandHeatmap heatmap = new DemandHeatmap(config.getCityMinX(), config.getCityMaxX(),
+                                                  config.getCityMinY(), config.getCityMaxY(),
+                                                  dimension, 6 * interval);
+        return new FleetRebalancer(taxis, heatmap, interval, config.getRebalanceShare());
+    }
+
+    private void recordFleetTime(List<TaxiWorker> taxis, long elapsedNanos) {
+        long occupiedMillis = 0;
+        for (TaxiWorker taxi : taxis) {
+            occupiedMillis += taxi.getOccupiedMillis();
+        }
+        statisticsCollector.recordFleetTime(occupiedMillis, taxis.size() * TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+    }
+
+    private void recordRouteCache(TravelModel travelModel) {
+        if (travelModel instanceof RoadTravelModel) {
+            RouteCache cache = ((RoadTravelModel) travelModel).getCache();
+            if (cache != null) {
+                statisticsCollector.recordRouteCache(cache.getHits(), cache.getMisses(), cache.getEvictions());
+            }
+        }
     }
 
-    private List<TaxiWorker> createTaxis() {
+    private List<TaxiWorker> createTaxis(TravelModel travelModel) {
         List<TaxiWorker> taxis = new ArrayList<>();
         
         TaxiType[] types = TaxiType.values();
@@ -198,28 +575,33 @@ public class SimulationRunner {
             TaxiType type = types[i % types.length];
             
             double x = config.getCityMinX() + 
-                      Math.random() * (config.getCityMaxX() - config.getCityMinX());
+                      fleetRandom.nextDouble() * (config.getCityMaxX() - config.getCityMinX());
             double y = config.getCityMinY() + 
-                      Math.random() * (config.getCityMaxY() - config.getCityMinY());
+                      fleetRandom.nextDouble() * (config.getCityMaxY() - config.getCityMinY());
             
             Point startLocation = new Point(x, y);
             TaxiWorker taxi = new TaxiWorker(taxiId, type, startLocation, config.getTaxiSpeed());
+            taxi.setLookAheadDepth(config.getChainDepth());
+            taxi.setTravelModel(travelModel);
             taxis.add(taxi);
         }
         
         return taxis;
     }
     
-    private DispatchStrategy createStrategy(StrategyType strategyType) {
+    private DispatchStrategy createStrategy(StrategyType strategyType, TravelModel travelModel) {
         switch (strategyType) {
             case NEAREST:
-                return new NearestTaxiStrategy();
+                return new NearestTaxiStrategy(travelModel);
             case LEAST_LOADED:
-                return new LeastLoadedTaxiStrategy();
+                return new LeastLoadedTaxiStrategy(travelModel);
+            case ETA:
+                return new EtaTaxiStrategy(config.getCityMinX(), config.getCityMaxX(),
+                                           config.getCityMinY(), config.getCityMaxY(), config.getChainDepth());
             default:
-                System.out.println("Неизвестный тип стратегии '" + strategyType + 
+                ConsoleLog.println("Неизвестный тип стратегии '" + strategyType + 
                                  "'. Используется NearestTaxiStrategy по умолчанию.");
-                return new NearestTaxiStrategy();
+                return new NearestTaxiStrategy(travelModel);
         }
     }
 }
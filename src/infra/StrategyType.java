@@ -2,7 +2,8 @@ package infra;
 
 public enum StrategyType {
     NEAREST("nearest", "Ближайшее такси"),
-    LEAST_LOADED("leastloaded", "Наименее загруженное такси");
+    LEAST_LOADED("leastloaded", "Наименее загруженное такси"),
+    ETA("eta", "Минимальное время подачи");
     
     private final String code;
     private final String description;
@@ -0,0 +1,203 @@
+package infra;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+// Параметры перебора конфигураций (--sweep).
+// Ключи те же, что в пакетном режиме; значение параметра может задавать несколько вариантов:
+//   taxis=50,100,200        - список
+//   rate=1000..5000:1000    - диапазон от..до:шаг (шаг по умолчанию 1)
+// Перебираются все сочетания вариантов, каждое прогоняется runs раз (прогрева нет).
+// Собственные ключи перебора:
+//   parallel - сколько симуляций выполнять одновременно (по умолчанию - число ядер)
+//   output   - CSV с итоговой таблицей (по умолчанию sweep.csv)
+//   verbose  - журнал симуляций в консоль (при параллельных прогонах перемешивается)
+// Если seed не задан, он выбирается один на весь перебор: прогон i каждой комбинации
+// получает seed + i, поэтому комбинации сравниваются на одинаковом спросе.
+public class SweepOptions {
+    
+    // Значения этих ключей содержат запятые и не перебираются
+    private static final List<String> SCALAR_KEYS = List.of("city", "trace", "road-graph", "demand", "output", "config",
+                                                           "shed-types");
+    
+    private final List<Map<String, String>> grid;
+    private final List<String> sweptKeys;
+    private final List<SimulationConfig> configs;
+    private final int runs;
+    private final int parallelism;
+    private final String outputFile;
+    private final boolean verbose;
+    
+    private SweepOptions(List<Map<String, String>> grid, List<String> sweptKeys, List<SimulationConfig> configs,
+                         int runs, int parallelism, String outputFile, boolean verbose) {
+        this.grid = grid;
+        this.sweptKeys = sweptKeys;
+        this.configs = configs;
+        this.runs = runs;
+        this.parallelism = parallelism;
+        this.outputFile = outputFile;
+        this.verbose = verbose;
+    }
+    
+    public static boolean isSweepMode(String[] args) {
+        for (String arg : args) {
+            if (arg.equals("--sweep")) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public static SweepOptions parse(String[] args) throws IOException {
+        Map<String, String> values = BatchOptions.collectValues(args);
+        // Журнал восстанавливает заказы прошлого запуска: прогоны перебора восстанавливали бы
+        // и переписывали один файл, в том числе одновременно
+        if (values.containsKey("wal")) {
+            throw new IllegalArgumentException("Журнал заказов (wal) в переборе не поддерживается");
+        }
+        
+        int parallelism = parsePositive("parallel", values.remove("parallel"),
+                                        Runtime.getRuntime().availableProcessors());
+        int runs = parsePositive("runs", values.remove("runs"), 1);
+        String output = values.containsKey("output") ? values.remove("output") : "sweep.csv";
+        boolean verbose = Boolean.parseBoolean(values.remove("verbose"));
+        // Прогрев в переборе не выполняется
+        values.remove("warmup-runs");
+        values.remove("warmup-duration");
+        if (!values.containsKey("seed")) {
+            values.put("seed", Long.toString(SimulationConfig.randomSeed()));
+        }
+        
+        // Варианты значений каждого ключа
+        Map<String, List<String>> choices = new LinkedHashMap<>();
+        List<String> sweptKeys = new ArrayList<>();
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            List<String> variants = SCALAR_KEYS.contains(entry.getKey())
+                ? List.of(entry.getValue())
+                : expand(entry.getKey(), entry.getValue());
+            choices.put(entry.getKey(), variants);
+            if (variants.size() > 1) {
+                sweptKeys.add(entry.getKey());
+            }
+        }
+        
+        List<Map<String, String>> grid = cartesian(choices);
+        List<SimulationConfig> configs = new ArrayList<>(grid.size());
+        for (Map<String, String> point : grid) {
+            configs.add(BatchOptions.fromValues(point).getConfig());
+        }
+        
+        return new SweepOptions(grid, sweptKeys, configs, runs, parallelism, output, verbose);
+    }
+    
+    private static int parsePositive(String key, String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed < 1) {
+                throw new IllegalArgumentException(key + " должен быть положительным");
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Неверное значение " + key + "=" + value, e);
+        }
+    }
+    
+    // Список через запятую и/или диапазоны от..до[:шаг]
+    static List<String> expand(String key, String value) {
+        List<String> variants = new ArrayList<>();
+        for (String part : value.split(",")) {
+            part = part.trim();
+            int range = part.indexOf("..");
+            if (range < 0) {
+                variants.add(part);
+                continue;
+            }
+            
+            String to = part.substring(range + 2);
+            String step = "1";
+            int colon = to.indexOf(':');
+            if (colon >= 0) {
+                step = to.substring(colon + 1);
+                to = to.substring(0, colon);
+            }
+            try {
+                double start = Double.parseDouble(part.substring(0, range));
+                double end = Double.parseDouble(to);
+                double increment = Double.parseDouble(step);
+                if (increment <= 0 || end < start) {
+                    throw new IllegalArgumentException("Неверный диапазон " + key + "=" + part);
+                }
+                // Небольшой запас, чтобы конец диапазона не терялся из-за округления
+                for (long i = 0; start + i * increment <= end + increment * 1e-9; i++) {
+                    variants.add(format(start + i * increment));
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Неверный диапазон " + key + "=" + part, e);
+            }
+        }
+        return variants;
+    }
+    
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+    
+    private static List<Map<String, String>> cartesian(Map<String, List<String>> choices) {
+        List<Map<String, String>> points = new ArrayList<>();
+        points.add(new LinkedHashMap<>());
+        for (Map.Entry<String, List<String>> entry : choices.entrySet()) {
+            List<Map<String, String>> next = new ArrayList<>(points.size() * entry.getValue().size());
+            for (Map<String, String> point : points) {
+                for (String variant : entry.getValue()) {
+                    Map<String, String> extended = new LinkedHashMap<>(point);
+                    extended.put(entry.getKey(), variant);
+                    next.add(extended);
+                }
+            }
+            points = next;
+        }
+        return points;
+    }
+    
+    // =========== Геттеры ============
+    
+    // Значения параметров каждой комбинации (в том же порядке, что и getConfigs)
+    public List<Map<String, String>> getGrid() {
+        return grid;
+    }
+    
+    // Ключи, у которых больше одного варианта - столбцы таблицы результатов
+    public List<String> getSweptKeys() {
+        return sweptKeys;
+    }
+    
+    public List<SimulationConfig> getConfigs() {
+        return configs;
+    }
+    
+    public int getRuns() {
+        return runs;
+    }
+    
+    public int getParallelism() {
+        return parallelism;
+    }
+    
+    public String getOutputFile() {
+        return outputFile;
+    }
+    
+    public boolean isVerbose() {
+        return verbose;
+    }
+}
@@ -0,0 +1,266 @@
+package infra;
+
+import stats.LatencyHistogram;
+import util.ConsoleLog;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+
+// Перебор конфигураций: каждая комбинация параметров прогоняется отдельной симуляцией,
+// несколько симуляций выполняются параллельно. Симуляции не делят состояния
+// (своя статистика, нумерация заказов и потоки случайных чисел), поэтому результаты
+// не зависят от параллельности. Итог - таблица в консоли и CSV.
+public class SweepRunner {
+    
+    private static final String[] METRIC_COLUMNS = {
+        "runs", "generated", "rejected", "completed", "failed", "throughput", "throughputStdDev",
+        "waitP50Millis", "waitP99Millis", "pickupMeanMillis", "pickupP99Millis", "dispatchP99Micros", "queueP99",
+        "routeCacheHitRate", "rebalanceMoves", "utilisation", "detourOverhead", "ridesPerTaxiHour"
+    };
+    
+    private final SweepOptions options;
+    
+    public SweepRunner(SweepOptions options) {
+        this.options = options;
+    }
+    
+    // Результаты по комбинациям: для каждой - список прогонов в порядке номеров
+    public List<List<SimulationResult>> run() throws IOException, InterruptedException {
+        List<SimulationConfig> configs = options.getConfigs();
+        int runs = options.getRuns();
+        int total = configs.size() * runs;
+        System.out.printf("Перебор: комбинаций %d, прогонов каждой %d, параллельно %d%n",
+                          configs.size(), runs, options.getParallelism());
+        
+        List<List<SimulationResult>> results = new ArrayList<>(configs.size());
+        for (int i = 0; i < configs.size(); i++) {
+            List<SimulationResult> slots = new ArrayList<>(runs);
+            for (int r = 0; r < runs; r++) {
+                slots.add(null);
+            }
+            results.add(slots);
+        }
+        
+        boolean logWasEnabled = ConsoleLog.isEnabled();
+        ConsoleLog.setEnabled(options.isVerbose());
+        ExecutorService executor = Executors.newFixedThreadPool(options.getParallelism(), runnable -> {
+            Thread thread = new Thread(runnable, "sweep-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletionService<SweepTask> completion = new ExecutorCompletionService<>(executor);
+            for (int c = 0; c < configs.size(); c++) {
+                for (int r = 0; r < runs; r++) {
+                    // Прогон r каждой комбинации получает одно и то же зерно
+                    SimulationConfig config = configs.get(c).toBuilder()
+                        .seed(configs.get(c).getSeed() + r)
+                        .build();
+                    SweepTask task = new SweepTask(c, r, config);
+                    completion.submit(task::execute);
+                }
+            }
+            
+            for (int done = 1; done <= total; done++) {
+                SweepTask task = completion.take().get();
+                results.get(task.configIndex).set(task.run, task.result);
+                System.out.printf("[%d/%d] %s, прогон %d: %s%n", done, total,
+                                  describe(options.getGrid().get(task.configIndex)), task.run + 1, task.result);
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Симуляция завершилась с ошибкой: " + e.getCause(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+            ConsoleLog.setEnabled(logWasEnabled);
+        }
+        
+        List<String[]> table = buildTable(results);
+        printTable(table);
+        writeCsv(table);
+        System.out.println("Результаты записаны в " + options.getOutputFile());
+        return results;
+    }
+    
+    private String describe(Map<String, String> point) {
+        if (options.getSweptKeys().isEmpty()) {
+            return "конфигурация";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String key : options.getSweptKeys()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(key).append('=').append(point.get(key));
+        }
+        return sb.toString();
+    }
+    
+    // Строка заголовка и по строке на комбинацию: перебираемые параметры, затем средние по прогонам
+    private List<String[]> buildTable(List<List<SimulationResult>> results) {
+        List<String> swept = options.getSweptKeys();
+        List<String[]> rows = new ArrayList<>();
+        
+        String[] header = new String[swept.size() + METRIC_COLUMNS.length];
+        for (int i = 0; i < swept.size(); i++) {
+            header[i] = swept.get(i);
+        }
+        System.arraycopy(METRIC_COLUMNS, 0, header, swept.size(), METRIC_COLUMNS.length);
+        rows.add(header);
+        
+        for (int c = 0; c < results.size(); c++) {
+            List<SimulationResult> runs = results.get(c);
+            int n = runs.size();
+            double generated = 0;
+            double rejected = 0;
+            double queueP99 = 0;
+            double completed = 0;
+            double failed = 0;
+            double waitP50 = 0;
+            double waitP99 = 0;
+            double pickupMean = 0;
+            double pickupP99 = 0;
+            double dispatchP99 = 0;
+            double routeCacheHitRate = 0;
+            double rebalanceMoves = 0;
+            double utilisation = 0;
+            double detourOverhead = 0;
+            double ridesPerTaxiHour = 0;
+            double[] throughput = new double[n];
+            for (int r = 0; r < n; r++) {
+                SimulationResult result = runs.get(r);
+                LatencyHistogram waits = result.getWaitTimeHistogram();
+                generated += result.getGeneratedRequests();
+                rejected += result.getRejectedRequests();
+                queueP99 += result.getQueueOccupancyHistogram().getPercentile(99);
+                completed += result.getCompletedRides();
+                failed += result.getFailedAssignments();
+                waitP50 += waits.getPercentile(50);
+                waitP99 += waits.getPercentile(99);
+                pickupMean += result.getPickupWaitHistogram().getMean();
+                pickupP99 += result.getPickupWaitHistogram().getPercentile(99);
+                dispatchP99 += result.getDispatchLatencyHistogram().getPercentile(99);
+                routeCacheHitRate += result.getRouteCacheHitRate();
+                rebalanceMoves += result.getRebalanceMoves();
+                utilisation += result.getFleetUtilisation();
+                detourOverhead += result.getDetourOverhead();
+                ridesPerTaxiHour += result.getRidesPerTaxiHour();
+                throughput[r] = result.getThroughput();
+            }
+            
+            String[] row = new String[header.length];
+            Map<String, String> point = options.getGrid().get(c);
+            for (int i = 0; i < swept.size(); i++) {
+                row[i] = point.get(swept.get(i));
+            }
+            int k = swept.size();
+            row[k++] = Integer.toString(n);
+            row[k++] = format(generated / n);
+            row[k++] = format(rejected / n);
+            row[k++] = format(completed / n);
+            row[k++] = format(failed / n);
+            row[k++] = format(BatchRunner.mean(throughput));
+            row[k++] = format(BatchRunner.stdDev(throughput));
+            row[k++] = format(waitP50 / n);
+            row[k++] = format(waitP99 / n);
+            row[k++] = format(pickupMean / n);
+            row[k++] = format(pickupP99 / n);
+            row[k++] = format(dispatchP99 / n);
+            row[k++] = format(queueP99 / n);
+            row[k++] = format(routeCacheHitRate / n);
+            row[k++] = format(rebalanceMoves / n);
+            row[k++] = format(utilisation / n);
+            row[k++] = format(detourOverhead / n);
+            row[k] = format(ridesPerTaxiHour / n);
+            rows.add(row);
+        }
+        return rows;
+    }
+    
+    private static void printTable(List<String[]> rows) {
+        int[] widths = new int[rows.get(0).length];
+        for (String[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                widths[i] = Math.max(widths[i], row[i].length());
+            }
+        }
+        
+        System.out.println();
+        for (int r = 0; r < rows.size(); r++) {
+            StringBuilder line = new StringBuilder();
+            for (int i = 0; i < widths.length; i++) {
+                if (i > 0) {
+                    line.append(" | ");
+                }
+                String cell = rows.get(r)[i];
+                // Параметры и заголовок выравниваем влево, числа - вправо
+                line.append(r == 0 ? String.format("%-" + widths[i] + "s", cell)
+                                   : String.format("%" + widths[i] + "s", cell));
+            }
+            System.out.println(line);
+            if (r == 0) {
+                StringBuilder separator = new StringBuilder();
+                for (int i = 0; i < widths.length; i++) {
+                    separator.append(i > 0 ? "-|-" : "").append("-".repeat(widths[i]));
+                }
+                System.out.println(separator);
+            }
+        }
+    }
+    
+    private void writeCsv(List<String[]> rows) throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (String[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    csv.append(',');
+                }
+                csv.append(escapeCsv(row[i]));
+            }
+            csv.append('\n');
+        }
+        Files.write(Paths.get(options.getOutputFile()), csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    
+    private static String escapeCsv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+    
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+    
+    
+    // Один прогон одной комбинации
+    private static class SweepTask {
+        final int configIndex;
+        final int run;
+        final SimulationConfig config;
+        SimulationResult result;
+        
+        SweepTask(int configIndex, int run, SimulationConfig config) {
+            this.configIndex = configIndex;
+            this.run = run;
+            this.config = config;
+        }
+        
+        SweepTask execute() {
+            result = new SimulationRunner(config).runSimulation();
+            return this;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package infra;
+
+// Как исполняются такси: свой поток на каждое такси или конечные автоматы
+// на общем планировщике (событийный режим)
+public enum TaxiMode {
+    THREADS("threads", "Поток на каждое такси"),
+    EVENTS("events", "Событийный режим на общем планировщике");
+    
+    private final String code;
+    private final String description;
+    
+    TaxiMode(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+    
+    public String getCode() {
+        return code;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public static TaxiMode fromCode(String code) {
+        if (code == null) {
+            return THREADS;
+        }
+        
+        for (TaxiMode mode : values()) {
+            if (mode.code.equalsIgnoreCase(code.trim())) {
+                return mode;
+            }
+        }
+        
+        // Если код не распознан, возвращаем значение по умолчанию
+        return THREADS;
+    }
+    
+    @Override
+    public String toString() {
+        return description + " (" + code + ")";
+    }
+}
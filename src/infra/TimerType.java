@@ -0,0 +1,43 @@
+package infra;
+
+// Чем планируются времена в пути такси (см. TaxiWorker.calculateTravelTime)
+public enum TimerType {
+    WHEEL("wheel", "Иерархическое колесо таймеров"),
+    JDK("jdk", "ScheduledThreadPoolExecutor");
+    
+    private final String code;
+    private final String description;
+    
+    TimerType(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+    
+    public String getCode() {
+        return code;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public static TimerType fromCode(String code) {
+        if (code == null) {
+            return WHEEL;
+        }
+        
+        for (TimerType type : values()) {
+            if (type.code.equalsIgnoreCase(code.trim())) {
+                return type;
+            }
+        }
+        
+        // Если код не распознан, возвращаем значение по умолчанию
+        return WHEEL;
+    }
+    
+    @Override
+    public String toString() {
+        return description + " (" + code + ")";
+    }
+}
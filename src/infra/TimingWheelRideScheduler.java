@@ -0,0 +1,43 @@
+package infra;
+
+import services.RideScheduler;
+import services.RideTimer;
+import util.TimingWheel;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+
+// Планировщик поездок на иерархическом колесе таймеров: постановка и отмена за O(1),
+// истекшие за тик переходы выполняются пачками на общем пуле потоков
+public class TimingWheelRideScheduler implements RideScheduler {
+    
+    // 256 ячеек на уровень, 4 уровня: при тике 1 мс колесо покрывает ~49 суток
+    private static final int WHEEL_SIZE = 256;
+    private static final int WHEEL_LEVELS = 4;
+    
+    private final ExecutorService executor;
+    private final TimingWheel wheel;
+    
+    public TimingWheelRideScheduler(int threads, long tickMillis) {
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ride-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.wheel = new TimingWheel(tickMillis, TimeUnit.MILLISECONDS, WHEEL_SIZE, WHEEL_LEVELS, executor);
+    }
+    
+    @Override
+    public RideTimer schedule(long delayMillis, Runnable action) {
+        TimingWheel.Timeout timeout = wheel.schedule(delayMillis, TimeUnit.MILLISECONDS, action);
+        return timeout::cancel;
+    }
+    
+    @Override
+    public void shutdown() {
+        wheel.stop();
+        executor.shutdownNow();
+    }
+}
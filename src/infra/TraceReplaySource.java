@@ -0,0 +1,145 @@
+package infra;
+
+import models.*;
+import trace.TripReader;
+import trace.TripRecord;
+import util.ConsoleLog;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.LockSupport;
+
+
+// Воспроизводит записанные поездки из файла трассы (CSV или бинарного).
+// Интервалы между заказами берутся из временных меток трассы и делятся на speedUp.
+public class TraceReplaySource implements RequestSource {
+    private final BlockingQueue<RideRequest> requestQueue;
+    private final Path tracePath;
+    private final double speedUp;
+    private final RequestIdSequence ids;
+    private volatile boolean running = true;
+    private volatile Thread workerThread;
+    
+    private volatile long replayedRequests = 0;
+    
+    public TraceReplaySource(BlockingQueue<RideRequest> requestQueue, Path tracePath, double speedUp,
+                             RequestIdSequence ids) {
+        if (speedUp <= 0) {
+            throw new IllegalArgumentException("Коэффициент ускорения должен быть положительным");
+        }
+        this.requestQueue = requestQueue;
+        this.tracePath = tracePath;
+        this.speedUp = speedUp;
+        this.ids = ids;
+    }
+    
+    @Override
+    public void run() {
+        workerThread = Thread.currentThread();
+        ConsoleLog.println("Воспроизведение трассы " + tracePath + " запущено. Ускорение: x" + speedUp);
+        
+        try (TripReader reader = TripReader.open(tracePath)) {
+            TripRecord record = new TripRecord();
+            long firstTimestamp = -1;
+            long replayStartNanos = System.nanoTime();
+            
+            while (running && reader.next(record)) {
+                if (firstTimestamp < 0) {
+                    firstTimestamp = record.getTimestampMillis();
+                }
+                
+                // Ждем момента, соответствующего времени заказа в трассе
+                long offsetNanos = (long) ((record.getTimestampMillis() - firstTimestamp) * 1_000_000L / speedUp);
+                waitUntil(replayStartNanos + offsetNanos);
+                if (!running) {
+                    break;
+                }
+                
+                RideRequest request = new RideRequest(
+                    ids.nextId(),
+                    new Point(record.getPickupX(), record.getPickupY()),
+                    new Point(record.getDropoffX(), record.getDropoffY()),
+                    record.getType());
+                requestQueue.put(request);
+                replayedRequests++;
+                ConsoleLog.println("Из трассы воспроизведен заказ #" + request.getId() + 
+                                 " от " + request.getPickupLocation() + 
+                                 " до " + request.getDropoffLocation() +
+                                 " (тип: " + request.getRequestedType() + ")");
+            }
+            
+            if (running) {
+                ConsoleLog.println("Трасса закончилась. Воспроизведено заказов: " + replayedRequests);
+                // Диспетчер должен работать до конца симуляции, поэтому ждем stop() - он будит поток
+                while (running) {
+                    LockSupport.park(this);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Ошибка чтения трассы " + tracePath + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            // Прерывание по stop() - штатная остановка
+            if (running) {
+                System.err.println("Воспроизведение трассы было прервано");
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            sendPoisonPill();
+            ConsoleLog.println("Воспроизведение трассы остановлено. Заказов: " + replayedRequests);
+        }
+    }
+    
+    private void waitUntil(long deadlineNanos) throws InterruptedException {
+        long remaining;
+        while (running && (remaining = deadlineNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+    
+    private void sendPoisonPill() {
+        // Снимаем флаг прерывания от stop(), иначе put() сразу выбросит исключение
+        if (!running) {
+            Thread.interrupted();
+        }
+        // Поток мог выйти из цикла сам, и прерывание от stop() приходит уже в put(): повторяем
+        // один раз, иначе poison pill потерян и остановка ждет таймаута. Повторное прерывание -
+        // принудительная остановка, тогда сдаемся
+        boolean retried = false;
+        while (true) {
+            try {
+                requestQueue.put(RequestGenerator.DISPATCHER_POISON_PILL);
+                ConsoleLog.println("Воспроизведение трассы отправило poison pill диспетчеру");
+                return;
+            } catch (InterruptedException e) {
+                if (running || retried) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                retried = true;
+            }
+        }
+    }
+    
+    @Override
+    public void stop() {
+        this.running = false;
+        Thread worker = workerThread;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+    
+    @Override
+    public long getGeneratedRequests() {
+        return replayedRequests;
+    }
+}
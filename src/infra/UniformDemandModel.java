@@ -0,0 +1,45 @@
+package infra;
+
+import models.*;
+
+import java.util.SplittableRandom;
+
+
+// Равномерный спрос по всему городу, тип такси выбирается равновероятно
+public class UniformDemandModel implements DemandModel {
+    
+    private static final TaxiType[] TYPES = TaxiType.values();
+    
+    private final SimulationConfig config;
+    private final RequestIdSequence ids;
+    
+    public UniformDemandModel(SimulationConfig config, RequestIdSequence ids) {
+        this.config = config;
+        this.ids = ids;
+    }
+    
+    @Override
+    public RideRequest createRequest(SplittableRandom random) {
+        // Генерируем случайные точки в пределах города
+        Point pickup = generateRandomPoint(random);
+        Point dropoff = generateRandomPoint(random);
+        
+        // Убедимся, что точки не совпадают
+        while (pickup.distanceTo(dropoff) < 1.0) {
+            dropoff = generateRandomPoint(random);
+        }
+        
+        // Выбираем случайный тип такси
+        TaxiType requestedType = TYPES[random.nextInt(TYPES.length)];
+        
+        return new RideRequest(ids.nextId(), pickup, dropoff, requestedType);
+    }
+    
+    private Point generateRandomPoint(SplittableRandom random) {
+        double x = config.getCityMinX() + 
+                  random.nextDouble() * (config.getCityMaxX() - config.getCityMinX());
+        double y = config.getCityMinY() + 
+                  random.nextDouble() * (config.getCityMaxY() - config.getCityMinY());
+        return new Point(x, y);
+    }
+}
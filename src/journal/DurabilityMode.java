@@ -0,0 +1,50 @@
+package journal;
+
+// Когда запись журнала заказов считается сохраненной (см. RideJournal)
+public enum DurabilityMode {
+    SYNC("sync", "force() на каждую запись в потоке, который ее пишет"),
+    GROUP("group", "Групповая фиксация: прием заказа ждет общего force()"),
+    ASYNC("async", "force() пачками в фоне, прием заказа не ждет"),
+    WRITE("write", "Только запись в кэш ОС, без force()");
+
+    private final String code;
+    private final String description;
+
+    DurabilityMode(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    // Ждет ли прием заказа, пока запись о нем окажется на диске
+    public boolean isAcceptDurable() {
+        return this == SYNC || this == GROUP;
+    }
+
+    public static DurabilityMode fromCode(String code) {
+        if (code == null) {
+            return GROUP;
+        }
+
+        for (DurabilityMode mode : values()) {
+            if (mode.code.equalsIgnoreCase(code.trim())) {
+                return mode;
+            }
+        }
+
+        // Если код не распознан, возвращаем значение по умолчанию
+        return GROUP;
+    }
+
+    @Override
+    public String toString() {
+        return description + " (" + code + ")";
+    }
+}
@@ -0,0 +1,112 @@
+package journal;
+
+import models.Point;
+import models.RideRequest;
+import models.TaxiType;
+
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+
+
+// Формат журнала заказов (RideJournal, JournalRecovery).
+//
+// Файл: заголовок (int MAGIC, int VERSION), затем записи подряд:
+//   int длина тела, int CRC32C тела, тело:
+//     byte вид, long id заказа, далее по виду:
+//       ACCEPTED   - double x и y посадки, double x и y высадки, byte порядковый номер TaxiType
+//                    (-1 - любой тип)
+//       ASSIGNED   - long id такси
+//       UNASSIGNED, REJECTED, COMPLETED - ничего
+// Числа - big-endian, как у ByteBuffer по умолчанию. Запись, оборванную падением процесса
+// (не хватает байт, не сходится длина или CRC), и все после нее восстановление отбрасывает.
+public final class JournalFormat {
+
+    public static final int MAGIC = 0x5457414C; // "TWAL"
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+    public static final int RECORD_HEADER_SIZE = 8;
+
+    // Заказ принят и поставлен в очередь диспетчера
+    public static final byte ACCEPTED = 1;
+    // Диспетчер назначил заказ такси
+    public static final byte ASSIGNED = 2;
+    // Подходящего такси не нашлось - заказ снят
+    public static final byte UNASSIGNED = 3;
+    // Входная очередь не приняла заказ или вытеснила его при перегрузке
+    public static final byte REJECTED = 4;
+    // Такси довезло пассажира
+    public static final byte COMPLETED = 5;
+
+    private static final int BASE_BODY_SIZE = 1 + 8;
+    public static final int MAX_BODY_SIZE = BASE_BODY_SIZE + 4 * 8 + 1;
+    public static final int MAX_RECORD_SIZE = RECORD_HEADER_SIZE + MAX_BODY_SIZE;
+
+    private JournalFormat() {
+    }
+
+    // Размер тела записи данного вида; -1 - вид неизвестен
+    public static int bodySize(byte kind) {
+        switch (kind) {
+            case ACCEPTED:
+                return MAX_BODY_SIZE;
+            case ASSIGNED:
+                return BASE_BODY_SIZE + 8;
+            case UNASSIGNED:
+            case REJECTED:
+            case COMPLETED:
+                return BASE_BODY_SIZE;
+            default:
+                return -1;
+        }
+    }
+
+    public static void writeHeader(ByteBuffer out) {
+        out.putInt(MAGIC).putInt(VERSION);
+    }
+
+    // Код типа такси в записи ACCEPTED: null (любой тип) - -1, как в TripFileFormat
+    public static byte typeCode(TaxiType type) {
+        return type == null ? (byte) -1 : (byte) type.ordinal();
+    }
+
+    // Дописывает запись в out (нужно не меньше MAX_RECORD_SIZE свободного места);
+    // taxiId учитывается только у ASSIGNED.
+    // Поля заказа читаются до сдвига позиции: если чтение бросит исключение, в out
+    // не останется недописанной записи
+    public static void writeRecord(ByteBuffer out, CRC32C crc, byte kind, RideRequest request, long taxiId) {
+        long requestId = request.getId();
+        Point pickup = null;
+        Point dropoff = null;
+        byte type = 0;
+        if (kind == ACCEPTED) {
+            pickup = request.getPickupLocation();
+            dropoff = request.getDropoffLocation();
+            type = typeCode(request.getRequestedType());
+            if (pickup == null || dropoff == null) {
+                throw new IllegalArgumentException("У заказа #" + requestId + " нет точки посадки или высадки");
+            }
+        }
+
+        int start = out.position();
+        int bodyStart = start + RECORD_HEADER_SIZE;
+        out.position(bodyStart);
+        out.put(kind).putLong(requestId);
+        if (kind == ACCEPTED) {
+            out.putDouble(pickup.getX())
+               .putDouble(pickup.getY())
+               .putDouble(dropoff.getX())
+               .putDouble(dropoff.getY())
+               .put(type);
+        } else if (kind == ASSIGNED) {
+            out.putLong(taxiId);
+        }
+        int end = out.position();
+
+        ByteBuffer body = out.duplicate();
+        body.position(bodyStart).limit(end);
+        crc.reset();
+        crc.update(body);
+        out.putInt(start, end - bodyStart);
+        out.putInt(start + 4, (int) crc.getValue());
+    }
+}
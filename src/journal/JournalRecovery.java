@@ -0,0 +1,210 @@
+package journal;
+
+import models.Point;
+import models.RideRequest;
+import models.TaxiType;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+
+// Восстановление после падения по журналу заказов (RideJournal).
+//
+// Журнал читается до конца или до первой оборванной записи; незавершенными считаются заказы,
+// которые приняты, но не завершены, не отклонены и не сняты диспетчером, - и ждущие в очереди,
+// и назначенные такси, но не довезенные (личные очереди такси в памяти пропали вместе
+// с процессом). Затем журнал переписывается: во временный файл - только прием незавершенных
+// заказов с прежними id, force() и атомарная замена. Так журнал не растет от запуска к запуску,
+// а упавшее на середине восстановление оставляет прежний файл целым.
+// Восстановленные заказы ставятся в очередь заново; ожидание для них считается от восстановления.
+public class JournalRecovery {
+
+    private static final TaxiType[] TYPES = TaxiType.values();
+
+    private final List<RideRequest> outstanding;
+    private final long assignedOutstanding;
+    private final long records;
+    private final long discardedBytes;
+    private final long lastRequestId;
+
+    private JournalRecovery(List<RideRequest> outstanding, long assignedOutstanding, long records,
+                            long discardedBytes, long lastRequestId) {
+        this.outstanding = outstanding;
+        this.assignedOutstanding = assignedOutstanding;
+        this.records = records;
+        this.discardedBytes = discardedBytes;
+        this.lastRequestId = lastRequestId;
+    }
+
+    // Читает и переписывает журнал; нет файла - нечего восстанавливать
+    public static JournalRecovery recover(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return new JournalRecovery(List.of(), 0, 0, 0, 0);
+        }
+        long size = Files.size(path);
+        Map<Long, RideRequest> open = new LinkedHashMap<>();
+        Set<Long> assigned = new HashSet<>();
+        long records = 0;
+        long validBytes = 0;
+        long lastRequestId = 0;
+
+        // Файл короче заголовка - падение сразу после создания, записей в нем нет
+        if (size >= JournalFormat.HEADER_SIZE) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+                int magic = in.readInt();
+                int version = in.readInt();
+                if (magic != JournalFormat.MAGIC) {
+                    throw new IOException("Файл " + path + " не является журналом заказов");
+                }
+                if (version != JournalFormat.VERSION) {
+                    throw new IOException("Неподдерживаемая версия журнала заказов: " + version);
+                }
+                validBytes = JournalFormat.HEADER_SIZE;
+
+                byte[] body = new byte[JournalFormat.MAX_BODY_SIZE];
+                CRC32C crc = new CRC32C();
+                while (true) {
+                    int length;
+                    int checksum;
+                    try {
+                        length = in.readInt();
+                        checksum = in.readInt();
+                        if (length < 1 || length > body.length) {
+                            break;
+                        }
+                        in.readFully(body, 0, length);
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    crc.reset();
+                    crc.update(body, 0, length);
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                    ByteBuffer record = ByteBuffer.wrap(body, 0, length);
+                    byte kind = record.get();
+                    if (length != JournalFormat.bodySize(kind)) {
+                        break;
+                    }
+                    long requestId = record.getLong();
+                    switch (kind) {
+                        case JournalFormat.ACCEPTED:
+                            Point pickup = new Point(record.getDouble(), record.getDouble());
+                            Point dropoff = new Point(record.getDouble(), record.getDouble());
+                            int type = record.get();
+                            if (type < -1 || type >= TYPES.length) {
+                                throw new IOException("Неизвестный тип такси " + type + " в заказе #" + requestId);
+                            }
+                            // -1 - любой тип
+                            open.put(requestId, new RideRequest(requestId, pickup, dropoff, type < 0 ? null : TYPES[type]));
+                            break;
+                        case JournalFormat.ASSIGNED:
+                            if (open.containsKey(requestId)) {
+                                assigned.add(requestId);
+                            }
+                            break;
+                        default:
+                            open.remove(requestId);
+                            assigned.remove(requestId);
+                            break;
+                    }
+                    lastRequestId = Math.max(lastRequestId, requestId);
+                    records++;
+                    validBytes += JournalFormat.RECORD_HEADER_SIZE + length;
+                }
+            }
+        }
+
+        List<RideRequest> outstanding = new ArrayList<>(open.values());
+        compact(path, outstanding);
+        return new JournalRecovery(outstanding, assigned.size(), records, size - validBytes, lastRequestId);
+    }
+
+    private static void compact(Path path, Collection<RideRequest> outstanding) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32C crc = new CRC32C();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            JournalFormat.writeHeader(buffer);
+            for (RideRequest request : outstanding) {
+                if (buffer.remaining() < JournalFormat.MAX_RECORD_SIZE) {
+                    writeFully(channel, buffer);
+                }
+                JournalFormat.writeRecord(buffer, crc, JournalFormat.ACCEPTED, request, 0L);
+            }
+            writeFully(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(path.toAbsolutePath().getParent());
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Переименование сохранено, только когда зафиксирован каталог. На Windows каталог
+    // так не открыть - там замена файла фиксируется самой ОС
+    private static void forceDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Каталог не открывается как файл
+        }
+    }
+
+    // Незавершенные заказы в порядке приема
+    public List<RideRequest> getOutstanding() {
+        return outstanding;
+    }
+
+    // Сколько из незавершенных уже было назначено такси
+    public long getAssignedOutstanding() {
+        return assignedOutstanding;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    // Отброшенный хвост: запись, оборванная падением, и все после нее
+    public long getDiscardedBytes() {
+        return discardedBytes;
+    }
+
+    // Наибольший id заказа в журнале: новые заказы нумеруются после него
+    public long getLastRequestId() {
+        return lastRequestId;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("записей: %d, незавершенных заказов: %d (из них назначенных такси: %d), " +
+                             "отброшено байт хвоста: %d", records, outstanding.size(), assignedOutstanding,
+                             discardedBytes);
+    }
+}
@@ -0,0 +1,153 @@
+package journal;
+
+import models.RideRequest;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+
+// Входная очередь диспетчера с журналом заказов поверх любой BlockingQueue.
+//
+// Заказ попадает в очередь только после записи о приеме в RideJournal (в режимах GROUP и SYNC -
+// после ее фиксации), поэтому диспетчер не видит заказов, которых нет на диске.
+// Заказ, который исходная очередь не приняла, отмечается отклоненным; после закрытия журнала
+// заказы не принимаются (put отбрасывает их, как AdmissionQueue при отказе). Заказы, которые очередь
+// отбрасывает молча (вытеснение в AdmissionQueue), журнал получает от нее самой.
+// Poison pill не журналируется; выборка и остальное - напрямую из исходной очереди.
+// offerWhenDurable - тот же прием без ожидания фиксации в вызывающем потоке (RideJournal.acceptedAsync).
+public class JournaledQueue extends AbstractQueue<RideRequest> implements BlockingQueue<RideRequest> {
+
+    private final BlockingQueue<RideRequest> queue;
+    private final RideJournal journal;
+
+    public JournaledQueue(BlockingQueue<RideRequest> queue, RideJournal journal) {
+        this.queue = queue;
+        this.journal = journal;
+    }
+
+    // ================= Постановка в очередь =================
+
+    @Override
+    public boolean offer(RideRequest request) {
+        if (request.isPoisonPill()) {
+            return queue.offer(request);
+        }
+        if (!journal.accepted(request)) {
+            return false;
+        }
+        return enqueued(request, queue.offer(request));
+    }
+
+    @Override
+    public void put(RideRequest request) throws InterruptedException {
+        if (request.isPoisonPill()) {
+            queue.put(request);
+            return;
+        }
+        if (!journal.accepted(request)) {
+            return;
+        }
+        try {
+            queue.put(request);
+        } catch (InterruptedException e) {
+            journal.rejected(request);
+            throw e;
+        }
+    }
+
+    @Override
+    public boolean offer(RideRequest request, long timeout, TimeUnit unit) throws InterruptedException {
+        if (request.isPoisonPill()) {
+            return queue.offer(request, timeout, unit);
+        }
+        if (!journal.accepted(request)) {
+            return false;
+        }
+        try {
+            return enqueued(request, queue.offer(request, timeout, unit));
+        } catch (InterruptedException e) {
+            journal.rejected(request);
+            throw e;
+        }
+    }
+
+    // Прием без ожидания: заказ ставится в очередь, когда запись о приеме сохранена, и
+    // onResult получает, принят ли он. onResult вызывается из потока записи журнала или сразу
+    public void offerWhenDurable(RideRequest request, Consumer<Boolean> onResult) {
+        journal.acceptedAsync(request, durable -> onResult.accept(durable && enqueued(request, queue.offer(request))));
+    }
+
+    // Заказ, восстановленный из журнала: прием уже записан, поэтому ждем места в очереди.
+    // Отказ журналирует сама очередь, если его дает политика перегрузки (AdmissionQueue.put);
+    // при прерывании заказ остается незавершенным в журнале до следующего запуска
+    public void putRecovered(RideRequest request) throws InterruptedException {
+        queue.put(request);
+    }
+
+    private boolean enqueued(RideRequest request, boolean accepted) {
+        if (!accepted) {
+            journal.rejected(request);
+        }
+        return accepted;
+    }
+
+    // ================= Выборка и остальное из BlockingQueue =================
+
+    @Override
+    public RideRequest take() throws InterruptedException {
+        return queue.take();
+    }
+
+    @Override
+    public RideRequest poll(long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.poll(timeout, unit);
+    }
+
+    @Override
+    public RideRequest poll() {
+        return queue.poll();
+    }
+
+    @Override
+    public RideRequest peek() {
+        return queue.peek();
+    }
+
+    @Override
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return queue.remainingCapacity();
+    }
+
+    @Override
+    public int drainTo(Collection<? super RideRequest> collection) {
+        return queue.drainTo(collection);
+    }
+
+    @Override
+    public int drainTo(Collection<? super RideRequest> collection, int maxElements) {
+        return queue.drainTo(collection, maxElements);
+    }
+
+    @Override
+    public void clear() {
+        queue.clear();
+    }
+
+    @Override
+    public Iterator<RideRequest> iterator() {
+        return queue.iterator();
+    }
+
+    public BlockingQueue<RideRequest> getQueue() {
+        return queue;
+    }
+}
@@ -0,0 +1,392 @@
+package journal;
+
+import models.RideRequest;
+import services.AssignmentListener;
+import services.DispatcherCallback;
+import services.TaxiWorker;
+import stats.StatisticsCollector;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+
+// Журнал заказов с упреждающей записью (write-ahead log): прием заказа и его переходы
+// (назначен, не назначен, отклонен, завершен) дописываются в файл в формате JournalFormat,
+// чтобы после падения процесса восстановить незавершенные заказы (JournalRecovery).
+//
+// Запись кодируется под блокировкой в общий буфер, а в файл ее пишет и фиксирует force()
+// отдельный поток. Пока идет один force(), следующие записи копятся и уходят следующей пачкой
+// (групповая фиксация): один force() на сколько угодно производителей.
+// Фиксации ждет только прием заказа и только в режимах GROUP и SYNC - заказ попадает
+// к диспетчеру уже сохраненным. Поток, которому ждать нельзя (поток ввода-вывода IngestServer),
+// принимает заказ через acceptedAsync: итог придет из потока записи после force() пачки. Переходы не ждут: если процесс упадет раньше, чем они
+// зафиксированы, заказ восстановится незавершенным и будет назначен повторно - не потерян,
+// но может быть выполнен дважды.
+// В режиме SYNC фонового потока нет: каждую запись пишет и фиксирует вызывающий поток.
+// Накопленное ограничено MAX_BUFFER_SIZE: если диск не успевает, производители ждут, пока
+// поток записи заберет пачку, а не копят записи в памяти (в режимах ASYNC и WRITE тоже).
+public class RideJournal implements AssignmentListener, DispatcherCallback, Closeable {
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final DurabilityMode mode;
+    private final StatisticsCollector statistics;
+    private final Thread writer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition hasRecords = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Condition drained = lock.newCondition();
+    // Под lock: буфер, куда дописываются записи, и буфер, который пишет поток записи
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    // Под lock: номер последней дописанной записи и последней записанной в файл
+    private long appended = 0;
+    private long durable = 0;
+    // Под lock: ждущие фиксации приемы из acceptedAsync, по возрастанию номера записи
+    private final ArrayDeque<PendingCommit> commits = new ArrayDeque<>();
+    private boolean closed = false;
+    private IOException failure;
+
+    // Пишут под lock или только поток записи, читают снаружи
+    private volatile long records = 0;
+    private volatile long forces = 0;
+    private volatile long bytesWritten = 0;
+
+    private RideJournal(Path path, FileChannel channel, DurabilityMode mode, StatisticsCollector statistics) {
+        this.path = path;
+        this.channel = channel;
+        this.mode = mode;
+        this.statistics = statistics;
+        if (mode == DurabilityMode.SYNC) {
+            this.writer = null;
+        } else {
+            this.writer = new Thread(this::writeLoop, "ride-journal");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        }
+    }
+
+    // Открывает журнал для дописывания; новый или пустой файл получает заголовок.
+    // Перед этим журнал нужно восстановить (JournalRecovery): хвост после обрыва не проверяется
+    public static RideJournal open(Path path, DurabilityMode mode, StatisticsCollector statistics) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < JournalFormat.HEADER_SIZE) {
+                ByteBuffer header = ByteBuffer.allocate(JournalFormat.HEADER_SIZE);
+                JournalFormat.writeHeader(header);
+                header.flip();
+                channel.truncate(0);
+                channel.write(header, 0);
+                channel.force(true);
+            }
+            channel.position(channel.size());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new RideJournal(path, channel, mode, statistics);
+    }
+
+    // Прием заказа; в режимах GROUP и SYNC возвращается, когда запись уже на диске.
+    // false - журнал закрыт, запись о приеме не сделана и заказ принимать нельзя
+    public boolean accepted(RideRequest request) {
+        long startNanos = System.nanoTime();
+        long sequence = append(JournalFormat.ACCEPTED, request, 0L, null);
+        if (sequence < 0) {
+            return false;
+        }
+        // В режиме SYNC запись уже зафиксирована в append(), ожидание сразу завершается
+        if (mode.isAcceptDurable()) {
+            awaitDurable(sequence);
+        }
+        recordCommit(startNanos);
+        return true;
+    }
+
+    // Прием заказа без ожидания. onCommit(true) - запись сохранена в смысле режима: в режиме GROUP
+    // вызывается из потока записи после force() ее пачки, в остальных - сразу в вызывающем потоке.
+    // onCommit(false) - журнал закрыт или недоступен, заказ не принят
+    public void acceptedAsync(RideRequest request, Consumer<Boolean> onCommit) {
+        long startNanos = System.nanoTime();
+        PendingCommit commit = new PendingCommit(startNanos, onCommit);
+        long sequence;
+        try {
+            sequence = append(JournalFormat.ACCEPTED, request, 0L, mode == DurabilityMode.GROUP ? commit : null);
+        } catch (UncheckedIOException e) {
+            onCommit.accept(false);
+            return;
+        }
+        if (sequence < 0) {
+            onCommit.accept(false);
+        } else if (mode != DurabilityMode.GROUP) {
+            recordCommit(startNanos);
+            onCommit.accept(true);
+        }
+    }
+
+    private void recordCommit(long startNanos) {
+        if (statistics != null) {
+            statistics.recordJournalCommit(System.nanoTime() - startNanos);
+        }
+    }
+
+    public void rejected(RideRequest request) {
+        append(JournalFormat.REJECTED, request, 0L, null);
+    }
+
+    @Override
+    public void onAssignment(RideRequest request, TaxiWorker taxi) {
+        if (taxi != null) {
+            append(JournalFormat.ASSIGNED, request, taxi.getId(), null);
+        } else {
+            append(JournalFormat.UNASSIGNED, request, 0L, null);
+        }
+    }
+
+    @Override
+    public void onRideCompleted(TaxiWorker taxi, RideRequest ride,
+                                double distance, double fare, long waitTimeMillis) {
+        append(JournalFormat.COMPLETED, ride, 0L, null);
+    }
+
+    // Номер записи; после close() записи не принимаются (-1). Прием тогда отклоняется, а переход
+    // уже принятого заказа теряется: заказ останется незавершенным и восстановится при следующем запуске.
+    // commit ставится в очередь фиксации под той же блокировкой, что и запись
+    private long append(byte kind, RideRequest request, long taxiId, PendingCommit commit) {
+        lock.lock();
+        try {
+            if (failure != null) {
+                throw new UncheckedIOException("Журнал заказов " + path + " недоступен", failure);
+            }
+            if (closed) {
+                return -1;
+            }
+            // Поток записи сам разбирает буфер: отказ из обработчика acceptedAsync не ждет места
+            boolean writerThread = Thread.currentThread() == writer;
+            while (!writerThread && pending.position() + JournalFormat.MAX_RECORD_SIZE > MAX_BUFFER_SIZE) {
+                drained.awaitUninterruptibly();
+                if (failure != null) {
+                    throw new UncheckedIOException("Журнал заказов " + path + " недоступен", failure);
+                }
+                if (closed) {
+                    return -1;
+                }
+            }
+            boolean wasEmpty = pending.position() == 0;
+            if (pending.remaining() < JournalFormat.MAX_RECORD_SIZE) {
+                int capacity = Math.max(Math.min(pending.capacity() * 2, MAX_BUFFER_SIZE),
+                                        pending.position() + INITIAL_BUFFER_SIZE);
+                ByteBuffer grown = ByteBuffer.allocate(capacity);
+                pending.flip();
+                grown.put(pending);
+                pending = grown;
+            }
+            JournalFormat.writeRecord(pending, crc, kind, request, taxiId);
+            records++;
+            long sequence = ++appended;
+            if (commit != null) {
+                commit.sequence = sequence;
+                commits.add(commit);
+            }
+            if (mode == DurabilityMode.SYNC) {
+                writeInline();
+            } else if (wasEmpty) {
+                hasRecords.signal();
+            }
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Режим SYNC: запись и force() под блокировкой, без пачек
+    private void writeInline() {
+        try {
+            pending.flip();
+            while (pending.hasRemaining()) {
+                bytesWritten += channel.write(pending);
+            }
+            channel.force(false);
+            forces++;
+            pending.clear();
+            durable = appended;
+        } catch (IOException e) {
+            failure = e;
+            throw new UncheckedIOException("Не удалось записать журнал заказов " + path, e);
+        }
+    }
+
+    private void awaitDurable(long sequence) {
+        lock.lock();
+        try {
+            while (durable < sequence && failure == null) {
+                flushed.awaitUninterruptibly();
+            }
+            if (durable < sequence) {
+                throw new UncheckedIOException("Не удалось записать журнал заказов " + path, failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Поток записи: забирает все накопленное пачкой, пишет и фиксирует одним force()
+    private void writeLoop() {
+        while (true) {
+            ByteBuffer batch;
+            long batchEnd;
+            lock.lock();
+            try {
+                while (pending.position() == 0 && !closed) {
+                    hasRecords.awaitUninterruptibly();
+                }
+                if (pending.position() == 0) {
+                    return;
+                }
+                batch = pending;
+                pending = spare;
+                spare = batch;
+                batchEnd = appended;
+                drained.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            // spare трогает только этот поток до следующего обмена
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    bytesWritten += channel.write(batch);
+                }
+                if (mode != DurabilityMode.WRITE) {
+                    channel.force(false);
+                    forces++;
+                }
+                batch.clear();
+            } catch (IOException e) {
+                List<PendingCommit> failed;
+                lock.lock();
+                try {
+                    failure = e;
+                    flushed.signalAll();
+                    drained.signalAll();
+                    failed = new ArrayList<>(commits);
+                    commits.clear();
+                } finally {
+                    lock.unlock();
+                }
+                System.err.println("Ошибка записи журнала заказов " + path + ": " + e.getMessage());
+                for (PendingCommit commit : failed) {
+                    commit.onCommit.accept(false);
+                }
+                return;
+            }
+
+            List<PendingCommit> committed = null;
+            lock.lock();
+            try {
+                durable = batchEnd;
+                flushed.signalAll();
+                while (!commits.isEmpty() && commits.peekFirst().sequence <= batchEnd) {
+                    if (committed == null) {
+                        committed = new ArrayList<>();
+                    }
+                    committed.add(commits.pollFirst());
+                }
+            } finally {
+                lock.unlock();
+            }
+            // Вне блокировки: обработчик ставит заказ в очередь диспетчера
+            if (committed != null) {
+                for (PendingCommit commit : committed) {
+                    recordCommit(commit.startNanos);
+                    commit.onCommit.accept(true);
+                }
+            }
+        }
+    }
+
+    // Дописывает и фиксирует все принятое до вызова и закрывает файл
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            hasRecords.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (writer != null) {
+            boolean interrupted = false;
+            while (writer.isAlive()) {
+                try {
+                    writer.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            if (mode == DurabilityMode.WRITE && failure == null) {
+                channel.force(false);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    public DurabilityMode getMode() {
+        return mode;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    public long getForces() {
+        return forces;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    private static final class PendingCommit {
+        final long startNanos;
+        final Consumer<Boolean> onCommit;
+        // Под lock
+        long sequence;
+
+        PendingCommit(long startNanos, Consumer<Boolean> onCommit) {
+            this.startNanos = startNanos;
+            this.onCommit = onCommit;
+        }
+    }
+}
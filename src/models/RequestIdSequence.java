@@ -0,0 +1,25 @@
+package models;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+
+// Нумерация заказов в пределах одной симуляции.
+// У каждой симуляции своя последовательность, поэтому параллельные прогоны
+// в одной JVM не делят общий счетчик и нумеруют заказы с 1.
+public class RequestIdSequence {
+    private final AtomicLong nextId = new AtomicLong(1);
+    
+    public long nextId() {
+        return nextId.getAndIncrement();
+    }
+    
+    // Следующие номера - после lastId (заказы, восстановленные из журнала, сохраняют свои)
+    public void skipPast(long lastId) {
+        nextId.accumulateAndGet(lastId + 1, Math::max);
+    }
+    
+    // Сколько номеров уже выдано
+    public long issued() {
+        return nextId.get() - 1;
+    }
+}
@@ -1,53 +1,44 @@
 package models;
 
-import java.util.concurrent.atomic.AtomicLong;
-
-
 public class RideRequest {
-    private static final AtomicLong idGenerator = new AtomicLong(1);
+    // Номер служебного заказа, по которому диспетчер и такси завершают работу
+    public static final long POISON_PILL_ID = -1L;
     
     private final long id;
     private final Point pickupLocation;
     private final Point dropoffLocation;
     private final long createdAtMillis;
+    // Момент, когда заказ должен был поступить по графику нагрузки (System.nanoTime).
+    // От него считается задержка с поправкой на coordinated omission.
+    private long intendedAtNanos;
+    // Когда такси забрало клиента (System.currentTimeMillis), 0 - еще не забрало
+    private volatile long pickedUpAtMillis;
     private final TaxiType requestedType;
     private volatile RideStatus status;
     private Long assignedTaxiId; 
     
-    public RideRequest(Point pickupLocation, Point dropoffLocation, TaxiType requestedType) {
-        this.id = idGenerator.getAndIncrement();
+    // id выдает источник заказов (см. RequestIdSequence)
+    public RideRequest(long id, Point pickupLocation, Point dropoffLocation, TaxiType requestedType) {
+        this.id = id;
         this.pickupLocation = pickupLocation;
         this.dropoffLocation = dropoffLocation;
         this.createdAtMillis = System.currentTimeMillis();
+        this.intendedAtNanos = System.nanoTime();
         this.requestedType = requestedType;
         this.status = RideStatus.NEW;
         this.assignedTaxiId = null;
     }
     
-    public RideRequest(Point pickupLocation, Point dropoffLocation) {
-        this(pickupLocation, dropoffLocation, TaxiType.ECONOMY);
+    public RideRequest(long id, Point pickupLocation, Point dropoffLocation) {
+        this(id, pickupLocation, dropoffLocation, TaxiType.ECONOMY);
     }
 
     public static RideRequest createPoisonPill() {
-        // 1. Получаем текущее значение счетчика (перед созданием)
-        long currentCounterValue = idGenerator.get();
-        
-        // 2. Создаем обычный RideRequest (увеличит счетчик на 1)
-        RideRequest pill = new RideRequest(new Point(0, 0), new Point(0, 0), null);
-        
-        try {
-            // 3. Меняем ID на -1
-            java.lang.reflect.Field idField = RideRequest.class.getDeclaredField("id");
-            idField.setAccessible(true);
-            idField.set(pill, -1L);
-            
-            // 4. ВОССТАНАВЛИВАЕМ счетчик на прежнее значение
-            idGenerator.set(currentCounterValue);
-            
-            return pill;
-        } catch (Exception e) {
-            throw new RuntimeException("Не удалось создать poison pill", e);
-        }
+        return new RideRequest(POISON_PILL_ID, new Point(0, 0), new Point(0, 0), null);
+    }
+
+    public boolean isPoisonPill() {
+        return id == POISON_PILL_ID;
     }
 
     // =========== Геттеры ============
@@ -67,6 +58,14 @@ public class RideRequest {
         return createdAtMillis;
     }
 
+    public long getIntendedAtNanos() {
+        return intendedAtNanos;
+    }
+
+    public long getPickedUpAtMillis() {
+        return pickedUpAtMillis;
+    }
+
     public TaxiType getRequestedType() {
         return requestedType;
     }
@@ -88,6 +87,14 @@ public class RideRequest {
         this.assignedTaxiId = assignedTaxiId;
     }
 
+    public void setIntendedAtNanos(long intendedAtNanos) {
+        this.intendedAtNanos = intendedAtNanos;
+    }
+
+    public void setPickedUpAtMillis(long pickedUpAtMillis) {
+        this.pickedUpAtMillis = pickedUpAtMillis;
+    }
+
 
     public double calculateDistance() {
         return pickupLocation.distanceTo(dropoffLocation);
@@ -5,6 +5,7 @@ public enum TaxiStatus {
     IDLE,            // Свободно, ожидает заказ
     TO_PICKUP,       // Едет к месту посадки клиента
     WITH_PASSENGER,  // Везет клиента к месту назначения
+    REPOSITIONING,   // Без заказа едет туда, где ожидается спрос
     MAINTENANCE,     // На техобслуживании (на будущее?)
     OFFLINE;         // Не работает (на будущее?)
 
@@ -14,6 +15,7 @@ public enum TaxiStatus {
             case IDLE: return "Свободен";
             case TO_PICKUP: return "Едет к клиенту";
             case WITH_PASSENGER: return "Везет клиента";
+            case REPOSITIONING: return "Едет к спросу";
             case MAINTENANCE: return "На обслуживании";
             case OFFLINE: return "Неактивен";
             default: return name();
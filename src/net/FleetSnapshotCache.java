@@ -0,0 +1,153 @@
+package net;
+
+import models.TaxiSnapshot;
+import models.TaxiStatus;
+import services.TaxiWorker;
+import util.JsonWriter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+
+// Снимок парка для чтения через API, обновляемый фоновым потоком раз в refreshMillis.
+//
+// Запросы читают только готовый неизменяемый снимок по volatile-ссылке: сколько бы их ни было,
+// к такси обращается один поток обновления, а ответ со всем парком собран заранее в байты JSON
+// и отдается без сериализации. Цена - данные могут отставать на период обновления.
+// Подписчики (поток парка FleetStreamServer) получают каждый новый снимок в потоке обновления.
+public class FleetSnapshotCache {
+
+    private static final TaxiStatus[] STATUSES = TaxiStatus.values();
+
+    private final List<TaxiWorker> taxis;
+    private final long refreshMillis;
+    private final ScheduledExecutorService refresher;
+    // Задаются до start()
+    private final List<Consumer<FleetSnapshot>> listeners = new ArrayList<>();
+    private volatile FleetSnapshot current;
+
+    public FleetSnapshotCache(List<TaxiWorker> taxis, long refreshMillis) {
+        if (refreshMillis <= 0) {
+            throw new IllegalArgumentException("Период обновления снимка парка должен быть положительным");
+        }
+        this.taxis = taxis;
+        this.refreshMillis = refreshMillis;
+        this.refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "fleet-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.current = take();
+    }
+
+    public void addListener(Consumer<FleetSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    public void start() {
+        refresher.scheduleAtFixedRate(this::refresh, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        refresher.shutdownNow();
+    }
+
+    public FleetSnapshot get() {
+        return current;
+    }
+
+    private void refresh() {
+        FleetSnapshot snapshot = take();
+        current = snapshot;
+        for (Consumer<FleetSnapshot> listener : listeners) {
+            listener.accept(snapshot);
+        }
+    }
+
+    private FleetSnapshot take() {
+        TaxiSnapshot[] snapshots = new TaxiSnapshot[taxis.size()];
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = taxis.get(i).snapshot();
+        }
+        Arrays.sort(snapshots, Comparator.comparingLong(TaxiSnapshot::getTaxiId));
+        return new FleetSnapshot(System.currentTimeMillis(), snapshots);
+    }
+
+    static void writeTaxi(JsonWriter json, TaxiSnapshot taxi) {
+        json.beginObject()
+            .name("id").value(taxi.getTaxiId())
+            .name("type").value(taxi.getType().name())
+            .name("status").value(taxi.getStatus().name())
+            .name("x").value(taxi.getCurrentLocation().getX())
+            .name("y").value(taxi.getCurrentLocation().getY())
+            .name("completedRides").value(taxi.getCompletedRides())
+            .name("distance").value(taxi.getTotalDistance())
+            .name("revenue").value(taxi.getTotalRevenue())
+            .endObject();
+    }
+
+
+    // Неизменяемый снимок: такси по возрастанию id и готовый JSON всего парка
+    public static final class FleetSnapshot {
+        private final long takenAtMillis;
+        private final TaxiSnapshot[] taxis;
+        private final long[] ids;
+        private final byte[] fleetJson;
+
+        FleetSnapshot(long takenAtMillis, TaxiSnapshot[] taxis) {
+            this.takenAtMillis = takenAtMillis;
+            this.taxis = taxis;
+            this.ids = new long[taxis.length];
+            int[] byStatus = new int[STATUSES.length];
+            for (int i = 0; i < taxis.length; i++) {
+                ids[i] = taxis[i].getTaxiId();
+                byStatus[taxis[i].getStatus().ordinal()]++;
+            }
+
+            JsonWriter json = new JsonWriter(new StringBuilder(128 * taxis.length + 256), false);
+            json.beginObject()
+                .name("takenAtMillis").value(takenAtMillis)
+                .name("byStatus").beginObject();
+            for (TaxiStatus status : STATUSES) {
+                json.name(status.name()).value(byStatus[status.ordinal()]);
+            }
+            json.endObject().name("taxis").beginArray();
+            for (TaxiSnapshot taxi : taxis) {
+                writeTaxi(json, taxi);
+            }
+            json.endArray().endObject();
+            this.fleetJson = json.toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        public long getTakenAtMillis() {
+            return takenAtMillis;
+        }
+
+        public int size() {
+            return taxis.length;
+        }
+
+        // Такси по порядку id; порядок одинаков во всех снимках одного парка
+        public TaxiSnapshot get(int index) {
+            return taxis[index];
+        }
+
+        // null - такси с таким id нет
+        public TaxiSnapshot find(long taxiId) {
+            int i = Arrays.binarySearch(ids, taxiId);
+            return i >= 0 ? taxis[i] : null;
+        }
+
+        // Общий массив, не изменять
+        byte[] getFleetJson() {
+            return fleetJson;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package net;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Locale;
+
+
+// Подписчик потока позиций парка: восстанавливает состояние парка из снимка и дельт
+// и печатает, сколько байт ушло на поток и сколько ушло бы на полный снимок каждый тик.
+// С паузой после каждого кадра изображает медленного потребителя: сервер должен пропускать
+// тики (пропуски в номерах), а не копить кадры.
+public class FleetStreamClient {
+
+    private static final long CONNECT_TIMEOUT_MILLIS = 10_000L;
+    // Маленький приемный буфер медленного клиента, чтобы ядро не скрывало отставание
+    private static final int SLOW_RECEIVE_BUFFER = 4096;
+
+    private final InetSocketAddress address;
+    private final long durationMillis;
+    private final long pauseMillis;
+
+    // Восстановленный парк: id по возрастанию и квантованные координаты и состояния
+    private long[] ids = new long[0];
+    private int[] xs = new int[0];
+    private int[] ys = new int[0];
+    private byte[] states = new byte[0];
+
+    private long frames;
+    private long snapshotBytes;
+    private long deltaFrames;
+    private long deltaBytes;
+    private long deltaEntries;
+    private long skippedTicks;
+    private long lastTick = -1;
+
+    public FleetStreamClient(InetSocketAddress address, long durationMillis, long pauseMillis) {
+        this.address = address;
+        this.durationMillis = durationMillis;
+        this.pauseMillis = pauseMillis;
+    }
+
+    public void run() throws IOException, InterruptedException {
+        try (SocketChannel channel = connect()) {
+            ByteBuffer header = ByteBuffer.allocate(FleetStreamCodec.HEADER_SIZE);
+            ByteBuffer body = ByteBuffer.allocate(64 * 1024);
+            long end = System.currentTimeMillis() + durationMillis;
+            while (System.currentTimeMillis() < end) {
+                header.clear();
+                readFully(channel, header);
+                int length = header.getInt(0);
+                if (body.capacity() < length) {
+                    body = ByteBuffer.allocate(length);
+                }
+                body.clear().limit(length);
+                readFully(channel, body);
+                body.flip();
+                apply(body, FleetStreamCodec.HEADER_SIZE + length);
+                if (pauseMillis > 0) {
+                    Thread.sleep(pauseMillis);
+                }
+            }
+        }
+        printSummary();
+    }
+
+    private SocketChannel connect() throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+        while (true) {
+            SocketChannel channel = SocketChannel.open();
+            try {
+                if (pauseMillis > 0) {
+                    channel.setOption(StandardSocketOptions.SO_RCVBUF, SLOW_RECEIVE_BUFFER);
+                }
+                channel.connect(address);
+                return channel;
+            } catch (ConnectException e) {
+                channel.close();
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private void apply(ByteBuffer body, int frameBytes) throws IOException {
+        byte kind = body.get();
+        long tick = FleetStreamCodec.getVarint(body);
+        FleetStreamCodec.getVarint(body); // момент снимка
+        int count = (int) FleetStreamCodec.getVarint(body);
+        if (lastTick >= 0 && tick > lastTick + 1) {
+            skippedTicks += tick - lastTick - 1;
+        }
+        lastTick = tick;
+        frames++;
+
+        long id = 0;
+        if (kind == FleetStreamCodec.SNAPSHOT) {
+            snapshotBytes = frameBytes;
+            ids = new long[count];
+            xs = new int[count];
+            ys = new int[count];
+            states = new byte[count];
+            for (int i = 0; i < count; i++) {
+                id += FleetStreamCodec.getVarint(body);
+                ids[i] = id;
+                states[i] = body.get();
+                xs[i] = FleetStreamCodec.getSignedVarint(body);
+                ys[i] = FleetStreamCodec.getSignedVarint(body);
+            }
+        } else if (kind == FleetStreamCodec.DELTA) {
+            deltaFrames++;
+            deltaBytes += frameBytes;
+            deltaEntries += count;
+            for (int i = 0; i < count; i++) {
+                id += FleetStreamCodec.getVarint(body);
+                int index = Arrays.binarySearch(ids, id);
+                if (index < 0) {
+                    throw new IOException("Дельта для такси " + id + ", которого не было в снимке");
+                }
+                states[index] = body.get();
+                xs[index] += FleetStreamCodec.getSignedVarint(body);
+                ys[index] += FleetStreamCodec.getSignedVarint(body);
+            }
+        } else {
+            throw new IOException("Неизвестный вид кадра " + kind);
+        }
+        if (body.hasRemaining()) {
+            throw new IOException("В кадре остались лишние байты: " + body.remaining());
+        }
+    }
+
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Сервер закрыл поток");
+            }
+        }
+    }
+
+    private void printSummary() {
+        long ticks = deltaFrames + skippedTicks;
+        System.out.printf(Locale.US, "Такси: %d, кадров: %d, снимок: %d байт%n", ids.length, frames, snapshotBytes);
+        if (deltaFrames > 0) {
+            System.out.printf(Locale.US, "Дельты: %d кадров, в среднем %.1f байт и %.1f такси на кадр%n",
+                              deltaFrames, (double) deltaBytes / deltaFrames, (double) deltaEntries / deltaFrames);
+            System.out.printf(Locale.US, "Всего принято %d байт против %d при полном снимке каждый тик (в %.1f раз меньше)%n",
+                              snapshotBytes + deltaBytes, snapshotBytes * (ticks + 1),
+                              (double) snapshotBytes * (ticks + 1) / (snapshotBytes + deltaBytes));
+        }
+        System.out.printf("Пропущено тиков (объединены в следующую дельту): %d%n", skippedTicks);
+        int moving = 0;
+        for (byte state : states) {
+            if (FleetStreamCodec.statusOrdinal(state) != 0) {
+                moving++;
+            }
+        }
+        System.out.printf(Locale.US, "Сейчас не свободно такси: %d из %d%n", moving, ids.length);
+    }
+
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Использование: java net.FleetStreamClient <порт> [секунд] [пауза после кадра, мс]");
+            System.exit(1);
+        }
+        int port = Integer.parseInt(args[0]);
+        long seconds = args.length >= 2 ? Long.parseLong(args[1]) : 10;
+        long pauseMillis = args.length >= 3 ? Long.parseLong(args[2]) : 0;
+
+        new FleetStreamClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), port),
+                              seconds * 1000, pauseMillis).run();
+    }
+}
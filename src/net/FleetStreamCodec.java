@@ -0,0 +1,88 @@
+package net;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+
+// Компактная кодировка потока позиций парка (FleetStreamServer, FleetStreamClient).
+//
+// Кадр: int длина тела, затем тело:
+//   byte вид (SNAPSHOT или DELTA), varint номер тика, varint момент снимка (мс), varint число записей,
+//   записи по возрастанию id:
+//     varint разница id с предыдущей записью кадра (у первой - сам id),
+//     byte состояние: порядковый номер TaxiStatus в младших 4 битах, TaxiType - в старших,
+//     zigzag-varint x и y в квантах QUANTUM.
+// В SNAPSHOT координаты абсолютные и перечислен весь парк, в DELTA - только изменившиеся такси,
+// а координаты - сдвиг от последних отправленных этому подписчику. Стоящее такси в DELTA
+// не попадает вовсе, сдвиг на сотню квантов занимает 2 байта, запись - обычно 4-6 байт.
+// Номера тиков идут подряд; пропуск означает, что подписчик не успевал и изменения за
+// пропущенные тики пришли одной дельтой.
+public final class FleetStreamCodec {
+
+    public static final int HEADER_SIZE = 4;
+
+    public static final byte SNAPSHOT = 1;
+    public static final byte DELTA = 2;
+
+    // Шаг квантования координат: 0.01 единицы города (10 м при городе в километрах)
+    public static final double QUANTUM = 0.01;
+
+    // Наибольший размер записи: id до 10 байт, состояние, две координаты до 5 байт
+    public static final int MAX_ENTRY_SIZE = 10 + 1 + 5 + 5;
+    // Наибольший размер кадра без записей
+    public static final int MAX_FRAME_OVERHEAD = HEADER_SIZE + 1 + 3 * 10;
+
+    private FleetStreamCodec() {
+    }
+
+    public static int quantise(double coordinate) {
+        return (int) Math.round(coordinate / QUANTUM);
+    }
+
+    public static double dequantise(int quanta) {
+        return quanta * QUANTUM;
+    }
+
+    public static byte state(int statusOrdinal, int typeOrdinal) {
+        return (byte) (statusOrdinal | typeOrdinal << 4);
+    }
+
+    public static int statusOrdinal(byte state) {
+        return state & 0x0F;
+    }
+
+    public static int typeOrdinal(byte state) {
+        return (state >> 4) & 0x0F;
+    }
+
+    // Беззнаковый varint: по 7 бит, старший бит байта - «дальше есть еще»
+    public static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public static long getVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new BufferUnderflowException();
+    }
+
+    // zigzag: малые по модулю числа любого знака - в короткий varint
+    public static void putSignedVarint(ByteBuffer buffer, int value) {
+        putVarint(buffer, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+
+    public static int getSignedVarint(ByteBuffer buffer) {
+        int raw = (int) getVarint(buffer);
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+}
@@ -0,0 +1,369 @@
+package net;
+
+import models.TaxiSnapshot;
+import util.ConsoleLog;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+
+// Поток позиций парка по TCP (петлевой интерфейс) в кодировке FleetStreamCodec:
+// подписчик получает полный снимок, затем на каждом тике - только изменившиеся такси.
+// Тики - обновления FleetSnapshotCache; поток ничего не читает у такси сам.
+//
+// Один поток на Selector. Координаты и состояния нового снимка квантуются один раз на тик,
+// а у каждого подписчика хранится то, что ему отправлено последним: дельта считается
+// от этого состояния. Медленного подписчика не догоняют очередью кадров: пока предыдущий
+// кадр не ушел в сокет, тики для него пропускаются, а следующая дельта от последнего
+// отправленного состояния сразу включает все пропущенные изменения (conflation).
+// Память на подписчика - один буфер на полный снимок, сколько бы он ни отставал.
+public class FleetStreamServer implements Runnable {
+
+    // Небольшой буфер отправки: иначе ядро копит устаревшие кадры медленного подписчика,
+    // сервер не видит отставания и не пропускает тики
+    private static final int SEND_BUFFER = 8 * 1024;
+
+    private final int port;
+    private final FleetSnapshotCache fleet;
+    private volatile boolean running = true;
+    private volatile Selector selector;
+    private ServerSocketChannel server;
+    private Thread thread;
+
+    // Последний снимок от FleetSnapshotCache; поток ввода-вывода берет только самый свежий
+    private volatile FleetSnapshotCache.FleetSnapshot latest;
+    private FleetSnapshotCache.FleetSnapshot encoded;
+    private long tick = 0;
+    // Квантованный снимок encoded, общий для всех подписчиков
+    private long[] ids = new long[0];
+    private int[] xs = new int[0];
+    private int[] ys = new int[0];
+    private byte[] states = new byte[0];
+
+    private final List<Subscriber> subscribers = new ArrayList<>();
+    // Пишет только поток ввода-вывода
+    private volatile long framesSent = 0;
+    private volatile long bytesSent = 0;
+    private volatile long conflatedTicks = 0;
+
+    public FleetStreamServer(int port, FleetSnapshotCache fleet) {
+        this.port = port;
+        this.fleet = fleet;
+        fleet.addListener(snapshot -> {
+            latest = snapshot;
+            Selector current = selector;
+            if (current != null) {
+                current.wakeup();
+            }
+        });
+    }
+
+    // Порт занимается сразу, чтобы ошибка дошла до запускающего
+    public void start() throws IOException {
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        try {
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+        thread = new Thread(this, "fleet-stream");
+        thread.setDaemon(true);
+        thread.start();
+        ConsoleLog.println("Поток позиций парка запущен: " + server.getLocalAddress());
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+                FleetSnapshotCache.FleetSnapshot snapshot = latest;
+                if (snapshot != null && snapshot != encoded) {
+                    publish(snapshot);
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                System.err.println("Ошибка потока позиций парка: " + e.getMessage());
+            }
+        } finally {
+            for (Subscriber subscriber : new ArrayList<>(subscribers)) {
+                close(subscriber);
+            }
+            try {
+                server.close();
+                selector.close();
+            } catch (IOException e) {
+                // Сервер уже не нужен
+            }
+            ConsoleLog.println("Поток позиций парка остановлен. Кадров: " + framesSent + ", байт: " + bytesSent +
+                               ", пропущено тиков у медленных подписчиков: " + conflatedTicks);
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            try {
+                accept();
+            } catch (IOException e) {
+                System.err.println("Не удалось принять подписчика потока парка: " + e.getMessage());
+            }
+            return;
+        }
+        Subscriber subscriber = (Subscriber) key.attachment();
+        try {
+            if (key.isReadable() && subscriber.channel.read(subscriber.scratch.clear()) < 0) {
+                close(subscriber);
+                return;
+            }
+            if (key.isValid() && key.isWritable()) {
+                write(subscriber);
+            }
+        } catch (IOException e) {
+            close(subscriber);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.setOption(StandardSocketOptions.SO_SNDBUF, SEND_BUFFER);
+        Subscriber subscriber = new Subscriber(channel);
+        subscriber.key = channel.register(selector, SelectionKey.OP_READ, subscriber);
+        subscribers.add(subscriber);
+        ConsoleLog.println("Подписчик потока парка подключен: " + channel.getRemoteAddress());
+
+        // Полный снимок - сразу, из того, что уже квантовано (или из текущего кэша)
+        if (encoded == null) {
+            publish(fleet.get());
+        } else {
+            send(subscriber);
+        }
+    }
+
+    // Новый тик: квантуем снимок и отправляем каждому, кто успел принять предыдущий кадр
+    private void publish(FleetSnapshotCache.FleetSnapshot snapshot) {
+        int n = snapshot.size();
+        if (ids.length != n) {
+            ids = new long[n];
+            xs = new int[n];
+            ys = new int[n];
+            states = new byte[n];
+        }
+        for (int i = 0; i < n; i++) {
+            TaxiSnapshot taxi = snapshot.get(i);
+            ids[i] = taxi.getTaxiId();
+            xs[i] = FleetStreamCodec.quantise(taxi.getCurrentLocation().getX());
+            ys[i] = FleetStreamCodec.quantise(taxi.getCurrentLocation().getY());
+            states[i] = FleetStreamCodec.state(taxi.getStatus().ordinal(), taxi.getType().ordinal());
+        }
+        encoded = snapshot;
+        tick++;
+
+        for (Subscriber subscriber : new ArrayList<>(subscribers)) {
+            if (subscriber.out.hasRemaining()) {
+                subscriber.conflated++;
+                conflatedTicks++;
+                continue;
+            }
+            send(subscriber);
+        }
+    }
+
+    private void send(Subscriber subscriber) {
+        if (subscriber.sentX == null || subscriber.sentX.length != ids.length) {
+            encodeSnapshot(subscriber);
+        } else {
+            encodeDelta(subscriber);
+        }
+        framesSent++;
+        try {
+            write(subscriber);
+        } catch (IOException e) {
+            close(subscriber);
+        }
+    }
+
+    private void encodeSnapshot(Subscriber subscriber) {
+        int n = ids.length;
+        subscriber.sentX = xs.clone();
+        subscriber.sentY = ys.clone();
+        subscriber.sentStates = states.clone();
+        ByteBuffer out = subscriber.prepare(n);
+        beginFrame(out, FleetStreamCodec.SNAPSHOT, n);
+        long previousId = 0;
+        for (int i = 0; i < n; i++) {
+            FleetStreamCodec.putVarint(out, ids[i] - previousId);
+            previousId = ids[i];
+            out.put(states[i]);
+            FleetStreamCodec.putSignedVarint(out, xs[i]);
+            FleetStreamCodec.putSignedVarint(out, ys[i]);
+        }
+        endFrame(out);
+    }
+
+    private void encodeDelta(Subscriber subscriber) {
+        int n = ids.length;
+        int[] sentX = subscriber.sentX;
+        int[] sentY = subscriber.sentY;
+        byte[] sentStates = subscriber.sentStates;
+        ByteBuffer out = subscriber.prepare(n);
+        // Число записей станет известно в конце: оставляем под него 5 байт (varint до 2^35)
+        int countPosition = beginFrame(out, FleetStreamCodec.DELTA, -1);
+        int count = 0;
+        long previousId = 0;
+        for (int i = 0; i < n; i++) {
+            if (xs[i] == sentX[i] && ys[i] == sentY[i] && states[i] == sentStates[i]) {
+                continue;
+            }
+            FleetStreamCodec.putVarint(out, ids[i] - previousId);
+            previousId = ids[i];
+            out.put(states[i]);
+            FleetStreamCodec.putSignedVarint(out, xs[i] - sentX[i]);
+            FleetStreamCodec.putSignedVarint(out, ys[i] - sentY[i]);
+            sentX[i] = xs[i];
+            sentY[i] = ys[i];
+            sentStates[i] = states[i];
+            count++;
+        }
+        putPaddedVarint(out, countPosition, count);
+        endFrame(out);
+    }
+
+    // Заголовок кадра; count < 0 - место под число записей, возвращается его позиция
+    private int beginFrame(ByteBuffer out, byte kind, int count) {
+        out.putInt(0);
+        out.put(kind);
+        FleetStreamCodec.putVarint(out, tick);
+        FleetStreamCodec.putVarint(out, encoded.getTakenAtMillis());
+        int countPosition = out.position();
+        if (count >= 0) {
+            FleetStreamCodec.putVarint(out, count);
+        } else {
+            out.position(countPosition + 5);
+        }
+        return countPosition;
+    }
+
+    private void endFrame(ByteBuffer out) {
+        out.putInt(0, out.position() - FleetStreamCodec.HEADER_SIZE);
+        out.flip();
+    }
+
+    // varint ровно в 5 байт: лишние группы - нули с битом продолжения, декодер их принимает
+    private static void putPaddedVarint(ByteBuffer out, int position, int value) {
+        for (int i = 0; i < 4; i++) {
+            out.put(position + i, (byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put(position + 4, (byte) value);
+    }
+
+    private void write(Subscriber subscriber) throws IOException {
+        ByteBuffer out = subscriber.out;
+        bytesSent += subscriber.channel.write(out);
+        int ops = out.hasRemaining() ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (subscriber.key.interestOps() != ops) {
+            subscriber.key.interestOps(ops);
+        }
+    }
+
+    private void close(Subscriber subscriber) {
+        if (!subscribers.remove(subscriber)) {
+            return;
+        }
+        subscriber.key.cancel();
+        try {
+            subscriber.channel.close();
+        } catch (IOException e) {
+            // Подписчик уже не нужен
+        }
+        ConsoleLog.println("Подписчик потока парка отключен, пропущено тиков: " + subscriber.conflated);
+    }
+
+    public void stop() {
+        running = false;
+        Selector current = selector;
+        if (current != null) {
+            current.wakeup();
+        }
+        Thread worker = thread;
+        if (worker != null) {
+            try {
+                worker.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public long getFramesSent() {
+        return framesSent;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getConflatedTicks() {
+        return conflatedTicks;
+    }
+
+
+    private static final class Subscriber {
+        final SocketChannel channel;
+        // Для чтения признака закрытия: подписчик ничего не присылает
+        final ByteBuffer scratch = ByteBuffer.allocate(256);
+        // Кадр в режиме чтения: remaining - еще не ушло в сокет
+        ByteBuffer out = ByteBuffer.allocateDirect(0);
+        SelectionKey key;
+        // Последнее отправленное подписчику состояние парка, от него считаются дельты
+        int[] sentX;
+        int[] sentY;
+        byte[] sentStates;
+        long conflated;
+
+        Subscriber(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        // Буфер под кадр из n записей; растет только при росте парка
+        ByteBuffer prepare(int n) {
+            int capacity = FleetStreamCodec.MAX_FRAME_OVERHEAD + n * FleetStreamCodec.MAX_ENTRY_SIZE;
+            if (out.capacity() < capacity) {
+                out = ByteBuffer.allocateDirect(capacity);
+            }
+            out.clear();
+            return out;
+        }
+    }
+}
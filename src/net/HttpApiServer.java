@@ -0,0 +1,473 @@
+package net;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import history.CompletedRide;
+import history.RideHistory;
+import models.Point;
+import models.RequestIdSequence;
+import models.RideRequest;
+import models.TaxiSnapshot;
+import models.TaxiType;
+import services.AssignmentListener;
+import services.Dispatcher;
+import services.TaxiWorker;
+import stats.LatencyHistogram;
+import stats.StatisticsCollector;
+import util.ConsoleLog;
+import util.JsonWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+// HTTP API работающей симуляции на встроенном HttpServer JDK (только петлевой интерфейс):
+//   POST /rides         px, py, dx, dy[, type] (форма в теле или параметры запроса) -
+//                       заказ ставится в очередь диспетчера, ответ - после назначения, с id такси
+//   GET  /taxis         весь парк из снимка FleetSnapshotCache
+//   GET  /taxis/{id}    одно такси из того же снимка
+//   GET  /stats         текущая статистика симуляции
+//   GET  /history/taxis/{id}   поездки такси за [from, to) (мс эпохи; по умолчанию - вся история)
+//   GET  /history/revenue      выручка по типам такси за [from, to) интервалами bucket мс
+//                              (по умолчанию час)[, только type] - если включена история поездок
+// Ответы - JSON через JsonWriter, без рефлексии.
+//
+// POST ждет решения диспетчера, поэтому обработчики блокируются: на Java 21+ запросы
+// выполняются в виртуальных потоках (фабрика ищется рефлексией, сборка остается на Java 17),
+// иначе - в пуле из FALLBACK_THREADS потоков. Чтение парка не трогает TaxiWorker: снимок
+// обновляется в фоне и отдается готовыми байтами.
+public class HttpApiServer implements AssignmentListener {
+
+    private static final int FALLBACK_THREADS = 64;
+    private static final int BACKLOG = 1024;
+    // Сколько ждать назначения заказа, прежде чем ответить 504
+    private static final long ASSIGN_TIMEOUT_MILLIS = 5000L;
+    private static final String JSON_TYPE = "application/json; charset=utf-8";
+
+    private final int port;
+    private final BlockingQueue<RideRequest> requestQueue;
+    private final RequestIdSequence ids;
+    private final FleetSnapshotCache fleet;
+    private final Dispatcher dispatcher;
+    private final StatisticsCollector statisticsCollector;
+
+    // Заказы из POST /rides, ждущие итога назначения, по id заказа
+    private final Map<Long, CompletableFuture<TaxiWorker>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong acceptedRides = new AtomicLong();
+    private final AtomicLong rejectedRides = new AtomicLong();
+
+    // История поездок (null - выключена); задается до start()
+    private RideHistory history;
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public HttpApiServer(int port, BlockingQueue<RideRequest> requestQueue, RequestIdSequence ids,
+                         FleetSnapshotCache fleet, Dispatcher dispatcher, StatisticsCollector statisticsCollector) {
+        this.port = port;
+        this.requestQueue = requestQueue;
+        this.ids = ids;
+        this.fleet = fleet;
+        this.dispatcher = dispatcher;
+        this.statisticsCollector = statisticsCollector;
+    }
+
+    public void setHistory(RideHistory history) {
+        this.history = history;
+    }
+
+    public void start() throws IOException {
+        // Заголовки и тело ответа HttpServer пишет отдельно; с алгоритмом Нейгла второй пакет
+        // ждет подтверждения первого (~40 мс отложенного ACK на каждый ответ). Свойство читается
+        // при первом создании сервера, заданное явно - не переопределяем
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), BACKLOG);
+        server.createContext("/rides", this::handleRides);
+        server.createContext("/taxis", this::handleTaxis);
+        server.createContext("/stats", this::handleStats);
+        server.createContext("/history", this::handleHistory);
+        executor = createExecutor();
+        server.setExecutor(executor);
+        server.start();
+        ConsoleLog.println("HTTP API запущен: http://" + server.getAddress().getHostString() + ":" +
+                           server.getAddress().getPort());
+    }
+
+    // Новые запросы больше не принимаются; ждущие назначения получают 503
+    public void stop() {
+        HttpServer running = server;
+        if (running == null) {
+            return;
+        }
+        server = null;
+        running.stop(0);
+        for (CompletableFuture<TaxiWorker> future : pending.values()) {
+            future.cancel(false);
+        }
+        pending.clear();
+        executor.shutdownNow();
+        ConsoleLog.println("HTTP API остановлен. Заказов принято: " + acceptedRides.get() +
+                           ", отклонено: " + rejectedRides.get());
+    }
+
+    @Override
+    public void onAssignment(RideRequest request, TaxiWorker taxi) {
+        CompletableFuture<TaxiWorker> future = pending.remove(request.getId());
+        if (future != null) {
+            future.complete(taxi);
+        }
+    }
+
+    // ============ Обработчики ============
+
+    private void handleRides(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Заказ создается методом POST");
+                return;
+            }
+            String body = readBody(exchange);
+            RideRequest request;
+            try {
+                // Неверная %-последовательность в форме - тоже 400
+                Map<String, String> params = parseForm(exchange.getRequestURI().getRawQuery());
+                params.putAll(parseForm(body));
+                request = new RideRequest(ids.nextId(),
+                                          new Point(requireDouble(params, "px"), requireDouble(params, "py")),
+                                          new Point(requireDouble(params, "dx"), requireDouble(params, "dy")),
+                                          parseType(params.get("type")));
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            }
+
+            // Регистрируем до offer(): диспетчер может назначить заказ раньше, чем offer() вернется
+            CompletableFuture<TaxiWorker> future = new CompletableFuture<>();
+            pending.put(request.getId(), future);
+            if (!requestQueue.offer(request)) {
+                pending.remove(request.getId());
+                rejectedRides.incrementAndGet();
+                sendRide(exchange, 503, request, "rejected", null);
+                return;
+            }
+            acceptedRides.incrementAndGet();
+
+            try {
+                TaxiWorker taxi = future.get(ASSIGN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                sendRide(exchange, 200, request, taxi != null ? "assigned" : "unassigned", taxi);
+            } catch (TimeoutException e) {
+                pending.remove(request.getId());
+                sendRide(exchange, 504, request, "pending", null);
+            } catch (InterruptedException | ExecutionException | CancellationException e) {
+                // API останавливается вместе с симуляцией
+                pending.remove(request.getId());
+                sendRide(exchange, 503, request, "cancelled", null);
+            }
+        }
+    }
+
+    private void handleTaxis(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Парк читается методом GET");
+                return;
+            }
+            FleetSnapshotCache.FleetSnapshot snapshot = fleet.get();
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/taxis") || path.equals("/taxis/")) {
+                send(exchange, 200, snapshot.getFleetJson());
+                return;
+            }
+
+            long taxiId;
+            try {
+                taxiId = Long.parseLong(path.substring("/taxis/".length()));
+            } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                sendError(exchange, 404, "Неизвестный путь " + path);
+                return;
+            }
+            TaxiSnapshot taxi = snapshot.find(taxiId);
+            if (taxi == null) {
+                sendError(exchange, 404, "Такси " + taxiId + " нет");
+                return;
+            }
+            JsonWriter json = new JsonWriter(new StringBuilder(192), false);
+            json.beginObject().name("takenAtMillis").value(snapshot.getTakenAtMillis()).name("taxi");
+            FleetSnapshotCache.writeTaxi(json, taxi);
+            json.endObject();
+            send(exchange, 200, json);
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "Статистика читается методом GET");
+                return;
+            }
+            StatisticsCollector stats = statisticsCollector;
+            LatencyHistogram dispatchLatency = stats.getDispatchLatencyHistogram();
+            LatencyHistogram pickupWait = stats.getPickupWaitHistogram();
+            JsonWriter json = new JsonWriter(new StringBuilder(512), false);
+            json.beginObject()
+                .name("taxis").value(fleet.get().size())
+                .name("queuedRequests").value(requestQueue.size())
+                .name("assignedRides").value(dispatcher.getTotalAssignedRides())
+                .name("failedAssignments").value(dispatcher.getFailedAssignments())
+                .name("rejectedRequests").value(stats.getRejectedRequests())
+                .name("completedRides").value(stats.getTotalCompletedRides())
+                .name("totalRevenue").value(stats.getTotalRevenue())
+                .name("averageWaitSeconds").value(stats.getAverageWaitTimeSeconds())
+                .name("pickupWaitMillis").beginObject()
+                    .name("p50").value(pickupWait.getPercentile(50))
+                    .name("p99").value(pickupWait.getPercentile(99))
+                .endObject()
+                .name("dispatchLatencyMicros").beginObject()
+                    .name("p50").value(dispatchLatency.getPercentile(50))
+                    .name("p99").value(dispatchLatency.getPercentile(99))
+                .endObject()
+                .name("api").beginObject()
+                    .name("acceptedRides").value(acceptedRides.get())
+                    .name("rejectedRides").value(rejectedRides.get())
+                .endObject()
+                .endObject();
+            send(exchange, 200, json);
+        }
+    }
+
+    private void handleHistory(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                sendError(exchange, 405, "История читается методом GET");
+                return;
+            }
+            if (history == null) {
+                sendError(exchange, 404, "История поездок выключена (--history)");
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            try {
+                Map<String, String> params = parseForm(exchange.getRequestURI().getRawQuery());
+                if (path.equals("/history/revenue")) {
+                    sendRevenue(exchange, params);
+                    return;
+                }
+                long taxiId;
+                try {
+                    taxiId = Long.parseLong(path.substring("/history/taxis/".length()));
+                } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                    sendError(exchange, 404, "Неизвестный путь " + path);
+                    return;
+                }
+                sendTaxiHistory(exchange, taxiId, optionalLong(params, "from", Long.MIN_VALUE),
+                                optionalLong(params, "to", Long.MAX_VALUE));
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+            }
+        }
+    }
+
+    private void sendTaxiHistory(HttpExchange exchange, long taxiId, long from, long to) throws IOException {
+        RideHistory.TaxiHistory result = history.taxiHistory(taxiId, from, to);
+        JsonWriter json = new JsonWriter(new StringBuilder(256 + result.getRides().size() * 160), false);
+        json.beginObject()
+            .name("taxiId").value(taxiId)
+            .name("rides").value(result.getRides().size())
+            .name("distance").value(result.getTotalDistance())
+            .name("revenue").value(result.getTotalFare());
+        writeQueryStats(json, result);
+        json.name("history").beginArray();
+        for (CompletedRide ride : result.getRides()) {
+            json.beginObject()
+                .name("requestId").value(ride.getRequestId())
+                .name("completedAtMillis").value(ride.getCompletedAtMillis())
+                .name("type").value(ride.getTaxiType().name())
+                .name("distance").value(ride.getDistance())
+                .name("fare").value(ride.getFare())
+                .name("waitMillis").value(ride.getWaitMillis())
+                .name("rideMillis").value(ride.getRideMillis())
+                .endObject();
+        }
+        json.endArray().endObject();
+        send(exchange, 200, json);
+    }
+
+    // Без from/to - от часа первой поездки до последней
+    private void sendRevenue(HttpExchange exchange, Map<String, String> params) throws IOException {
+        long bucket = optionalLong(params, "bucket", 3_600_000L);
+        if (bucket <= 0) {
+            throw new IllegalArgumentException("Параметр bucket должен быть положительным: " + bucket);
+        }
+        TaxiType type = parseType(params.get("type"));
+        long firstMillis = history.getMinTime();
+        long lastMillis = history.getMaxTime();
+        if (firstMillis > lastMillis) {
+            firstMillis = lastMillis = System.currentTimeMillis();
+        }
+        long from = optionalLong(params, "from", Math.floorDiv(firstMillis, bucket) * bucket);
+        long to = optionalLong(params, "to", lastMillis + 1);
+        RideHistory.RevenueReport report = history.revenue(from, to, bucket, type);
+
+        JsonWriter json = new JsonWriter(new StringBuilder(256 + report.getBuckets() * 192), false);
+        json.beginObject()
+            .name("from").value(from)
+            .name("to").value(to)
+            .name("bucketMillis").value(bucket)
+            .name("rides").value(report.getTotalRides())
+            .name("revenue").value(report.getTotalRevenue());
+        writeQueryStats(json, report);
+        json.name("buckets").beginArray();
+        for (int i = 0; i < report.getBuckets(); i++) {
+            json.beginObject().name("startMillis").value(report.getBucketStart(i));
+            for (TaxiType taxiType : TaxiType.values()) {
+                if (type == null || type == taxiType) {
+                    json.name(taxiType.name()).beginObject()
+                        .name("rides").value(report.getRides(taxiType, i))
+                        .name("revenue").value(report.getRevenue(taxiType, i))
+                        .endObject();
+                }
+            }
+            json.endObject();
+        }
+        json.endArray().endObject();
+        send(exchange, 200, json);
+    }
+
+    private static void writeQueryStats(JsonWriter json, RideHistory.QueryResult result) {
+        json.name("segmentsScanned").value(result.getSegmentsScanned())
+            .name("segmentsSkipped").value(result.getSegmentsSkipped())
+            .name("rowsRead").value(result.getRowsRead());
+    }
+
+    // ============ Ответы и разбор ============
+
+    private void sendRide(HttpExchange exchange, int code, RideRequest request, String status, TaxiWorker taxi)
+            throws IOException {
+        JsonWriter json = new JsonWriter(new StringBuilder(96), false);
+        json.beginObject()
+            .name("requestId").value(request.getId())
+            .name("status").value(status)
+            .name("taxiId");
+        if (taxi != null) {
+            json.value(taxi.getId());
+        } else {
+            json.value((String) null);
+        }
+        json.endObject();
+        send(exchange, code, json);
+    }
+
+    private static void sendError(HttpExchange exchange, int code, String message) throws IOException {
+        JsonWriter json = new JsonWriter(new StringBuilder(64), false);
+        json.beginObject().name("error").value(message).endObject();
+        send(exchange, code, json);
+    }
+
+    private static void send(HttpExchange exchange, int code, JsonWriter json) throws IOException {
+        send(exchange, code, json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int code, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    // "px=1.5&py=2" -> {px=1.5, py=2}
+    private static Map<String, String> parseForm(String form) {
+        Map<String, String> params = new HashMap<>();
+        if (form == null || form.isEmpty()) {
+            return params;
+        }
+        for (String pair : form.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                           URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
+    private static double requireDouble(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Не указан параметр " + name);
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Параметр " + name + " должен быть числом: " + value);
+        }
+    }
+
+    private static long optionalLong(Map<String, String> params, String name, long defaultValue) {
+        String value = params.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Параметр " + name + " должен быть целым числом: " + value);
+        }
+    }
+
+    // null - любой тип
+    private static TaxiType parseType(String type) {
+        if (type == null) {
+            return null;
+        }
+        try {
+            return TaxiType.valueOf(type.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Неизвестный тип такси: " + type);
+        }
+    }
+
+    // Виртуальные потоки (Java 21+), если доступны, иначе ограниченный пул обычных
+    private static ExecutorService createExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            ConsoleLog.println("HTTP API: обработчики в виртуальных потоках");
+            return executor;
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            // Java 17 или виртуальные потоки в режиме preview без --enable-preview
+            ConsoleLog.println("HTTP API: виртуальные потоки недоступны, пул из " + FALLBACK_THREADS + " потоков");
+            return Executors.newFixedThreadPool(FALLBACK_THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "http-api");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package net;
+
+import stats.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+// Нагрузочный тест HTTP API: несколько клиентов в замкнутом цикле (каждый ждет ответа
+// и сразу шлет следующий запрос) со смесью заказов и чтений парка. Печатает пропускную
+// способность и перцентили задержки по каждому виду запроса.
+// Замкнутая нагрузка сама замедляется вместе с сервером, поэтому задержки здесь - время
+// ответа при данном числе клиентов, а не при заданной интенсивности.
+public class HttpLoadClient {
+
+    private static final double CITY_SIZE = 100.0;
+    private static final String[] TYPES = {"economy", "comfort", "business"};
+    private static final Pattern TAXIS = Pattern.compile("\"taxis\":(\\d+)");
+    private static final String[] ENDPOINTS = {"POST /rides", "GET /taxis/{id}", "GET /taxis", "GET /stats"};
+    private static final int RIDES = 0;
+    private static final int TAXI = 1;
+    private static final int FLEET = 2;
+    private static final int STATS = 3;
+
+    private final URI base;
+    private final int clients;
+    private final long durationNanos;
+    private final double postShare;
+    private final HttpClient http = HttpClient.newBuilder()
+        .version(HttpClient.Version.HTTP_1_1)
+        .connectTimeout(Duration.ofSeconds(5))
+        .build();
+
+    private final LatencyHistogram[] latencyMicros = new LatencyHistogram[ENDPOINTS.length];
+    private final AtomicLong errors = new AtomicLong();
+    private int taxis;
+
+    public HttpLoadClient(int port, int clients, long durationSeconds, double postShare) {
+        if (clients < 1 || durationSeconds < 1 || postShare < 0 || postShare > 1) {
+            throw new IllegalArgumentException("Нужны положительные число клиентов и длительность, доля POST в [0, 1]");
+        }
+        this.base = URI.create("http://127.0.0.1:" + port);
+        this.clients = clients;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+        this.postShare = postShare;
+        for (int i = 0; i < latencyMicros.length; i++) {
+            latencyMicros[i] = new LatencyHistogram();
+        }
+    }
+
+    public void run() throws IOException, InterruptedException {
+        taxis = readFleetSize();
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + durationNanos;
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            SplittableRandom random = new SplittableRandom(17 + i);
+            Thread thread = new Thread(() -> runClient(random, endNanos), "http-client-" + i);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        printSummary((System.nanoTime() - startNanos) / 1e9);
+    }
+
+    // Сервер поднимается вместе с симуляцией, поэтому первый запрос - с повторами
+    private int readFleetSize() throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (true) {
+            try {
+                String body = http.send(HttpRequest.newBuilder(base.resolve("/stats")).build(),
+                                        HttpResponse.BodyHandlers.ofString()).body();
+                Matcher matcher = TAXIS.matcher(body);
+                if (!matcher.find()) {
+                    throw new IOException("В ответе /stats нет числа такси: " + body);
+                }
+                return Integer.parseInt(matcher.group(1));
+            } catch (ConnectException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private void runClient(SplittableRandom random, long endNanos) {
+        while (System.nanoTime() < endNanos) {
+            int endpoint = random.nextDouble() < postShare ? RIDES : 1 + random.nextInt(3);
+            HttpRequest request = newRequest(endpoint, random);
+            long start = System.nanoTime();
+            try {
+                HttpResponse<byte[]> response = http.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                latencyMicros[endpoint].record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+                if (response.statusCode() != 200) {
+                    errors.incrementAndGet();
+                }
+            } catch (IOException e) {
+                errors.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private HttpRequest newRequest(int endpoint, SplittableRandom random) {
+        switch (endpoint) {
+            case RIDES:
+                String form = String.format(Locale.US, "px=%.3f&py=%.3f&dx=%.3f&dy=%.3f&type=%s",
+                                            random.nextDouble() * CITY_SIZE, random.nextDouble() * CITY_SIZE,
+                                            random.nextDouble() * CITY_SIZE, random.nextDouble() * CITY_SIZE,
+                                            TYPES[random.nextInt(TYPES.length)]);
+                return HttpRequest.newBuilder(base.resolve("/rides"))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(form))
+                    .build();
+            case TAXI:
+                return HttpRequest.newBuilder(base.resolve("/taxis/" + (1 + random.nextInt(Math.max(1, taxis)))))
+                    .build();
+            case FLEET:
+                return HttpRequest.newBuilder(base.resolve("/taxis")).build();
+            default:
+                return HttpRequest.newBuilder(base.resolve("/stats")).build();
+        }
+    }
+
+    private void printSummary(double seconds) {
+        long total = 0;
+        for (LatencyHistogram histogram : latencyMicros) {
+            total += histogram.getCount();
+        }
+        System.out.printf(Locale.US, "Клиентов: %d, запросов: %d за %.2f с (%.0f в секунду), ошибок и не 200: %d%n",
+                          clients, total, seconds, total / seconds, errors.get());
+        for (int i = 0; i < ENDPOINTS.length; i++) {
+            LatencyHistogram histogram = latencyMicros[i];
+            System.out.printf(Locale.US, "  %-16s %7.0f/с  p50=%d мкс, p99=%d мкс, макс=%d мкс%n",
+                              ENDPOINTS[i], histogram.getCount() / seconds, histogram.getPercentile(50),
+                              histogram.getPercentile(99), histogram.getMax());
+        }
+    }
+
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Использование: java net.HttpLoadClient <порт> [клиентов] [секунд] [доля POST]");
+            System.exit(1);
+        }
+        int port = Integer.parseInt(args[0]);
+        int clients = args.length >= 2 ? Integer.parseInt(args[1]) : 8;
+        long seconds = args.length >= 3 ? Long.parseLong(args[2]) : 10;
+        double postShare = args.length >= 4 ? Double.parseDouble(args[3]) : 0.1;
+
+        new HttpLoadClient(port, clients, seconds, postShare).run();
+    }
+}
@@ -0,0 +1,224 @@
+package net;
+
+import models.TaxiType;
+import stats.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+
+// Нагрузочный клиент для IngestServer: открытая нагрузка с заданной интенсивностью
+// по нескольким соединениям через петлевой интерфейс.
+//
+// На каждое соединение - поток отправки и поток приема. Отправка идет по расписанию:
+// все заказы, чей срок наступил, пишутся одним write(), поэтому отставание клиента
+// не снижает нагрузку. В метку заказа кладется плановый момент отправки, и задержка
+// подтверждения считается от него (без coordinated omission) - отдельно до ACCEPTED
+// и до итога назначения.
+public class IngestLoadClient {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final double CITY_SIZE = 100.0;
+    private static final TaxiType[] TYPES = TaxiType.values();
+    // Сколько ждать итогов назначения после окончания отправки
+    private static final long DRAIN_TIMEOUT_MILLIS = 5000L;
+    private static final long CONNECT_TIMEOUT_MILLIS = 10_000L;
+
+    private final InetSocketAddress address;
+    private final double requestsPerSecond;
+    private final int connections;
+    private final long durationNanos;
+
+    private final LatencyHistogram acceptLatencyMicros = new LatencyHistogram();
+    private final LatencyHistogram assignLatencyMicros = new LatencyHistogram();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong[] statuses = {new AtomicLong(), new AtomicLong(), new AtomicLong(), new AtomicLong()};
+
+    public IngestLoadClient(InetSocketAddress address, double requestsPerSecond, int connections,
+                            long durationSeconds) {
+        if (requestsPerSecond <= 0 || connections < 1 || durationSeconds < 1) {
+            throw new IllegalArgumentException("Интенсивность, число соединений и длительность должны быть положительными");
+        }
+        this.address = address;
+        this.requestsPerSecond = requestsPerSecond;
+        this.connections = connections;
+        this.durationNanos = TimeUnit.SECONDS.toNanos(durationSeconds);
+    }
+
+    public void run() throws IOException, InterruptedException {
+        List<SocketChannel> channels = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            channels.add(connect());
+        }
+
+        long startNanos = System.nanoTime();
+        List<Thread> senders = new ArrayList<>();
+        List<Thread> receivers = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            SocketChannel channel = channels.get(i);
+            SplittableRandom random = new SplittableRandom(42 + i);
+            // Соединения сдвинуты по фазе, чтобы не отправлять заказы одновременно
+            long phaseNanos = (long) (1e9 / requestsPerSecond * i);
+            senders.add(start("ingest-sender-" + i, () -> send(channel, random, startNanos + phaseNanos)));
+            receivers.add(start("ingest-receiver-" + i, () -> receive(channel)));
+        }
+        for (Thread sender : senders) {
+            sender.join();
+        }
+        double sendSeconds = (System.nanoTime() - startNanos) / 1e9;
+
+        // Ждем итогов назначения по всем принятым заказам, затем закрываем соединения
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        while (answered() < sent.get() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        for (SocketChannel channel : channels) {
+            channel.close();
+        }
+        for (Thread receiver : receivers) {
+            receiver.join();
+        }
+        printSummary(sendSeconds);
+    }
+
+    // Сервер поднимается вместе с симуляцией, поэтому подключаемся с повторами
+    private SocketChannel connect() throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+        while (true) {
+            try {
+                SocketChannel channel = SocketChannel.open(address);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                return channel;
+            } catch (ConnectException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private void send(SocketChannel channel, SplittableRandom random, long firstNanos) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        double intervalNanos = 1e9 * connections / requestsPerSecond;
+        long endNanos = firstNanos + durationNanos;
+        long index = 0;
+        try {
+            while (true) {
+                long dueNanos = firstNanos + (long) (index * intervalNanos);
+                if (dueNanos >= endNanos) {
+                    break;
+                }
+                long now = System.nanoTime();
+                if (dueNanos > now) {
+                    LockSupport.parkNanos(dueNanos - now);
+                    continue;
+                }
+                // Все наступившие заказы - одной записью
+                buffer.clear();
+                while (dueNanos <= now && dueNanos < endNanos
+                       && buffer.remaining() >= IngestProtocol.REQUEST_FRAME_SIZE) {
+                    int type = random.nextInt(TYPES.length + 1) - 1;
+                    IngestProtocol.putRequest(buffer, dueNanos,
+                                              random.nextDouble() * CITY_SIZE, random.nextDouble() * CITY_SIZE,
+                                              random.nextDouble() * CITY_SIZE, random.nextDouble() * CITY_SIZE,
+                                              type < 0 ? IngestProtocol.ANY_TYPE : (byte) type);
+                    index++;
+                    dueNanos = firstNanos + (long) (index * intervalNanos);
+                }
+                sent.addAndGet(buffer.position() / IngestProtocol.REQUEST_FRAME_SIZE);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Ошибка отправки заказов: " + e.getMessage());
+        }
+    }
+
+    private void receive(SocketChannel channel) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        try {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                long now = System.nanoTime();
+                while (buffer.remaining() >= IngestProtocol.ACK_FRAME_SIZE) {
+                    int body = buffer.position() + IngestProtocol.HEADER_SIZE;
+                    if (buffer.getInt(buffer.position()) != IngestProtocol.ACK_SIZE
+                        || buffer.get(body) != IngestProtocol.KIND_ACK) {
+                        throw new IOException("неверный кадр подтверждения");
+                    }
+                    byte status = IngestProtocol.ackStatus(buffer, body);
+                    long latencyMicros = TimeUnit.NANOSECONDS.toMicros(now - IngestProtocol.tag(buffer, body));
+                    if (status == IngestProtocol.ACCEPTED || status == IngestProtocol.REJECTED) {
+                        acceptLatencyMicros.record(latencyMicros);
+                    } else {
+                        assignLatencyMicros.record(latencyMicros);
+                    }
+                    if (status >= 0 && status < statuses.length) {
+                        statuses[status].incrementAndGet();
+                    }
+                    buffer.position(body + IngestProtocol.ACK_SIZE);
+                }
+                buffer.compact();
+            }
+        } catch (IOException e) {
+            // Соединение закрыто после окончания замера - штатное завершение
+            if (channel.isOpen()) {
+                System.err.println("Ошибка приема подтверждений: " + e.getMessage());
+            }
+        }
+    }
+
+    // Заказы, по которым пришел окончательный ответ: отказ или итог назначения
+    private long answered() {
+        return statuses[IngestProtocol.REJECTED].get() + statuses[IngestProtocol.ASSIGNED].get()
+               + statuses[IngestProtocol.UNASSIGNED].get();
+    }
+
+    private void printSummary(double sendSeconds) {
+        long acknowledged = acceptLatencyMicros.getCount();
+        System.out.printf(Locale.US, "Отправлено заказов: %d за %.2f с (%.0f заказов/с, цель %.0f), соединений: %d%n",
+                          sent.get(), sendSeconds, sent.get() / sendSeconds, requestsPerSecond, connections);
+        System.out.printf(Locale.US, "Подтверждено: %d (%.0f в секунду)%n", acknowledged, acknowledged / sendSeconds);
+        for (byte status = 0; status < statuses.length; status++) {
+            System.out.printf("  %s: %d%n", IngestProtocol.statusName(status), statuses[status].get());
+        }
+        System.out.println("Задержка приема, мкс: " + acceptLatencyMicros);
+        System.out.println("Задержка назначения, мкс: " + assignLatencyMicros);
+    }
+
+    private static Thread start(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.start();
+        return thread;
+    }
+
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.err.println("Использование: java net.IngestLoadClient <порт> <заказов/с> [соединений] [секунд]");
+            System.exit(1);
+        }
+        int port = Integer.parseInt(args[0]);
+        double rate = Double.parseDouble(args[1]);
+        int connections = args.length >= 3 ? Integer.parseInt(args[2]) : 1;
+        long seconds = args.length >= 4 ? Long.parseLong(args[3]) : 10;
+
+        new IngestLoadClient(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), rate, connections, seconds)
+            .run();
+    }
+}
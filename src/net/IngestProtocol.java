@@ -0,0 +1,130 @@
+package net;
+
+import models.TaxiType;
+
+import java.nio.ByteBuffer;
+
+
+// Двоичный протокол приема заказов (IngestServer, IngestLoadClient).
+//
+// Поток кадров в обе стороны: int длина тела (big-endian), затем тело. Первый байт тела - вид кадра.
+//   Заказ, клиент -> сервер (REQUEST_SIZE байт):
+//     byte 1, long метка, double x посадки, double y посадки, double x высадки, double y высадки,
+//     byte тип такси (порядковый номер TaxiType, -1 - любой)
+//   Подтверждение, сервер -> клиент (ACK_SIZE байт):
+//     byte 2, long метка заказа, byte статус, long id заказа в симуляции, long id такси (-1 - нет)
+// Метку выбирает клиент и получает ее обратно без изменений: по ней он находит свой заказ
+// (например, кладет в нее момент отправки и считает задержку без таблицы ожидающих заказов).
+// На каждый заказ приходит ACCEPTED или REJECTED, за принятым - ASSIGNED или UNASSIGNED,
+// в этом порядке. Заказы, снятые с очереди при остановке, второго подтверждения не получают.
+public final class IngestProtocol {
+
+    public static final int HEADER_SIZE = 4;
+
+    public static final byte KIND_REQUEST = 1;
+    public static final byte KIND_ACK = 2;
+
+    public static final int REQUEST_SIZE = 1 + 8 + 4 * 8 + 1;
+    public static final int ACK_SIZE = 1 + 8 + 1 + 8 + 8;
+    public static final int REQUEST_FRAME_SIZE = HEADER_SIZE + REQUEST_SIZE;
+    public static final int ACK_FRAME_SIZE = HEADER_SIZE + ACK_SIZE;
+
+    // Заказ поставлен в очередь диспетчера
+    public static final byte ACCEPTED = 0;
+    // Заказ не принят: очередь переполнена или кадр с неверным типом такси
+    public static final byte REJECTED = 1;
+    // Заказ назначен такси
+    public static final byte ASSIGNED = 2;
+    // Подходящего такси не нашлось
+    public static final byte UNASSIGNED = 3;
+
+    public static final byte ANY_TYPE = -1;
+    public static final long NO_TAXI = -1L;
+
+    private static final TaxiType[] TYPES = TaxiType.values();
+    private static final String[] STATUS_NAMES = {"принят", "отклонен", "назначен", "не назначен"};
+
+    private IngestProtocol() {
+    }
+
+    public static void putRequest(ByteBuffer buffer, long tag, double pickupX, double pickupY,
+                                  double dropoffX, double dropoffY, byte type) {
+        buffer.putInt(REQUEST_SIZE)
+              .put(KIND_REQUEST)
+              .putLong(tag)
+              .putDouble(pickupX)
+              .putDouble(pickupY)
+              .putDouble(dropoffX)
+              .putDouble(dropoffY)
+              .put(type);
+    }
+
+    public static void putAck(ByteBuffer buffer, long tag, byte status, long requestId, long taxiId) {
+        buffer.putInt(ACK_SIZE)
+              .put(KIND_ACK)
+              .putLong(tag)
+              .put(status)
+              .putLong(requestId)
+              .putLong(taxiId);
+    }
+
+    // Поля тела читаются по абсолютным смещениям от начала тела, без копирования кадра
+    public static long tag(ByteBuffer buffer, int body) {
+        return buffer.getLong(body + 1);
+    }
+
+    public static double pickupX(ByteBuffer buffer, int body) {
+        return buffer.getDouble(body + 9);
+    }
+
+    public static double pickupY(ByteBuffer buffer, int body) {
+        return buffer.getDouble(body + 17);
+    }
+
+    public static double dropoffX(ByteBuffer buffer, int body) {
+        return buffer.getDouble(body + 25);
+    }
+
+    public static double dropoffY(ByteBuffer buffer, int body) {
+        return buffer.getDouble(body + 33);
+    }
+
+    public static byte typeCode(ByteBuffer buffer, int body) {
+        return buffer.get(body + 41);
+    }
+
+    public static byte ackStatus(ByteBuffer buffer, int body) {
+        return buffer.get(body + 9);
+    }
+
+    public static long ackRequestId(ByteBuffer buffer, int body) {
+        return buffer.getLong(body + 10);
+    }
+
+    public static long ackTaxiId(ByteBuffer buffer, int body) {
+        return buffer.getLong(body + 18);
+    }
+
+    public static byte typeCode(TaxiType type) {
+        return type == null ? ANY_TYPE : (byte) type.ordinal();
+    }
+
+    // null - любой тип; неизвестный код - IllegalArgumentException
+    public static TaxiType type(byte code) {
+        if (code == ANY_TYPE) {
+            return null;
+        }
+        if (code < 0 || code >= TYPES.length) {
+            throw new IllegalArgumentException("Неизвестный код типа такси: " + code);
+        }
+        return TYPES[code];
+    }
+
+    public static boolean isValidTypeCode(byte code) {
+        return code == ANY_TYPE || (code >= 0 && code < TYPES.length);
+    }
+
+    public static String statusName(byte status) {
+        return status >= 0 && status < STATUS_NAMES.length ? STATUS_NAMES[status] : "код " + status;
+    }
+}
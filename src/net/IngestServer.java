@@ -0,0 +1,431 @@
+package net;
+
+import infra.RequestGenerator;
+import infra.RequestSource;
+import journal.JournaledQueue;
+import models.Point;
+import models.RequestIdSequence;
+import models.RideRequest;
+import services.AssignmentListener;
+import services.TaxiWorker;
+import util.ConsoleLog;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+// Прием заказов по TCP в двоичном протоколе IngestProtocol: источник заказов для симуляции
+// вместо генератора или трассы. Слушает только петлевой интерфейс.
+//
+// Весь ввод-вывод - в одном потоке на Selector, без потока на соединение. У каждого соединения
+// свои прямые буферы чтения и записи; кадры разбираются прямо в буфере чтения по абсолютным
+// смещениям, так что на заказ создаются только сам RideRequest и его точки. Заказ кладется
+// в очередь диспетчера через offer(): поток ввода-вывода не блокируется, а переполненная
+// очередь сразу дает клиенту REJECTED.
+// С журналом заказов (JournaledQueue) поток ввода-вывода не ждет фиксации: заказ ставится
+// в очередь и получает ACCEPTED или REJECTED из потока записи журнала после force() пачки,
+// так что заказы всех соединений фиксируются общими пачками.
+//
+// Итог назначения приходит из потока диспетчера (AssignmentListener): подтверждение
+// кладется в очередь соединения, а поток ввода-вывода будится не чаще одного раза,
+// пока он эту очередь не разобрал. Если клиент не читает подтверждения и буфер записи
+// полон, сервер перестает читать его заказы, пока буфер не освободится.
+public class IngestServer implements RequestSource, AssignmentListener {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BlockingQueue<RideRequest> requestQueue;
+    private final int port;
+    private final RequestIdSequence ids;
+    private volatile boolean running = true;
+    private volatile Selector selector;
+
+    // Принятые заказы, ждущие итога назначения, по id заказа
+    private final Map<Long, PendingAck> pending = new ConcurrentHashMap<>();
+    // Соединения с новыми подтверждениями от диспетчера
+    private final Queue<Connection> flushQueue = new ConcurrentLinkedQueue<>();
+
+    // Пишут поток ввода-вывода и поток записи журнала
+    private final AtomicLong acceptedRequests = new AtomicLong();
+    private final AtomicLong rejectedRequests = new AtomicLong();
+
+    public IngestServer(BlockingQueue<RideRequest> requestQueue, int port, RequestIdSequence ids) {
+        this.requestQueue = requestQueue;
+        this.port = port;
+        this.ids = ids;
+    }
+
+    @Override
+    public void run() {
+        try (Selector selector = Selector.open();
+             ServerSocketChannel server = ServerSocketChannel.open()) {
+            this.selector = selector;
+            server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+            ConsoleLog.println("Прием заказов по TCP запущен: " + server.getLocalAddress());
+
+            while (running) {
+                selector.select();
+                flushScheduled();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection) {
+                    close((Connection) key.attachment());
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                System.err.println("Ошибка приема заказов на порту " + port + ": " + e.getMessage());
+            }
+        } finally {
+            selector = null;
+            pending.clear();
+            sendPoisonPill();
+            ConsoleLog.println("Прием заказов по TCP остановлен. Принято: " + acceptedRequests.get() +
+                               ", отклонено: " + rejectedRequests.get());
+        }
+    }
+
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept(key);
+            return;
+        }
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isWritable()) {
+                resume(connection);
+            }
+            if (key.isValid() && key.isReadable()) {
+                read(connection);
+            }
+        } catch (IOException e) {
+            ConsoleLog.println("Соединение " + connection + " закрыто: " + e.getMessage());
+            close(connection);
+        }
+    }
+
+    private void accept(SelectionKey key) {
+        try {
+            SocketChannel channel = ((ServerSocketChannel) key.channel()).accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            // Подтверждения короткие и ждут их сразу: алгоритм Нейгла только добавил бы задержку
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(key.selector(), SelectionKey.OP_READ, connection);
+            ConsoleLog.println("Подключен клиент приема заказов " + connection);
+        } catch (IOException e) {
+            System.err.println("Не удалось принять соединение: " + e.getMessage());
+        }
+    }
+
+    private void read(Connection connection) throws IOException {
+        if (connection.channel.read(connection.in) < 0) {
+            ConsoleLog.println("Клиент " + connection + " отключился");
+            close(connection);
+            return;
+        }
+        decode(connection);
+    }
+
+    // Разбирает все целые кадры из буфера чтения; неполный кадр остается до следующего чтения
+    private void decode(Connection connection) throws IOException {
+        ByteBuffer in = connection.in;
+        in.flip();
+        boolean paused = false;
+        try {
+            while (in.remaining() >= IngestProtocol.HEADER_SIZE) {
+                int position = in.position();
+                int length = in.getInt(position);
+                if (length != IngestProtocol.REQUEST_SIZE) {
+                    throw new IOException("неверная длина кадра " + length);
+                }
+                if (in.remaining() < IngestProtocol.REQUEST_FRAME_SIZE) {
+                    break;
+                }
+                if (connection.out.remaining() < IngestProtocol.ACK_FRAME_SIZE && !flush(connection)) {
+                    paused = true;
+                    break;
+                }
+                int body = position + IngestProtocol.HEADER_SIZE;
+                if (in.get(body) != IngestProtocol.KIND_REQUEST) {
+                    throw new IOException("неизвестный вид кадра " + in.get(body));
+                }
+                publish(connection, in, body);
+                in.position(body + IngestProtocol.REQUEST_SIZE);
+            }
+        } finally {
+            in.compact();
+        }
+        connection.setReading(!paused);
+        flush(connection);
+    }
+
+    private void publish(Connection connection, ByteBuffer in, int body) {
+        long tag = IngestProtocol.tag(in, body);
+        byte typeCode = IngestProtocol.typeCode(in, body);
+        if (!IngestProtocol.isValidTypeCode(typeCode)) {
+            rejectedRequests.incrementAndGet();
+            IngestProtocol.putAck(connection.out, tag, IngestProtocol.REJECTED, -1L, IngestProtocol.NO_TAXI);
+            return;
+        }
+
+        RideRequest request = new RideRequest(
+            ids.nextId(),
+            new Point(IngestProtocol.pickupX(in, body), IngestProtocol.pickupY(in, body)),
+            new Point(IngestProtocol.dropoffX(in, body), IngestProtocol.dropoffY(in, body)),
+            IngestProtocol.type(typeCode));
+        // Регистрируем до offer(): диспетчер может назначить заказ раньше, чем offer() вернется
+        PendingAck ack = new PendingAck(connection, tag, request.getId());
+        pending.put(request.getId(), ack);
+        if (requestQueue instanceof JournaledQueue) {
+            ((JournaledQueue) requestQueue).offerWhenDurable(request, accepted -> committed(ack, accepted));
+            return;
+        }
+        ack.admitted = true;
+        if (requestQueue.offer(request)) {
+            acceptedRequests.incrementAndGet();
+            IngestProtocol.putAck(connection.out, tag, IngestProtocol.ACCEPTED, request.getId(),
+                                  IngestProtocol.NO_TAXI);
+        } else {
+            pending.remove(request.getId());
+            rejectedRequests.incrementAndGet();
+            IngestProtocol.putAck(connection.out, tag, IngestProtocol.REJECTED, request.getId(),
+                                  IngestProtocol.NO_TAXI);
+        }
+    }
+
+    // Поток записи журнала: итог приема заказа. Диспетчер мог уже назначить заказ - тогда
+    // итог назначения ждал здесь, чтобы клиент получил ACCEPTED раньше ASSIGNED
+    private void committed(PendingAck ack, boolean accepted) {
+        PendingAck admission = new PendingAck(ack.connection, ack.tag, ack.requestId);
+        admission.status = accepted ? IngestProtocol.ACCEPTED : IngestProtocol.REJECTED;
+        admission.taxiId = IngestProtocol.NO_TAXI;
+        if (accepted) {
+            acceptedRequests.incrementAndGet();
+        } else {
+            pending.remove(ack.requestId);
+            rejectedRequests.incrementAndGet();
+        }
+        synchronized (ack) {
+            deliver(admission);
+            ack.admitted = true;
+            if (ack.assigned) {
+                deliver(ack);
+            }
+        }
+    }
+
+    // Поток диспетчера: подтверждение уходит в очередь соединения, поток ввода-вывода
+    // будится, только если соединение еще не ждет отправки
+    @Override
+    public void onAssignment(RideRequest request, TaxiWorker taxi) {
+        PendingAck ack = pending.remove(request.getId());
+        if (ack == null || ack.connection.closed) {
+            return;
+        }
+        synchronized (ack) {
+            ack.status = taxi != null ? IngestProtocol.ASSIGNED : IngestProtocol.UNASSIGNED;
+            ack.taxiId = taxi != null ? taxi.getId() : IngestProtocol.NO_TAXI;
+            ack.assigned = true;
+            if (ack.admitted) {
+                deliver(ack);
+            }
+        }
+    }
+
+    private void deliver(PendingAck ack) {
+        Connection connection = ack.connection;
+        if (connection.closed) {
+            return;
+        }
+        connection.outbox.add(ack);
+        if (connection.flushScheduled.compareAndSet(false, true)) {
+            flushQueue.add(connection);
+            Selector current = selector;
+            if (current != null) {
+                current.wakeup();
+            }
+        }
+    }
+
+    private void flushScheduled() {
+        Connection connection;
+        while ((connection = flushQueue.poll()) != null) {
+            // Сбрасываем флаг до разбора очереди: подтверждение, добавленное после, разбудит поток снова
+            connection.flushScheduled.set(false);
+            if (connection.closed) {
+                continue;
+            }
+            try {
+                resume(connection);
+            } catch (IOException e) {
+                ConsoleLog.println("Соединение " + connection + " закрыто: " + e.getMessage());
+                close(connection);
+            }
+        }
+    }
+
+    // Отправляет накопленное; если буфер освободился, а чтение было приостановлено -
+    // разбирает заказы, оставшиеся в буфере чтения, и снова включает чтение
+    private void resume(Connection connection) throws IOException {
+        if (flush(connection) && !connection.reading) {
+            decode(connection);
+        }
+    }
+
+    // Переносит подтверждения диспетчера в буфер и пишет сколько примет сокет.
+    // true - в буфере есть место хотя бы для одного подтверждения
+    private boolean flush(Connection connection) throws IOException {
+        ByteBuffer out = connection.out;
+        PendingAck ack;
+        while (out.remaining() >= IngestProtocol.ACK_FRAME_SIZE && (ack = connection.outbox.poll()) != null) {
+            IngestProtocol.putAck(out, ack.tag, ack.status, ack.requestId, ack.taxiId);
+        }
+        out.flip();
+        connection.channel.write(out);
+        out.compact();
+        boolean hasSpace = out.remaining() >= IngestProtocol.ACK_FRAME_SIZE;
+        connection.setWriting(out.position() > 0 || !connection.outbox.isEmpty());
+        return hasSpace;
+    }
+
+    private void close(Connection connection) {
+        if (connection.closed) {
+            return;
+        }
+        connection.closed = true;
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // Соединение уже не нужно
+        }
+    }
+
+    private void sendPoisonPill() {
+        try {
+            requestQueue.put(RequestGenerator.DISPATCHER_POISON_PILL);
+            ConsoleLog.println("Прием заказов по TCP отправил poison pill диспетчеру");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void stop() {
+        this.running = false;
+        Selector current = selector;
+        if (current != null) {
+            current.wakeup();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public long getGeneratedRequests() {
+        return acceptedRequests.get();
+    }
+
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
+    }
+
+
+    private static final class Connection {
+        final SocketChannel channel;
+        // Оба буфера в режиме записи: position - конец данных
+        final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        // Подтверждения от диспетчера, которые еще не попали в буфер записи
+        final Queue<PendingAck> outbox = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean flushScheduled = new AtomicBoolean();
+        SelectionKey key;
+        boolean reading = true;
+        volatile boolean closed;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void setReading(boolean reading) {
+            this.reading = reading;
+            updateInterest(SelectionKey.OP_READ, reading);
+        }
+
+        void setWriting(boolean writing) {
+            updateInterest(SelectionKey.OP_WRITE, writing);
+        }
+
+        private void updateInterest(int operation, boolean enabled) {
+            if (!key.isValid()) {
+                return;
+            }
+            int ops = key.interestOps();
+            int updated = enabled ? ops | operation : ops & ~operation;
+            if (updated != ops) {
+                key.interestOps(updated);
+            }
+        }
+
+        @Override
+        public String toString() {
+            try {
+                return String.valueOf(channel.getRemoteAddress());
+            } catch (IOException e) {
+                return "<закрыто>";
+            }
+        }
+    }
+
+    // Заказ, ждущий итога назначения; тот же объект уходит в очередь подтверждений соединения
+    private static final class PendingAck {
+        final Connection connection;
+        final long tag;
+        final long requestId;
+        // Под synchronized (this): итог назначения, пришел ли он и отправлен ли итог приема
+        byte status;
+        long taxiId;
+        boolean assigned;
+        boolean admitted;
+
+        PendingAck(Connection connection, long tag, long requestId) {
+            this.connection = connection;
+            this.tag = tag;
+            this.requestId = requestId;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package routing;
+
+import models.Point;
+
+
+// Движение по прямой с постоянной скоростью такси
+public final class EuclideanTravelModel implements TravelModel {
+
+    static final EuclideanTravelModel INSTANCE = new EuclideanTravelModel();
+
+    private EuclideanTravelModel() {}
+
+    @Override
+    public double distance(Point from, Point to) {
+        return from.distanceTo(to);
+    }
+
+    @Override
+    public long travelMillis(Point from, Point to, double speed) {
+        return (long) (from.distanceTo(to) / speed * 1000);
+    }
+
+    @Override
+    public String getName() {
+        return "по прямой";
+    }
+}
@@ -0,0 +1,308 @@
+package routing;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+
+// Кратчайшие пути A* с ориентирами (ALT: A*, landmarks, triangle inequality).
+//
+// Предобработка: выбираются landmarks узлов-ориентиров L, по возможности далеких друг от друга
+// (каждый следующий - самый далекий от уже выбранных), и для каждого двумя проходами Дейкстры
+// считаются стоимости d(L, v) и d(v, L) до всех узлов. По неравенству треугольника
+// d(v, t) >= d(L, t) - d(L, v) и d(v, t) >= d(v, L) - d(t, L); максимум этих оценок и
+// расстояния по прямой - допустимая и согласованная эвристика A*. Она направляет поиск к цели
+// намного точнее, чем одно расстояние по прямой, и запрос обрабатывает малую часть графа.
+// При landmarks = 0 остается обычный A* с оценкой по прямой.
+//
+// Состояние поиска (массивы на весь граф) не создается на каждый запрос: объекты берутся
+// из пула и возвращаются в него, метки поколений избавляют от очистки массивов. Поэтому
+// route() можно вызывать из любого числа потоков, а памяти уходит столько состояний,
+// сколько запросов идет одновременно.
+public final class LandmarkRouter {
+
+    private final RoadGraph graph;
+    private final int landmarks;
+    // Стоимости от ориентиров и до них, узел v - элементы v * landmarks .. v * landmarks + landmarks - 1
+    private final double[] fromLandmark;
+    private final double[] toLandmark;
+
+    private final ConcurrentLinkedQueue<SearchState> statePool = new ConcurrentLinkedQueue<>();
+
+    public LandmarkRouter(RoadGraph graph, int landmarks) {
+        if (landmarks < 0) {
+            throw new IllegalArgumentException("Количество ориентиров не может быть отрицательным");
+        }
+        this.graph = graph;
+        this.landmarks = Math.min(landmarks, graph.getNodeCount());
+        this.fromLandmark = new double[graph.getNodeCount() * this.landmarks];
+        this.toLandmark = new double[graph.getNodeCount() * this.landmarks];
+        selectLandmarks();
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    public int getLandmarks() {
+        return landmarks;
+    }
+
+    public Route route(int source, int target) {
+        if (source == target) {
+            return new Route(0, 0, 0);
+        }
+        SearchState state = statePool.poll();
+        if (state == null) {
+            state = new SearchState(graph.getNodeCount());
+        }
+        try {
+            return search(state, source, target);
+        } finally {
+            statePool.offer(state);
+        }
+    }
+
+    private Route search(SearchState state, int source, int target) {
+        state.nextGeneration();
+        double targetX = graph.getX(target);
+        double targetY = graph.getY(target);
+        int targetOffset = target * landmarks;
+
+        state.open(source, 0, 0, heuristic(source, targetX, targetY, targetOffset));
+        int settled = 0;
+        while (state.heapSize > 0) {
+            int v = state.pollMin();
+            settled++;
+            if (v == target) {
+                return new Route(state.cost[v], state.length[v], settled);
+            }
+            double costV = state.cost[v];
+            double lengthV = state.length[v];
+            for (int e = graph.firstEdge(v), end = graph.endEdge(v); e < end; e++) {
+                int w = graph.edgeTarget(e);
+                if (state.isClosed(w)) {
+                    continue;
+                }
+                double cost = costV + graph.edgeCost(e);
+                if (!state.isSeen(w)) {
+                    double h = heuristic(w, targetX, targetY, targetOffset);
+                    if (h != Double.POSITIVE_INFINITY) {
+                        state.open(w, cost, lengthV + graph.edgeLength(e), h);
+                    }
+                } else if (cost < state.cost[w]) {
+                    state.decrease(w, cost, lengthV + graph.edgeLength(e));
+                }
+            }
+        }
+        return Route.UNREACHABLE;
+    }
+
+    // Оценка по одному ориентиру для узла и цели (индексы в таблицах ориентиров)
+    private double landmarkBound(int nodeIndex, int targetIndex) {
+        double h = 0;
+        // Бесконечные стоимости пропускаем, кроме случаев, когда они доказывают недостижимость
+        double fromV = fromLandmark[nodeIndex];
+        if (fromV != Double.POSITIVE_INFINITY) {
+            h = Math.max(h, fromLandmark[targetIndex] - fromV);
+        }
+        double toTarget = toLandmark[targetIndex];
+        if (toTarget != Double.POSITIVE_INFINITY) {
+            h = Math.max(h, toLandmark[nodeIndex] - toTarget);
+        }
+        return h;
+    }
+
+    // Нижняя оценка стоимости от v до цели. Бесконечность - цель из v недостижима
+    private double heuristic(int v, double targetX, double targetY, int targetOffset) {
+        double dx = graph.getX(v) - targetX;
+        double dy = graph.getY(v) - targetY;
+        // Math.hypot защищен от переполнения и заметно медленнее
+        double h = Math.sqrt(dx * dx + dy * dy);
+        int offset = v * landmarks;
+        for (int i = 0; i < landmarks; i++) {
+            h = Math.max(h, landmarkBound(offset + i, targetOffset + i));
+        }
+        return h;
+    }
+
+    // ================= Предобработка =================
+
+    private void selectLandmarks() {
+        int nodes = graph.getNodeCount();
+        if (landmarks == 0) {
+            return;
+        }
+        // Расстояние от каждого узла до ближайшего выбранного ориентира
+        double[] nearestLandmark = new double[nodes];
+        Arrays.fill(nearestLandmark, Double.POSITIVE_INFINITY);
+        double[] costs = new double[nodes];
+        SearchState state = new SearchState(nodes);
+
+        // Первый ориентир - самый далекий от узла 0
+        dijkstra(state, 0, false, costs);
+        int landmark = farthest(costs);
+        for (int i = 0; i < landmarks; i++) {
+            dijkstra(state, landmark, false, costs);
+            for (int v = 0; v < nodes; v++) {
+                fromLandmark[v * landmarks + i] = costs[v];
+                nearestLandmark[v] = Math.min(nearestLandmark[v], costs[v]);
+            }
+            dijkstra(state, landmark, true, costs);
+            for (int v = 0; v < nodes; v++) {
+                toLandmark[v * landmarks + i] = costs[v];
+            }
+            landmark = farthest(nearestLandmark);
+        }
+    }
+
+    // Узел с наибольшей конечной стоимостью
+    private static int farthest(double[] costs) {
+        int best = 0;
+        double bestCost = -1;
+        for (int v = 0; v < costs.length; v++) {
+            if (costs[v] != Double.POSITIVE_INFINITY && costs[v] > bestCost) {
+                bestCost = costs[v];
+                best = v;
+            }
+        }
+        return best;
+    }
+
+    // Стоимости от source до всех узлов (reverse - до source по обратным ребрам)
+    private void dijkstra(SearchState state, int source, boolean reverse, double[] costs) {
+        state.nextGeneration();
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+        state.open(source, 0, 0, 0);
+        while (state.heapSize > 0) {
+            int v = state.pollMin();
+            double costV = state.cost[v];
+            costs[v] = costV;
+            int first = reverse ? graph.firstReverseEdge(v) : graph.firstEdge(v);
+            int end = reverse ? graph.endReverseEdge(v) : graph.endEdge(v);
+            for (int e = first; e < end; e++) {
+                int w = reverse ? graph.reverseEdgeSource(e) : graph.edgeTarget(e);
+                if (state.isClosed(w)) {
+                    continue;
+                }
+                double cost = costV + (reverse ? graph.reverseEdgeCost(e) : graph.edgeCost(e));
+                if (!state.isSeen(w)) {
+                    state.open(w, cost, 0, 0);
+                } else if (cost < state.cost[w]) {
+                    state.decrease(w, cost, 0);
+                }
+            }
+        }
+    }
+
+
+    // Состояние одного поиска: стоимости, длины, двоичная куча с изменением ключа.
+    // Узел считается увиденным/закрытым, если его метка равна текущему поколению.
+    private static final class SearchState {
+        final double[] cost;
+        final double[] length;
+        // cost + эвристика, ключ кучи
+        final double[] priority;
+        final int[] seenGeneration;
+        final int[] closedGeneration;
+        final int[] heap;
+        final int[] heapPosition;
+        int heapSize;
+        int generation;
+
+        SearchState(int nodes) {
+            cost = new double[nodes];
+            length = new double[nodes];
+            priority = new double[nodes];
+            seenGeneration = new int[nodes];
+            closedGeneration = new int[nodes];
+            heap = new int[nodes];
+            heapPosition = new int[nodes];
+        }
+
+        void nextGeneration() {
+            heapSize = 0;
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(seenGeneration, 0);
+                Arrays.fill(closedGeneration, 0);
+                generation = 1;
+            }
+        }
+
+        boolean isSeen(int v) {
+            return seenGeneration[v] == generation;
+        }
+
+        boolean isClosed(int v) {
+            return closedGeneration[v] == generation;
+        }
+
+        void open(int v, double newCost, double newLength, double heuristic) {
+            seenGeneration[v] = generation;
+            cost[v] = newCost;
+            length[v] = newLength;
+            priority[v] = newCost + heuristic;
+            heap[heapSize] = v;
+            heapPosition[v] = heapSize;
+            siftUp(heapSize++);
+        }
+
+        // Эвристика узла не меняется, поэтому приоритет уменьшается ровно на выигрыш в стоимости
+        void decrease(int v, double newCost, double newLength) {
+            priority[v] -= cost[v] - newCost;
+            cost[v] = newCost;
+            length[v] = newLength;
+            siftUp(heapPosition[v]);
+        }
+
+        int pollMin() {
+            int min = heap[0];
+            closedGeneration[min] = generation;
+            heapSize--;
+            if (heapSize > 0) {
+                heap[0] = heap[heapSize];
+                heapPosition[heap[0]] = 0;
+                siftDown(0);
+            }
+            return min;
+        }
+
+        private void siftUp(int position) {
+            int v = heap[position];
+            double key = priority[v];
+            while (position > 0) {
+                int parent = (position - 1) >>> 1;
+                int parentNode = heap[parent];
+                if (priority[parentNode] <= key) {
+                    break;
+                }
+                heap[position] = parentNode;
+                heapPosition[parentNode] = position;
+                position = parent;
+            }
+            heap[position] = v;
+            heapPosition[v] = position;
+        }
+
+        private void siftDown(int position) {
+            int v = heap[position];
+            double key = priority[v];
+            int half = heapSize >>> 1;
+            while (position < half) {
+                int child = 2 * position + 1;
+                int right = child + 1;
+                if (right < heapSize && priority[heap[right]] < priority[heap[child]]) {
+                    child = right;
+                }
+                int childNode = heap[child];
+                if (key <= priority[childNode]) {
+                    break;
+                }
+                heap[position] = childNode;
+                heapPosition[childNode] = position;
+                position = child;
+            }
+            heap[position] = v;
+            heapPosition[v] = position;
+        }
+    }
+}
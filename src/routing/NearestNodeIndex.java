@@ -0,0 +1,107 @@
+package routing;
+
+
+// Привязка произвольной точки к ближайшему узлу графа.
+// Узлы разложены по равномерной сетке (в среднем NODES_PER_CELL на ячейку), поиск идет
+// кольцами ячеек от ячейки точки: узлы кольца r не ближе (r - 1) ячеек, поэтому, когда эта
+// граница превышает лучшее найденное расстояние, поиск заканчивается.
+// Сетка неизменяема, запросы из разных потоков безопасны.
+final class NearestNodeIndex {
+
+    private static final int NODES_PER_CELL = 2;
+
+    private final RoadGraph graph;
+    private final double minX;
+    private final double minY;
+    private final double cellSize;
+    private final int columns;
+    private final int rows;
+    // Узлы ячейки c - cellNodes[firstInCell[c]..firstInCell[c + 1] - 1]
+    private final int[] firstInCell;
+    private final int[] cellNodes;
+
+    NearestNodeIndex(RoadGraph graph) {
+        this.graph = graph;
+        int nodes = graph.getNodeCount();
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+        for (int v = 0; v < nodes; v++) {
+            minX = Math.min(minX, graph.getX(v));
+            minY = Math.min(minY, graph.getY(v));
+            maxX = Math.max(maxX, graph.getX(v));
+            maxY = Math.max(maxY, graph.getY(v));
+        }
+        this.minX = minX;
+        this.minY = minY;
+        double width = Math.max(maxX - minX, 1e-9);
+        double height = Math.max(maxY - minY, 1e-9);
+        int dimension = Math.max(1, (int) Math.ceil(Math.sqrt((double) nodes / NODES_PER_CELL)));
+        this.cellSize = Math.max(width, height) / dimension;
+        this.columns = Math.max(1, (int) Math.ceil(width / cellSize) + 1);
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize) + 1);
+
+        int[] cellOfNode = new int[nodes];
+        this.firstInCell = new int[columns * rows + 1];
+        for (int v = 0; v < nodes; v++) {
+            cellOfNode[v] = row(graph.getY(v)) * columns + column(graph.getX(v));
+            firstInCell[cellOfNode[v] + 1]++;
+        }
+        for (int c = 0; c < columns * rows; c++) {
+            firstInCell[c + 1] += firstInCell[c];
+        }
+        this.cellNodes = new int[nodes];
+        int[] next = java.util.Arrays.copyOf(firstInCell, columns * rows);
+        for (int v = 0; v < nodes; v++) {
+            cellNodes[next[cellOfNode[v]]++] = v;
+        }
+    }
+
+    int nearest(double x, double y) {
+        int pointColumn = column(x);
+        int pointRow = row(y);
+        int maxRing = Math.max(Math.max(pointColumn, columns - 1 - pointColumn),
+                               Math.max(pointRow, rows - 1 - pointRow));
+
+        int best = -1;
+        double bestDistanceSq = Double.MAX_VALUE;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            double lowerBound = (ring - 1) * cellSize;
+            if (ring > 1 && lowerBound * lowerBound >= bestDistanceSq) {
+                break;
+            }
+            for (int r = pointRow - ring; r <= pointRow + ring; r++) {
+                if (r < 0 || r >= rows) {
+                    continue;
+                }
+                // Внутренние строки кольца - только два крайних столбца
+                int step = (r == pointRow - ring || r == pointRow + ring) ? 1 : Math.max(1, 2 * ring);
+                for (int c = pointColumn - ring; c <= pointColumn + ring; c += step) {
+                    if (c < 0 || c >= columns) {
+                        continue;
+                    }
+                    int cell = r * columns + c;
+                    for (int i = firstInCell[cell]; i < firstInCell[cell + 1]; i++) {
+                        int v = cellNodes[i];
+                        double dx = graph.getX(v) - x;
+                        double dy = graph.getY(v) - y;
+                        double distanceSq = dx * dx + dy * dy;
+                        if (distanceSq < bestDistanceSq) {
+                            bestDistanceSq = distanceSq;
+                            best = v;
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    // Точки за границами графа прижимаются к краю сетки: проекция не увеличивает расстояния
+    private int column(double x) {
+        return Math.min(columns - 1, Math.max(0, (int) ((x - minX) / cellSize)));
+    }
+
+    private int row(double y) {
+        return Math.min(rows - 1, Math.max(0, (int) ((y - minY) / cellSize)));
+    }
+}
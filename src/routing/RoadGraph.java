@@ -0,0 +1,270 @@
+package routing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+
+// Дорожный граф города: перекрестки (узлы) и направленные участки дорог (ребра).
+//
+// Смежность хранится массивами (CSR): ребра узла v - индексы firstEdge[v]..firstEdge[v + 1] - 1.
+// Кроме прямой смежности есть обратная - для расстояний до ориентиров (см. LandmarkRouter).
+// Длина ребра - расстояние между его узлами по прямой, стоимость - длина, деленная на
+// коэффициент скорости участка (0, 1] относительно скорости такси. Поэтому стоимость
+// маршрута не меньше расстояния по прямой - на этом держатся оценки A* и стратегии ETA.
+//
+// Формат файла (строки, # - комментарий):
+//   node <id> <x> <y>
+//   edge <из id> <в id> <коэффициент скорости> [oneway]
+// Ребро без oneway - двустороннее. Узлы объявляются до ребер, которые на них ссылаются.
+public final class RoadGraph {
+
+    private final double[] nodeX;
+    private final double[] nodeY;
+
+    private final int[] firstEdge;
+    private final int[] edgeTarget;
+    private final double[] edgeLength;
+    private final double[] edgeCost;
+
+    private final int[] firstReverseEdge;
+    private final int[] reverseEdgeSource;
+    private final double[] reverseEdgeCost;
+
+    private RoadGraph(Builder builder) {
+        int nodes = builder.nodeCount;
+        int edges = builder.edgeCount;
+        this.nodeX = Arrays.copyOf(builder.x, nodes);
+        this.nodeY = Arrays.copyOf(builder.y, nodes);
+
+        this.firstEdge = new int[nodes + 1];
+        this.edgeTarget = new int[edges];
+        this.edgeLength = new double[edges];
+        this.edgeCost = new double[edges];
+        this.firstReverseEdge = new int[nodes + 1];
+        this.reverseEdgeSource = new int[edges];
+        this.reverseEdgeCost = new double[edges];
+
+        // Сортировка подсчетом: сначала число ребер у каждого узла, потом раскладка
+        for (int e = 0; e < edges; e++) {
+            firstEdge[builder.from[e] + 1]++;
+            firstReverseEdge[builder.to[e] + 1]++;
+        }
+        for (int v = 0; v < nodes; v++) {
+            firstEdge[v + 1] += firstEdge[v];
+            firstReverseEdge[v + 1] += firstReverseEdge[v];
+        }
+        int[] next = Arrays.copyOf(firstEdge, nodes);
+        int[] nextReverse = Arrays.copyOf(firstReverseEdge, nodes);
+        for (int e = 0; e < edges; e++) {
+            int from = builder.from[e];
+            int to = builder.to[e];
+            double length = Math.hypot(nodeX[to] - nodeX[from], nodeY[to] - nodeY[from]);
+            double cost = length / builder.speed[e];
+
+            int slot = next[from]++;
+            edgeTarget[slot] = to;
+            edgeLength[slot] = length;
+            edgeCost[slot] = cost;
+
+            int reverseSlot = nextReverse[to]++;
+            reverseEdgeSource[reverseSlot] = from;
+            reverseEdgeCost[reverseSlot] = cost;
+        }
+    }
+
+    public int getNodeCount() {
+        return nodeX.length;
+    }
+
+    public int getEdgeCount() {
+        return edgeTarget.length;
+    }
+
+    public double getX(int node) {
+        return nodeX[node];
+    }
+
+    public double getY(int node) {
+        return nodeY[node];
+    }
+
+    // ============ Смежность (для алгоритмов поиска) ============
+
+    int firstEdge(int node) {
+        return firstEdge[node];
+    }
+
+    int endEdge(int node) {
+        return firstEdge[node + 1];
+    }
+
+    int edgeTarget(int edge) {
+        return edgeTarget[edge];
+    }
+
+    double edgeLength(int edge) {
+        return edgeLength[edge];
+    }
+
+    double edgeCost(int edge) {
+        return edgeCost[edge];
+    }
+
+    int firstReverseEdge(int node) {
+        return firstReverseEdge[node];
+    }
+
+    int endReverseEdge(int node) {
+        return firstReverseEdge[node + 1];
+    }
+
+    int reverseEdgeSource(int edge) {
+        return reverseEdgeSource[edge];
+    }
+
+    double reverseEdgeCost(int edge) {
+        return reverseEdgeCost[edge];
+    }
+
+    // ================= Файл =================
+
+    public static RoadGraph load(Path path) throws IOException {
+        Builder builder = new Builder();
+        Map<Long, Integer> nodeIndex = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] parts = line.split("\\s+");
+                try {
+                    switch (parts[0]) {
+                        case "node":
+                            requireFields(parts, 4);
+                            long id = Long.parseLong(parts[1]);
+                            if (nodeIndex.containsKey(id)) {
+                                throw new IllegalArgumentException("узел " + id + " объявлен повторно");
+                            }
+                            nodeIndex.put(id, builder.addNode(Double.parseDouble(parts[2]),
+                                                              Double.parseDouble(parts[3])));
+                            break;
+                        case "edge":
+                            requireFields(parts, 4);
+                            int from = node(nodeIndex, parts[1]);
+                            int to = node(nodeIndex, parts[2]);
+                            double speed = Double.parseDouble(parts[3]);
+                            boolean oneway = parts.length > 4 && "oneway".equals(parts[4]);
+                            builder.addEdge(from, to, speed);
+                            if (!oneway) {
+                                builder.addEdge(to, from, speed);
+                            }
+                            break;
+                        default:
+                            throw new IllegalArgumentException("неизвестная запись '" + parts[0] + "'");
+                    }
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(path + ", строка " + lineNumber + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        if (builder.nodeCount == 0) {
+            throw new IOException(path + ": в графе нет узлов");
+        }
+        return builder.build();
+    }
+
+    // Пишет граф в формате load(). Двусторонние дороги записываются парами oneway-ребер
+    public void write(Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(String.format(Locale.US, "# Дорожный граф: %d узлов, %d ребер%n",
+                                       getNodeCount(), getEdgeCount()));
+            for (int v = 0; v < getNodeCount(); v++) {
+                writer.write(String.format(Locale.US, "node %d %.4f %.4f%n", v, nodeX[v], nodeY[v]));
+            }
+            for (int v = 0; v < getNodeCount(); v++) {
+                for (int e = firstEdge[v]; e < firstEdge[v + 1]; e++) {
+                    writer.write(String.format(Locale.US, "edge %d %d %.4f oneway%n",
+                                               v, edgeTarget[e], edgeLength[e] / edgeCost[e]));
+                }
+            }
+        }
+    }
+
+    private static void requireFields(String[] parts, int count) {
+        if (parts.length < count) {
+            throw new IllegalArgumentException("ожидалось полей: " + count);
+        }
+    }
+
+    private static int node(Map<Long, Integer> nodeIndex, String id) {
+        Integer index = nodeIndex.get(Long.parseLong(id));
+        if (index == null) {
+            throw new IllegalArgumentException("неизвестный узел " + id);
+        }
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Дорожный граф: %d узлов, %d ребер", getNodeCount(), getEdgeCount());
+    }
+
+
+    public static class Builder {
+        private double[] x = new double[16];
+        private double[] y = new double[16];
+        private int nodeCount;
+
+        private int[] from = new int[32];
+        private int[] to = new int[32];
+        private double[] speed = new double[32];
+        private int edgeCount;
+
+        // Возвращает индекс узла
+        public int addNode(double nodeX, double nodeY) {
+            if (nodeCount == x.length) {
+                x = Arrays.copyOf(x, nodeCount * 2);
+                y = Arrays.copyOf(y, nodeCount * 2);
+            }
+            x[nodeCount] = nodeX;
+            y[nodeCount] = nodeY;
+            return nodeCount++;
+        }
+
+        // Направленное ребро; speedFactor - доля скорости такси на участке, (0, 1]
+        public Builder addEdge(int fromNode, int toNode, double speedFactor) {
+            if (fromNode < 0 || fromNode >= nodeCount || toNode < 0 || toNode >= nodeCount) {
+                throw new IllegalArgumentException("Ребро ссылается на несуществующий узел");
+            }
+            if (!(speedFactor > 0 && speedFactor <= 1)) {
+                throw new IllegalArgumentException("Коэффициент скорости должен быть в (0, 1]: " + speedFactor);
+            }
+            if (edgeCount == from.length) {
+                from = Arrays.copyOf(from, edgeCount * 2);
+                to = Arrays.copyOf(to, edgeCount * 2);
+                speed = Arrays.copyOf(speed, edgeCount * 2);
+            }
+            from[edgeCount] = fromNode;
+            to[edgeCount] = toNode;
+            speed[edgeCount] = speedFactor;
+            edgeCount++;
+            return this;
+        }
+
+        public RoadGraph build() {
+            return new RoadGraph(this);
+        }
+    }
+}
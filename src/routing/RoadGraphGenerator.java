@@ -0,0 +1,84 @@
+package routing;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+
+// Синтетический дорожный граф города - решетка улиц для опытов без реальной карты.
+// Перекрестки слегка смещены случайно, каждая ARTERIAL_STEP-я улица - двусторонний
+// проспект с полной скоростью, остальные - медленные улицы с односторонним движением,
+// направление которых чередуется (как в кварталах Манхэттена). Проспекты двусторонние,
+// поэтому из любого перекрестка можно доехать до любого.
+public final class RoadGraphGenerator {
+
+    private static final int ARTERIAL_STEP = 5;
+    private static final double ARTERIAL_SPEED = 1.0;
+    private static final double STREET_SPEED = 0.5;
+
+    private RoadGraphGenerator() {}
+
+    // Решетка size x size перекрестков на квадрате [0, citySize] x [0, citySize]
+    public static RoadGraph grid(int size, double citySize, long seed) {
+        if (size < 2) {
+            throw new IllegalArgumentException("Размер решетки должен быть не меньше 2");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        double step = citySize / (size - 1);
+        double jitter = step * 0.2;
+
+        RoadGraph.Builder builder = new RoadGraph.Builder();
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                double x = clamp(column * step + (random.nextDouble() * 2 - 1) * jitter, citySize);
+                double y = clamp(row * step + (random.nextDouble() * 2 - 1) * jitter, citySize);
+                builder.addNode(x, y);
+            }
+        }
+
+        for (int row = 0; row < size; row++) {
+            for (int column = 0; column < size; column++) {
+                int node = row * size + column;
+                if (column + 1 < size) {
+                    addStreet(builder, node, node + 1, row, size);
+                }
+                if (row + 1 < size) {
+                    addStreet(builder, node, node + size, column, size);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    // Улица с номером line: проспект, крайняя улица или одностороннее движение по четности
+    private static void addStreet(RoadGraph.Builder builder, int from, int to, int line, int size) {
+        if (line % ARTERIAL_STEP == 0 || line == size - 1) {
+            builder.addEdge(from, to, ARTERIAL_SPEED);
+            builder.addEdge(to, from, ARTERIAL_SPEED);
+        } else if (line % 2 == 0) {
+            builder.addEdge(from, to, STREET_SPEED);
+        } else {
+            builder.addEdge(to, from, STREET_SPEED);
+        }
+    }
+
+    private static double clamp(double value, double max) {
+        return Math.min(max, Math.max(0, value));
+    }
+
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Использование: java routing.RoadGraphGenerator <выход.graph> <перекрестков по стороне> " +
+                               "[размер города] [seed]");
+            System.exit(1);
+        }
+        int size = Integer.parseInt(args[1]);
+        double citySize = args.length >= 3 ? Double.parseDouble(args[2]) : 100.0;
+        long seed = args.length >= 4 ? Long.parseLong(args[3]) : 42L;
+
+        RoadGraph graph = grid(size, citySize, seed);
+        graph.write(Paths.get(args[0]));
+        System.out.println(graph + " записан в " + args[0]);
+    }
+}
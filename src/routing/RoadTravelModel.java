@@ -0,0 +1,123 @@
+package routing;
+
+import models.Point;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+
+// Движение по дорожному графу. Точки привязываются к ближайшим узлам (NearestNodeIndex),
+// от точки до узла и от узла до точки такси едет по прямой с полной скоростью,
+// между узлами - по самому быстрому пути LandmarkRouter.
+// Если узлы не связаны дорогами, маршрут считается по прямой, чтобы симуляция не вставала.
+// Маршруты между узлами запоминает RouteCache: привязка к перекресткам уже квантует точки,
+// и пары узлов повторяются и при выборе такси, и в поездках.
+public final class RoadTravelModel implements TravelModel {
+
+    private final RoadGraph graph;
+    private final NearestNodeIndex nearestNodes;
+    private final LandmarkRouter router;
+    // null - без кэша
+    private final RouteCache cache;
+
+    // Такси запрашивает пробег и время одного и того же участка подряд - последний маршрут
+    // потока запоминается, чтобы не искать его дважды
+    private final ThreadLocal<LastRoute> lastRoute = ThreadLocal.withInitial(LastRoute::new);
+
+    public RoadTravelModel(RoadGraph graph, int landmarks) {
+        this(graph, landmarks, 0);
+    }
+
+    // cacheSize - сколько маршрутов между узлами хранить (0 - без кэша)
+    public RoadTravelModel(RoadGraph graph, int landmarks, int cacheSize) {
+        this.graph = graph;
+        this.nearestNodes = new NearestNodeIndex(graph);
+        this.router = new LandmarkRouter(graph, landmarks);
+        this.cache = cacheSize > 0 ? new RouteCache(cacheSize) : null;
+    }
+
+    public static RoadTravelModel load(Path path, int landmarks, int cacheSize) throws IOException {
+        return new RoadTravelModel(RoadGraph.load(path), landmarks, cacheSize);
+    }
+
+    @Override
+    public double distance(Point from, Point to) {
+        return route(from, to).length;
+    }
+
+    @Override
+    public long travelMillis(Point from, Point to, double speed) {
+        return (long) (route(from, to).cost / speed * 1000);
+    }
+
+    // Ближайший к точке узел графа
+    public int snap(Point point) {
+        return nearestNodes.nearest(point.getX(), point.getY());
+    }
+
+    public RoadGraph getGraph() {
+        return graph;
+    }
+
+    public LandmarkRouter getRouter() {
+        return router;
+    }
+
+    public RouteCache getCache() {
+        return cache;
+    }
+
+    private LastRoute route(Point from, Point to) {
+        LastRoute last = lastRoute.get();
+        if (from.equals(last.from) && to.equals(last.to)) {
+            return last;
+        }
+
+        int source = snap(from);
+        int target = snap(to);
+        // Точки у одного перекрестка соединяются по прямой
+        Route path = source != target ? findPath(source, target) : Route.UNREACHABLE;
+        if (!path.isReachable()) {
+            double straight = from.distanceTo(to);
+            last.set(from, to, straight, straight);
+            return last;
+        }
+        double access = from.distanceTo(new Point(graph.getX(source), graph.getY(source)))
+                      + to.distanceTo(new Point(graph.getX(target), graph.getY(target)));
+        last.set(from, to, path.getCost() + access, path.getLength() + access);
+        return last;
+    }
+
+    private Route findPath(int source, int target) {
+        if (cache == null) {
+            return router.route(source, target);
+        }
+        long key = RouteCache.key(source, target);
+        Route path = cache.get(key);
+        if (path == null) {
+            path = router.route(source, target);
+            cache.put(key, path);
+        }
+        return path;
+    }
+
+    @Override
+    public String getName() {
+        return "по дорогам (" + graph.getNodeCount() + " узлов, ориентиров: " + router.getLandmarks() + ")";
+    }
+
+
+    private static final class LastRoute {
+        Point from;
+        Point to;
+        double cost;
+        double length;
+
+        void set(Point from, Point to, double cost, double length) {
+            this.from = from;
+            this.to = to;
+            this.cost = cost;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package routing;
+
+
+// Результат поиска кратчайшего пути между двумя узлами графа
+public final class Route {
+
+    static final Route UNREACHABLE = new Route(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, 0);
+
+    private final double cost;
+    private final double length;
+    private final int settledNodes;
+
+    Route(double cost, double length, int settledNodes) {
+        this.cost = cost;
+        this.length = length;
+        this.settledNodes = settledNodes;
+    }
+
+    // Стоимость - длина с учетом скоростей участков: время в пути = стоимость / скорость такси
+    public double getCost() {
+        return cost;
+    }
+
+    public double getLength() {
+        return length;
+    }
+
+    // Сколько узлов поиск окончательно обработал - мера работы запроса
+    public int getSettledNodes() {
+        return settledNodes;
+    }
+
+    public boolean isReachable() {
+        return cost != Double.POSITIVE_INFINITY;
+    }
+}
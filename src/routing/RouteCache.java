@@ -0,0 +1,148 @@
+package routing;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+// Ограниченный кэш маршрутов между узлами графа, общий для диспетчера и такси.
+//
+// Поиск идет по ConcurrentHashMap без блокировок. Вытеснение - алгоритм CLOCK (второй шанс,
+// приближение LRU): записи лежат в кольцах сегментов, попадание только ставит записи
+// бит обращения, а при вставке в полный сегмент стрелка идет по кольцу, снимает биты и
+// вытесняет первую запись без бита. Кольцо выбирается по хешу ключа, и у каждого своя
+// блокировка - общей блокировки на весь кэш нет, а попадания не блокируются вовсе.
+// Если два потока одновременно промахнулись по одному ключу, маршрут посчитают оба,
+// а сохранится первый.
+public final class RouteCache {
+
+    private final ConcurrentHashMap<Long, Entry> entries;
+    private final Segment[] segments;
+    private final int segmentMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public RouteCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Размер кэша маршрутов должен быть положительным");
+        }
+        int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(capacity / 16,
+            4 * Runtime.getRuntime().availableProcessors())));
+        int segmentCapacity = (capacity + segmentCount - 1) / segmentCount;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+        this.segmentMask = segmentCount - 1;
+        this.entries = new ConcurrentHashMap<>(segmentCount * segmentCapacity * 4 / 3 + 1);
+    }
+
+    // Ключ - пара узлов графа
+    public static long key(int source, int target) {
+        return ((long) source << 32) | (target & 0xFFFFFFFFL);
+    }
+
+    // null - маршрута в кэше нет
+    public Route get(long key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        // Запись только при смене бита, чтобы горячие записи не гоняли строку кэша между ядрами
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry.route;
+    }
+
+    public void put(long key, Route route) {
+        Segment segment = segments[spread(key) & segmentMask];
+        segment.lock.lock();
+        try {
+            if (entries.containsKey(key)) {
+                return;
+            }
+            Entry entry = new Entry(key, route);
+            Entry[] ring = segment.ring;
+            if (segment.size < ring.length) {
+                ring[segment.size++] = entry;
+            } else {
+                // Вторая попытка для записей с битом обращения, вытесняется первая без него
+                while (ring[segment.hand].referenced) {
+                    ring[segment.hand].referenced = false;
+                    segment.hand = (segment.hand + 1) % ring.length;
+                }
+                entries.remove(ring[segment.hand].key);
+                evictions.increment();
+                ring[segment.hand] = entry;
+                segment.hand = (segment.hand + 1) % ring.length;
+            }
+            entries.put(key, entry);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    private static int spread(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // ================= Метрики =================
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total > 0 ? (double) hitCount / total : 0.0;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Кэш маршрутов: %d записей, попаданий %d, промахов %d (%.1f%%), вытеснено %d",
+                             size(), getHits(), getMisses(), getHitRate() * 100, getEvictions());
+    }
+
+
+    private static final class Entry {
+        final long key;
+        final Route route;
+        // Бит обращения CLOCK: ставят читатели, снимает стрелка под блокировкой сегмента
+        volatile boolean referenced;
+
+        Entry(long key, Route route) {
+            this.key = key;
+            this.route = route;
+        }
+    }
+
+    private static final class Segment {
+        final ReentrantLock lock = new ReentrantLock();
+        final Entry[] ring;
+        int size;
+        int hand;
+
+        Segment(int capacity) {
+            this.ring = new Entry[capacity];
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package routing;
+
+import models.Point;
+
+
+// Расстояния и время в пути между точками города. По умолчанию - по прямой
+// (EuclideanTravelModel), с дорожным графом - по дорогам (RoadTravelModel).
+// Реализации потокобезопасны: их вызывают такси, диспетчер и стратегии одновременно.
+public interface TravelModel {
+
+    // Пробег по маршруту (по нему считаются стоимость и статистика)
+    double distance(Point from, Point to);
+
+    // Время в пути такси со скоростью speed (ед./с) по самому быстрому маршруту, мс
+    long travelMillis(Point from, Point to, double speed);
+
+    String getName();
+
+    static TravelModel euclidean() {
+        return EuclideanTravelModel.INSTANCE;
+    }
+}
@@ -0,0 +1,12 @@
+package services;
+
+import models.RideRequest;
+
+
+// Получает итог назначения каждого заказа: выбранное такси или null, если подходящего нет.
+// Вызывается в потоке диспетчера сразу после назначения, поэтому должен быть быстрым
+// и не блокироваться.
+public interface AssignmentListener {
+
+    void onAssignment(RideRequest request, TaxiWorker taxi);
+}
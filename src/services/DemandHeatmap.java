@@ -0,0 +1,91 @@
+package services;
+
+import models.Point;
+import models.TaxiType;
+
+import java.util.Arrays;
+
+
+// Тепловая карта спроса: число заказов по ячейкам сетки города и типам такси
+// за скользящее окно. Окно разбито на WINDOW_BUCKETS интервалов; с течением времени
+// самый старый интервал обнуляется и принимает новые заказы, поэтому карта следит
+// за сменой горячих точек без хранения отдельных заказов.
+// Заказы без типа (их везет любое такси) считаются спросом на каждый тип.
+// Не потокобезопасна: ей пользуется только поток диспетчера.
+public class DemandHeatmap {
+
+    private static final int WINDOW_BUCKETS = 6;
+    // Слот заказов без типа - после слотов TaxiType
+    private static final int ANY_TYPE = TaxiType.values().length;
+
+    private final double minX;
+    private final double minY;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final int dimension;
+    private final long bucketMillis;
+
+    // [интервал][тип такси или ANY_TYPE][ячейка]
+    private final int[][][] counts;
+    private int currentBucket;
+    private long bucketStartMillis;
+
+    public DemandHeatmap(double minX, double maxX, double minY, double maxY, int dimension, long windowMillis) {
+        if (dimension < 1) {
+            throw new IllegalArgumentException("Размер сетки тепловой карты должен быть положительным");
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.cellWidth = (maxX - minX) / dimension;
+        this.cellHeight = (maxY - minY) / dimension;
+        this.dimension = dimension;
+        this.bucketMillis = Math.max(1, windowMillis / WINDOW_BUCKETS);
+        this.counts = new int[WINDOW_BUCKETS][ANY_TYPE + 1][dimension * dimension];
+        this.bucketStartMillis = System.currentTimeMillis();
+    }
+
+    public void record(Point pickup, TaxiType type, long nowMillis) {
+        advance(nowMillis);
+        counts[currentBucket][type != null ? type.ordinal() : ANY_TYPE][cellOf(pickup)]++;
+    }
+
+    // Заказов в ячейке за окно, которые может везти такси типа type
+    public int demand(int cell, TaxiType type, long nowMillis) {
+        advance(nowMillis);
+        int total = 0;
+        for (int[][] bucket : counts) {
+            total += bucket[type.ordinal()][cell] + bucket[ANY_TYPE][cell];
+        }
+        return total;
+    }
+
+    public int cellOf(Point point) {
+        int column = Math.min(dimension - 1, Math.max(0, (int) ((point.getX() - minX) / cellWidth)));
+        int row = Math.min(dimension - 1, Math.max(0, (int) ((point.getY() - minY) / cellHeight)));
+        return row * dimension + column;
+    }
+
+    public Point cellCenter(int cell) {
+        return new Point(minX + (cell % dimension + 0.5) * cellWidth,
+                         minY + (cell / dimension + 0.5) * cellHeight);
+    }
+
+    public int getCellCount() {
+        return dimension * dimension;
+    }
+
+    // Сдвигает окно: интервалы, целиком ушедшие в прошлое, обнуляются
+    private void advance(long nowMillis) {
+        long elapsedBuckets = (nowMillis - bucketStartMillis) / bucketMillis;
+        if (elapsedBuckets <= 0) {
+            return;
+        }
+        for (long i = 0; i < Math.min(elapsedBuckets, WINDOW_BUCKETS); i++) {
+            currentBucket = (currentBucket + 1) % WINDOW_BUCKETS;
+            for (int[] cells : counts[currentBucket]) {
+                Arrays.fill(cells, 0);
+            }
+        }
+        bucketStartMillis += elapsedBuckets * bucketMillis;
+    }
+}
@@ -1,5 +1,6 @@
 package services;
 
+import models.Point;
 import models.RideRequest;
 
 import java.util.List;
@@ -8,5 +9,13 @@ public interface DispatchStrategy {
     
     TaxiWorker selectTaxi(List<TaxiWorker> taxis, RideRequest request);
     
+    // Вызывается диспетчером после назначения заказа выбранному такси (для стратегий с индексом)
+    default void onRideAssigned(TaxiWorker taxi, RideRequest request) {
+    }
+    
+    // Вызывается, когда свободное такси отправлено без заказа в точку target (см. FleetRebalancer)
+    default void onTaxiRepositioned(TaxiWorker taxi, Point target) {
+    }
+    
     String getName();
 }
\ No newline at end of file
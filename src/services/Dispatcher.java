@@ -3,8 +3,10 @@ package services;
 import models.RideRequest;
 import models.TaxiStatus;
 import stats.StatisticsCollector;
+import util.ConsoleLog;
 import util.FareCalculator;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -13,15 +15,26 @@ import java.util.concurrent.locks.ReentrantLock;
 
 public class Dispatcher implements Runnable, DispatcherCallback {
     
+    // Сколько ожидающих заказов диспетчер забирает из очереди за одно обращение
+    private static final int DISPATCH_BATCH_SIZE = 64;
+    
     private final BlockingQueue<RideRequest> requestQueue;
     private final List<TaxiWorker> taxis;
     private final DispatchStrategy strategy;
     private final ReentrantLock selectionLock;
     private final StatisticsCollector statisticsCollector;
     private volatile boolean running = true;
+    private volatile Thread workerThread;
+    // Перегон свободных такси к спросу (null - выключен); задается до запуска
+    private FleetRebalancer rebalancer;
+    // Кому сообщать итог назначения; задаются до запуска
+    private final List<AssignmentListener> assignmentListeners = new ArrayList<>();
+    // Кому сообщать о завершенных поездках; задаются до запуска
+    private final List<DispatcherCallback> completionListeners = new ArrayList<>();
     
-    private int totalAssignedRides = 0;
-    private int failedAssignments = 0;
+    // Пишет только поток диспетчера, читают снаружи
+    private volatile int totalAssignedRides = 0;
+    private volatile int failedAssignments = 0;
  
     public Dispatcher(BlockingQueue<RideRequest> requestQueue, 
                      List<TaxiWorker> taxis, 
@@ -39,54 +52,56 @@ public class Dispatcher implements Runnable, DispatcherCallback {
         }
     }
 
+    public void setRebalancer(FleetRebalancer rebalancer) {
+        this.rebalancer = rebalancer;
+    }
+
+    public void addAssignmentListener(AssignmentListener assignmentListener) {
+        assignmentListeners.add(assignmentListener);
+    }
+
+    public void addCompletionListener(DispatcherCallback completionListener) {
+        completionListeners.add(completionListener);
+    }
+
     @Override
     public void run() {
-        System.out.println("Диспетчер запущен. Стратегия: " + strategy.getName());
-        System.out.println("Доступно такси: " + taxis.size());
+        workerThread = Thread.currentThread();
+        ConsoleLog.println("Диспетчер запущен. Стратегия: " + strategy.getName());
+        ConsoleLog.println("Доступно такси: " + taxis.size());
         
+        List<RideRequest> batch = new ArrayList<>(DISPATCH_BATCH_SIZE);
+        // Заказы пачки, до которых не дошли из-за остановки: они завершаются вместе с очередью
+        List<RideRequest> unprocessed = List.of();
+        dispatchLoop:
         while (running) {
             try {
-                // Забираем заказ из общей очереди
-                RideRequest request = requestQueue.take();
-                
-                // Проверяем, не poison pill ли это
-                if (isPoisonPill(request)) {
-                    System.out.println("Диспетчер получил poison pill. Завершаю работу...");
-                    break;
+                // Ждем первый заказ, остальные уже ожидающие забираем пачкой
+                RideRequest first = awaitRequest();
+                if (first == null) {
+                    continue;
                 }
+                batch.add(first);
+                requestQueue.drainTo(batch, DISPATCH_BATCH_SIZE - 1);
                 
-                System.out.println("Диспетчер обрабатывает заказ #" + request.getId() + 
-                                " (тип: " + request.getRequestedType() + ")");
-                
-                // Выбираем такси через стратегию
-                TaxiWorker selectedTaxi = selectTaxiForRequest(request);
-                
-                if (selectedTaxi != null) {
-                    // Проверяем running перед назначением
-                    if (!running) {
-                        System.out.println("Диспетчер: получена команда остановки, отменяю назначение заказа #" + request.getId());
-                        break;
+                for (int i = 0; i < batch.size(); i++) {
+                    RideRequest request = batch.get(i);
+                    // Проверяем, не poison pill ли это
+                    if (isPoisonPill(request)) {
+                        ConsoleLog.println("Диспетчер получил poison pill. Завершаю работу...");
+                        unprocessed = batch.subList(i + 1, batch.size());
+                        break dispatchLoop;
+                    }
+                    if (!dispatch(request)) {
+                        unprocessed = batch.subList(i, batch.size());
+                        break dispatchLoop;
                     }
-                    
-                    // Помечаем такси занятым
-                    selectedTaxi.setStatus(TaxiStatus.TO_PICKUP);
-                    
-                    // Кладем заказ в личную очередь такси
-                    selectedTaxi.assignRequest(request);
-                    
-                    totalAssignedRides++;
-                    System.out.println("Заказ #" + request.getId() + 
-                                    " назначен такси " + selectedTaxi.getId() + 
-                                    " (тип: " + selectedTaxi.getType() + ")");
-                } else {
-                    failedAssignments++;
-                    System.out.println("Нет подходящего такси для заказа #" + request.getId() + 
-                                    " (тип: " + request.getRequestedType() + ")");
                 }
+                batch.clear();
                 
             } catch (InterruptedException e) {
                 if (!running) {
-                    System.out.println("Диспетчер прерван по команде остановки");
+                    ConsoleLog.println("Диспетчер прерван по команде остановки");
                     break;
                 } else {
                     System.err.println("Диспетчер был неожиданно прерван");
@@ -96,114 +111,173 @@ public class Dispatcher implements Runnable, DispatcherCallback {
             }
         }
         
-        finishDispatcherWork();
+        finishDispatcherWork(unprocessed);
+    }
+    
+    // Ждет следующий заказ. С перегоном ожидание ограничено сроком следующего перегона,
+    // а сам перегон идет в этом же потоке; null - заказ не пришел, пора перегонять
+    private RideRequest awaitRequest() throws InterruptedException {
+        if (rebalancer == null) {
+            return requestQueue.take();
+        }
+        selectionLock.lock();
+        try {
+            rebalancer.rebalanceIfDue(strategy);
+        } finally {
+            selectionLock.unlock();
+        }
+        return requestQueue.poll(rebalancer.millisUntilNextRun(System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+    
+    // Назначает один заказ; false - получена команда остановки, назначение отменено
+    private boolean dispatch(RideRequest request) {
+        ConsoleLog.println("Диспетчер обрабатывает заказ #" + request.getId() + 
+                        " (тип: " + request.getRequestedType() + ")");
+        if (rebalancer != null) {
+            rebalancer.recordPickup(request);
+        }
+        
+        // Выбираем такси через стратегию
+        TaxiWorker selectedTaxi = selectTaxiForRequest(request);
+        
+        if (selectedTaxi != null) {
+            // Проверяем running перед назначением
+            if (!running) {
+                ConsoleLog.println("Диспетчер: получена команда остановки, отменяю назначение заказа #" + request.getId());
+                return false;
+            }
+            
+            // Свободное такси помечаем занятым; такси с пассажиром (цепочка поездок)
+            // получает заказ в очередь и статус не меняет
+            if (selectedTaxi.getStatus() == TaxiStatus.IDLE) {
+                selectedTaxi.setStatus(TaxiStatus.TO_PICKUP);
+            }
+            
+            // Кладем заказ в личную очередь такси
+            selectedTaxi.assignRequest(request);
+            strategy.onRideAssigned(selectedTaxi, request);
+            
+            totalAssignedRides++;
+            ConsoleLog.println("Заказ #" + request.getId() + 
+                            " назначен такси " + selectedTaxi.getId() + 
+                            " (тип: " + selectedTaxi.getType() + ")");
+        } else {
+            failedAssignments++;
+            ConsoleLog.println("Нет подходящего такси для заказа #" + request.getId() + 
+                            " (тип: " + request.getRequestedType() + ")");
+        }
+        notifyAssignment(request, selectedTaxi);
+        return true;
     }
 
 
-    private void finishDispatcherWork() {
-        System.out.println("Диспетчер завершает работу...");
+    private void finishDispatcherWork(List<RideRequest> unprocessed) {
+        ConsoleLog.println("Диспетчер завершает работу...");
         
-        // 1. Обрабатываем оставшиеся заказы в очереди (если есть)
-        int remainingRequests = requestQueue.size();
-        if (remainingRequests > 0) {
-            System.out.println("В очереди осталось " + remainingRequests + " заказов. Обрабатываю...");
+        // 1. Обрабатываем оставшиеся заказы: хвост последней пачки, затем очередь. После stop() -
+        // прерывание симуляции - они не назначаются: такси все равно будут остановлены
+        int remainingRequests = unprocessed.size() + requestQueue.size();
+        if (!running && remainingRequests > 0) {
+            requestQueue.clear();
+            ConsoleLog.println("Диспетчер: снято необработанных заказов: " + remainingRequests);
+        } else if (remainingRequests > 0) {
+            ConsoleLog.println("Осталось " + remainingRequests + " заказов. Обрабатываю...");
             
-            // Обрабатываем заказы пока очередь не опустеет или не получим poison pill
+            for (RideRequest request : unprocessed) {
+                dispatchRemaining(request);
+            }
+            // Обрабатываем заказы пока очередь не опустеет; poison pill от других
+            // источников заказов только пропускаем
             while (!requestQueue.isEmpty()) {
                 try {
                     RideRequest request = requestQueue.poll(100, TimeUnit.MILLISECONDS);
                     if (request == null) break;
-                    
-                    if (isPoisonPill(request)) {
-                        System.out.println("Диспетчер: получен дополнительный poison pill");
-                        break;
-                    }
-                    
-                    // Пытаемся назначить оставшиеся заказы
-                    TaxiWorker selectedTaxi = selectTaxiForRequest(request);
-                    if (selectedTaxi != null) {
-                        selectedTaxi.assignRequest(request);
-                        totalAssignedRides++;
-                        System.out.println("Диспетчер: назначил оставшийся заказ #" + request.getId());
-                    } else {
-                        failedAssignments++;
-                        System.out.println("Диспетчер: не удалось назначить оставшийся заказ #" + request.getId());
-                    }
+                    dispatchRemaining(request);
                     
                 } catch (InterruptedException e) {
-                    System.out.println("Диспетчер прерван при обработке оставшихся заказов");
+                    ConsoleLog.println("Диспетчер прерван при обработке оставшихся заказов");
                     Thread.currentThread().interrupt();
                     break;
                 }
             }
         }
         
-        // 2. Останавливаем такси
-        stopAllTaxis();
+        // 2. Такси останавливает владелец симуляции: по политике завершения они
+        // могут еще довозить назначенных пассажиров
         
         // 3. Выводим итоговую статистику
-        System.out.println("Диспетчер остановлен. Назначено поездок: " + 
+        ConsoleLog.println("Диспетчер остановлен. Назначено поездок: " + 
                         totalAssignedRides + ", не удалось назначить: " + failedAssignments);
         
         // 4. Сообщаем о качестве завершения
         if (requestQueue.isEmpty()) {
-            System.out.println("Диспетчер: все заказы обработаны, очередь пуста.");
+            ConsoleLog.println("Диспетчер: все заказы обработаны, очередь пуста.");
         } else {
-            System.out.println("Диспетчер: в очереди остались необработанные заказы: " + requestQueue.size());
+            ConsoleLog.println("Диспетчер: в очереди остались необработанные заказы: " + requestQueue.size());
         }
     }
 
     
+    // Назначает заказ, оставшийся после остановки приема
+    private void dispatchRemaining(RideRequest request) {
+        if (isPoisonPill(request)) {
+            ConsoleLog.println("Диспетчер: получен дополнительный poison pill");
+            return;
+        }
+        
+        // Пытаемся назначить оставшиеся заказы
+        TaxiWorker selectedTaxi = selectTaxiForRequest(request);
+        if (selectedTaxi != null) {
+            selectedTaxi.assignRequest(request);
+            strategy.onRideAssigned(selectedTaxi, request);
+            totalAssignedRides++;
+            ConsoleLog.println("Диспетчер: назначил оставшийся заказ #" + request.getId());
+        } else {
+            failedAssignments++;
+            ConsoleLog.println("Диспетчер: не удалось назначить оставшийся заказ #" + request.getId());
+        }
+        notifyAssignment(request, selectedTaxi);
+    }
+    
     private TaxiWorker selectTaxiForRequest(RideRequest request) {
+        TaxiWorker selectedTaxi;
         selectionLock.lock();
         try {
-            return strategy.selectTaxi(taxis, request);
+            selectedTaxi = strategy.selectTaxi(taxis, request);
         } finally {
             selectionLock.unlock();
         }
+        
+        // Задержка считается от планового момента поступления заказа, а не от фактической
+        // отправки, чтобы отставание генератора не скрывало очередь (coordinated omission)
+        if (statisticsCollector != null) {
+            statisticsCollector.recordDispatchLatency(System.nanoTime() - request.getIntendedAtNanos());
+        }
+        return selectedTaxi;
     }
     
-    private boolean isPoisonPill(RideRequest request) {
-        return request.getId() == -1; 
+    private void notifyAssignment(RideRequest request, TaxiWorker taxi) {
+        for (AssignmentListener listener : assignmentListeners) {
+            listener.onAssignment(request, taxi);
+        }
     }
     
-    private void stopAllTaxis() {
-        System.out.println("Диспетчер останавливает все такси...");
-        int stoppedCount = 0;
-        
-        for (TaxiWorker taxi : taxis) {
-            try {
-                taxi.stop();
-                stoppedCount++;
-                System.out.println("Диспетчер: отправил команду остановки такси " + taxi.getId());
-            } catch (Exception e) {
-                System.err.println("Диспетчер: ошибка при остановке такси " + taxi.getId() + ": " + e.getMessage());
-            }
-        }
-        
-        System.out.println("Диспетчер: команды остановки отправлены " + stoppedCount + " такси из " + taxis.size());
+    private boolean isPoisonPill(RideRequest request) {
+        return request.isPoisonPill();
     }
     
     public void stop() {
         this.running = false;
         
-        // Отправляем poison pill вместо interrupt
-        try {
-            RideRequest dispatcherPoisonPill = RideRequest.createPoisonPill();
-            
-            // Пытаемся положить poison pill с таймаутом (100 мс)
-            boolean success = requestQueue.offer(dispatcherPoisonPill, 100, TimeUnit.MILLISECONDS);
-            
-            if (success) {
-                System.out.println("Диспетчер получил команду остановки (poison pill отправлен в очередь)");
-            } else {
-                System.err.println("Диспетчер: не удалось отправить poison pill (очередь переполнена или заблокирована)");
-                // Если не удалось отправить poison pill, прерываем поток
-                Thread.currentThread().interrupt();
+        // Отправляем poison pill; если очередь заполнена, будим поток диспетчера прерыванием
+        if (requestQueue.offer(RideRequest.createPoisonPill())) {
+            ConsoleLog.println("Диспетчер получил команду остановки (poison pill отправлен в очередь)");
+        } else {
+            Thread worker = workerThread;
+            if (worker != null) {
+                worker.interrupt();
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.err.println("Диспетчер: прервано при отправке poison pill");
+            ConsoleLog.println("Диспетчер получил команду остановки (очередь заполнена, поток прерван)");
         }
     }
 
@@ -220,6 +294,12 @@ public class Dispatcher implements Runnable, DispatcherCallback {
         }
         
         if (statisticsCollector != null) {
+            if (ride.getPickedUpAtMillis() > 0) {
+                statisticsCollector.recordPickupWait(ride.getPickedUpAtMillis() - ride.getCreatedAtMillis());
+                statisticsCollector.recordRideDetour(System.currentTimeMillis() - ride.getPickedUpAtMillis(),
+                    taxi.getTravelModel().travelMillis(ride.getPickupLocation(), ride.getDropoffLocation(),
+                                                       taxi.getSpeed()));
+            }
             statisticsCollector.recordCompletedRide(
                 taxi.getId(),
                 taxi.getType(),
@@ -230,11 +310,18 @@ public class Dispatcher implements Runnable, DispatcherCallback {
             );
         }
         
-        System.out.printf("Диспетчер: такси %d завершило поездку #%d, " +
-                         "расстояние: %.2f, стоимость: %.2f, " +
-                         "ожидание: %d мс, время поездки: %d мс%n",
-                         taxi.getId(), ride.getId(), distance, fare,
-                         waitTimeMillis, rideTimeMillis);
+        // Проверяем заранее, чтобы при выключенном журнале не упаковывать аргументы
+        if (ConsoleLog.isEnabled()) {
+            ConsoleLog.printf("Диспетчер: такси %d завершило поездку #%d, " +
+                             "расстояние: %.2f, стоимость: %.2f, " +
+                             "ожидание: %d мс, время поездки: %d мс%n",
+                             taxi.getId(), ride.getId(), distance, fare,
+                             waitTimeMillis, rideTimeMillis);
+        }
+        
+        for (DispatcherCallback listener : completionListeners) {
+            listener.onRideCompleted(taxi, ride, distance, fare, waitTimeMillis);
+        }
     }
     
     // =============== Геттеры ===================
@@ -0,0 +1,183 @@
+package services;
+
+import models.Point;
+import models.RideRequest;
+import models.TaxiStatus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+// Такси с минимальным временем подачи (ETA): остаток текущего этапа поездки, уже назначенные
+// заказы и дорога от точки, где такси освободится (см. TaxiWorker.estimatePickupMillis).
+// Кроме свободных рассматриваются занятые такси, у которых в очереди меньше lookAhead заказов.
+//
+// Чтобы не перебирать весь парк, такси разложены по равномерной сетке по точке, где они
+// освободятся (для свободного - текущая позиция, для занятого - высадка последнего заказа).
+// Поиск идет кольцами ячеек от точки посадки: ETA такси из кольца r не меньше времени
+// проезда (r - 1) ячеек, поэтому, как только эта граница превысит лучшее найденное ETA,
+// дальше искать незачем. По дорожному графу путь не короче прямой (см. RoadGraph), так что
+// граница верна и с TravelModel по дорогам. Сетку меняет только поток диспетчера
+// (выбор, onRideAssigned и onTaxiRepositioned).
+public class EtaTaxiStrategy implements DispatchStrategy {
+
+    // Сколько такси в среднем приходится на ячейку сетки
+    private static final int TAXIS_PER_CELL = 4;
+
+    private final double minX;
+    private final double minY;
+    private final double width;
+    private final double height;
+    private final int lookAhead;
+
+    // Строится при первом выборе: до этого парк неизвестен
+    private List<TaxiWorker> indexedTaxis;
+    private double cellSize;
+    private int columns;
+    private int rows;
+    private List<TaxiWorker>[] cells;
+    private final Map<TaxiWorker, Integer> cellOfTaxi = new HashMap<>();
+    private double maxSpeed;
+
+    public EtaTaxiStrategy(double minX, double maxX, double minY, double maxY, int lookAhead) {
+        if (maxX <= minX || maxY <= minY) {
+            throw new IllegalArgumentException("Неверные границы города");
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.width = maxX - minX;
+        this.height = maxY - minY;
+        this.lookAhead = Math.max(1, lookAhead);
+    }
+
+    @Override
+    public TaxiWorker selectTaxi(List<TaxiWorker> taxis, RideRequest request) {
+        if (taxis == null || taxis.isEmpty()) {
+            return null;
+        }
+        if (indexedTaxis != taxis) {
+            buildIndex(taxis);
+        }
+
+        Point pickup = request.getPickupLocation();
+        int pickupColumn = column(pickup.getX());
+        int pickupRow = row(pickup.getY());
+        int maxRing = Math.max(Math.max(pickupColumn, columns - 1 - pickupColumn),
+                               Math.max(pickupRow, rows - 1 - pickupRow));
+
+        TaxiWorker selectedTaxi = null;
+        long bestEtaMillis = Long.MAX_VALUE;
+        for (int ring = 0; ring <= maxRing; ring++) {
+            // Нижняя граница ETA для всех такси кольца и дальше
+            long ringLowerBoundMillis = ring == 0 ? 0 : (long) ((ring - 1) * cellSize / maxSpeed * 1000);
+            if (ringLowerBoundMillis >= bestEtaMillis) {
+                break;
+            }
+            for (int r = pickupRow - ring; r <= pickupRow + ring; r++) {
+                if (r < 0 || r >= rows) {
+                    continue;
+                }
+                // Внутренние строки кольца - только два крайних столбца
+                int step = (r == pickupRow - ring || r == pickupRow + ring) ? 1 : Math.max(1, 2 * ring);
+                for (int c = pickupColumn - ring; c <= pickupColumn + ring; c += step) {
+                    if (c < 0 || c >= columns) {
+                        continue;
+                    }
+                    for (TaxiWorker taxi : cells[r * columns + c]) {
+                        if (!isCandidate(taxi, request)) {
+                            continue;
+                        }
+                        long etaMillis = taxi.estimatePickupMillis(pickup);
+                        if (etaMillis < bestEtaMillis) {
+                            bestEtaMillis = etaMillis;
+                            selectedTaxi = taxi;
+                        }
+                    }
+                }
+            }
+        }
+        return selectedTaxi;
+    }
+
+    // Такси освободится в точке высадки назначенного заказа - переносим его в ее ячейку
+    @Override
+    public void onRideAssigned(TaxiWorker taxi, RideRequest request) {
+        if (indexedTaxis != null) {
+            move(taxi, request.getDropoffLocation());
+        }
+    }
+
+    // Такси без заказа едет к спросу и освободится в точке перегона
+    @Override
+    public void onTaxiRepositioned(TaxiWorker taxi, Point target) {
+        if (indexedTaxis != null) {
+            move(taxi, target);
+        }
+    }
+
+    private boolean isCandidate(TaxiWorker taxi, RideRequest request) {
+        if (!isTaxiSuitableForRequest(taxi, request)) {
+            return false;
+        }
+        // Такси в пути к спросу заказов не берет, пока не доедет
+        TaxiStatus status = taxi.getStatus();
+        return status == TaxiStatus.IDLE
+            || (status != TaxiStatus.REPOSITIONING && taxi.canQueueRide(lookAhead));
+    }
+
+    private boolean isTaxiSuitableForRequest(TaxiWorker taxi, RideRequest request) {
+        if (request.getRequestedType() == null) {
+            return true; // Если тип не указан, подходит любое такси
+        }
+
+        return taxi.getType().ordinal() == request.getRequestedType().ordinal();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void buildIndex(List<TaxiWorker> taxis) {
+        int dimension = Math.max(1, (int) Math.ceil(Math.sqrt((double) taxis.size() / TAXIS_PER_CELL)));
+        cellSize = Math.max(width, height) / dimension;
+        columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        cells = new List[columns * rows];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = new ArrayList<>(TAXIS_PER_CELL * 2);
+        }
+        cellOfTaxi.clear();
+        maxSpeed = 0;
+        for (TaxiWorker taxi : taxis) {
+            maxSpeed = Math.max(maxSpeed, taxi.getSpeed());
+            move(taxi, taxi.getCurrentLocation());
+        }
+        indexedTaxis = taxis;
+    }
+
+    private void move(TaxiWorker taxi, Point location) {
+        int cell = row(location.getY()) * columns + column(location.getX());
+        Integer previous = cellOfTaxi.put(taxi, cell);
+        if (previous != null) {
+            if (previous == cell) {
+                return;
+            }
+            cells[previous].remove(taxi);
+        }
+        cells[cell].add(taxi);
+    }
+
+    // Точки за границами города прижимаются к краю сетки: проекция не увеличивает расстояния,
+    // поэтому нижние границы колец остаются верными
+    private int column(double x) {
+        return Math.min(columns - 1, Math.max(0, (int) ((x - minX) / cellSize)));
+    }
+
+    private int row(double y) {
+        return Math.min(rows - 1, Math.max(0, (int) ((y - minY) / cellSize)));
+    }
+
+    @Override
+    public String getName() {
+        return "Минимальное время подачи";
+    }
+}
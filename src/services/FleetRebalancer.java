@@ -0,0 +1,172 @@
+package services;
+
+import models.Point;
+import models.RideRequest;
+import models.TaxiStatus;
+import models.TaxiType;
+import util.ConsoleLog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+// Перегон свободных такси к спросу. Без него такси после высадки стоит там, где поездка
+// закончилась, и парк сползает к местам назначения, а не к местам посадки.
+//
+// Раз в intervalMillis для каждого типа такси свободные машины сравниваются со спросом
+// по тепловой карте (DemandHeatmap): ячейке «положено» столько свободных такси, какова
+// ее доля заказов этого типа. Ячейки с нехваткой получают ближайшие такси из ячеек
+// с избытком, но за один раз перегоняется не больше maxShare свободных такси - остальные
+// остаются на местах, чтобы перегон не оголял город. Такси в пути к спросу не принимают
+// заказы (статус REPOSITIONING), пока не доедут.
+//
+// Вызывается только из потока диспетчера (см. Dispatcher.setRebalancer): карта спроса
+// и индексы стратегий меняются одним потоком.
+public class FleetRebalancer {
+
+    private final List<TaxiWorker> taxis;
+    private final DemandHeatmap heatmap;
+    private final long intervalMillis;
+    private final double maxShare;
+    private long nextRunMillis;
+
+    // Пишет только поток диспетчера, читают снаружи
+    private volatile long moves = 0;
+    private volatile double repositionDistance = 0.0;
+
+    public FleetRebalancer(List<TaxiWorker> taxis, DemandHeatmap heatmap, long intervalMillis, double maxShare) {
+        if (intervalMillis < 1) {
+            throw new IllegalArgumentException("Интервал перебалансировки должен быть положительным");
+        }
+        if (maxShare <= 0 || maxShare > 1) {
+            throw new IllegalArgumentException("Доля перегоняемых такси должна быть в (0, 1]");
+        }
+        this.taxis = taxis;
+        this.heatmap = heatmap;
+        this.intervalMillis = intervalMillis;
+        this.maxShare = maxShare;
+        this.nextRunMillis = System.currentTimeMillis() + intervalMillis;
+    }
+
+    public void recordPickup(RideRequest request) {
+        heatmap.record(request.getPickupLocation(), request.getRequestedType(), System.currentTimeMillis());
+    }
+
+    // Сколько мс до следующего перегона (0 - пора)
+    public long millisUntilNextRun(long nowMillis) {
+        return Math.max(0, nextRunMillis - nowMillis);
+    }
+
+    // Перегоняет такси, если пришло время; возвращает число отправленных такси
+    public int rebalanceIfDue(DispatchStrategy strategy) {
+        long now = System.currentTimeMillis();
+        if (now < nextRunMillis) {
+            return 0;
+        }
+        nextRunMillis = now + intervalMillis;
+
+        int moved = 0;
+        for (TaxiType type : TaxiType.values()) {
+            moved += rebalance(type, strategy, now);
+        }
+        if (moved > 0) {
+            ConsoleLog.println("Перебалансировка: к спросу отправлено такси: " + moved);
+        }
+        return moved;
+    }
+
+    private int rebalance(TaxiType type, DispatchStrategy strategy, long now) {
+        int cells = heatmap.getCellCount();
+        List<TaxiWorker> idle = new ArrayList<>();
+        int[] supply = new int[cells];
+        for (TaxiWorker taxi : taxis) {
+            if (taxi.getType() == type && taxi.getStatus() == TaxiStatus.IDLE && taxi.getQueuedRides() == 0) {
+                idle.add(taxi);
+                supply[heatmap.cellOf(taxi.getCurrentLocation())]++;
+            }
+        }
+        int budget = (int) (idle.size() * maxShare);
+        if (budget == 0) {
+            return 0;
+        }
+
+        int[] demand = new int[cells];
+        long totalDemand = 0;
+        for (int cell = 0; cell < cells; cell++) {
+            demand[cell] = heatmap.demand(cell, type, now);
+            totalDemand += demand[cell];
+        }
+        if (totalDemand == 0) {
+            return 0;
+        }
+
+        // Положенное число свободных такси и разница с фактическим (> 0 - нехватка)
+        double[] shortage = new double[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            shortage[cell] = (double) demand[cell] * idle.size() / totalDemand - supply[cell];
+        }
+
+        int moved = 0;
+        while (moved < budget) {
+            int target = mostShortCell(shortage);
+            if (target < 0) {
+                break;
+            }
+            Point destination = heatmap.cellCenter(target);
+            TaxiWorker donor = nearestSurplusTaxi(idle, shortage, destination);
+            if (donor == null) {
+                break;
+            }
+            Point origin = donor.getCurrentLocation();
+            idle.remove(donor);
+            if (!donor.reposition(destination)) {
+                continue;
+            }
+            shortage[heatmap.cellOf(origin)] += 1;
+            shortage[target] -= 1;
+            strategy.onTaxiRepositioned(donor, destination);
+            repositionDistance += donor.getTravelModel().distance(origin, destination);
+            moves++;
+            moved++;
+        }
+        return moved;
+    }
+
+    // Ячейка с наибольшей нехваткой хотя бы в одно такси, -1 - таких нет
+    private static int mostShortCell(double[] shortage) {
+        int best = -1;
+        double bestShortage = 1.0;
+        for (int cell = 0; cell < shortage.length; cell++) {
+            if (shortage[cell] >= bestShortage) {
+                bestShortage = shortage[cell];
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    // Ближайшее к точке такси из ячейки, где такси больше положенного хотя бы на одно
+    private TaxiWorker nearestSurplusTaxi(List<TaxiWorker> idle, double[] shortage, Point destination) {
+        TaxiWorker nearest = null;
+        double nearestDistance = Double.MAX_VALUE;
+        for (TaxiWorker taxi : idle) {
+            if (shortage[heatmap.cellOf(taxi.getCurrentLocation())] > -1.0) {
+                continue;
+            }
+            double distance = taxi.getCurrentLocation().distanceTo(destination);
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearest = taxi;
+            }
+        }
+        return nearest;
+    }
+
+    public long getMoves() {
+        return moves;
+    }
+
+    public double getRepositionDistance() {
+        return repositionDistance;
+    }
+}
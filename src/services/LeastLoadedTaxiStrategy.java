@@ -2,12 +2,24 @@ package services;
 
 import models.RideRequest;
 import models.TaxiStatus;
+import routing.TravelModel;
 
 import java.util.List;
 
 
 public class LeastLoadedTaxiStrategy implements DispatchStrategy {
     
+    // Расстояние до клиента - по прямой или по дорогам
+    private final TravelModel travelModel;
+    
+    public LeastLoadedTaxiStrategy() {
+        this(TravelModel.euclidean());
+    }
+    
+    public LeastLoadedTaxiStrategy(TravelModel travelModel) {
+        this.travelModel = travelModel;
+    }
+    
     @Override
     public TaxiWorker selectTaxi(List<TaxiWorker> taxis, RideRequest request) {
         if (taxis == null || taxis.isEmpty()) {
@@ -39,10 +51,10 @@ public class LeastLoadedTaxiStrategy implements DispatchStrategy {
             }
             // Если загрузка одинаковая, выбираем ближайшее
             else if (completedRides == minCompletedRides) {
-                double currentDistance = leastLoadedTaxi.getCurrentLocation()
-                    .distanceTo(request.getPickupLocation());
-                double newDistance = taxi.getCurrentLocation()
-                    .distanceTo(request.getPickupLocation());
+                double currentDistance = travelModel.distance(leastLoadedTaxi.getCurrentLocation(),
+                                                              request.getPickupLocation());
+                double newDistance = travelModel.distance(taxi.getCurrentLocation(),
+                                                          request.getPickupLocation());
                 
                 if (newDistance < currentDistance) {
                     leastLoadedTaxi = taxi;
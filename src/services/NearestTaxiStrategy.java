@@ -2,12 +2,24 @@ package services;
 
 import models.RideRequest;
 import models.TaxiStatus;
+import routing.TravelModel;
 
 import java.util.List;
 
 
 public class NearestTaxiStrategy implements DispatchStrategy {
     
+    // Расстояние до клиента - по прямой или по дорогам
+    private final TravelModel travelModel;
+    
+    public NearestTaxiStrategy() {
+        this(TravelModel.euclidean());
+    }
+    
+    public NearestTaxiStrategy(TravelModel travelModel) {
+        this.travelModel = travelModel;
+    }
+    
     @Override
     public TaxiWorker selectTaxi(List<TaxiWorker> taxis, RideRequest request) {
         if (taxis == null || taxis.isEmpty()) {
@@ -30,7 +42,7 @@ public class NearestTaxiStrategy implements DispatchStrategy {
             }
             
             // Вычисляем расстояние от такси до точки посадки
-            double distance = taxi.getCurrentLocation().distanceTo(request.getPickupLocation());
+            double distance = travelModel.distance(taxi.getCurrentLocation(), request.getPickupLocation());
             
             if (distance < minDistance) {
                 minDistance = distance;
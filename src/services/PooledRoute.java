@@ -0,0 +1,267 @@
+package services;
+
+import models.Point;
+import models.RideRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongBiFunction;
+
+
+// Маршрут такси в режиме совместных поездок: последовательность остановок посадки
+// и высадки нескольких заказов. Первая остановка - та, к которой такси уже едет:
+// этап в пути не прерывается, новые остановки вставляются только после нее.
+//
+// Поиск вставки перебирает все позиции посадки и высадки нового заказа (O(n^2) вариантов,
+// у каждого проверка за O(n)); время в пути до точек нового заказа и обратно считается
+// один раз. Остановок не больше двух на пассажира, так что при вместимости в несколько мест
+// перебор дешевле одного запроса пути по графу. Вариант допустим, если ни в какой момент
+// в машине не больше capacity пассажиров и время в машине каждого пассажира
+// не больше (1 + maxDetour) его поездки напрямую. Стоимость вставки - на сколько позже
+// такси закончит маршрут.
+//
+// Не потокобезопасен: защищен монитором такси.
+final class PooledRoute {
+
+    // Вставка не найдена
+    static final long INFEASIBLE = -1;
+
+    private final int capacity;
+    private final double maxDetour;
+    private final ToLongBiFunction<Point, Point> travelMillis;
+    private final List<Stop> stops = new ArrayList<>();
+    // Пассажиров в машине сейчас
+    private int onboard;
+
+    PooledRoute(int capacity, double maxDetour, ToLongBiFunction<Point, Point> travelMillis) {
+        this.capacity = capacity;
+        this.maxDetour = maxDetour;
+        this.travelMillis = travelMillis;
+    }
+
+    // Добавочное время маршрута при лучшей вставке заказа или INFEASIBLE. position и arrivalMillis -
+    // где и когда такси освободит первую остановку (для пустого маршрута - текущая точка и сейчас);
+    // maxPickupMillis - не позже какого момента нужно забрать нового клиента
+    long insertionCost(RideRequest request, Point position, long arrivalMillis, long maxPickupMillis) {
+        Insertion insertion = findInsertion(request, position, arrivalMillis, maxPickupMillis);
+        return insertion != null ? insertion.cost : INFEASIBLE;
+    }
+
+    // Вставляет заказ на лучшее место; если после выбора такси маршрут изменился и допустимой
+    // вставки не осталось, заказ добавляется в конец - клиент будет довезен, хоть и с большим крюком.
+    // waitMillis - сколько заказ ждал назначения (для статистики)
+    void insert(RideRequest request, Point position, long arrivalMillis, long waitMillis) {
+        Insertion insertion = findInsertion(request, position, arrivalMillis, Long.MAX_VALUE);
+        int first = firstMovable();
+        int m = stops.size() - first;
+        int pickupAfter = insertion != null ? insertion.pickupAfter : m;
+        int dropoffAfter = insertion != null ? insertion.dropoffAfter : m;
+        long directMillis = travelMillis.applyAsLong(request.getPickupLocation(), request.getDropoffLocation());
+        stops.add(first + pickupAfter, new Stop(request, true, request.getPickupLocation(), directMillis, waitMillis));
+        stops.add(first + dropoffAfter + 1,
+                  new Stop(request, false, request.getDropoffLocation(), directMillis, waitMillis));
+    }
+
+    private Insertion findInsertion(RideRequest request, Point position, long arrivalMillis, long maxPickupMillis) {
+        Point pickup = request.getPickupLocation();
+        Point dropoff = request.getDropoffLocation();
+        int first = firstMovable();
+        int m = stops.size() - first;
+
+        // Точки маршрута: 0 - якорь (первая остановка или текущая позиция), 1..m - остальные остановки.
+        // legs[k] - этап k-1 -> k, остальные массивы - время до точек нового заказа и от них
+        Point[] points = new Point[m + 1];
+        points[0] = position;
+        for (int k = 1; k <= m; k++) {
+            points[k] = stops.get(first + k - 1).location;
+        }
+        long[] legs = new long[m + 1];
+        long[] toPickup = new long[m + 1];
+        long[] fromPickup = new long[m + 1];
+        long[] toDropoff = new long[m + 1];
+        long[] fromDropoff = new long[m + 1];
+        for (int k = 0; k <= m; k++) {
+            if (k > 0) {
+                legs[k] = travelMillis.applyAsLong(points[k - 1], points[k]);
+                fromPickup[k] = travelMillis.applyAsLong(pickup, points[k]);
+                fromDropoff[k] = travelMillis.applyAsLong(dropoff, points[k]);
+            }
+            toPickup[k] = travelMillis.applyAsLong(points[k], pickup);
+            toDropoff[k] = travelMillis.applyAsLong(points[k], dropoff);
+        }
+        long direct = travelMillis.applyAsLong(pickup, dropoff);
+        long[] arrivals = new long[m + 1];
+        arrivals[0] = arrivalMillis;
+        for (int k = 1; k <= m; k++) {
+            arrivals[k] = arrivals[k - 1] + legs[k];
+        }
+
+        Stop newPickup = new Stop(request, true, pickup, direct, 0);
+        Stop newDropoff = new Stop(request, false, dropoff, direct, 0);
+        Stop[] sequence = new Stop[m + 2];
+        long[] times = new long[m + 2];
+        int baseLoad = onboardAfterAnchor();
+
+        Insertion best = null;
+        // Посадка после точки i, высадка после точки j >= i (при j == i - сразу после посадки)
+        for (int i = 0; i <= m; i++) {
+            if (arrivals[i] + toPickup[i] > maxPickupMillis) {
+                continue;
+            }
+            for (int j = i; j <= m; j++) {
+                int n = 0;
+                long time = arrivalMillis;
+                Stop previous = null;
+                for (int k = 0; k <= m; k++) {
+                    if (k > 0) {
+                        time += previous == newPickup ? fromPickup[k]
+                              : previous == newDropoff ? fromDropoff[k] : legs[k];
+                        previous = stops.get(first + k - 1);
+                        sequence[n] = previous;
+                        times[n++] = time;
+                    }
+                    if (k == i) {
+                        time += toPickup[k];
+                        previous = newPickup;
+                        sequence[n] = previous;
+                        times[n++] = time;
+                    }
+                    if (k == j) {
+                        time += previous == newPickup ? direct : toDropoff[k];
+                        previous = newDropoff;
+                        sequence[n] = previous;
+                        times[n++] = time;
+                    }
+                }
+                long cost = time - arrivals[m];
+                if ((best == null || cost < best.cost) && isFeasible(sequence, times, baseLoad, arrivalMillis)) {
+                    best = new Insertion(i, j, cost);
+                }
+            }
+        }
+        return best;
+    }
+
+    // Вместимость и ограничение крюка для каждого пассажира
+    private boolean isFeasible(Stop[] sequence, long[] times, int load, long arrivalMillis) {
+        for (int k = 0; k < sequence.length; k++) {
+            Stop stop = sequence[k];
+            if (stop.pickup) {
+                if (++load > capacity) {
+                    return false;
+                }
+                continue;
+            }
+            load--;
+            long pickedUpAt = pickupTime(sequence, times, k, stop.request, arrivalMillis);
+            if (times[k] - pickedUpAt > (long) ((1 + maxDetour) * stop.directMillis)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Когда пассажир сел (или сядет): посадка в последовательности, на якоре или уже в прошлом
+    private long pickupTime(Stop[] sequence, long[] times, int dropoffIndex, RideRequest request,
+                            long arrivalMillis) {
+        for (int k = dropoffIndex - 1; k >= 0; k--) {
+            if (sequence[k].request == request) {
+                return times[k];
+            }
+        }
+        if (!stops.isEmpty() && stops.get(0).pickup && stops.get(0).request == request) {
+            return arrivalMillis;
+        }
+        return request.getPickedUpAtMillis();
+    }
+
+    // С какой остановки маршрут можно менять: к первой такси уже едет
+    private int firstMovable() {
+        return stops.isEmpty() ? 0 : 1;
+    }
+
+    // Пассажиров в машине после первой остановки
+    private int onboardAfterAnchor() {
+        if (stops.isEmpty()) {
+            return onboard;
+        }
+        return stops.get(0).pickup ? onboard + 1 : onboard - 1;
+    }
+
+    // Когда такси закончит маршрут, если первую остановку освободит в arrivalMillis
+    long finishMillis(long arrivalMillis) {
+        long time = arrivalMillis;
+        for (int k = 1; k < stops.size(); k++) {
+            time += travelMillis.applyAsLong(stops.get(k - 1).location, stops.get(k).location);
+        }
+        return time;
+    }
+
+    // Такси доехало до первой остановки
+    Stop advance() {
+        Stop stop = stops.remove(0);
+        onboard += stop.pickup ? 1 : -1;
+        return stop;
+    }
+
+    Stop nextStop() {
+        return stops.isEmpty() ? null : stops.get(0);
+    }
+
+    Point lastLocation() {
+        return stops.isEmpty() ? null : stops.get(stops.size() - 1).location;
+    }
+
+    boolean isEmpty() {
+        return stops.isEmpty();
+    }
+
+    int getOnboard() {
+        return onboard;
+    }
+
+    // Снимает маршрут при остановке такси; возвращает число недовезенных заказов
+    int clear() {
+        int rides = 0;
+        for (Stop stop : stops) {
+            if (!stop.pickup) {
+                rides++;
+            }
+        }
+        stops.clear();
+        onboard = 0;
+        return rides;
+    }
+
+
+    static final class Stop {
+        final RideRequest request;
+        final boolean pickup;
+        final Point location;
+        // Время поездки пассажира напрямую, от него отсчитывается допустимый крюк
+        final long directMillis;
+        // Сколько заказ ждал назначения
+        final long waitMillis;
+
+        Stop(RideRequest request, boolean pickup, Point location, long directMillis, long waitMillis) {
+            this.request = request;
+            this.pickup = pickup;
+            this.location = location;
+            this.directMillis = directMillis;
+            this.waitMillis = waitMillis;
+        }
+    }
+
+    private static final class Insertion {
+        // После каких точек маршрута (0 - якорь) встают посадка и высадка
+        final int pickupAfter;
+        final int dropoffAfter;
+        final long cost;
+
+        Insertion(int pickupAfter, int dropoffAfter, long cost) {
+            this.pickupAfter = pickupAfter;
+            this.dropoffAfter = dropoffAfter;
+            this.cost = cost;
+        }
+    }
+}
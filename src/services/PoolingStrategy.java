@@ -0,0 +1,97 @@
+package services;
+
+import models.Point;
+import models.RideRequest;
+import models.TaxiStatus;
+
+import java.util.List;
+
+
+// Совместные поездки: заказ можно вставить в маршрут такси, которое уже везет пассажиров,
+// если крюк каждого пассажира остается в допустимых пределах (см. PooledRoute).
+// Сравнивается добавочное время маршрута: у свободного такси, выбранного базовой стратегией, -
+// дорога к клиенту и поездка, у занятого - на сколько позже оно закончит маршрут со вставкой.
+//
+// Занятые такси отбираются дешевой проверкой по прямой: такси не прервет этап, к концу которого
+// едет, а по дорогам путь не короче прямой, поэтому раньше, чем за расстояние от следующей остановки
+// до клиента, оно клиента не заберет. Полный перебор вставок с запросами времени в пути идет
+// только для такси, которые могут забрать клиента не позже, чем свободное такси плюс допустимый
+// крюк от поездки клиента. Если свободных такси нет, рассматриваются все занятые.
+public class PoolingStrategy implements DispatchStrategy {
+
+    private final DispatchStrategy idleStrategy;
+    private final double maxDetour;
+
+    public PoolingStrategy(DispatchStrategy idleStrategy, double maxDetour) {
+        this.idleStrategy = idleStrategy;
+        this.maxDetour = maxDetour;
+    }
+
+    @Override
+    public TaxiWorker selectTaxi(List<TaxiWorker> taxis, RideRequest request) {
+        if (taxis == null || taxis.isEmpty()) {
+            return null;
+        }
+
+        Point pickup = request.getPickupLocation();
+        long now = System.currentTimeMillis();
+        TaxiWorker selectedTaxi = idleStrategy.selectTaxi(taxis, request);
+        long bestCostMillis = Long.MAX_VALUE;
+        long maxPickupMillis = Long.MAX_VALUE;
+        if (selectedTaxi != null) {
+            long rideMillis = selectedTaxi.getTravelModel().travelMillis(pickup, request.getDropoffLocation(),
+                                                                         selectedTaxi.getSpeed());
+            long pickupMillis = selectedTaxi.estimatePickupMillis(pickup);
+            bestCostMillis = pickupMillis + rideMillis;
+            maxPickupMillis = now + pickupMillis + (long) (maxDetour * rideMillis);
+        }
+
+        for (TaxiWorker taxi : taxis) {
+            TaxiStatus status = taxi.getStatus();
+            if (status == TaxiStatus.IDLE || status == TaxiStatus.REPOSITIONING
+                || !taxi.isPooling() || !isTaxiSuitableForRequest(taxi, request)) {
+                continue;
+            }
+            if (maxPickupMillis != Long.MAX_VALUE) {
+                double lowerBoundMillis = taxi.getRouteStart().distanceTo(pickup) / taxi.getSpeed() * 1000;
+                if (taxi.getPhaseEndMillis() + lowerBoundMillis > maxPickupMillis) {
+                    continue;
+                }
+            }
+            long costMillis = taxi.estimateInsertionMillis(request, maxPickupMillis);
+            if (costMillis != PooledRoute.INFEASIBLE && costMillis < bestCostMillis) {
+                bestCostMillis = costMillis;
+                selectedTaxi = taxi;
+            }
+        }
+
+        return selectedTaxi;
+    }
+
+    // Индекс базовой стратегии следит, где такси освободится: обновляем его, только если
+    // высадка нового заказа стала последней остановкой маршрута
+    @Override
+    public void onRideAssigned(TaxiWorker taxi, RideRequest request) {
+        if (taxi.getRouteEnd().equals(request.getDropoffLocation())) {
+            idleStrategy.onRideAssigned(taxi, request);
+        }
+    }
+
+    @Override
+    public void onTaxiRepositioned(TaxiWorker taxi, Point target) {
+        idleStrategy.onTaxiRepositioned(taxi, target);
+    }
+
+    private boolean isTaxiSuitableForRequest(TaxiWorker taxi, RideRequest request) {
+        if (request.getRequestedType() == null) {
+            return true; // Если тип не указан, подходит любое такси
+        }
+
+        return taxi.getType().ordinal() == request.getRequestedType().ordinal();
+    }
+
+    @Override
+    public String getName() {
+        return idleStrategy.getName() + " + совместные поездки";
+    }
+}
@@ -0,0 +1,67 @@
+package services;
+
+import models.Point;
+import models.RideRequest;
+
+import java.util.List;
+
+
+// Цепочки поездок: кроме свободного такси, выбранного базовой стратегией, рассматриваются
+// такси, которые везут пассажира и могут принять следующий заказ в очередь
+// (см. TaxiWorker.canChainRide). Такси с пассажиром выигрывает, если по оценке доберется
+// до клиента раньше: остаток поездки плюс дорога от точки высадки до посадки.
+public class RideChainingStrategy implements DispatchStrategy {
+
+    private final DispatchStrategy idleStrategy;
+
+    public RideChainingStrategy(DispatchStrategy idleStrategy) {
+        this.idleStrategy = idleStrategy;
+    }
+
+    @Override
+    public TaxiWorker selectTaxi(List<TaxiWorker> taxis, RideRequest request) {
+        if (taxis == null || taxis.isEmpty()) {
+            return null;
+        }
+
+        TaxiWorker selectedTaxi = idleStrategy.selectTaxi(taxis, request);
+        long bestEtaMillis = selectedTaxi != null
+            ? selectedTaxi.estimatePickupMillis(request.getPickupLocation()) : Long.MAX_VALUE;
+
+        for (TaxiWorker taxi : taxis) {
+            if (!taxi.canChainRide() || !isTaxiSuitableForRequest(taxi, request)) {
+                continue;
+            }
+            long etaMillis = taxi.estimatePickupMillis(request.getPickupLocation());
+            if (etaMillis < bestEtaMillis) {
+                bestEtaMillis = etaMillis;
+                selectedTaxi = taxi;
+            }
+        }
+
+        return selectedTaxi;
+    }
+
+    @Override
+    public void onRideAssigned(TaxiWorker taxi, RideRequest request) {
+        idleStrategy.onRideAssigned(taxi, request);
+    }
+
+    @Override
+    public void onTaxiRepositioned(TaxiWorker taxi, Point target) {
+        idleStrategy.onTaxiRepositioned(taxi, target);
+    }
+
+    private boolean isTaxiSuitableForRequest(TaxiWorker taxi, RideRequest request) {
+        if (request.getRequestedType() == null) {
+            return true; // Если тип не указан, подходит любое такси
+        }
+
+        return taxi.getType().ordinal() == request.getRequestedType().ordinal();
+    }
+
+    @Override
+    public String getName() {
+        return idleStrategy.getName() + " + цепочки поездок";
+    }
+}
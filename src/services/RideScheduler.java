@@ -0,0 +1,13 @@
+package services;
+
+// Общий планировщик для такси в событийном режиме: вместо собственного потока
+// такси планирует переходы своего конечного автомата (прибытие к клиенту,
+// прибытие в точку назначения) как отложенные действия на небольшом пуле потоков.
+public interface RideScheduler {
+    
+    // Выполнить action через delayMillis миллисекунд
+    RideTimer schedule(long delayMillis, Runnable action);
+    
+    // Останавливает планировщик; невыполненные действия отбрасываются
+    void shutdown();
+}
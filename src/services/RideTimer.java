@@ -0,0 +1,8 @@
+package services;
+
+// Запланированное действие планировщика поездок
+public interface RideTimer {
+    
+    // Отменяет действие, если оно еще не выполнено; true - отменено
+    boolean cancel();
+}
@@ -0,0 +1,69 @@
+package services;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+// Учет поездок в работе: от назначения заказа такси до завершения или прерывания.
+// По нему симуляция при остановке ждет доезда текущих поездок без фиксированных пауз.
+// Вместо Phaser - счетчик с условием: у Phaser не больше 65535 участников,
+// а в работе одновременно может быть по поездке на каждое из 100 000 такси.
+public class RideTracker {
+
+    private final AtomicLong inFlight = new AtomicLong();
+    private final AtomicLong abortedRides = new AtomicLong();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition idle = lock.newCondition();
+
+    public void rideAssigned() {
+        inFlight.incrementAndGet();
+    }
+
+    public void rideCompleted() {
+        finish();
+    }
+
+    // Поездка снята при остановке, не доехав
+    public void rideAborted() {
+        abortedRides.incrementAndGet();
+        finish();
+    }
+
+    private void finish() {
+        if (inFlight.decrementAndGet() == 0) {
+            lock.lock();
+            try {
+                idle.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    // Ждет, пока все поездки завершатся; false - истек таймаут
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long remainingNanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (inFlight.get() > 0) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = idle.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getInFlightRides() {
+        return inFlight.get();
+    }
+
+    public long getAbortedRides() {
+        return abortedRides.get();
+    }
+}
@@ -1,11 +1,13 @@
 package services;
 
 import models.*;
+import routing.TravelModel;
+import util.ConsoleLog;
 import util.FareCalculator;
 
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
 
 
 public class TaxiWorker implements Runnable {
@@ -13,10 +15,13 @@ public class TaxiWorker implements Runnable {
     private final long id;
     private final TaxiType type;
     private final double taxiSpeed;
-    private Point currentLocation;
-    private TaxiStatus status;
+    // Как считаются пробег и время в пути: по прямой или по дорожному графу
+    private TravelModel travelModel = TravelModel.euclidean();
+    private volatile Point currentLocation;
+    private volatile TaxiStatus status;
     private final BlockingQueue<RideRequest> personalQueue;
     private DispatcherCallback dispatcherCallback;
+    private RideTracker rideTracker;
     
     private int completedRides = 0;
     private double totalDistance = 0.0;
@@ -25,6 +30,37 @@ public class TaxiWorker implements Runnable {
     private static final RideRequest POISON_PILL = createPoisonPill();
     private volatile boolean running = true;
     
+    // Планировщик времени в пути. В потоковом режиме поток такси ждет срабатывания
+    // таймера прибытия; в событийном режиме такси - конечный автомат
+    // IDLE -> TO_PICKUP -> WITH_PASSENGER -> IDLE, переходы выполняет сам планировщик.
+    // Поля текущей поездки событийного режима защищены монитором такси.
+    private RideScheduler scheduler;
+    private boolean eventDriven;
+    private volatile CountDownLatch arrival;
+    private volatile RideRequest currentRide;
+    private RideTimer pendingTimer;
+    private long currentWaitTimeMillis;
+    private double currentPickupDistance;
+    
+    // Когда закончится текущий этап поездки (к клиенту или с клиентом), по часам System.currentTimeMillis.
+    // Вместе с очередью заказов дает диспетчеру оценку, когда такси доберется до нового клиента.
+    private volatile long phaseEndMillis;
+    
+    // Перегон к спросу без заказа (см. FleetRebalancer); защищен монитором такси
+    private RideTimer repositionTimer;
+    
+    // Сколько заказов можно поставить такси в очередь, пока оно везет пассажира (0 - только свободным)
+    private volatile int lookAheadDepth = 0;
+    
+    // Совместные поездки (только событийный режим): маршрут из остановок нескольких заказов
+    // вместо одной поездки и очереди. null - такси возит по одному заказу. Защищен монитором такси.
+    private PooledRoute pooledRoute;
+    private double maxDetour;
+    
+    // Время с пассажирами в машине по завершенным поездкам (для загрузки парка)
+    private volatile long occupiedMillis = 0;
+    private long occupiedSinceMillis;
+    
 
     public TaxiWorker(long id, TaxiType type, Point initialLocation, double taxiSpeed) {
         this.id = id;
@@ -35,14 +71,158 @@ public class TaxiWorker implements Runnable {
         this.personalQueue = new LinkedBlockingQueue<>();
     }
     
+    public void setTravelModel(TravelModel travelModel) {
+        this.travelModel = travelModel;
+    }
+    
     public void setDispatcherCallback(DispatcherCallback callback) {
         this.dispatcherCallback = callback;
     }
     
+    // Учет поездок в работе для остановки симуляции по завершению, а не по таймеру
+    public void setRideTracker(RideTracker rideTracker) {
+        this.rideTracker = rideTracker;
+    }
+    
+    // Планировщик для ожидания прибытия в потоковом режиме (без него - сон порциями)
+    public void setRideScheduler(RideScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+    
+    // Переводит такси в событийный режим; run() в этом режиме не вызывается
+    public void attachScheduler(RideScheduler scheduler) {
+        this.scheduler = scheduler;
+        this.eventDriven = true;
+    }
+    
+    public boolean isEventDriven() {
+        return eventDriven;
+    }
+    
+    // Включает совместные поездки: до capacity пассажиров, крюк каждого не больше maxDetour
+    // от поездки напрямую. Вызывается до запуска, такси должно быть в событийном режиме
+    public void enablePooling(int capacity, double maxDetour) {
+        this.pooledRoute = new PooledRoute(capacity, maxDetour, this::calculateTravelTime);
+        this.maxDetour = maxDetour;
+    }
+    
+    public boolean isPooling() {
+        return pooledRoute != null;
+    }
+    
+    public double getMaxDetour() {
+        return maxDetour;
+    }
+    
+    public void setLookAheadDepth(int lookAheadDepth) {
+        this.lookAheadDepth = lookAheadDepth;
+    }
+    
+    // Можно ли поставить в очередь следующий заказ, не дожидаясь высадки пассажира
+    public boolean canChainRide() {
+        return status == TaxiStatus.WITH_PASSENGER && canQueueRide(lookAheadDepth);
+    }
+    
+    // Есть ли место в очереди такси при глубине depth назначенных, но не начатых заказов
+    public boolean canQueueRide(int depth) {
+        return running && personalQueue.size() < depth;
+    }
+    
+    // Оценка, через сколько мс такси доберется до точки pickup: остаток текущего этапа,
+    // поездка с клиентом, заказы в очереди и дорога от последней высадки
+    public long estimatePickupMillis(Point pickup) {
+        if (pooledRoute != null) {
+            return estimatePooledPickupMillis(pickup);
+        }
+        RideRequest ride = currentRide;
+        TaxiStatus phase = status;
+        Point from;
+        long eta;
+        if (ride == null) {
+            from = currentLocation;
+            eta = 0;
+        } else {
+            eta = Math.max(0, phaseEndMillis - System.currentTimeMillis());
+            if (phase == TaxiStatus.TO_PICKUP) {
+                eta += calculateTravelTime(ride.getPickupLocation(), ride.getDropoffLocation());
+            }
+            from = ride.getDropoffLocation();
+        }
+        for (RideRequest queued : personalQueue) {
+            if (queued == POISON_PILL) {
+                continue;
+            }
+            eta += calculateTravelTime(from, queued.getPickupLocation())
+                 + calculateTravelTime(queued.getPickupLocation(), queued.getDropoffLocation());
+            from = queued.getDropoffLocation();
+        }
+        return eta + calculateTravelTime(from, pickup);
+    }
+    
+    // Отправляет свободное такси без заказа в точку target. Заказы такси получит, когда доедет:
+    // до тех пор оно в статусе REPOSITIONING. false - такси занято или остановлено.
+    public synchronized boolean reposition(Point target) {
+        if (!running || status != TaxiStatus.IDLE || !personalQueue.isEmpty() || scheduler == null) {
+            return false;
+        }
+        ConsoleLog.println("Такси " + id + " едет к спросу из " + currentLocation + " в " + target);
+        long travelMillis = calculateTravelTime(currentLocation, target);
+        setStatus(TaxiStatus.REPOSITIONING);
+        repositionTimer = scheduler.schedule(beginPhase(travelMillis), () -> finishReposition(target));
+        return true;
+    }
+    
+    private synchronized void finishReposition(Point target) {
+        if (!running || status != TaxiStatus.REPOSITIONING) {
+            return;
+        }
+        repositionTimer = null;
+        currentLocation = target;
+        setStatus(TaxiStatus.IDLE);
+    }
+    
+    private synchronized void cancelReposition() {
+        if (repositionTimer != null) {
+            repositionTimer.cancel();
+            repositionTimer = null;
+        }
+    }
+    
+    public long getPhaseEndMillis() {
+        return phaseEndMillis;
+    }
+    
+    public int getQueuedRides() {
+        return personalQueue.size();
+    }
+    
     public void assignRequest(RideRequest request) {
+        if (!running) {
+            ConsoleLog.println("Такси " + id + " остановлено, заказ #" + request.getId() + " не принят");
+            return;
+        }
+        if (rideTracker != null) {
+            rideTracker.rideAssigned();
+        }
+        if (eventDriven) {
+            ConsoleLog.println("Такси " + id + " получило заказ #" + request.getId());
+            synchronized (this) {
+                if (!running) {
+                    // stop() уже снял поездки такси - этот заказ тоже снимаем
+                    trackRideFinished(false);
+                } else if (pooledRoute != null) {
+                    insertPooledRide(request);
+                } else if (currentRide == null) {
+                    startRide(request);
+                } else {
+                    personalQueue.offer(request);
+                }
+            }
+            return;
+        }
         try {
             personalQueue.put(request);
-            System.out.println("Такси " + id + " получило заказ #" + request.getId());
+            ConsoleLog.println("Такси " + id + " получило заказ #" + request.getId());
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             System.err.println("Такси " + id + " было прервано при получении заказа");
@@ -52,21 +232,16 @@ public class TaxiWorker implements Runnable {
 
     @Override
     public void run() {
-        System.out.println("Такси " + id + " (" + type + ") запущено. Текущая позиция: " + currentLocation);
+        ConsoleLog.println("Такси " + id + " (" + type + ") запущено. Текущая позиция: " + currentLocation);
         
         try {
             while (running && !Thread.currentThread().isInterrupted()) {
-                // Ждем заказ с таймаутом для частой проверки прерывания
-                RideRequest request = personalQueue.poll(200, TimeUnit.MILLISECONDS);
-                
-                if (request == null) {
-                    // Таймаут - проверяем условия и продолжаем
-                    continue;
-                }
+                // Ждем заказ без опроса: stop() всегда кладет poison pill в личную очередь
+                RideRequest request = personalQueue.take();
                 
                 // Проверяем, не poison pill ли это
                 if (request == POISON_PILL) {
-                    System.out.println("Такси " + id + " получило poison pill. Завершение работы...");
+                    ConsoleLog.println("Такси " + id + " получило poison pill. Завершение работы...");
                     break;
                 }
                 
@@ -76,99 +251,296 @@ public class TaxiWorker implements Runnable {
         } catch (InterruptedException e) {
             // Проверяем почему прервано
             if (!running) {
-                System.out.println("Такси " + id + " корректно прервано по команде остановки");
+                ConsoleLog.println("Такси " + id + " корректно прервано по команде остановки");
             } else {
                 System.err.println("Такси " + id + " было неожиданно прервано");
             }
             Thread.currentThread().interrupt();
         } finally {
-            System.out.println("Такси " + id + " остановлено. Выполнено поездок: " + completedRides);
+            abortQueuedRides();
+            ConsoleLog.println("Такси " + id + " остановлено. Выполнено поездок: " + completedRides);
         }
     }
     
 
     private void processRide(RideRequest request) {
+        boolean completed = false;
+        currentRide = request;
         try {
             // Рассчитываем время ожидания (от создания заказа до начала поездки)
             long waitTimeMillis = System.currentTimeMillis() - request.getCreatedAtMillis();
             
             // 1. Едем к клиенту
-            System.out.println("Такси " + id + " едет к клиенту #" + request.getId() + 
+            ConsoleLog.println("Такси " + id + " едет к клиенту #" + request.getId() + 
                             " из " + currentLocation + " в " + request.getPickupLocation() +
                             " (ожидание: " + waitTimeMillis + " мс)");
             
-            double distanceToPickup = currentLocation.distanceTo(request.getPickupLocation());
+            double distanceToPickup = travelModel.distance(currentLocation, request.getPickupLocation());
             setStatus(TaxiStatus.TO_PICKUP);
             
             // Имитируем поездку к клиенту с проверкой running
-            long travelTimeToPickup = calculateTravelTime(distanceToPickup);
+            long travelTimeToPickup = calculateTravelTime(currentLocation, request.getPickupLocation());
             if (!sleepWithInterruptCheck(travelTimeToPickup)) {
-                System.out.println("Такси " + id + " прервано по пути к клиенту #" + request.getId());
+                ConsoleLog.println("Такси " + id + " прервано по пути к клиенту #" + request.getId());
                 return;
             }
             
             // Проверяем running после сна
             if (!running) {
-                System.out.println("Такси " + id + " получило команду остановки на пути к клиенту #" + request.getId());
+                ConsoleLog.println("Такси " + id + " получило команду остановки на пути к клиенту #" + request.getId());
                 return;
             }
             
             // 2. Клиент сел в такси
-            System.out.println("Такси " + id + " забрало клиента #" + request.getId());
+            ConsoleLog.println("Такси " + id + " забрало клиента #" + request.getId());
+            request.setPickedUpAtMillis(System.currentTimeMillis());
             currentLocation = request.getPickupLocation();
             setStatus(TaxiStatus.WITH_PASSENGER);
             
             // 3. Едем к точке назначения с проверкой running
-            System.out.println("Такси " + id + " везет клиента #" + request.getId() + 
+            ConsoleLog.println("Такси " + id + " везет клиента #" + request.getId() + 
                             " из " + currentLocation + " в " + request.getDropoffLocation());
             
-            double rideDistance = request.getPickupLocation().distanceTo(request.getDropoffLocation());
-            long rideTime = calculateTravelTime(rideDistance);
+            double rideDistance = travelModel.distance(request.getPickupLocation(), request.getDropoffLocation());
+            long rideTime = calculateTravelTime(request.getPickupLocation(), request.getDropoffLocation());
             if (!sleepWithInterruptCheck(rideTime)) {
-                System.out.println("Такси " + id + " прервано во время поездки с клиентом #" + request.getId());
+                ConsoleLog.println("Такси " + id + " прервано во время поездки с клиентом #" + request.getId());
                 return;
             }
             
             // Проверяем running после сна
             if (!running) {
-                System.out.println("Такси " + id + " получило команду остановки во время поездки с клиентом #" + request.getId());
+                ConsoleLog.println("Такси " + id + " получило команду остановки во время поездки с клиентом #" + request.getId());
                 return;
             }
             
             // 4. Завершаем поездку 
-            System.out.println("Такси " + id + " доставило клиента #" + request.getId());
-            currentLocation = request.getDropoffLocation();
-            setStatus(TaxiStatus.IDLE);
-            
-            // Обновляем статистику
-            completedRides++;
-            totalDistance += distanceToPickup + rideDistance;
-            
-            // Рассчитываем стоимость поездки
-            double totalDistance = distanceToPickup + rideDistance;
-            double fare = FareCalculator.calculateFare(type, totalDistance);
-            totalRevenue += fare;
-            
-            // Уведомляем диспетчер
-            if (dispatcherCallback != null) {
-                dispatcherCallback.onRideCompleted(this, request, 
-                    totalDistance, fare, waitTimeMillis);
-            }
+            completeRide(request, distanceToPickup, rideDistance, waitTimeMillis);
+            completed = true;
             
         } catch (InterruptedException e) {
             // Восстанавливаем статус прерывания
             Thread.currentThread().interrupt();
             
             if (!running) {
-                System.out.println("Такси " + id + " корректно прервано во время поездки #" + request.getId());
+                ConsoleLog.println("Такси " + id + " корректно прервано во время поездки #" + request.getId());
             } else {
                 System.err.println("Такси " + id + " было неожиданно прервано во время поездки #" + request.getId());
             }
+        } finally {
+            currentRide = null;
+            trackRideFinished(completed);
+        }
+    }
+    
+    private void trackRideFinished(boolean completed) {
+        if (rideTracker == null) {
+            return;
+        }
+        if (completed) {
+            rideTracker.rideCompleted();
+        } else {
+            rideTracker.rideAborted();
+        }
+    }
+    
+    // Заказы, назначенные, но не начатые к моменту остановки, снимаются
+    private void abortQueuedRides() {
+        RideRequest request;
+        while ((request = personalQueue.poll()) != null) {
+            if (request != POISON_PILL) {
+                trackRideFinished(false);
+            }
         }
     }
 
 
+    // Общее завершение поездки для обоих режимов: позиция, статус, статистика, уведомление диспетчера
+    private void completeRide(RideRequest request, double distanceToPickup, double rideDistance,
+                              long waitTimeMillis) {
+        ConsoleLog.println("Такси " + id + " доставило клиента #" + request.getId());
+        currentLocation = request.getDropoffLocation();
+        // Если следующий заказ уже в очереди, такси сразу едет к нему и свободным не числится
+        setStatus(personalQueue.isEmpty() ? TaxiStatus.IDLE : TaxiStatus.TO_PICKUP);
+        if (request.getPickedUpAtMillis() > 0) {
+            occupiedMillis += System.currentTimeMillis() - request.getPickedUpAtMillis();
+        }
+        totalDistance += distanceToPickup + rideDistance;
+        recordRide(request, distanceToPickup + rideDistance, waitTimeMillis);
+    }
+    
+    // Число поездок, стоимость и уведомление диспетчера о завершенной поездке
+    private void recordRide(RideRequest request, double distance, long waitTimeMillis) {
+        completedRides++;
+        
+        // Рассчитываем стоимость поездки
+        double fare = FareCalculator.calculateFare(type, distance);
+        totalRevenue += fare;
+        
+        // Уведомляем диспетчер
+        if (dispatcherCallback != null) {
+            dispatcherCallback.onRideCompleted(this, request, 
+                distance, fare, waitTimeMillis);
+        }
+    }
+    
+    // ================= Совместные поездки =================
+    
+    // Добавочное время маршрута, если вставить заказ в маршрут такси, или PooledRoute.INFEASIBLE,
+    // если ни одна вставка не укладывается в вместимость и допустимый крюк или клиента
+    // не забрать до maxPickupMillis. Для свободного такси - дорога к клиенту и поездка
+    public synchronized long estimateInsertionMillis(RideRequest request, long maxPickupMillis) {
+        if (pooledRoute == null || !running) {
+            return PooledRoute.INFEASIBLE;
+        }
+        long now = System.currentTimeMillis();
+        if (pooledRoute.isEmpty()) {
+            return pooledRoute.insertionCost(request, currentLocation, now, maxPickupMillis);
+        }
+        return pooledRoute.insertionCost(request, pooledRoute.nextStop().location,
+                                         Math.max(now, phaseEndMillis), maxPickupMillis);
+    }
+    
+    // Где такси будет после текущего этапа: первая остановка маршрута или текущая точка
+    public synchronized Point getRouteStart() {
+        PooledRoute.Stop next = pooledRoute != null ? pooledRoute.nextStop() : null;
+        return next != null ? next.location : currentLocation;
+    }
+    
+    // Где такси освободится: последняя остановка маршрута или текущая точка
+    public synchronized Point getRouteEnd() {
+        Point last = pooledRoute != null ? pooledRoute.lastLocation() : null;
+        return last != null ? last : currentLocation;
+    }
+    
+    private synchronized long estimatePooledPickupMillis(Point pickup) {
+        long now = System.currentTimeMillis();
+        if (pooledRoute.isEmpty()) {
+            return calculateTravelTime(currentLocation, pickup);
+        }
+        long finish = pooledRoute.finishMillis(Math.max(now, phaseEndMillis));
+        return finish - now + calculateTravelTime(pooledRoute.lastLocation(), pickup);
+    }
+    
+    // Вызывается под монитором такси
+    private void insertPooledRide(RideRequest request) {
+        long now = System.currentTimeMillis();
+        long waitMillis = now - request.getCreatedAtMillis();
+        if (pooledRoute.isEmpty()) {
+            pooledRoute.insert(request, currentLocation, now, waitMillis);
+            driveToNextStop();
+        } else {
+            pooledRoute.insert(request, pooledRoute.nextStop().location, Math.max(now, phaseEndMillis), waitMillis);
+        }
+    }
+    
+    // Едем к первой остановке маршрута. Вызывается под монитором такси
+    private void driveToNextStop() {
+        PooledRoute.Stop stop = pooledRoute.nextStop();
+        ConsoleLog.println("Такси " + id + " едет к " + (stop.pickup ? "посадке" : "высадке") +
+                           " клиента #" + stop.request.getId() + " в " + stop.location +
+                           " (пассажиров: " + pooledRoute.getOnboard() + ")");
+        setStatus(pooledRoute.getOnboard() > 0 ? TaxiStatus.WITH_PASSENGER : TaxiStatus.TO_PICKUP);
+        pendingTimer = scheduler.schedule(beginPhase(calculateTravelTime(currentLocation, stop.location)),
+                                          () -> onStopReached(stop));
+    }
+    
+    private synchronized void onStopReached(PooledRoute.Stop stop) {
+        if (!running || pooledRoute.nextStop() != stop) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        totalDistance += travelModel.distance(currentLocation, stop.location);
+        currentLocation = stop.location;
+        pooledRoute.advance();
+        if (stop.pickup) {
+            ConsoleLog.println("Такси " + id + " забрало клиента #" + stop.request.getId());
+            stop.request.setPickedUpAtMillis(now);
+            if (pooledRoute.getOnboard() == 1) {
+                occupiedSinceMillis = now;
+            }
+        } else {
+            ConsoleLog.println("Такси " + id + " доставило клиента #" + stop.request.getId());
+            if (pooledRoute.getOnboard() == 0) {
+                occupiedMillis += now - occupiedSinceMillis;
+            }
+            // Пробег такси учтен по этапам, клиент платит за свою поездку напрямую
+            double rideDistance = travelModel.distance(stop.request.getPickupLocation(), stop.location);
+            recordRide(stop.request, rideDistance, stop.waitMillis);
+            trackRideFinished(true);
+        }
+        
+        if (pooledRoute.isEmpty()) {
+            pendingTimer = null;
+            setStatus(TaxiStatus.IDLE);
+        } else {
+            driveToNextStop();
+        }
+    }
+    
+    // ================= Событийный режим =================
+    
+    // Начало поездки: едем к клиенту, прибытие планируется на общем планировщике.
+    // Вызывается под монитором такси.
+    private void startRide(RideRequest request) {
+        currentRide = request;
+        currentWaitTimeMillis = System.currentTimeMillis() - request.getCreatedAtMillis();
+        
+        ConsoleLog.println("Такси " + id + " едет к клиенту #" + request.getId() + 
+                        " из " + currentLocation + " в " + request.getPickupLocation() +
+                        " (ожидание: " + currentWaitTimeMillis + " мс)");
+        currentPickupDistance = travelModel.distance(currentLocation, request.getPickupLocation());
+        setStatus(TaxiStatus.TO_PICKUP);
+        pendingTimer = scheduler.schedule(beginPhase(calculateTravelTime(currentLocation, request.getPickupLocation())),
+                                          () -> onArrivedAtPickup(request));
+    }
+    
+    private synchronized void onArrivedAtPickup(RideRequest request) {
+        if (!running || currentRide != request) {
+            return;
+        }
+        ConsoleLog.println("Такси " + id + " забрало клиента #" + request.getId());
+        request.setPickedUpAtMillis(System.currentTimeMillis());
+        currentLocation = request.getPickupLocation();
+        setStatus(TaxiStatus.WITH_PASSENGER);
+        
+        ConsoleLog.println("Такси " + id + " везет клиента #" + request.getId() + 
+                        " из " + currentLocation + " в " + request.getDropoffLocation());
+        pendingTimer = scheduler.schedule(beginPhase(calculateTravelTime(request.getPickupLocation(),
+                                                                         request.getDropoffLocation())),
+                                          () -> onArrivedAtDropoff(request));
+    }
+    
+    private void onArrivedAtDropoff(RideRequest request) {
+        synchronized (this) {
+            if (!running || currentRide != request) {
+                return;
+            }
+            double rideDistance = travelModel.distance(request.getPickupLocation(), request.getDropoffLocation());
+            completeRide(request, currentPickupDistance, rideDistance, currentWaitTimeMillis);
+            currentRide = null;
+            pendingTimer = null;
+            trackRideFinished(true);
+            
+            // Заказ, назначенный во время поездки, начинаем сразу
+            RideRequest next = personalQueue.poll();
+            if (next != null && running) {
+                startRide(next);
+            }
+        }
+    }
+    
+    // Запоминает конец этапа поездки длительностью travelMillis
+    private long beginPhase(long travelMillis) {
+        phaseEndMillis = System.currentTimeMillis() + travelMillis;
+        return travelMillis;
+    }
+    
     private boolean sleepWithInterruptCheck(long millis) throws InterruptedException {
+        beginPhase(millis);
+        if (scheduler != null) {
+            return awaitArrival(millis);
+        }
         long endTime = System.currentTimeMillis() + millis;
         long remaining = millis;
         
@@ -190,30 +562,67 @@ public class TaxiWorker implements Runnable {
     }
     
 
-    private long calculateTravelTime(double distance) {
-        double timeSeconds = distance / taxiSpeed;
-        return (long)(timeSeconds * 1000); 
+    // Ждем таймер прибытия вместо периодических пробуждений; stop() отпускает ожидание сразу
+    private boolean awaitArrival(long millis) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        arrival = latch;
+        RideTimer timer = scheduler.schedule(millis, latch::countDown);
+        try {
+            if (running) {
+                latch.await();
+            }
+        } finally {
+            arrival = null;
+        }
+        
+        if (!running) {
+            timer.cancel();
+            throw new InterruptedException();
+        }
+        return true;
+    }
+
+    private long calculateTravelTime(Point from, Point to) {
+        return travelModel.travelMillis(from, to, taxiSpeed);
     }
     
     public void stop() {
         // Устанавливаем флаг остановки
         this.running = false;
+        cancelReposition();
         
-        Thread.currentThread().interrupt();
-        
-        // Пытаемся отправить poison pill с таймаутом
-        try {
-            boolean success = personalQueue.offer(POISON_PILL, 50, TimeUnit.MILLISECONDS);
-            
-            if (success) {
-                System.out.println("Такси " + id + " получило команду остановки (poison pill отправлен)");
-            } else {
-                System.out.println("Такси " + id + " получило команду остановки (очередь переполнена, использован interrupt)");
+        if (eventDriven) {
+            // Событийный режим: потока нет, достаточно отменить запланированный переход
+            // и снять текущую и ожидающие поездки
+            synchronized (this) {
+                if (pendingTimer != null) {
+                    pendingTimer.cancel();
+                    pendingTimer = null;
+                }
+                if (currentRide != null) {
+                    currentRide = null;
+                    trackRideFinished(false);
+                }
+                if (pooledRoute != null) {
+                    for (int i = pooledRoute.clear(); i > 0; i--) {
+                        trackRideFinished(false);
+                    }
+                }
+                abortQueuedRides();
             }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            System.out.println("Такси " + id + ": прервано при отправке poison pill (используем interrupt)");
+            ConsoleLog.println("Такси " + id + " получило команду остановки");
+            return;
+        }
+        
+        // Отпускаем ожидание прибытия, если такси в пути
+        CountDownLatch pendingArrival = arrival;
+        if (pendingArrival != null) {
+            pendingArrival.countDown();
         }
+        
+        // Личная очередь не ограничена, поэтому poison pill всегда будит поток такси
+        personalQueue.offer(POISON_PILL);
+        ConsoleLog.println("Такси " + id + " получило команду остановки (poison pill отправлен)");
     }
         
     private static RideRequest createPoisonPill() {
@@ -230,6 +639,14 @@ public class TaxiWorker implements Runnable {
         return type;
     }
     
+    public double getSpeed() {
+        return taxiSpeed;
+    }
+    
+    public TravelModel getTravelModel() {
+        return travelModel;
+    }
+    
     public Point getCurrentLocation() {
         return currentLocation;
     }
@@ -249,6 +666,16 @@ public class TaxiWorker implements Runnable {
     public double getTotalRevenue() {
         return totalRevenue;
     }
+    
+    public long getOccupiedMillis() {
+        return occupiedMillis;
+    }
+
+    // Состояние такси одним объектом для чтения снаружи (API, кэш снимков парка).
+    // Счетчики поездок пишет только такси, поэтому снимок может отставать на одну поездку
+    public TaxiSnapshot snapshot() {
+        return new TaxiSnapshot(id, currentLocation, status, type, completedRides, totalDistance, totalRevenue);
+    }
 
     // ============== Сеттеры ===============
     
@@ -258,7 +685,7 @@ public class TaxiWorker implements Runnable {
     
     public void setStatus(TaxiStatus status) {
         this.status = status;
-        System.out.println("Такси " + id + " сменило статус на: " + status);
+        ConsoleLog.println("Такси " + id + " сменило статус на: " + status);
     }
     
     public boolean isRunning() {
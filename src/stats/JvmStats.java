@@ -0,0 +1,99 @@
+package stats;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+
+
+// Снимок счетчиков JVM: сборка мусора, выделенная память и пик кучи.
+// Разница двух снимков описывает один прогон симуляции.
+public class JvmStats {
+    
+    private final long gcCount;
+    private final long gcTimeMillis;
+    private final long allocatedBytes;
+    private final long peakHeapBytes;
+    
+    private JvmStats(long gcCount, long gcTimeMillis, long allocatedBytes, long peakHeapBytes) {
+        this.gcCount = gcCount;
+        this.gcTimeMillis = gcTimeMillis;
+        this.allocatedBytes = allocatedBytes;
+        this.peakHeapBytes = peakHeapBytes;
+    }
+    
+    // Сбрасывает пиковые значения пулов кучи перед началом замера
+    public static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+    
+    // Выделенная память считается по живым потокам, поэтому снимок нужно
+    // делать до остановки пула потоков симуляции
+    public static JvmStats capture() {
+        long gcCount = 0;
+        long gcTime = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(0, gc.getCollectionCount());
+            gcTime += Math.max(0, gc.getCollectionTime());
+        }
+        
+        long allocated = 0;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+            if (sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled()) {
+                for (long bytes : sunThreads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+                    allocated += Math.max(0, bytes);
+                }
+            }
+        }
+        
+        // Сумма пиков по пулам - верхняя оценка пика кучи
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+                peakHeap += pool.getPeakUsage().getUsed();
+            }
+        }
+        
+        return new JvmStats(gcCount, gcTime, allocated, peakHeap);
+    }
+    
+    // Изменение счетчиков относительно более раннего снимка (пик кучи - текущий)
+    public JvmStats since(JvmStats earlier) {
+        return new JvmStats(
+            gcCount - earlier.gcCount,
+            gcTimeMillis - earlier.gcTimeMillis,
+            Math.max(0, allocatedBytes - earlier.allocatedBytes),
+            peakHeapBytes);
+    }
+    
+    // ================ Геттеры =============
+    
+    public long getGcCount() {
+        return gcCount;
+    }
+    
+    public long getGcTimeMillis() {
+        return gcTimeMillis;
+    }
+    
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+    
+    public long getPeakHeapBytes() {
+        return peakHeapBytes;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("GC: %d сборок за %d мс, выделено: %.1f МБ, пик кучи: %.1f МБ",
+            gcCount, gcTimeMillis, allocatedBytes / 1e6, peakHeapBytes / 1e6);
+    }
+}
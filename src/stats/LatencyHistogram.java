@@ -0,0 +1,93 @@
+package stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+// Потокобезопасная гистограмма задержек с логарифмически-линейными корзинами
+// (по образцу HdrHistogram): значения до 128 хранятся точно, дальше каждая
+// степень двойки делится на 64 корзины, относительная ошибка не больше ~1.6%.
+// Запись - один инкремент без блокировок, память фиксирована и не зависит от числа значений.
+public class LatencyHistogram {
+    
+    private static final int SUB_BUCKETS = 128;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    private static final int BUCKET_COUNT = SUB_BUCKETS + (63 - 7) * HALF_SUB_BUCKETS;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalSum = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+    
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketIndex(value));
+        totalCount.incrementAndGet();
+        totalSum.addAndGet(value);
+        
+        long currentMax = maxValue.get();
+        while (value > currentMax && !maxValue.compareAndSet(currentMax, value)) {
+            currentMax = maxValue.get();
+        }
+    }
+    
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 6;
+        long top = value >>> shift;
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int) (top - HALF_SUB_BUCKETS);
+    }
+    
+    // Наибольшее значение, попадающее в корзину
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        long top = (index - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+    
+    // Значение перцентиля (0..100); верхняя граница корзины, но не больше максимума
+    public long getPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long cumulative = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= target) {
+                return Math.min(bucketUpperBound(i), maxValue.get());
+            }
+        }
+        return maxValue.get();
+    }
+    
+    // ================ Геттеры =============
+    
+    public long getCount() {
+        return totalCount.get();
+    }
+    
+    public long getMax() {
+        return maxValue.get();
+    }
+    
+    public double getMean() {
+        long count = totalCount.get();
+        return count > 0 ? (double) totalSum.get() / count : 0.0;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("n=%d, среднее=%.1f, p50=%d, p90=%d, p99=%d, p99.9=%d, макс=%d",
+            getCount(), getMean(), getPercentile(50), getPercentile(90),
+            getPercentile(99), getPercentile(99.9), getMax());
+    }
+}
@@ -6,6 +6,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.atomic.AtomicReference;
 
 
@@ -19,6 +20,53 @@ public class StatisticsCollector {
     private final AtomicReference<Double> totalRevenue = new AtomicReference<>(0.0);
     private final Map<Long, TaxiType> taxiIdToTypeMap = new ConcurrentHashMap<>();
     
+    // Распределение времени ожидания для перцентилей
+    private final LatencyHistogram waitTimeHistogram = new LatencyHistogram();
+    
+    // Время от поступления заказа до посадки клиента, мс: в отличие от ожидания
+    // начала поездки учитывает и дорогу такси к клиенту
+    private final LatencyHistogram pickupWaitHistogram = new LatencyHistogram();
+    
+    // Время от планового поступления заказа до решения диспетчера, мкс
+    private final LatencyHistogram dispatchLatencyHistogram = new LatencyHistogram();
+    
+    // Отказы входной очереди (по типу запрошенного такси) и ее заполненность
+    // в момент поступления каждого заказа
+    private final AtomicLongArray rejectedByType = new AtomicLongArray(TaxiType.values().length);
+    private final AtomicLong rejectedRequests = new AtomicLong(0L);
+    private final LatencyHistogram queueOccupancyHistogram = new LatencyHistogram();
+    
+    // Кэш маршрутов дорожного графа: итоговые счетчики, снимаются в конце симуляции
+    private volatile long routeCacheHits;
+    private volatile long routeCacheMisses;
+    private volatile long routeCacheEvictions;
+    
+    // Время парка: с пассажирами в машине и всего (такси x длительность), снимается в конце симуляции
+    private volatile long occupiedTaxiMillis;
+    private volatile long fleetMillis;
+    // Время в машине по завершенным поездкам и то же время при поездках напрямую
+    private final AtomicLong inVehicleMillis = new AtomicLong(0L);
+    private final AtomicLong directRideMillis = new AtomicLong(0L);
+    
+    // Перегон свободных такси к спросу: число перегонов и их суммарный пробег
+    private volatile long rebalanceMoves;
+    private volatile double rebalanceDistance;
+    
+    // Журнал заказов: время записи приема (с ожиданием фиксации), мкс, итоговые счетчики
+    // записей, force() и байт, снимаются в конце симуляции, и восстановленные при запуске заказы
+    private final LatencyHistogram journalCommitHistogram = new LatencyHistogram();
+    private volatile long journalRecords;
+    private volatile long journalForces;
+    private volatile long journalBytes;
+    private volatile long recoveredRequests;
+    
+    // История поездок: строк, сегментов, байт вне кучи и отброшенных при переполнении буфера,
+    // снимаются в конце симуляции
+    private volatile long historyRides;
+    private volatile long historySegments;
+    private volatile long historyOffHeapBytes;
+    private volatile long historyDropped;
+    
     // Статистика по типам такси
     private final Map<TaxiType, TaxiTypeStats> statsByTaxiType = new ConcurrentHashMap<>();
     
@@ -35,6 +83,7 @@ public class StatisticsCollector {
         totalRevenue.updateAndGet(current -> current + revenue);
         totalRideTimeMillis.addAndGet(rideTimeMillis);
         totalWaitTimeMillis.addAndGet(waitTimeMillis);
+        waitTimeHistogram.record(waitTimeMillis);
 
         // Обновляем статистику по типу такси
         statsByTaxiType.computeIfAbsent(taxiType, k -> new TaxiTypeStats())
@@ -48,6 +97,68 @@ public class StatisticsCollector {
         taxiIdToTypeMap.putIfAbsent(taxiId, taxiType);
     }
 
+    public void recordPickupWait(long pickupWaitMillis) {
+        pickupWaitHistogram.record(pickupWaitMillis);
+    }
+
+    public void recordDispatchLatency(long latencyNanos) {
+        dispatchLatencyHistogram.record(latencyNanos / 1000);
+    }
+
+    public void recordRouteCache(long hits, long misses, long evictions) {
+        this.routeCacheHits = hits;
+        this.routeCacheMisses = misses;
+        this.routeCacheEvictions = evictions;
+    }
+
+    // Время в машине против поездки напрямую: у совместных поездок первое больше на крюк
+    public void recordRideDetour(long inVehicleMillis, long directMillis) {
+        this.inVehicleMillis.addAndGet(inVehicleMillis);
+        this.directRideMillis.addAndGet(directMillis);
+    }
+
+    public void recordFleetTime(long occupiedTaxiMillis, long fleetMillis) {
+        this.occupiedTaxiMillis = occupiedTaxiMillis;
+        this.fleetMillis = fleetMillis;
+    }
+
+    public void recordRebalance(long moves, double distance) {
+        this.rebalanceMoves = moves;
+        this.rebalanceDistance = distance;
+    }
+
+    public void recordJournalCommit(long latencyNanos) {
+        journalCommitHistogram.record(latencyNanos / 1000);
+    }
+
+    public void recordJournal(long records, long forces, long bytes) {
+        this.journalRecords = records;
+        this.journalForces = forces;
+        this.journalBytes = bytes;
+    }
+
+    public void recordRecoveredRequests(long recoveredRequests) {
+        this.recoveredRequests = recoveredRequests;
+    }
+
+    public void recordHistory(long rides, long segments, long offHeapBytes, long dropped) {
+        this.historyRides = rides;
+        this.historySegments = segments;
+        this.historyOffHeapBytes = offHeapBytes;
+        this.historyDropped = dropped;
+    }
+
+    public void recordRejectedRequest(TaxiType requestedType) {
+        rejectedRequests.incrementAndGet();
+        if (requestedType != null) {
+            rejectedByType.incrementAndGet(requestedType.ordinal());
+        }
+    }
+
+    public void recordQueueOccupancy(int queuedRequests) {
+        queueOccupancyHistogram.record(queuedRequests);
+    }
+
     public void registerTaxi(long taxiId, TaxiType taxiType) {
         taxiIdToTypeMap.put(taxiId, taxiType);
     }
@@ -96,6 +207,111 @@ public class StatisticsCollector {
         return rides > 0 ? totalRevenue.get() / rides : 0.0;
     }
     
+    public LatencyHistogram getWaitTimeHistogram() {
+        return waitTimeHistogram;
+    }
+    
+    public LatencyHistogram getPickupWaitHistogram() {
+        return pickupWaitHistogram;
+    }
+    
+    public LatencyHistogram getDispatchLatencyHistogram() {
+        return dispatchLatencyHistogram;
+    }
+    
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
+    }
+    
+    public long getRejectedRequests(TaxiType requestedType) {
+        return rejectedByType.get(requestedType.ordinal());
+    }
+    
+    public LatencyHistogram getQueueOccupancyHistogram() {
+        return queueOccupancyHistogram;
+    }
+    
+    public long getRouteCacheHits() {
+        return routeCacheHits;
+    }
+    
+    public long getRouteCacheMisses() {
+        return routeCacheMisses;
+    }
+    
+    public long getRouteCacheEvictions() {
+        return routeCacheEvictions;
+    }
+    
+    // Доля времени парка с пассажирами в машине
+    public double getFleetUtilisation() {
+        return fleetMillis > 0 ? (double) occupiedTaxiMillis / fleetMillis : 0.0;
+    }
+    
+    // На сколько в среднем время в машине длиннее поездки напрямую
+    public double getDetourOverhead() {
+        long direct = directRideMillis.get();
+        return direct > 0 ? (double) inVehicleMillis.get() / direct - 1 : 0.0;
+    }
+    
+    public double getRidesPerTaxiHour() {
+        return fleetMillis > 0 ? totalCompletedRides.get() / (fleetMillis / 3_600_000.0) : 0.0;
+    }
+    
+    public long getRebalanceMoves() {
+        return rebalanceMoves;
+    }
+    
+    public double getRebalanceDistance() {
+        return rebalanceDistance;
+    }
+    
+    public LatencyHistogram getJournalCommitHistogram() {
+        return journalCommitHistogram;
+    }
+    
+    public long getJournalRecords() {
+        return journalRecords;
+    }
+    
+    public long getJournalForces() {
+        return journalForces;
+    }
+    
+    public long getJournalBytes() {
+        return journalBytes;
+    }
+    
+    public long getRecoveredRequests() {
+        return recoveredRequests;
+    }
+    
+    public long getHistoryRides() {
+        return historyRides;
+    }
+    
+    public long getHistorySegments() {
+        return historySegments;
+    }
+    
+    public long getHistoryOffHeapBytes() {
+        return historyOffHeapBytes;
+    }
+    
+    public long getHistoryDropped() {
+        return historyDropped;
+    }
+    
+    // Записей журнала на один force() - выигрыш групповой фиксации
+    public double getJournalRecordsPerForce() {
+        return journalForces > 0 ? (double) journalRecords / journalForces : 0.0;
+    }
+    
+    public double getRouteCacheHitRate() {
+        long total = routeCacheHits + routeCacheMisses;
+        return total > 0 ? (double) routeCacheHits / total : 0.0;
+    }
+    
     public TaxiStats getTaxiStats(long taxiId) {
         return taxiStatistics.get(taxiId);
     }
@@ -121,6 +337,18 @@ public class StatisticsCollector {
     }
 
 
+    private String formatRejectedByType() {
+        StringBuilder sb = new StringBuilder();
+        for (TaxiType type : TaxiType.values()) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(type.name()).append(": ").append(getRejectedRequests(type));
+        }
+        return sb.toString();
+    }
+
+
     public void printSummary() {
         System.out.println("\n" + "=".repeat(60));
         System.out.println("ОТЧЕТ ПО СТАТИСТИКЕ СИМУЛЯЦИИ");
@@ -132,6 +360,41 @@ public class StatisticsCollector {
         System.out.printf("Общий пробег: %.2f%n", getTotalDistance());
         System.out.printf("Общая выручка: %.2f%n", getTotalRevenue());
         System.out.printf("Среднее время ожидания: %.3f сек%n", getAverageWaitTimeSeconds());
+        System.out.printf("Перцентили ожидания: p50=%d мс, p90=%d мс, p99=%d мс, макс=%d мс%n",
+            waitTimeHistogram.getPercentile(50), waitTimeHistogram.getPercentile(90),
+            waitTimeHistogram.getPercentile(99), waitTimeHistogram.getMax());
+        System.out.printf("Ожидание посадки: среднее=%.0f мс, p50=%d мс, p99=%d мс, макс=%d мс%n",
+            pickupWaitHistogram.getMean(), pickupWaitHistogram.getPercentile(50),
+            pickupWaitHistogram.getPercentile(99), pickupWaitHistogram.getMax());
+        System.out.printf("Задержка диспетчера: p50=%d мкс, p99=%d мкс, p99.9=%d мкс, макс=%d мкс%n",
+            dispatchLatencyHistogram.getPercentile(50), dispatchLatencyHistogram.getPercentile(99),
+            dispatchLatencyHistogram.getPercentile(99.9), dispatchLatencyHistogram.getMax());
+        if (queueOccupancyHistogram.getCount() > 0) {
+            System.out.printf("Очередь заказов: p50=%d, p99=%d, макс=%d; отклонено: %d (%s)%n",
+                queueOccupancyHistogram.getPercentile(50), queueOccupancyHistogram.getPercentile(99),
+                queueOccupancyHistogram.getMax(), getRejectedRequests(), formatRejectedByType());
+        }
+        if (routeCacheHits + routeCacheMisses > 0) {
+            System.out.printf("Кэш маршрутов: попаданий %d, промахов %d (%.1f%%), вытеснено %d%n",
+                routeCacheHits, routeCacheMisses, getRouteCacheHitRate() * 100, routeCacheEvictions);
+        }
+        if (fleetMillis > 0) {
+            System.out.printf("Загрузка парка: %.1f%%, крюк поездок: %.1f%%, поездок на такси в час: %.1f%n",
+                getFleetUtilisation() * 100, getDetourOverhead() * 100, getRidesPerTaxiHour());
+        }
+        if (rebalanceMoves > 0) {
+            System.out.printf("Перегон к спросу: %d раз, пробег %.2f%n", rebalanceMoves, rebalanceDistance);
+        }
+        if (journalRecords > 0) {
+            System.out.printf("Журнал заказов: записей %d, force() %d (%.1f записей на force), %d КБ; " +
+                "прием p50=%d мкс, p99=%d мкс; восстановлено заказов: %d%n",
+                journalRecords, journalForces, getJournalRecordsPerForce(), journalBytes / 1024,
+                journalCommitHistogram.getPercentile(50), journalCommitHistogram.getPercentile(99), recoveredRequests);
+        }
+        if (historySegments > 0) {
+            System.out.printf("История поездок: %d поездок, сегментов %d, вне кучи %d КБ, отброшено %d%n",
+                historyRides, historySegments, historyOffHeapBytes / 1024, historyDropped);
+        }
         System.out.printf("Среднее время поездки: %.1f сек%n", getAverageRideTimeSeconds());
         System.out.printf("Среднее расстояние: %.2f%n", getAverageDistance());
         System.out.printf("Средняя стоимость поездки: %.2f%n", getAverageFare());
@@ -0,0 +1,45 @@
+package trace;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+
+// Последовательное чтение бинарной трассы поверх TripFile.
+// Файл отображается в память окнами, поэтому многогигабайтные трассы
+// читаются без загрузки в кучу.
+public class BinaryTripReader implements TripReader {
+
+    private final TripFile file;
+    private long position = 0;
+
+    public BinaryTripReader(Path path) throws IOException {
+        this.file = new TripFile(path);
+    }
+
+    @Override
+    public boolean next(TripRecord record) throws IOException {
+        if (position >= file.getRecordCount()) {
+            return false;
+        }
+        file.read(position++, record);
+        return true;
+    }
+
+    // Перемещает курсор к первой поездке не раньше указанного времени
+    public void seekToTimestamp(long timestampMillis) throws IOException {
+        position = file.findFirstAtOrAfter(timestampMillis);
+    }
+
+    public long getRecordCount() {
+        return file.getRecordCount();
+    }
+
+    public TripFile getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,84 @@
+package trace;
+
+import models.TaxiType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+
+// Потоковое чтение CSV-трассы построчно, в памяти держится только буфер ридера.
+// Формат строки: timestamp_ms,pickup_x,pickup_y,dropoff_x,dropoff_y[,type]
+// Строки, начинающиеся не с цифры (заголовок, комментарии), пропускаются.
+public class CsvTripReader implements TripReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final BufferedReader reader;
+    private long lineNumber = 0;
+
+    public CsvTripReader(Path path) throws IOException {
+        this.reader = new BufferedReader(
+            new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    @Override
+    public boolean next(TripRecord record) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isEmpty() || !Character.isDigit(line.charAt(0))) {
+                continue;
+            }
+            parseLine(line, record);
+            return true;
+        }
+        return false;
+    }
+
+    private void parseLine(String line, TripRecord record) throws IOException {
+        try {
+            int start = 0;
+            int end = line.indexOf(',', start);
+            long timestamp = Long.parseLong(line.substring(start, end).trim());
+
+            start = end + 1;
+            end = line.indexOf(',', start);
+            double pickupX = Double.parseDouble(line.substring(start, end));
+
+            start = end + 1;
+            end = line.indexOf(',', start);
+            double pickupY = Double.parseDouble(line.substring(start, end));
+
+            start = end + 1;
+            end = line.indexOf(',', start);
+            double dropoffX = Double.parseDouble(line.substring(start, end));
+
+            start = end + 1;
+            end = line.indexOf(',', start);
+            double dropoffY = Double.parseDouble(
+                line.substring(start, end < 0 ? line.length() : end));
+
+            TaxiType type = null;
+            if (end >= 0) {
+                String typeName = line.substring(end + 1).trim();
+                if (!typeName.isEmpty()) {
+                    type = TaxiType.valueOf(typeName.toUpperCase(Locale.ROOT));
+                }
+            }
+
+            record.set(timestamp, pickupX, pickupY, dropoffX, dropoffY, type);
+        } catch (RuntimeException e) {
+            throw new IOException("Ошибка разбора строки " + lineNumber + ": " + line, e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
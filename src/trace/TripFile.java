@@ -0,0 +1,214 @@
+package trace;
+
+import models.Point;
+import models.RideRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+
+// Бинарная трасса с произвольным доступом к записям по номеру.
+// Записи читаются напрямую из отображенных в память окон файла (без копирования
+// и разбора), окна отображаются лениво по мере обращения.
+public class TripFile implements Closeable {
+
+    // Размер окна кратен размеру записи, чтобы запись не пересекала границу окна
+    static final long WINDOW_SIZE = (64L << 20) / TripFileFormat.RECORD_SIZE * TripFileFormat.RECORD_SIZE;
+    private static final long RECORDS_PER_WINDOW = WINDOW_SIZE / TripFileFormat.RECORD_SIZE;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final long recordCount;
+    private final MappedByteBuffer[] windows;
+    private final long[] timeIndex;
+    private final int indexInterval;
+
+    public TripFile(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() < TripFileFormat.HEADER_SIZE) {
+                throw new IOException("Файл " + path + " слишком короткий для трассы поездок");
+            }
+            this.header = channel.map(FileChannel.MapMode.READ_ONLY, 0, TripFileFormat.HEADER_SIZE);
+            header.order(TripFileFormat.BYTE_ORDER);
+
+            if (header.getInt(TripFileFormat.OFFSET_MAGIC) != TripFileFormat.MAGIC) {
+                throw new IOException("Файл " + path + " не является бинарной трассой поездок");
+            }
+            int version = header.getInt(TripFileFormat.OFFSET_VERSION);
+            if (version != TripFileFormat.VERSION) {
+                throw new IOException("Неподдерживаемая версия трассы: " + version);
+            }
+
+            this.recordCount = header.getLong(TripFileFormat.OFFSET_RECORD_COUNT);
+            long dataEnd = TripFileFormat.HEADER_SIZE + recordCount * TripFileFormat.RECORD_SIZE;
+            if (recordCount < 0 || dataEnd > channel.size()) {
+                throw new IOException("Трасса повреждена: ожидалось " + recordCount +
+                                      " записей, размер файла " + channel.size());
+            }
+            this.windows = new MappedByteBuffer[(int) ((recordCount + RECORDS_PER_WINDOW - 1) / RECORDS_PER_WINDOW)];
+
+            long indexOffset = header.getLong(TripFileFormat.OFFSET_INDEX_OFFSET);
+            int interval = header.getInt(TripFileFormat.OFFSET_INDEX_INTERVAL);
+            if (indexOffset > 0 && interval > 0) {
+                this.indexInterval = interval;
+                this.timeIndex = readIndex(indexOffset, (int) ((recordCount + interval - 1) / interval));
+            } else {
+                this.indexInterval = 0;
+                this.timeIndex = null;
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private long[] readIndex(long offset, int entries) throws IOException {
+        if (offset + (long) entries * Long.BYTES > channel.size()) {
+            throw new IOException("Временной индекс трассы поврежден");
+        }
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) entries * Long.BYTES);
+        buffer.order(TripFileFormat.BYTE_ORDER);
+        long[] index = new long[entries];
+        buffer.asLongBuffer().get(index);
+        return index;
+    }
+
+    private MappedByteBuffer window(long recordNumber) throws IOException {
+        int windowNumber = (int) (recordNumber / RECORDS_PER_WINDOW);
+        MappedByteBuffer window = windows[windowNumber];
+        if (window == null) {
+            long start = TripFileFormat.HEADER_SIZE + windowNumber * WINDOW_SIZE;
+            long size = Math.min(WINDOW_SIZE, (recordCount - windowNumber * RECORDS_PER_WINDOW) * TripFileFormat.RECORD_SIZE);
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+            window.order(TripFileFormat.BYTE_ORDER);
+            windows[windowNumber] = window;
+        }
+        return window;
+    }
+
+    private static int offsetInWindow(long recordNumber) {
+        return (int) (recordNumber % RECORDS_PER_WINDOW) * TripFileFormat.RECORD_SIZE;
+    }
+
+    // =========== Доступ к записям ============
+
+    public long timestampAt(long recordNumber) throws IOException {
+        return window(recordNumber).getLong(offsetInWindow(recordNumber) + TripFileFormat.FIELD_TIMESTAMP);
+    }
+
+    public void read(long recordNumber, TripRecord record) throws IOException {
+        MappedByteBuffer window = window(recordNumber);
+        int offset = offsetInWindow(recordNumber);
+        record.set(
+            window.getLong(offset + TripFileFormat.FIELD_TIMESTAMP),
+            window.getFloat(offset + TripFileFormat.FIELD_PICKUP_X),
+            window.getFloat(offset + TripFileFormat.FIELD_PICKUP_Y),
+            window.getFloat(offset + TripFileFormat.FIELD_DROPOFF_X),
+            window.getFloat(offset + TripFileFormat.FIELD_DROPOFF_Y),
+            TripFileFormat.decodeType(window.get(offset + TripFileFormat.FIELD_TYPE)));
+    }
+
+    // Создает заказ прямо из записи, минуя промежуточный TripRecord.
+    // Номер заказа - номер записи в трассе, начиная с 1.
+    public RideRequest toRideRequest(long recordNumber) throws IOException {
+        MappedByteBuffer window = window(recordNumber);
+        int offset = offsetInWindow(recordNumber);
+        return new RideRequest(
+            recordNumber + 1,
+            new Point(window.getFloat(offset + TripFileFormat.FIELD_PICKUP_X),
+                      window.getFloat(offset + TripFileFormat.FIELD_PICKUP_Y)),
+            new Point(window.getFloat(offset + TripFileFormat.FIELD_DROPOFF_X),
+                      window.getFloat(offset + TripFileFormat.FIELD_DROPOFF_Y)),
+            TripFileFormat.decodeType(window.get(offset + TripFileFormat.FIELD_TYPE)));
+    }
+
+    // Номер первой записи со временем >= timestampMillis (трасса должна быть отсортирована).
+    // С индексом - бинарный поиск по индексу и короткий просмотр блока, без индекса - по записям.
+    public long findFirstAtOrAfter(long timestampMillis) throws IOException {
+        long low = 0;
+        long high = recordCount;
+
+        if (timeIndex != null) {
+            int entry = Arrays.binarySearch(timeIndex, timestampMillis);
+            if (entry < 0) {
+                entry = -entry - 1;
+            }
+            // Ищем влево до первого совпадения, ответ лежит в блоке перед найденной точкой индекса
+            while (entry > 0 && timeIndex[entry - 1] >= timestampMillis) {
+                entry--;
+            }
+            low = Math.max(0, (long) (entry - 1) * indexInterval);
+            high = Math.min(recordCount, (long) entry * indexInterval);
+        }
+
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (timestampAt(mid) < timestampMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // =========== Заголовок ============
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public long getMinTimestamp() {
+        return header.getLong(TripFileFormat.OFFSET_MIN_TIMESTAMP);
+    }
+
+    public long getMaxTimestamp() {
+        return header.getLong(TripFileFormat.OFFSET_MAX_TIMESTAMP);
+    }
+
+    public double getMinX() {
+        return header.getFloat(TripFileFormat.OFFSET_MIN_X);
+    }
+
+    public double getMaxX() {
+        return header.getFloat(TripFileFormat.OFFSET_MAX_X);
+    }
+
+    public double getMinY() {
+        return header.getFloat(TripFileFormat.OFFSET_MIN_Y);
+    }
+
+    public double getMaxY() {
+        return header.getFloat(TripFileFormat.OFFSET_MAX_Y);
+    }
+
+    public boolean hasTimeIndex() {
+        return timeIndex != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        Arrays.fill(windows, null);
+        channel.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(java.util.Locale.US,
+            "Трасса %s: %d записей, время [%d, %d], город (%.1f, %.1f) - (%.1f, %.1f), индекс: %s",
+            path, recordCount, getMinTimestamp(), getMaxTimestamp(),
+            getMinX(), getMinY(), getMaxX(), getMaxY(), hasTimeIndex() ? "есть" : "нет");
+    }
+}
@@ -0,0 +1,512 @@
+package trace;
+
+import models.TaxiType;
+import util.ConsoleLog;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+// Многопоточный конвертер CSV-трассы в бинарный формат TripFileFormat.
+//
+// CSV разбивается на куски по границам строк. Первый проход параллельно считает
+// строки в каждом куске, по префиксным суммам каждый кусок получает свой участок
+// выходного файла. Второй проход параллельно разбирает байты CSV прямо из
+// отображенного в память файла (без создания строк) и пишет записи в свой участок.
+public class TripFileConverter {
+
+    // Ограничение размера куска: MappedByteBuffer адресуется int-ом
+    private static final long MAX_CHUNK_SIZE = 256L << 20;
+
+    private static final byte[][] TYPE_NAMES = typeNames();
+
+    private final int threads;
+    private final int indexInterval;
+
+    public TripFileConverter(int threads) {
+        this(threads, TripFileFormat.DEFAULT_INDEX_INTERVAL);
+    }
+
+    public TripFileConverter(int threads, int indexInterval) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Количество потоков должно быть положительным");
+        }
+        this.threads = threads;
+        this.indexInterval = indexInterval;
+    }
+
+    public long convert(Path csvPath, Path outputPath) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (FileChannel input = FileChannel.open(csvPath, StandardOpenOption.READ)) {
+            List<long[]> chunks = splitIntoChunks(input);
+
+            // 1. Считаем записи в каждом куске
+            List<Future<Long>> counts = new ArrayList<>();
+            for (long[] chunk : chunks) {
+                counts.add(executor.submit(() -> countRecords(input, chunk[0], chunk[1])));
+            }
+            long[] firstRecord = new long[chunks.size()];
+            long recordCount = 0;
+            for (int i = 0; i < chunks.size(); i++) {
+                firstRecord[i] = recordCount;
+                recordCount += await(counts.get(i));
+            }
+
+            long dataEnd = TripFileFormat.HEADER_SIZE + recordCount * TripFileFormat.RECORD_SIZE;
+            try (RandomAccessFile file = new RandomAccessFile(outputPath.toFile(), "rw")) {
+                file.setLength(dataEnd);
+                FileChannel output = file.getChannel();
+
+                // 2. Разбираем и пишем куски в свои участки выходного файла
+                List<Future<ChunkStats>> results = new ArrayList<>();
+                for (int i = 0; i < chunks.size(); i++) {
+                    long[] chunk = chunks.get(i);
+                    long outputOffset = TripFileFormat.HEADER_SIZE + firstRecord[i] * TripFileFormat.RECORD_SIZE;
+                    results.add(executor.submit(
+                        () -> convertChunk(input, chunk[0], chunk[1], output, outputOffset)));
+                }
+                ChunkStats total = new ChunkStats();
+                for (Future<ChunkStats> result : results) {
+                    total.merge(await(result));
+                }
+
+                // 3. Индекс по времени имеет смысл только для отсортированной трассы
+                long indexOffset = 0;
+                if (total.sorted && recordCount > 0 && indexInterval > 0) {
+                    indexOffset = dataEnd;
+                    writeIndex(output, recordCount, indexOffset);
+                } else if (!total.sorted) {
+                    ConsoleLog.println("Трасса не отсортирована по времени, временной индекс не строится");
+                }
+
+                writeHeader(output, recordCount, total, indexOffset);
+                output.force(false);
+            }
+            return recordCount;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<long[]> splitIntoChunks(FileChannel input) throws IOException {
+        long size = input.size();
+        long chunkCount = Math.max(threads * 4L, (size + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+        long chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(1, size / chunkCount));
+
+        List<long[]> chunks = new ArrayList<>();
+        long start = 0;
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        while (start < size) {
+            long end = Math.min(size, start + chunkSize);
+            // Сдвигаем конец куска до конца строки
+            while (end < size) {
+                probe.clear();
+                int read = input.read(probe, end);
+                int newline = -1;
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        newline = i;
+                        break;
+                    }
+                }
+                if (newline >= 0) {
+                    end += newline + 1;
+                    break;
+                }
+                end += read;
+            }
+            chunks.add(new long[] {start, end});
+            start = end;
+        }
+        return chunks;
+    }
+
+    private static long countRecords(FileChannel input, long start, long end) throws IOException {
+        MappedByteBuffer buffer = input.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        long count = 0;
+        int limit = buffer.limit();
+        boolean lineStart = true;
+        for (int i = 0; i < limit; i++) {
+            byte b = buffer.get(i);
+            if (lineStart && b >= '0' && b <= '9') {
+                count++;
+            }
+            lineStart = b == '\n';
+        }
+        return count;
+    }
+
+    private static ChunkStats convertChunk(FileChannel input, long start, long end,
+                                           FileChannel output, long outputOffset) throws IOException {
+        MappedByteBuffer in = input.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        CsvCursor cursor = new CsvCursor(in, start);
+        ChunkStats stats = new ChunkStats();
+
+        List<MappedByteBuffer> mapped = new ArrayList<>();
+        MappedByteBuffer out = null;
+        long written = 0;
+        long windowRecords = TripFile.WINDOW_SIZE / TripFileFormat.RECORD_SIZE;
+
+        while (cursor.hasRemaining()) {
+            if (!cursor.atRecordStart()) {
+                cursor.skipLine();
+                continue;
+            }
+            if (out == null || !out.hasRemaining()) {
+                long remainingBytes = countRemainingBytes(output, outputOffset, written);
+                long size = Math.min(remainingBytes, windowRecords * TripFileFormat.RECORD_SIZE);
+                out = output.map(FileChannel.MapMode.READ_WRITE,
+                                 outputOffset + written * TripFileFormat.RECORD_SIZE, size);
+                out.order(TripFileFormat.BYTE_ORDER);
+                mapped.add(out);
+            }
+
+            long timestamp = cursor.parseLong();
+            float pickupX = (float) cursor.parseDouble();
+            float pickupY = (float) cursor.parseDouble();
+            float dropoffX = (float) cursor.parseDouble();
+            float dropoffY = (float) cursor.parseDouble();
+            byte type = cursor.parseType();
+            cursor.skipLine();
+
+            out.putLong(timestamp);
+            out.putFloat(pickupX);
+            out.putFloat(pickupY);
+            out.putFloat(dropoffX);
+            out.putFloat(dropoffY);
+            out.put(type);
+            out.position(out.position() + TripFileFormat.RECORD_SIZE - TripFileFormat.FIELD_TYPE - 1);
+            written++;
+
+            stats.add(timestamp, pickupX, pickupY);
+            stats.add(timestamp, dropoffX, dropoffY);
+        }
+
+        for (MappedByteBuffer buffer : mapped) {
+            buffer.force();
+        }
+        return stats;
+    }
+
+    private static long countRemainingBytes(FileChannel output, long outputOffset, long written) throws IOException {
+        return output.size() - outputOffset - written * TripFileFormat.RECORD_SIZE;
+    }
+
+    private void writeIndex(FileChannel output, long recordCount, long indexOffset) throws IOException {
+        int entries = (int) ((recordCount + indexInterval - 1) / indexInterval);
+        ByteBuffer index = ByteBuffer.allocate(entries * Long.BYTES).order(TripFileFormat.BYTE_ORDER);
+        ByteBuffer timestamp = ByteBuffer.allocate(Long.BYTES).order(TripFileFormat.BYTE_ORDER);
+        for (long record = 0; record < recordCount; record += indexInterval) {
+            timestamp.clear();
+            output.read(timestamp, TripFileFormat.HEADER_SIZE + record * TripFileFormat.RECORD_SIZE
+                                   + TripFileFormat.FIELD_TIMESTAMP);
+            index.putLong(timestamp.getLong(0));
+        }
+        index.flip();
+        long position = indexOffset;
+        while (index.hasRemaining()) {
+            position += output.write(index, position);
+        }
+    }
+
+    private void writeHeader(FileChannel output, long recordCount, ChunkStats stats, long indexOffset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(TripFileFormat.HEADER_SIZE).order(TripFileFormat.BYTE_ORDER);
+        header.putInt(TripFileFormat.OFFSET_MAGIC, TripFileFormat.MAGIC);
+        header.putInt(TripFileFormat.OFFSET_VERSION, TripFileFormat.VERSION);
+        header.putLong(TripFileFormat.OFFSET_RECORD_COUNT, recordCount);
+        header.putLong(TripFileFormat.OFFSET_MIN_TIMESTAMP, recordCount > 0 ? stats.minTimestamp : 0);
+        header.putLong(TripFileFormat.OFFSET_MAX_TIMESTAMP, recordCount > 0 ? stats.maxTimestamp : 0);
+        header.putFloat(TripFileFormat.OFFSET_MIN_X, recordCount > 0 ? stats.minX : 0);
+        header.putFloat(TripFileFormat.OFFSET_MAX_X, recordCount > 0 ? stats.maxX : 0);
+        header.putFloat(TripFileFormat.OFFSET_MIN_Y, recordCount > 0 ? stats.minY : 0);
+        header.putFloat(TripFileFormat.OFFSET_MAX_Y, recordCount > 0 ? stats.maxY : 0);
+        header.putLong(TripFileFormat.OFFSET_INDEX_OFFSET, indexOffset);
+        header.putInt(TripFileFormat.OFFSET_INDEX_INTERVAL, indexOffset > 0 ? indexInterval : 0);
+        output.write(header, 0);
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Конвертация прервана", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Ошибка конвертации трассы", cause);
+        }
+    }
+
+    private static byte[][] typeNames() {
+        TaxiType[] types = TaxiType.values();
+        byte[][] names = new byte[types.length][];
+        for (int i = 0; i < types.length; i++) {
+            names[i] = types[i].name().getBytes(StandardCharsets.US_ASCII);
+        }
+        return names;
+    }
+
+
+    // Статистика куска: диапазон времени, границы города и признак сортировки
+    private static class ChunkStats {
+        long minTimestamp = Long.MAX_VALUE;
+        long maxTimestamp = Long.MIN_VALUE;
+        long firstTimestamp = Long.MIN_VALUE;
+        long lastTimestamp = Long.MIN_VALUE;
+        float minX = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE;
+        float minY = Float.MAX_VALUE;
+        float maxY = -Float.MAX_VALUE;
+        boolean sorted = true;
+        boolean empty = true;
+
+        void add(long timestamp, float x, float y) {
+            if (empty) {
+                firstTimestamp = timestamp;
+                empty = false;
+            } else if (timestamp < lastTimestamp) {
+                sorted = false;
+            }
+            lastTimestamp = timestamp;
+            minTimestamp = Math.min(minTimestamp, timestamp);
+            maxTimestamp = Math.max(maxTimestamp, timestamp);
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+
+        // Куски объединяются в порядке следования в файле
+        void merge(ChunkStats next) {
+            if (next.empty) {
+                return;
+            }
+            if (!empty && next.firstTimestamp < lastTimestamp) {
+                sorted = false;
+            }
+            sorted &= next.sorted;
+            if (empty) {
+                firstTimestamp = next.firstTimestamp;
+                empty = false;
+            }
+            lastTimestamp = next.lastTimestamp;
+            minTimestamp = Math.min(minTimestamp, next.minTimestamp);
+            maxTimestamp = Math.max(maxTimestamp, next.maxTimestamp);
+            minX = Math.min(minX, next.minX);
+            maxX = Math.max(maxX, next.maxX);
+            minY = Math.min(minY, next.minY);
+            maxY = Math.max(maxY, next.maxY);
+        }
+    }
+
+
+    // Разбор полей CSV прямо из байтов без создания строк
+    private static class CsvCursor {
+        private static final double[] POWERS_OF_TEN = new double[23];
+        static {
+            POWERS_OF_TEN[0] = 1.0;
+            for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+                POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10.0;
+            }
+        }
+
+        private final ByteBuffer buffer;
+        private final long fileOffset;
+        private final int limit;
+        private int position = 0;
+
+        CsvCursor(ByteBuffer buffer, long fileOffset) {
+            this.buffer = buffer;
+            this.fileOffset = fileOffset;
+            this.limit = buffer.limit();
+        }
+
+        boolean hasRemaining() {
+            return position < limit;
+        }
+
+        boolean atRecordStart() {
+            byte b = buffer.get(position);
+            return b >= '0' && b <= '9';
+        }
+
+        void skipLine() {
+            while (position < limit && buffer.get(position++) != '\n') {
+                // пропускаем до конца строки
+            }
+        }
+
+        long parseLong() throws IOException {
+            skipSpaces();
+            long value = 0;
+            int digits = 0;
+            while (position < limit) {
+                byte b = buffer.get(position);
+                if (b < '0' || b > '9') {
+                    break;
+                }
+                value = value * 10 + (b - '0');
+                position++;
+                digits++;
+            }
+            if (digits == 0) {
+                throw error("ожидалось целое число");
+            }
+            expectSeparator();
+            return value;
+        }
+
+        double parseDouble() throws IOException {
+            skipSpaces();
+            boolean negative = false;
+            if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                negative = buffer.get(position) == '-';
+                position++;
+            }
+
+            long mantissa = 0;
+            int digits = 0;
+            int exponent = 0;
+            boolean fraction = false;
+            while (position < limit) {
+                byte b = buffer.get(position);
+                if (b == '.' && !fraction) {
+                    fraction = true;
+                } else if (b >= '0' && b <= '9') {
+                    // Лишние знаки за пределами точности long отбрасываем
+                    if (mantissa < 100_000_000_000_000_000L) {
+                        mantissa = mantissa * 10 + (b - '0');
+                        if (fraction) {
+                            exponent--;
+                        }
+                    } else if (!fraction) {
+                        exponent++;
+                    }
+                    digits++;
+                } else {
+                    break;
+                }
+                position++;
+            }
+            if (digits == 0) {
+                throw error("ожидалось число");
+            }
+            if (position < limit && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+                position++;
+                boolean negativeExponent = false;
+                if (position < limit && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                    negativeExponent = buffer.get(position) == '-';
+                    position++;
+                }
+                int value = 0;
+                while (position < limit && buffer.get(position) >= '0' && buffer.get(position) <= '9') {
+                    value = value * 10 + (buffer.get(position++) - '0');
+                }
+                exponent += negativeExponent ? -value : value;
+            }
+            expectSeparator();
+
+            double result = mantissa;
+            if (exponent < 0) {
+                result = -exponent < POWERS_OF_TEN.length ? result / POWERS_OF_TEN[-exponent] : result * Math.pow(10, exponent);
+            } else if (exponent > 0) {
+                result = exponent < POWERS_OF_TEN.length ? result * POWERS_OF_TEN[exponent] : result * Math.pow(10, exponent);
+            }
+            return negative ? -result : result;
+        }
+
+        // Тип - последнее необязательное поле строки
+        byte parseType() throws IOException {
+            skipSpaces();
+            int start = position;
+            while (position < limit) {
+                byte b = buffer.get(position);
+                if (b == '\n' || b == '\r' || b == ' ' || b == ',') {
+                    break;
+                }
+                position++;
+            }
+            int length = position - start;
+            if (length == 0) {
+                return -1;
+            }
+            for (int type = 0; type < TYPE_NAMES.length; type++) {
+                byte[] name = TYPE_NAMES[type];
+                if (name.length == length && matchesIgnoreCase(start, name)) {
+                    return (byte) type;
+                }
+            }
+            throw error("неизвестный тип такси");
+        }
+
+        private boolean matchesIgnoreCase(int start, byte[] name) {
+            for (int i = 0; i < name.length; i++) {
+                byte b = buffer.get(start + i);
+                if (b >= 'a' && b <= 'z') {
+                    b -= 'a' - 'A';
+                }
+                if (b != name[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void skipSpaces() {
+            while (position < limit && buffer.get(position) == ' ') {
+                position++;
+            }
+        }
+
+        private void expectSeparator() throws IOException {
+            skipSpaces();
+            if (position < limit && buffer.get(position) == ',') {
+                position++;
+            } else if (position < limit && buffer.get(position) != '\n' && buffer.get(position) != '\r') {
+                throw error("ожидалась запятая");
+            }
+        }
+
+        private IOException error(String message) {
+            return new IOException(String.format(Locale.US,
+                "Ошибка разбора CSV на байте %d: %s", fileOffset + position, message));
+        }
+    }
+
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Использование: java trace.TripFileConverter <вход.csv> <выход.trips> [потоки]");
+            System.exit(1);
+        }
+        int threads = args.length >= 3 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        long start = System.nanoTime();
+        long records = new TripFileConverter(threads).convert(Paths.get(args[0]), Paths.get(args[1]));
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf(Locale.US, "Сконвертировано %d записей за %.2f с (%.0f записей/с, потоков: %d)%n",
+                          records, seconds, records / Math.max(seconds, 1e-9), threads);
+        try (TripFile file = new TripFile(Paths.get(args[1]))) {
+            System.out.println(file);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package trace;
+
+import models.TaxiType;
+
+import java.nio.ByteOrder;
+
+
+// Бинарный формат трассы поездок: заголовок фиксированного размера,
+// затем записи фиксированной длины.
+//
+// Заголовок (64 байта):
+//   0  int   MAGIC
+//   4  int   VERSION
+//   8  long  количество записей
+//   16 long  минимальное время заказа, мс
+//   24 long  максимальное время заказа, мс
+//   32 float minX, 36 float maxX, 40 float minY, 44 float maxY - границы города
+//   48 long  смещение временного индекса (0 - индекса нет)
+//   56 int   шаг индекса в записях
+//   60..63   зарезервировано
+//
+// Запись (32 байта):
+//   0  long  время заказа, мс
+//   8  float pickup x
+//   12 float pickup y
+//   16 float dropoff x
+//   20 float dropoff y
+//   24 byte  ordinal TaxiType (-1 - любой тип)
+//   25..31   выравнивание
+//
+// Временной индекс (необязательный, после записей): long[] - время заказа
+// каждой INDEX_INTERVAL-ой записи. Позволяет найти позицию по времени
+// бинарным поиском без сканирования файла. Строится, только если трасса
+// отсортирована по времени.
+public final class TripFileFormat {
+
+    public static final String FILE_EXTENSION = ".trips";
+
+    public static final int MAGIC = 0x54524950; // "TRIP"
+    public static final int VERSION = 1;
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    public static final int HEADER_SIZE = 64;
+    public static final int OFFSET_MAGIC = 0;
+    public static final int OFFSET_VERSION = 4;
+    public static final int OFFSET_RECORD_COUNT = 8;
+    public static final int OFFSET_MIN_TIMESTAMP = 16;
+    public static final int OFFSET_MAX_TIMESTAMP = 24;
+    public static final int OFFSET_MIN_X = 32;
+    public static final int OFFSET_MAX_X = 36;
+    public static final int OFFSET_MIN_Y = 40;
+    public static final int OFFSET_MAX_Y = 44;
+    public static final int OFFSET_INDEX_OFFSET = 48;
+    public static final int OFFSET_INDEX_INTERVAL = 56;
+    
+    public static final int DEFAULT_INDEX_INTERVAL = 4096;
+
+    public static final int RECORD_SIZE = 32;
+    public static final int FIELD_TIMESTAMP = 0;
+    public static final int FIELD_PICKUP_X = 8;
+    public static final int FIELD_PICKUP_Y = 12;
+    public static final int FIELD_DROPOFF_X = 16;
+    public static final int FIELD_DROPOFF_Y = 20;
+    public static final int FIELD_TYPE = 24;
+
+    private static final TaxiType[] TYPES = TaxiType.values();
+
+    private TripFileFormat() {}
+
+    public static TaxiType decodeType(byte ordinal) {
+        return ordinal >= 0 && ordinal < TYPES.length ? TYPES[ordinal] : null;
+    }
+
+    public static byte encodeType(TaxiType type) {
+        return type == null ? (byte) -1 : (byte) type.ordinal();
+    }
+}
@@ -0,0 +1,22 @@
+package trace;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Locale;
+
+
+public interface TripReader extends Closeable {
+
+    // Заполняет record следующей поездкой. Возвращает false, если трасса закончилась
+    boolean next(TripRecord record) throws IOException;
+
+    // Открывает трассу: *.trips - бинарный формат, все остальное читается как CSV
+    static TripReader open(Path path) throws IOException {
+        String fileName = path.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (fileName.endsWith(TripFileFormat.FILE_EXTENSION)) {
+            return new BinaryTripReader(path);
+        }
+        return new CsvTripReader(path);
+    }
+}
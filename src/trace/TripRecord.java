@@ -0,0 +1,56 @@
+package trace;
+
+import models.TaxiType;
+
+
+// Изменяемая запись поездки из трассы. Переиспользуется читателем,
+// чтобы при потоковом чтении не создавать объект на каждую строку.
+public class TripRecord {
+    private long timestampMillis;
+    private double pickupX;
+    private double pickupY;
+    private double dropoffX;
+    private double dropoffY;
+    private TaxiType type;
+
+    public void set(long timestampMillis, double pickupX, double pickupY,
+                    double dropoffX, double dropoffY, TaxiType type) {
+        this.timestampMillis = timestampMillis;
+        this.pickupX = pickupX;
+        this.pickupY = pickupY;
+        this.dropoffX = dropoffX;
+        this.dropoffY = dropoffY;
+        this.type = type;
+    }
+
+    // =========== Геттеры ============
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public double getPickupX() {
+        return pickupX;
+    }
+
+    public double getPickupY() {
+        return pickupY;
+    }
+
+    public double getDropoffX() {
+        return dropoffX;
+    }
+
+    public double getDropoffY() {
+        return dropoffY;
+    }
+
+    public TaxiType getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(java.util.Locale.US, "Поездка @%d: (%.2f, %.2f) -> (%.2f, %.2f) [%s]",
+            timestampMillis, pickupX, pickupY, dropoffX, dropoffY, type);
+    }
+}
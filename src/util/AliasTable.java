@@ -0,0 +1,83 @@
+package util;
+
+import java.util.SplittableRandom;
+
+
+// Выбор индекса с заданными весами за O(1) - метод псевдонимов (alias method, вариант Vose).
+//
+// Веса нормируются так, что на каждый индекс приходится ровно одна «корзина» вероятности 1/n.
+// Корзина i хранит свою долю prob[i] и псевдоним alias[i] - индекс, которому отдан остаток.
+// Выбор - случайная корзина и одно сравнение: без поиска по накопленным весам, сколько бы
+// ни было вариантов. Построение за O(n). Таблица неизменяема и годится для нескольких потоков,
+// случайность берется только из переданного random.
+public final class AliasTable {
+
+    private final double[] prob;
+    private final int[] alias;
+
+    public AliasTable(double[] weights) {
+        int n = weights.length;
+        if (n == 0) {
+            throw new IllegalArgumentException("Нужен хотя бы один вес");
+        }
+        double total = 0;
+        for (double weight : weights) {
+            if (weight < 0 || Double.isNaN(weight) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Вес должен быть неотрицательным числом: " + weight);
+            }
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("Сумма весов должна быть положительной");
+        }
+
+        this.prob = new double[n];
+        this.alias = new int[n];
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / total;
+            if (scaled[i] < 1.0) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+        // Недобор малой корзины покрывается из большой, остаток большой снова раскладывается
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            prob[less] = scaled[less];
+            alias[less] = more;
+            scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+            if (scaled[more] < 1.0) {
+                small[smallCount++] = more;
+            } else {
+                large[largeCount++] = more;
+            }
+        }
+        // Оставшиеся корзины полные (с точностью до округления)
+        while (largeCount > 0) {
+            int i = large[--largeCount];
+            prob[i] = 1.0;
+            alias[i] = i;
+        }
+        while (smallCount > 0) {
+            int i = small[--smallCount];
+            prob[i] = 1.0;
+            alias[i] = i;
+        }
+    }
+
+    public int sample(SplittableRandom random) {
+        int bucket = random.nextInt(prob.length);
+        return random.nextDouble() < prob[bucket] ? bucket : alias[bucket];
+    }
+
+    public int size() {
+        return prob.length;
+    }
+}
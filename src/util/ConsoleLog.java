@@ -0,0 +1,37 @@
+package util;
+
+
+// Журнал событий симуляции в консоль. Вывод можно отключить целиком
+// (бенчмарки, пакетные прогоны) - тогда println/printf ничего не печатают.
+public class ConsoleLog {
+    
+    private static volatile boolean enabled = true;
+    
+    private ConsoleLog() {}
+    
+    public static boolean isEnabled() {
+        return enabled;
+    }
+    
+    public static void setEnabled(boolean enabled) {
+        ConsoleLog.enabled = enabled;
+    }
+    
+    public static void println() {
+        if (enabled) {
+            System.out.println();
+        }
+    }
+    
+    public static void println(String message) {
+        if (enabled) {
+            System.out.println(message);
+        }
+    }
+    
+    public static void printf(String format, Object... args) {
+        if (enabled) {
+            System.out.printf(format, args);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package util;
+
+
+// Потоковая запись JSON в StringBuilder без рефлексии и сторонних библиотек.
+// Запятые и отступы расставляются автоматически:
+//   json.beginObject().name("rides").value(10).name("p99").value(1.5).endObject();
+public class JsonWriter {
+    
+    private static final int MAX_DEPTH = 64;
+    
+    private final StringBuilder out;
+    private final boolean pretty;
+    // Для каждого уровня вложенности: был ли уже записан элемент
+    private final boolean[] hasElements = new boolean[MAX_DEPTH];
+    private int depth = 0;
+    private boolean afterName = false;
+    
+    public JsonWriter(StringBuilder out, boolean pretty) {
+        this.out = out;
+        this.pretty = pretty;
+    }
+    
+    public JsonWriter beginObject() {
+        beforeValue();
+        out.append('{');
+        push();
+        return this;
+    }
+    
+    public JsonWriter endObject() {
+        pop('}');
+        return this;
+    }
+    
+    public JsonWriter beginArray() {
+        beforeValue();
+        out.append('[');
+        push();
+        return this;
+    }
+    
+    public JsonWriter endArray() {
+        pop(']');
+        return this;
+    }
+    
+    public JsonWriter name(String name) {
+        beforeElement();
+        writeString(name);
+        out.append(pretty ? ": " : ":");
+        afterName = true;
+        return this;
+    }
+    
+    public JsonWriter value(String value) {
+        beforeValue();
+        if (value == null) {
+            out.append("null");
+        } else {
+            writeString(value);
+        }
+        return this;
+    }
+    
+    public JsonWriter value(long value) {
+        beforeValue();
+        out.append(value);
+        return this;
+    }
+    
+    public JsonWriter value(double value) {
+        beforeValue();
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            out.append("null");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        return this;
+    }
+    
+    public JsonWriter value(boolean value) {
+        beforeValue();
+        out.append(value);
+        return this;
+    }
+    
+    public StringBuilder getOutput() {
+        return out;
+    }
+    
+    @Override
+    public String toString() {
+        return out.toString();
+    }
+    
+    // ============ Внутренние методы ============
+    
+    private void push() {
+        if (depth + 1 >= MAX_DEPTH) {
+            throw new IllegalStateException("Слишком глубокая вложенность JSON");
+        }
+        depth++;
+        hasElements[depth] = false;
+    }
+    
+    private void pop(char bracket) {
+        if (depth == 0) {
+            throw new IllegalStateException("Нет открытого объекта или массива");
+        }
+        boolean empty = !hasElements[depth];
+        depth--;
+        if (!empty) {
+            newLine();
+        }
+        out.append(bracket);
+    }
+    
+    private void beforeValue() {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            beforeElement();
+        }
+    }
+    
+    private void beforeElement() {
+        if (hasElements[depth]) {
+            out.append(',');
+        }
+        hasElements[depth] = true;
+        newLine();
+    }
+    
+    private void newLine() {
+        if (pretty) {
+            out.append('\n');
+            for (int i = 0; i < depth; i++) {
+                out.append("  ");
+            }
+        }
+    }
+    
+    private void writeString(String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,306 @@
+package util;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+
+// Кольцевой буфер "много производителей - один потребитель" в духе Disruptor.
+//
+// Слоты выделены заранее, размер - степень двойки (индекс = номер & mask).
+// Производитель захватывает номер слота через CAS по счетчику захвата, пишет элемент
+// и публикует его, записывая номер в массив published. Потребитель читает подряд
+// опубликованные слоты и одной записью своего счетчика освобождает всю пачку
+// (drainTo), поэтому на элемент нет ни блокировок, ни выделения узлов.
+//
+// Ожидание данных (потребитель) и места (производитель) - по WaitStrategy; при PARK
+// спящего потребителя будит публикация, спящих производителей - освобождение слотов.
+// Изымать элементы (take/poll/drainTo) может только один поток.
+public class MpscRingBuffer<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+    
+    // Счетчик в отдельной строке кэша, чтобы производители и потребитель
+    // не мешали друг другу ложным разделением
+    static final class Sequence {
+        long p1, p2, p3, p4, p5, p6, p7;
+        volatile long value;
+        long p9, p10, p11, p12, p13, p14, p15;
+        
+        Sequence(long initial) {
+            value = initial;
+        }
+    }
+    
+    private static final AtomicLongFieldUpdater<Sequence> VALUE =
+        AtomicLongFieldUpdater.newUpdater(Sequence.class, "value");
+    
+    private final Object[] slots;
+    // Номер последней публикации в каждом слоте (-1 - слот еще не использовался)
+    private final AtomicLongArray published;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    
+    // Следующий номер для захвата производителем
+    private final Sequence claimSequence = new Sequence(0);
+    // Следующий номер для чтения потребителем; все номера ниже уже освобождены
+    private final Sequence consumerSequence = new Sequence(0);
+    
+    // Для WaitStrategy.PARK: поток потребителя, если он спит в ожидании данных,
+    // и производители, которые спят в ожидании места
+    private volatile Thread parkedConsumer;
+    private final ConcurrentLinkedQueue<Thread> parkedProducers = new ConcurrentLinkedQueue<>();
+    
+    public MpscRingBuffer(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Размер кольцевого буфера должен быть степенью двойки: " + capacity);
+        }
+        this.slots = new Object[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1L);
+        }
+        this.mask = capacity - 1;
+        this.waitStrategy = waitStrategy;
+    }
+    
+    // ================= Производители =================
+    
+    @Override
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException();
+        }
+        long sequence;
+        do {
+            sequence = claimSequence.value;
+            if (sequence - consumerSequence.value >= slots.length) {
+                return false;
+            }
+        } while (!VALUE.compareAndSet(claimSequence, sequence, sequence + 1));
+        
+        publish(sequence, element);
+        return true;
+    }
+    
+    @Override
+    public void put(E element) throws InterruptedException {
+        int attempt = 0;
+        while (!offer(element)) {
+            awaitSpace(attempt++, Long.MAX_VALUE);
+        }
+    }
+    
+    @Override
+    public boolean offer(E element, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int attempt = 0;
+        while (!offer(element)) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                checkInterrupted();
+                return false;
+            }
+            awaitSpace(attempt++, remaining);
+        }
+        return true;
+    }
+    
+    private void publish(long sequence, E element) {
+        int index = (int) sequence & mask;
+        slots[index] = element;
+        // Volatile-запись, а не lazySet: она не переставляется с чтением parkedConsumer ниже,
+        // иначе потребитель мог бы уснуть после того, как мы прочитали null, и проспать элемент
+        published.set(index, sequence);
+        
+        Thread consumer = parkedConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+    
+    // ================= Потребитель =================
+    
+    @Override
+    public E poll() {
+        long sequence = consumerSequence.value;
+        int index = (int) sequence & mask;
+        if (published.get(index) != sequence) {
+            return null;
+        }
+        E element = elementAt(index);
+        slots[index] = null;
+        release(sequence + 1);
+        return element;
+    }
+    
+    @Override
+    public E take() throws InterruptedException {
+        int attempt = 0;
+        E element;
+        while ((element = poll()) == null) {
+            awaitData(attempt++, Long.MAX_VALUE);
+        }
+        return element;
+    }
+    
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int attempt = 0;
+        E element;
+        while ((element = poll()) == null) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return null;
+            }
+            awaitData(attempt++, remaining);
+        }
+        return element;
+    }
+    
+    // Забирает все подряд опубликованные элементы (не больше maxElements)
+    // и освобождает их слоты одной записью счетчика потребителя
+    @Override
+    public int drainTo(Collection<? super E> collection, int maxElements) {
+        long first = consumerSequence.value;
+        int count = 0;
+        while (count < maxElements) {
+            long sequence = first + count;
+            int index = (int) sequence & mask;
+            if (published.get(index) != sequence) {
+                break;
+            }
+            collection.add(elementAt(index));
+            slots[index] = null;
+            count++;
+        }
+        if (count > 0) {
+            release(first + count);
+        }
+        return count;
+    }
+    
+    @Override
+    public int drainTo(Collection<? super E> collection) {
+        return drainTo(collection, Integer.MAX_VALUE);
+    }
+    
+    private void awaitData(int attempt, long maxNanos) throws InterruptedException {
+        checkInterrupted();
+        if (waitStrategy != WaitStrategy.PARK || attempt < WaitStrategy.PARK_SPIN_TRIES) {
+            waitStrategy.idle(attempt, this);
+            return;
+        }
+        // Объявляем о сне и перепроверяем: публикация между проверками разбудит нас
+        parkedConsumer = Thread.currentThread();
+        try {
+            if (isEmpty()) {
+                LockSupport.parkNanos(this, Math.min(maxNanos, WaitStrategy.MAX_PARK_NANOS));
+            }
+        } finally {
+            parkedConsumer = null;
+        }
+    }
+    
+    // Освобождает слоты до next. При PARK запись volatile: производитель, объявивший о сне,
+    // либо увидит место при перепроверке, либо попадет в обход ниже и будет разбужен
+    private void release(long next) {
+        if (waitStrategy != WaitStrategy.PARK) {
+            VALUE.lazySet(consumerSequence, next);
+            return;
+        }
+        consumerSequence.value = next;
+        if (!parkedProducers.isEmpty()) {
+            for (Thread producer : parkedProducers) {
+                LockSupport.unpark(producer);
+            }
+        }
+    }
+    
+    private void awaitSpace(int attempt, long maxNanos) throws InterruptedException {
+        checkInterrupted();
+        if (waitStrategy != WaitStrategy.PARK || attempt < WaitStrategy.PARK_SPIN_TRIES) {
+            waitStrategy.idle(attempt, this);
+            return;
+        }
+        // Как у потребителя: объявляем о сне и перепроверяем, есть ли место
+        Thread producer = Thread.currentThread();
+        parkedProducers.add(producer);
+        try {
+            if (claimSequence.value - consumerSequence.value >= slots.length) {
+                LockSupport.parkNanos(this, Math.min(maxNanos, WaitStrategy.MAX_PARK_NANOS));
+            }
+        } finally {
+            parkedProducers.remove(producer);
+        }
+    }
+    
+    private static void checkInterrupted() throws InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private E elementAt(int index) {
+        return (E) slots[index];
+    }
+    
+    // ================= Остальное из BlockingQueue =================
+    
+    @Override
+    public E peek() {
+        long sequence = consumerSequence.value;
+        int index = (int) sequence & mask;
+        return published.get(index) == sequence ? elementAt(index) : null;
+    }
+    
+    // Захваченные, но еще не опубликованные слоты тоже считаются занятыми
+    @Override
+    public int size() {
+        long size = claimSequence.value - consumerSequence.value;
+        return (int) Math.max(0, Math.min(size, slots.length));
+    }
+    
+    @Override
+    public boolean isEmpty() {
+        long sequence = consumerSequence.value;
+        return published.get((int) sequence & mask) != sequence;
+    }
+    
+    @Override
+    public int remainingCapacity() {
+        return slots.length - size();
+    }
+    
+    public int getCapacity() {
+        return slots.length;
+    }
+    
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy;
+    }
+    
+    // Снимок опубликованных элементов; удаление через итератор не поддерживается
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        long sequence = consumerSequence.value;
+        for (int i = 0; i < slots.length; i++, sequence++) {
+            int index = (int) sequence & mask;
+            if (published.get(index) != sequence) {
+                break;
+            }
+            snapshot.add(elementAt(index));
+        }
+        return Collections.unmodifiableList(snapshot).iterator();
+    }
+}
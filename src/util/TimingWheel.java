@@ -0,0 +1,347 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+
+// Иерархическое хешированное колесо таймеров.
+//
+// Время делится на тики длительностью tickNanos. Уровень 0 - колесо из wheelSize ячеек
+// по одному тику, каждая следующая ячейка уровня L покрывает wheelSize^L тиков.
+// Таймер кладется в ячейку того уровня, в пределах оборота которого лежит его срок;
+// когда нижний уровень завершает оборот, очередная ячейка верхнего уровня
+// раскладывается вниз. Постановка и отмена - O(1) (двусвязный список в ячейке),
+// а за тик все истекшие таймеры ячейки снимаются разом и отдаются исполнителю пачками.
+//
+// Колесом владеет один поток-тикер: новые и отмененные таймеры передаются ему через
+// неблокирующие очереди, поэтому schedule() и cancel() можно вызывать из любых потоков.
+// Точность срабатывания - один тик (таймер не срабатывает раньше срока).
+public class TimingWheel {
+
+    // Сколько истекших таймеров отдается исполнителю одной задачей
+    private static final int EXPIRY_BATCH_SIZE = 256;
+
+    private static final int PENDING = 0;
+    private static final int CANCELLED = 1;
+    private static final int EXPIRED = 2;
+
+    private final long tickNanos;
+    private final int wheelBits;
+    private final int mask;
+    private final Bucket[][] wheels;
+    private final Executor executor;
+
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingTimers = new AtomicLong();
+
+    private final long startNanos;
+    private final Thread ticker;
+    private volatile boolean running = true;
+
+    // Последний обработанный тик; меняет только поток-тикер
+    private long currentTick = 0;
+
+    // executor == null - таймеры выполняются прямо в потоке-тикере
+    public TimingWheel(long tickDuration, TimeUnit unit, int wheelSize, int levels, Executor executor) {
+        if (wheelSize < 2 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Размер колеса должен быть степенью двойки: " + wheelSize);
+        }
+        if (levels < 1 || (long) Integer.numberOfTrailingZeros(wheelSize) * levels > 62) {
+            throw new IllegalArgumentException("Неверное число уровней колеса: " + levels);
+        }
+        this.tickNanos = Math.max(1, unit.toNanos(tickDuration));
+        this.wheelBits = Integer.numberOfTrailingZeros(wheelSize);
+        this.mask = wheelSize - 1;
+        this.wheels = new Bucket[levels][wheelSize];
+        for (Bucket[] wheel : wheels) {
+            for (int i = 0; i < wheelSize; i++) {
+                wheel[i] = new Bucket();
+            }
+        }
+        this.executor = executor;
+
+        this.startNanos = System.nanoTime();
+        this.ticker = new Thread(this::runTicker, "timing-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    // Выполнить task не раньше чем через delay
+    public Timeout schedule(long delay, TimeUnit unit, Runnable task) {
+        if (!running) {
+            throw new IllegalStateException("Колесо таймеров остановлено");
+        }
+        long deadlineNanos = System.nanoTime() + unit.toNanos(Math.max(0, delay)) - startNanos;
+        // Округляем вверх: таймер не должен сработать раньше срока
+        long deadlineTick = (deadlineNanos + tickNanos - 1) / tickNanos;
+        Timeout timeout = new Timeout(this, task, deadlineTick);
+        pendingTimers.incrementAndGet();
+        added.add(timeout);
+        return timeout;
+    }
+
+    // Останавливает тикер; невыполненные таймеры отбрасываются
+    public void stop() {
+        running = false;
+        LockSupport.unpark(ticker);
+        if (Thread.currentThread() != ticker) {
+            boolean interrupted = false;
+            while (ticker.isAlive()) {
+                try {
+                    ticker.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Запланированные и еще не сработавшие и не отмененные таймеры
+    public long getPendingTimers() {
+        return pendingTimers.get();
+    }
+
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    // ================= Поток-тикер =================
+
+    private void runTicker() {
+        List<Runnable> expired = new ArrayList<>();
+        while (running) {
+            long nextTickNanos = startNanos + (currentTick + 1) * tickNanos;
+            long sleepNanos = nextTickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+                continue;
+            }
+
+            // Обрабатываем все наступившие тики (после паузы тикера их может быть несколько)
+            long nowTick = (System.nanoTime() - startNanos) / tickNanos;
+            processCancelled();
+            processAdded(expired);
+            while (currentTick < nowTick) {
+                currentTick++;
+                cascade(expired);
+                expire(wheels[0][(int) currentTick & mask], expired);
+            }
+            dispatch(expired);
+        }
+    }
+
+    private void processAdded(List<Runnable> expired) {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.state == PENDING) {
+                place(timeout, expired);
+            }
+        }
+    }
+
+    private void processCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+        }
+    }
+
+    // Кладет таймер в ячейку самого нижнего уровня, в пределах оборота которого лежит его срок
+    private void place(Timeout timeout, List<Runnable> expired) {
+        long deadline = timeout.deadlineTick;
+        if (deadline <= currentTick) {
+            if (timeout.expire()) {
+                pendingTimers.decrementAndGet();
+                expired.add(timeout.task);
+            }
+            return;
+        }
+        int top = wheels.length - 1;
+        for (int level = 0; level < top; level++) {
+            int shift = wheelBits * (level + 1);
+            if ((deadline >>> shift) == (currentTick >>> shift)) {
+                wheels[level][(int) (deadline >>> (wheelBits * level)) & mask].add(timeout);
+                return;
+            }
+        }
+        // Верхний уровень; сроки дальше его оборота переразложатся при следующем проходе ячейки
+        wheels[top][(int) (deadline >>> (wheelBits * top)) & mask].add(timeout);
+    }
+
+    // На границе оборота нижнего уровня раскладываем вниз очередную ячейку верхнего,
+    // начиная с самого старшего уровня, у которого завершился оборот
+    private void cascade(List<Runnable> expired) {
+        int levels = 0;
+        for (int level = 1; level < wheels.length; level++) {
+            long lowBits = currentTick & ((1L << (wheelBits * level)) - 1);
+            if (lowBits != 0) {
+                break;
+            }
+            levels = level;
+        }
+        for (int level = levels; level >= 1; level--) {
+            Bucket bucket = wheels[level][(int) (currentTick >>> (wheelBits * level)) & mask];
+            Timeout timeout = bucket.detachAll();
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                timeout.next = null;
+                timeout.prev = null;
+                if (timeout.state == PENDING) {
+                    place(timeout, expired);
+                }
+                timeout = next;
+            }
+        }
+    }
+
+    private void expire(Bucket bucket, List<Runnable> expired) {
+        Timeout timeout = bucket.detachAll();
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.next = null;
+            timeout.prev = null;
+            if (timeout.expire()) {
+                pendingTimers.decrementAndGet();
+                expired.add(timeout.task);
+            }
+            timeout = next;
+        }
+    }
+
+    private void dispatch(List<Runnable> expired) {
+        if (expired.isEmpty()) {
+            return;
+        }
+        if (executor == null) {
+            for (Runnable task : expired) {
+                runSafely(task);
+            }
+        } else {
+            for (int from = 0; from < expired.size(); from += EXPIRY_BATCH_SIZE) {
+                Runnable[] batch = expired.subList(from, Math.min(expired.size(), from + EXPIRY_BATCH_SIZE))
+                                          .toArray(new Runnable[0]);
+                executor.execute(() -> {
+                    for (Runnable task : batch) {
+                        runSafely(task);
+                    }
+                });
+            }
+        }
+        expired.clear();
+    }
+
+    private static void runSafely(Runnable task) {
+        try {
+            task.run();
+        } catch (RuntimeException e) {
+            System.err.println("Ошибка в таймере: " + e);
+        }
+    }
+
+
+    // Запланированное действие колеса
+    public static final class Timeout {
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private final TimingWheel wheel;
+        private final Runnable task;
+        private final long deadlineTick;
+        private volatile int state = PENDING;
+
+        // Положение в ячейке; меняет только поток-тикер
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(TimingWheel wheel, Runnable task, long deadlineTick) {
+            this.wheel = wheel;
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        // true - таймер отменен до срабатывания
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, PENDING, CANCELLED)) {
+                return false;
+            }
+            wheel.pendingTimers.decrementAndGet();
+            wheel.cancelled.add(this);
+            return true;
+        }
+
+        private boolean expire() {
+            return STATE.compareAndSet(this, PENDING, EXPIRED);
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+    }
+
+
+    // Ячейка колеса: двусвязный список таймеров
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.prev = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        // Забирает весь список; у таймеров сбрасывается ссылка на ячейку
+        Timeout detachAll() {
+            Timeout first = head;
+            for (Timeout timeout = first; timeout != null; timeout = timeout.next) {
+                timeout.bucket = null;
+            }
+            head = null;
+            tail = null;
+            return first;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package util;
+
+import java.util.concurrent.locks.LockSupport;
+
+
+// Как поток ждет, пока в кольцевом буфере появятся данные (или место):
+//   SPIN  - активное ожидание, минимальная задержка, занимает ядро целиком
+//   YIELD - уступает процессор другим потокам между проверками
+//   PARK  - после короткого активного ожидания засыпает, будится производителем
+public enum WaitStrategy {
+    SPIN("spin"),
+    YIELD("yield"),
+    PARK("park");
+    
+    // Сколько проверок PARK делает до засыпания
+    static final int PARK_SPIN_TRIES = 100;
+    
+    // Предельное время сна PARK: страховка от пропущенного пробуждения
+    static final long MAX_PARK_NANOS = 1_000_000L;
+    
+    private final String code;
+    
+    WaitStrategy(String code) {
+        this.code = code;
+    }
+    
+    public String getCode() {
+        return code;
+    }
+    
+    // Одна пауза между проверками; attempt - номер попытки с начала ожидания
+    void idle(int attempt, Object blocker) {
+        switch (this) {
+            case SPIN:
+                Thread.onSpinWait();
+                break;
+            case YIELD:
+                Thread.yield();
+                break;
+            default:
+                if (attempt < PARK_SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(blocker, MAX_PARK_NANOS);
+                }
+        }
+    }
+    
+    public static WaitStrategy fromCode(String code) {
+        if (code == null) {
+            return PARK;
+        }
+        
+        for (WaitStrategy strategy : values()) {
+            if (strategy.code.equalsIgnoreCase(code.trim())) {
+                return strategy;
+            }
+        }
+        
+        // Если код не распознан, возвращаем значение по умолчанию
+        return PARK;
+    }
+    
+    @Override
+    public String toString() {
+        return code;
+    }
+}